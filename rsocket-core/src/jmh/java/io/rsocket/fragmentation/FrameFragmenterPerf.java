@@ -0,0 +1,58 @@
+package io.rsocket.fragmentation;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.rsocket.frame.FrameType;
+import io.rsocket.frame.PayloadFrameFlyweight;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import reactor.core.publisher.Flux;
+
+/** Fragments large payload frames, like a file transfer does, and releases every fragment. */
+@BenchmarkMode(Mode.Throughput)
+@Fork(value = 1)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@State(Scope.Thread)
+public class FrameFragmenterPerf {
+
+  @Param({"1048576", "16777216"})
+  int payloadSize;
+
+  @Param({"1024", "16384", "65536"})
+  int mtu;
+
+  @Param({"false", "true"})
+  boolean encodeLength;
+
+  ByteBufAllocator allocator;
+  ByteBuf data;
+  Blackhole bh;
+
+  @Setup
+  public void setup(Blackhole bh) {
+    this.bh = bh;
+    allocator = ByteBufAllocator.DEFAULT;
+    data = allocator.directBuffer(payloadSize);
+    data.writerIndex(payloadSize);
+  }
+
+  @TearDown
+  public void tearDown() {
+    data.release();
+  }
+
+  @Benchmark
+  public void fragment() {
+    ByteBuf frame =
+        PayloadFrameFlyweight.encode(allocator, 1, false, true, true, null, data.retainedSlice());
+    Flux.from(
+            FrameFragmenter.fragmentFrame(
+                allocator, mtu, frame, FrameType.NEXT_COMPLETE, encodeLength))
+        .subscribe(
+            fragment -> {
+              bh.consume(fragment);
+              fragment.release();
+            });
+  }
+}
@@ -0,0 +1,126 @@
+package io.rsocket.fragmentation;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.rsocket.frame.FrameType;
+import io.rsocket.frame.PayloadFrameFlyweight;
+import java.util.ArrayList;
+import java.util.List;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.SynchronousSink;
+import reactor.util.context.Context;
+
+/**
+ * Reassembles many fragmented PAYLOAD frames whose fragments arrive interleaved, as they do on a
+ * connection multiplexing concurrent large responses. Throughput is reported per fragment.
+ */
+@BenchmarkMode(Mode.Throughput)
+@Fork(value = 1)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@State(Scope.Thread)
+public class FrameReassemblerPerf {
+
+  @Param({"1", "16", "256"})
+  int streams;
+
+  @Param({"16", "64"})
+  int fragmentsPerStream;
+
+  @Param({"1024"})
+  int mtu;
+
+  FrameReassembler reassembler;
+  ByteBuf[] fragments;
+  SynchronousSink<ByteBuf> sink;
+
+  @Setup
+  public void setup(Blackhole bh) {
+    ByteBufAllocator allocator = ByteBufAllocator.DEFAULT;
+    reassembler = new FrameReassembler(allocator);
+    sink = new ReleasingSink(bh);
+
+    // one fragment of every stream in turn
+    List<List<ByteBuf>> perStream = new ArrayList<>(streams);
+    for (int i = 0; i < streams; i++) {
+      ByteBuf data = allocator.buffer(mtu * fragmentsPerStream);
+      data.writerIndex(data.capacity());
+      ByteBuf frame =
+          PayloadFrameFlyweight.encode(allocator, 2 * i + 1, false, true, true, null, data);
+      perStream.add(
+          Flux.from(
+                  FrameFragmenter.fragmentFrame(
+                      allocator, mtu, frame, FrameType.NEXT_COMPLETE, false))
+              .collectList()
+              .block());
+    }
+    List<ByteBuf> interleaved = new ArrayList<>();
+    for (int i = 0; interleaved.size() < streams * perStream.get(0).size(); i++) {
+      for (List<ByteBuf> stream : perStream) {
+        if (i < stream.size()) {
+          interleaved.add(stream.get(i));
+        }
+      }
+    }
+    fragments = interleaved.toArray(new ByteBuf[0]);
+  }
+
+  @TearDown
+  public void tearDown() {
+    reassembler.dispose();
+    for (ByteBuf fragment : fragments) {
+      fragment.release();
+    }
+  }
+
+  @Benchmark
+  public void reassemble(FragmentCount count) {
+    FrameReassembler reassembler = this.reassembler;
+    SynchronousSink<ByteBuf> sink = this.sink;
+    for (ByteBuf fragment : fragments) {
+      reassembler.reassembleFrame(fragment.retainedDuplicate(), sink);
+    }
+    count.fragments += fragments.length;
+  }
+
+  /** Reports the number of fragments reassembled, rather than the number of invocations. */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  public static class FragmentCount {
+    public long fragments;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      fragments = 0;
+    }
+  }
+
+  static final class ReleasingSink implements SynchronousSink<ByteBuf> {
+    final Blackhole bh;
+
+    ReleasingSink(Blackhole bh) {
+      this.bh = bh;
+    }
+
+    @Override
+    public void next(ByteBuf frame) {
+      bh.consume(frame);
+      frame.release();
+    }
+
+    @Override
+    public void complete() {}
+
+    @Override
+    public void error(Throwable e) {
+      throw new IllegalStateException(e);
+    }
+
+    @Override
+    public Context currentContext() {
+      return Context.empty();
+    }
+  }
+}
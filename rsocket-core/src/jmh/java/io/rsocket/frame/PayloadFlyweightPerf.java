@@ -6,6 +6,11 @@
 import org.openjdk.jmh.annotations.*;
 import org.openjdk.jmh.infra.Blackhole;
 
+/**
+ * Encodes and decodes payload frames. Run with the GC profiler, as configured in {@code
+ * jmh.gradle}, to compare the allocation rate of composed frames with frames copied below the copy
+ * threshold.
+ */
 @BenchmarkMode(Mode.Throughput)
 @Fork(
     value = 1 // , jvmArgsAppend = {"-Dio.netty.leakDetection.level=advanced"}
@@ -18,14 +23,52 @@ public class PayloadFlyweightPerf {
   @Benchmark
   public void encode(Input input) {
     ByteBuf encode =
-        PayloadFrameFlyweight.encode(
+        input.flyweight.encode(
             input.allocator,
             100,
             false,
             true,
             false,
+            0,
             Unpooled.wrappedBuffer(input.metadata),
-            Unpooled.wrappedBuffer(input.data));
+            Unpooled.wrappedBuffer(input.data),
+            input.copyThreshold);
+    boolean release = encode.release();
+    input.bh.consume(release);
+  }
+
+  @Benchmark
+  public void encodeSmall(Input input) {
+    ByteBuf encode =
+        input.flyweight.encode(
+            input.allocator,
+            100,
+            false,
+            true,
+            false,
+            0,
+            Unpooled.wrappedBuffer(input.smallMetadata),
+            Unpooled.wrappedBuffer(input.smallData),
+            input.copyThreshold);
+    boolean release = encode.release();
+    input.bh.consume(release);
+  }
+
+  @Benchmark
+  public void encodeSmallPooled(Input input) {
+    ByteBuf metadata = input.allocator.buffer(input.smallMetadata.length);
+    ByteBuf data = input.allocator.buffer(input.smallData.length);
+    ByteBuf encode =
+        input.flyweight.encode(
+            input.allocator,
+            100,
+            false,
+            true,
+            false,
+            0,
+            metadata.writeBytes(input.smallMetadata),
+            data.writeBytes(input.smallData),
+            input.copyThreshold);
     boolean release = encode.release();
     input.bh.consume(release);
   }
@@ -41,12 +84,18 @@ public void decode(Input input) {
 
   @State(Scope.Benchmark)
   public static class Input {
+    @Param({"0", "256"})
+    int copyThreshold;
+
     Blackhole bh;
     FrameType frameType;
+    RequestFlyweight flyweight = new RequestFlyweight(FrameType.PAYLOAD);
     ByteBufAllocator allocator;
     ByteBuf payload;
     byte[] metadata = new byte[512];
     byte[] data = new byte[4096];
+    byte[] smallMetadata = new byte[16];
+    byte[] smallData = new byte[64];
 
     @Setup
     public void setup(Blackhole bh) {
@@ -0,0 +1,138 @@
+package io.rsocket.internal;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.rsocket.DuplexConnection;
+import io.rsocket.frame.FrameHeaderFlyweight;
+import io.rsocket.frame.KeepAliveFrameFlyweight;
+import io.rsocket.frame.RequestResponseFrameFlyweight;
+import io.rsocket.plugins.DuplexConnectionInterceptor.Type;
+import io.rsocket.plugins.PluginRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.DirectProcessor;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Measures inbound frames per second through a single connection, comparing {@link
+ * ClientServerInputMultiplexer} with the {@code groupBy} routing it replaced.
+ */
+@BenchmarkMode(Mode.Throughput)
+@Fork(value = 1)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@State(Scope.Thread)
+public class ClientServerInputMultiplexerPerf {
+
+  static final int FRAMES = 1024;
+
+  @Param({"groupBy", "direct"})
+  String dispatch;
+
+  DirectProcessor<ByteBuf> inbound;
+  ByteBuf[] frames;
+
+  @Setup
+  public void setup(Blackhole bh) {
+    inbound = DirectProcessor.create();
+    frames = new ByteBuf[FRAMES];
+    for (int i = 0; i < FRAMES; i++) {
+      // mostly requests on client and server initiated streams, with the occasional keepalive
+      frames[i] =
+          i % 64 == 0
+              ? KeepAliveFrameFlyweight.encode(
+                  ByteBufAllocator.DEFAULT, false, 0, Unpooled.EMPTY_BUFFER)
+              : RequestResponseFrameFlyweight.encode(
+                  ByteBufAllocator.DEFAULT,
+                  i,
+                  false,
+                  Unpooled.EMPTY_BUFFER,
+                  Unpooled.wrappedBuffer(new byte[64]));
+    }
+
+    DuplexConnection source = new InboundConnection(inbound);
+    switch (dispatch) {
+      case "groupBy":
+        source
+            .receive()
+            .groupBy(ClientServerInputMultiplexerPerf::type)
+            .subscribe(group -> group.subscribe(bh::consume));
+        break;
+      case "direct":
+        ClientServerInputMultiplexer multiplexer =
+            new ClientServerInputMultiplexer(source, new PluginRegistry(), false);
+        multiplexer.asSetupConnection().receive().subscribe(bh::consume);
+        multiplexer.asClientConnection().receive().subscribe(bh::consume);
+        multiplexer.asServerConnection().receive().subscribe(bh::consume);
+        break;
+      default:
+        throw new IllegalStateException("unknown dispatch " + dispatch);
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    inbound.onComplete();
+    for (ByteBuf frame : frames) {
+      frame.release();
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(FRAMES)
+  public void inboundFrames() {
+    DirectProcessor<ByteBuf> inbound = this.inbound;
+    for (ByteBuf frame : frames) {
+      inbound.onNext(frame);
+    }
+  }
+
+  /* the classification done by ClientServerInputMultiplexer on the server side */
+  static Type type(ByteBuf frame) {
+    int streamId = FrameHeaderFlyweight.streamId(frame);
+    if (streamId == 0) {
+      switch (FrameHeaderFlyweight.frameType(frame)) {
+        case SETUP:
+        case RESUME:
+        case RESUME_OK:
+          return Type.SETUP;
+        case LEASE:
+        case KEEPALIVE:
+        case ERROR:
+          return Type.SERVER;
+        default:
+          return Type.CLIENT;
+      }
+    }
+    return (streamId & 0b1) == 0 ? Type.SERVER : Type.CLIENT;
+  }
+
+  static final class InboundConnection implements DuplexConnection {
+    final Flux<ByteBuf> inbound;
+
+    InboundConnection(Flux<ByteBuf> inbound) {
+      this.inbound = inbound;
+    }
+
+    @Override
+    public Mono<Void> send(Publisher<ByteBuf> frames) {
+      return Mono.empty();
+    }
+
+    @Override
+    public Flux<ByteBuf> receive() {
+      return inbound;
+    }
+
+    @Override
+    public Mono<Void> onClose() {
+      return Mono.never();
+    }
+
+    @Override
+    public void dispose() {}
+  }
+}
@@ -0,0 +1,140 @@
+package io.rsocket.internal;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares {@link SynchronizedIntObjectHashMap} with {@link ConcurrentIntObjectHashMap} using the
+ * access pattern of {@code RSocketRequester}/{@code RSocketResponder}: every stream is put once,
+ * looked up for each of its frames and removed on termination, while other threads do the same for
+ * their own streams on the same connection.
+ */
+@BenchmarkMode(Mode.Throughput)
+@Fork(value = 1)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@State(Scope.Benchmark)
+public class IntObjectMapPerf {
+
+  static final int FRAMES_PER_STREAM = 4;
+  static final int LIVE_STREAMS_PER_THREAD = 256;
+
+  @Param({"synchronized", "concurrent"})
+  String map;
+
+  StreamMap<Object> streams;
+
+  @Setup
+  public void setup() {
+    switch (map) {
+      case "synchronized":
+        SynchronizedIntObjectHashMap<Object> synchronizedMap = new SynchronizedIntObjectHashMap<>();
+        streams =
+            new StreamMap<Object>() {
+              @Override
+              public Object get(int key) {
+                return synchronizedMap.get(key);
+              }
+
+              @Override
+              public void put(int key, Object value) {
+                synchronizedMap.put(key, value);
+              }
+
+              @Override
+              public Object remove(int key) {
+                return synchronizedMap.remove(key);
+              }
+            };
+        break;
+      case "concurrent":
+        ConcurrentIntObjectHashMap<Object> concurrentMap = new ConcurrentIntObjectHashMap<>();
+        streams =
+            new StreamMap<Object>() {
+              @Override
+              public Object get(int key) {
+                return concurrentMap.get(key);
+              }
+
+              @Override
+              public void put(int key, Object value) {
+                concurrentMap.put(key, value);
+              }
+
+              @Override
+              public Object remove(int key) {
+                return concurrentMap.remove(key);
+              }
+            };
+        break;
+      default:
+        throw new IllegalArgumentException("unknown map " + map);
+    }
+  }
+
+  @Benchmark
+  @Threads(1)
+  public void streamLifecycle1Thread(StreamIds ids, Blackhole bh) {
+    streamLifecycle(ids, bh);
+  }
+
+  @Benchmark
+  @Threads(4)
+  public void streamLifecycle4Threads(StreamIds ids, Blackhole bh) {
+    streamLifecycle(ids, bh);
+  }
+
+  @Benchmark
+  @Threads(16)
+  public void streamLifecycle16Threads(StreamIds ids, Blackhole bh) {
+    streamLifecycle(ids, bh);
+  }
+
+  private void streamLifecycle(StreamIds ids, Blackhole bh) {
+    StreamMap<Object> streams = this.streams;
+    int streamId = ids.next();
+    streams.put(streamId, ids);
+    for (int i = 0; i < FRAMES_PER_STREAM; i++) {
+      bh.consume(streams.get(streamId));
+    }
+    // the stream opened LIVE_STREAMS_PER_THREAD iterations ago terminates now
+    bh.consume(streams.remove(ids.expired()));
+  }
+
+  interface StreamMap<V> {
+    V get(int key);
+
+    void put(int key, V value);
+
+    V remove(int key);
+  }
+
+  /** Hands out stream ids that never collide with the ids of other benchmark threads. */
+  @State(Scope.Thread)
+  public static class StreamIds {
+    static final AtomicInteger THREADS = new AtomicInteger();
+
+    final int stride = 2 * 64;
+    int base;
+    int current;
+
+    @Setup(Level.Trial)
+    public void setup() {
+      base = 2 * (THREADS.getAndIncrement() % 64) + 1;
+      current = base;
+    }
+
+    int next() {
+      current += stride;
+      if (current < 0) {
+        current = base;
+      }
+      return current;
+    }
+
+    int expired() {
+      return current - LIVE_STREAMS_PER_THREAD * stride;
+    }
+  }
+}
@@ -0,0 +1,72 @@
+package io.rsocket.internal;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+
+/**
+ * Races downstream {@code request(n)} calls against {@code increaseInternalLimit(n)} calls on the
+ * same {@link LimitableRequestPublisher}, the way a responder stream receives REQUEST_N frames from
+ * the connection while its subscriber requests more.
+ */
+@BenchmarkMode(Mode.Throughput)
+@Fork(value = 1)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@State(Scope.Group)
+public class LimitableRequestPublisherPerf {
+
+  LimitableRequestPublisher<Object> publisher;
+
+  @Setup
+  public void setup(Blackhole bh) {
+    Flux<Object> source =
+        Flux.from(
+            s ->
+                s.onSubscribe(
+                    new Subscription() {
+                      @Override
+                      public void request(long n) {
+                        bh.consume(n);
+                      }
+
+                      @Override
+                      public void cancel() {}
+                    }));
+    publisher = LimitableRequestPublisher.wrap(source, 0);
+    publisher.subscribe(
+        new BaseSubscriber<Object>() {
+          @Override
+          protected void hookOnSubscribe(Subscription subscription) {}
+        });
+  }
+
+  @TearDown
+  public void tearDown() {
+    publisher.cancel();
+  }
+
+  @Benchmark
+  @Group("uncontended")
+  @GroupThreads(1)
+  public void request() {
+    publisher.request(1);
+    publisher.increaseInternalLimit(1);
+  }
+
+  @Benchmark
+  @Group("contended")
+  @GroupThreads(2)
+  public void externalRequest() {
+    publisher.request(1);
+  }
+
+  @Benchmark
+  @Group("contended")
+  @GroupThreads(2)
+  public void internalRequest() {
+    publisher.increaseInternalLimit(1);
+  }
+}
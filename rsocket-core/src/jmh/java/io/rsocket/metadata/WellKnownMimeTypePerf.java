@@ -1,5 +1,10 @@
 package io.rsocket.metadata;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.CompositeByteBuf;
+import io.rsocket.metadata.CompositeMetadata.Entry;
 import org.openjdk.jmh.annotations.*;
 import org.openjdk.jmh.infra.Blackhole;
 
@@ -10,6 +15,39 @@
 @State(Scope.Thread)
 public class WellKnownMimeTypePerf {
 
+  static final String TRACING_MIME_TYPE = "application/x.tracing";
+
+  // routing and tracing entries, as they would precede the payload of a request
+  ByteBuf compositeMetadata;
+  CompositeMetadataCursor cursor;
+
+  @Setup
+  public void setup() {
+    ByteBufAllocator allocator = ByteBufAllocator.DEFAULT;
+    CompositeByteBuf metadata = allocator.compositeBuffer();
+    CompositeMetadataFlyweight.encodeAndAddMetadata(
+        metadata,
+        allocator,
+        WellKnownMimeType.MESSAGE_RSOCKET_ROUTING,
+        ByteBufUtil.writeAscii(allocator, "orders.create"));
+    CompositeMetadataFlyweight.encodeAndAddMetadata(
+        metadata,
+        allocator,
+        WellKnownMimeType.MESSAGE_RSOCKET_TRACING_ZIPKIN,
+        allocator.buffer(16).writeLong(42).writeLong(43));
+    CompositeMetadataFlyweight.encodeAndAddMetadata(
+        metadata, allocator, "application/x.tenant", ByteBufUtil.writeAscii(allocator, "acme"));
+    CompositeMetadataFlyweight.encodeAndAddMetadata(
+        metadata, allocator, TRACING_MIME_TYPE, ByteBufUtil.writeAscii(allocator, "0123456789"));
+    compositeMetadata = metadata;
+    cursor = new CompositeMetadataCursor();
+  }
+
+  @TearDown
+  public void tearDown() {
+    compositeMetadata.release();
+  }
+
   // this is the old values() looping implementation of fromIdentifier
   private WellKnownMimeType fromIdValuesLoop(int id) {
     if (id < 0 || id > 127) {
@@ -93,4 +131,38 @@ public void fromStringValuesLoopLookup(final Blackhole bh) {
     bh.consume(
         fromStringValuesLoop(WellKnownMimeType.MESSAGE_RSOCKET_COMPOSITE_METADATA.getString()));
   }
+
+  @Benchmark
+  public void compositeMetadataIterator(final Blackhole bh) {
+    for (Entry entry : new CompositeMetadata(compositeMetadata, false)) {
+      bh.consume(entry.getMimeType());
+      bh.consume(entry.getContent());
+    }
+  }
+
+  @Benchmark
+  public void compositeMetadataCursor(final Blackhole bh) {
+    CompositeMetadataCursor cursor = this.cursor.reset(compositeMetadata);
+    while (cursor.next()) {
+      bh.consume(cursor.mimeType());
+      bh.consume(cursor.contentIndex());
+      bh.consume(cursor.contentLength());
+    }
+  }
+
+  @Benchmark
+  public Entry compositeMetadataIteratorFind() {
+    // the last entry, the worst case of both lookups
+    return new CompositeMetadata(compositeMetadata, false)
+        .stream()
+        .filter(entry -> TRACING_MIME_TYPE.equals(entry.getMimeType()))
+        .findFirst()
+        .orElse(null);
+  }
+
+  @Benchmark
+  public int compositeMetadataCursorSeek() {
+    CompositeMetadataCursor cursor = this.cursor.reset(compositeMetadata);
+    return cursor.seek(TRACING_MIME_TYPE) ? cursor.contentIndex() : -1;
+  }
 }
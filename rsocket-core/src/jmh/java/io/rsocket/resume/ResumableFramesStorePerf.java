@@ -0,0 +1,54 @@
+package io.rsocket.resume;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import reactor.core.publisher.Flux;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@State(Scope.Benchmark)
+public class ResumableFramesStorePerf {
+
+  static final int FRAME_SIZE = 64;
+
+  @Param({"10000", "100000", "1000000"})
+  int frames;
+
+  InMemoryResumableFramesStore store;
+
+  @Setup
+  public void setup() {
+    store = new InMemoryResumableFramesStore("perf", Integer.MAX_VALUE);
+    ByteBuf[] cached = new ByteBuf[frames];
+    for (int i = 0; i < frames; i++) {
+      cached[i] = Unpooled.directBuffer(FRAME_SIZE).writeZero(FRAME_SIZE);
+    }
+    store.saveFrames(Flux.fromArray(cached)).block();
+    // the transport releases its reference once a frame is sent, the store keeps its own
+    for (ByteBuf frame : cached) {
+      frame.release();
+    }
+  }
+
+  @TearDown
+  public void teardown() {
+    store.dispose();
+  }
+
+  @Benchmark
+  public void resumeReplay(Blackhole bh) {
+    store
+        .resumeStream()
+        .subscribe(
+            frame -> {
+              bh.consume(frame);
+              frame.release();
+            });
+  }
+}
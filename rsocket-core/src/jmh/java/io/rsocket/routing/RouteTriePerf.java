@@ -0,0 +1,77 @@
+package io.rsocket.routing;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.util.CharsetUtil;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Looks up routes among 10k, as read from the routing metadata of requests: the trie matches the
+ * bytes in place, the map is the usual dispatch that decodes each route to a {@link String} first.
+ * A quarter of the lookups miss.
+ */
+@BenchmarkMode(Mode.Throughput)
+@Fork(value = 1)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@State(Scope.Thread)
+public class RouteTriePerf {
+
+  static final int ROUTES = 10_000;
+  static final int LOOKUPS = 1024;
+
+  RouteTrie<Integer> trie;
+  Map<String, Integer> map;
+  ByteBuf[] requests;
+
+  @Setup
+  public void setup() {
+    map = new HashMap<>();
+    for (int i = 0; i < ROUTES; i++) {
+      map.put(route(i), i);
+    }
+    trie = new RouteTrie<>(map);
+
+    SplittableRandom random = new SplittableRandom(42);
+    requests = new ByteBuf[LOOKUPS];
+    for (int i = 0; i < LOOKUPS; i++) {
+      String route = random.nextInt(4) == 0 ? route(ROUTES + i) : route(random.nextInt(ROUTES));
+      byte[] bytes = route.getBytes(StandardCharsets.UTF_8);
+      // a routing metadata entry: the length of the first tag, then the tag
+      requests[i] = Unpooled.directBuffer().writeByte(bytes.length).writeBytes(bytes);
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    for (ByteBuf request : requests) {
+      request.release();
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(LOOKUPS)
+  public void trie(Blackhole bh) {
+    for (ByteBuf request : requests) {
+      bh.consume(trie.find(request, 1, request.getUnsignedByte(0)));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(LOOKUPS)
+  public void stringMap(Blackhole bh) {
+    for (ByteBuf request : requests) {
+      String route = request.toString(1, request.getUnsignedByte(0), CharsetUtil.UTF_8);
+      bh.consume(map.get(route));
+    }
+  }
+
+  static String route(int i) {
+    return "io.rsocket.service" + (i % 100) + ".Method" + i;
+  }
+}
@@ -385,7 +385,10 @@ public Mono<RSocket> start() {
                           errorConsumer,
                           responderLeaseHandler);
 
-                  return wrappedConnection.sendOne(setupFrame).thenReturn(wrappedRSocketRequester);
+                  return multiplexer
+                      .asSetupConnection()
+                      .sendOne(setupFrame)
+                      .thenReturn(wrappedRSocketRequester);
                 });
       }
 
@@ -22,18 +22,19 @@
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
 import io.netty.util.ReferenceCountUtil;
-import io.netty.util.collection.IntObjectMap;
 import io.rsocket.exceptions.ConnectionErrorException;
 import io.rsocket.exceptions.Exceptions;
 import io.rsocket.frame.*;
 import io.rsocket.frame.decoder.PayloadDecoder;
+import io.rsocket.internal.ConcurrentIntObjectHashMap;
 import io.rsocket.internal.LimitableRequestPublisher;
-import io.rsocket.internal.SynchronizedIntObjectHashMap;
 import io.rsocket.internal.UnboundedProcessor;
 import io.rsocket.internal.UnicastMonoProcessor;
 import io.rsocket.keepalive.KeepAliveFramesAcceptor;
 import io.rsocket.keepalive.KeepAliveHandler;
 import io.rsocket.keepalive.KeepAliveSupport;
+import io.rsocket.lease.Lease;
+import io.rsocket.lease.LeaseHolder;
 import io.rsocket.lease.RequesterLeaseHandler;
 import io.rsocket.util.OnceConsumer;
 import java.nio.channels.ClosedChannelException;
@@ -51,7 +52,7 @@
 /**
  * Requester Side of a RSocket socket. Sends {@link ByteBuf}s to a {@link RSocketResponder} of peer
  */
-class RSocketRequester implements RSocket {
+class RSocketRequester implements RSocket, LeaseHolder {
   private static final AtomicReferenceFieldUpdater<RSocketRequester, Throwable> TERMINATION_ERROR =
       AtomicReferenceFieldUpdater.newUpdater(
           RSocketRequester.class, Throwable.class, "terminationError");
@@ -60,8 +61,8 @@ class RSocketRequester implements RSocket {
   private final PayloadDecoder payloadDecoder;
   private final Consumer<Throwable> errorConsumer;
   private final StreamIdSupplier streamIdSupplier;
-  private final IntObjectMap<LimitableRequestPublisher> senders;
-  private final IntObjectMap<Processor<Payload, Payload>> receivers;
+  private final ConcurrentIntObjectHashMap<LimitableRequestPublisher> senders;
+  private final ConcurrentIntObjectHashMap<Processor<Payload, Payload>> receivers;
   private final UnboundedProcessor<ByteBuf> sendProcessor;
   private final RequesterLeaseHandler leaseHandler;
   private final ByteBufAllocator allocator;
@@ -84,8 +85,8 @@ class RSocketRequester implements RSocket {
     this.errorConsumer = errorConsumer;
     this.streamIdSupplier = streamIdSupplier;
     this.leaseHandler = leaseHandler;
-    this.senders = new SynchronizedIntObjectHashMap<>();
-    this.receivers = new SynchronizedIntObjectHashMap<>();
+    this.senders = new ConcurrentIntObjectHashMap<>();
+    this.receivers = new ConcurrentIntObjectHashMap<>();
 
     // DO NOT Change the order here. The Send processor must be subscribed to before receiving
     this.sendProcessor = new UnboundedProcessor<>();
@@ -120,18 +121,16 @@ private void terminate(KeepAlive keepAlive) {
   private void handleSendProcessorError(Throwable t) {
     Throwable terminationError = this.terminationError;
     Throwable err = terminationError != null ? terminationError : t;
-    receivers
-        .values()
-        .forEach(
-            subscriber -> {
-              try {
-                subscriber.onError(err);
-              } catch (Throwable e) {
-                errorConsumer.accept(e);
-              }
-            });
+    receivers.forEach(
+        subscriber -> {
+          try {
+            subscriber.onError(err);
+          } catch (Throwable e) {
+            errorConsumer.accept(e);
+          }
+        });
 
-    senders.values().forEach(LimitableRequestPublisher::cancel);
+    senders.forEach(LimitableRequestPublisher::cancel);
   }
 
   private void handleSendProcessorCancel(SignalType t) {
@@ -139,18 +138,16 @@ private void handleSendProcessorCancel(SignalType t) {
       return;
     }
 
-    receivers
-        .values()
-        .forEach(
-            subscriber -> {
-              try {
-                subscriber.onError(new Throwable("closed connection"));
-              } catch (Throwable e) {
-                errorConsumer.accept(e);
-              }
-            });
+    receivers.forEach(
+        subscriber -> {
+          try {
+            subscriber.onError(new Throwable("closed connection"));
+          } catch (Throwable e) {
+            errorConsumer.accept(e);
+          }
+        });
 
-    senders.values().forEach(LimitableRequestPublisher::cancel);
+    senders.forEach(LimitableRequestPublisher::cancel);
   }
 
   @Override
@@ -183,6 +180,12 @@ public double availability() {
     return Math.min(connection.availability(), leaseHandler.availability());
   }
 
+  @Override
+  @Nullable
+  public Lease currentLease() {
+    return leaseHandler.currentLease();
+  }
+
   @Override
   public void dispose() {
     connection.dispose();
@@ -475,8 +478,8 @@ private void terminate() {
     setTerminationError(new ClosedChannelException());
     leaseHandler.dispose();
     try {
-      receivers.values().forEach(this::cleanUpSubscriber);
-      senders.values().forEach(this::cleanUpLimitableRequestPublisher);
+      receivers.forEach(this::cleanUpSubscriber);
+      senders.forEach(this::cleanUpLimitableRequestPublisher);
     } finally {
       senders.clear();
       receivers.clear();
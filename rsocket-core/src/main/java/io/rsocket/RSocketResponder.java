@@ -19,12 +19,11 @@
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
 import io.netty.util.ReferenceCountUtil;
-import io.netty.util.collection.IntObjectMap;
 import io.rsocket.exceptions.ApplicationErrorException;
 import io.rsocket.frame.*;
 import io.rsocket.frame.decoder.PayloadDecoder;
+import io.rsocket.internal.ConcurrentIntObjectHashMap;
 import io.rsocket.internal.LimitableRequestPublisher;
-import io.rsocket.internal.SynchronizedIntObjectHashMap;
 import io.rsocket.internal.UnboundedProcessor;
 import io.rsocket.lease.ResponderLeaseHandler;
 import java.util.function.Consumer;
@@ -46,9 +45,9 @@ class RSocketResponder implements ResponderRSocket {
   private final Consumer<Throwable> errorConsumer;
   private final ResponderLeaseHandler leaseHandler;
 
-  private final IntObjectMap<LimitableRequestPublisher> sendingLimitableSubscriptions;
-  private final IntObjectMap<Subscription> sendingSubscriptions;
-  private final IntObjectMap<Processor<Payload, Payload>> channelProcessors;
+  private final ConcurrentIntObjectHashMap<LimitableRequestPublisher> sendingLimitableSubscriptions;
+  private final ConcurrentIntObjectHashMap<Subscription> sendingSubscriptions;
+  private final ConcurrentIntObjectHashMap<Processor<Payload, Payload>> channelProcessors;
 
   private final UnboundedProcessor<ByteBuf> sendProcessor;
   private final ByteBufAllocator allocator;
@@ -70,9 +69,9 @@ class RSocketResponder implements ResponderRSocket {
     this.payloadDecoder = payloadDecoder;
     this.errorConsumer = errorConsumer;
     this.leaseHandler = leaseHandler;
-    this.sendingLimitableSubscriptions = new SynchronizedIntObjectHashMap<>();
-    this.sendingSubscriptions = new SynchronizedIntObjectHashMap<>();
-    this.channelProcessors = new SynchronizedIntObjectHashMap<>();
+    this.sendingLimitableSubscriptions = new ConcurrentIntObjectHashMap<>();
+    this.sendingSubscriptions = new ConcurrentIntObjectHashMap<>();
+    this.channelProcessors = new ConcurrentIntObjectHashMap<>();
 
     // DO NOT Change the order here. The Send processor must be subscribed to before receiving
     // connections
@@ -98,38 +97,32 @@ class RSocketResponder implements ResponderRSocket {
   }
 
   private void handleSendProcessorError(Throwable t) {
-    sendingSubscriptions
-        .values()
-        .forEach(
-            subscription -> {
-              try {
-                subscription.cancel();
-              } catch (Throwable e) {
-                errorConsumer.accept(e);
-              }
-            });
+    sendingSubscriptions.forEach(
+        subscription -> {
+          try {
+            subscription.cancel();
+          } catch (Throwable e) {
+            errorConsumer.accept(e);
+          }
+        });
 
-    sendingLimitableSubscriptions
-        .values()
-        .forEach(
-            subscription -> {
-              try {
-                subscription.cancel();
-              } catch (Throwable e) {
-                errorConsumer.accept(e);
-              }
-            });
+    sendingLimitableSubscriptions.forEach(
+        subscription -> {
+          try {
+            subscription.cancel();
+          } catch (Throwable e) {
+            errorConsumer.accept(e);
+          }
+        });
 
-    channelProcessors
-        .values()
-        .forEach(
-            subscription -> {
-              try {
-                subscription.onError(t);
-              } catch (Throwable e) {
-                errorConsumer.accept(e);
-              }
-            });
+    channelProcessors.forEach(
+        subscription -> {
+          try {
+            subscription.onError(t);
+          } catch (Throwable e) {
+            errorConsumer.accept(e);
+          }
+        });
   }
 
   private void handleSendProcessorCancel(SignalType t) {
@@ -137,38 +130,32 @@ private void handleSendProcessorCancel(SignalType t) {
       return;
     }
 
-    sendingSubscriptions
-        .values()
-        .forEach(
-            subscription -> {
-              try {
-                subscription.cancel();
-              } catch (Throwable e) {
-                errorConsumer.accept(e);
-              }
-            });
+    sendingSubscriptions.forEach(
+        subscription -> {
+          try {
+            subscription.cancel();
+          } catch (Throwable e) {
+            errorConsumer.accept(e);
+          }
+        });
 
-    sendingLimitableSubscriptions
-        .values()
-        .forEach(
-            subscription -> {
-              try {
-                subscription.cancel();
-              } catch (Throwable e) {
-                errorConsumer.accept(e);
-              }
-            });
+    sendingLimitableSubscriptions.forEach(
+        subscription -> {
+          try {
+            subscription.cancel();
+          } catch (Throwable e) {
+            errorConsumer.accept(e);
+          }
+        });
 
-    channelProcessors
-        .values()
-        .forEach(
-            subscription -> {
-              try {
-                subscription.onComplete();
-              } catch (Throwable e) {
-                errorConsumer.accept(e);
-              }
-            });
+    channelProcessors.forEach(
+        subscription -> {
+          try {
+            subscription.onComplete();
+          } catch (Throwable e) {
+            errorConsumer.accept(e);
+          }
+        });
   }
 
   @Override
@@ -273,15 +260,15 @@ private void cleanup() {
   }
 
   private synchronized void cleanUpSendingSubscriptions() {
-    sendingSubscriptions.values().forEach(Subscription::cancel);
+    sendingSubscriptions.forEach(Subscription::cancel);
     sendingSubscriptions.clear();
 
-    sendingLimitableSubscriptions.values().forEach(Subscription::cancel);
+    sendingLimitableSubscriptions.forEach(Subscription::cancel);
     sendingLimitableSubscriptions.clear();
   }
 
   private synchronized void cleanUpChannelProcessors() {
-    channelProcessors.values().forEach(Processor::onComplete);
+    channelProcessors.forEach(Processor::onComplete);
     channelProcessors.clear();
   }
 
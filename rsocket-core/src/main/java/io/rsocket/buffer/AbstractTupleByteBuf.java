@@ -17,8 +17,8 @@ abstract class AbstractTupleByteBuf extends AbstractReferenceCountedByteBuf {
       SystemPropertyUtil.getInt("io.netty.allocator.directMemoryCacheAlignment", 0);
   static final ByteBuffer EMPTY_NIO_BUFFER = Unpooled.EMPTY_BUFFER.nioBuffer();
 
-  final ByteBufAllocator allocator;
-  final int capacity;
+  ByteBufAllocator allocator;
+  int capacity;
 
   AbstractTupleByteBuf(ByteBufAllocator allocator, int capacity) {
     super(Integer.MAX_VALUE);
@@ -28,6 +28,17 @@ abstract class AbstractTupleByteBuf extends AbstractReferenceCountedByteBuf {
     super.writerIndex(capacity);
   }
 
+  /** Resets a recycled instance to the state of a newly constructed one. */
+  final void reuse(ByteBufAllocator allocator, int capacity) {
+    this.capacity = capacity;
+    this.allocator = allocator;
+    setRefCnt(1);
+    super.setIndex(0, 0);
+    markReaderIndex();
+    markWriterIndex();
+    super.writerIndex(capacity);
+  }
+
   abstract long calculateRelativeIndex(int index);
 
   abstract ByteBuf getPart(int index);
@@ -3,7 +3,10 @@
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
 import io.netty.buffer.Unpooled;
+import io.netty.util.Recycler;
+import io.netty.util.Recycler.Handle;
 import io.netty.util.ReferenceCountUtil;
+import io.rsocket.util.RecyclerFactory;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
@@ -17,19 +20,41 @@ class Tuple2ByteBuf extends AbstractTupleByteBuf {
   private static final long TWO_MASK = 0x200000000L;
   private static final long MASK = 0x700000000L;
 
-  private final ByteBuf one;
-  private final ByteBuf two;
-  private final int oneReadIndex;
-  private final int twoReadIndex;
-  private final int oneReadableBytes;
-  private final int twoReadableBytes;
-  private final int twoRelativeIndex;
+  private static final Recycler<Tuple2ByteBuf> RECYCLER =
+      RecyclerFactory.createRecycler(Tuple2ByteBuf::new);
+
+  private final Handle<Tuple2ByteBuf> handle;
+
+  private ByteBuf one;
+  private ByteBuf two;
+  private int oneReadIndex;
+  private int twoReadIndex;
+  private int oneReadableBytes;
+  private int twoReadableBytes;
+  private int twoRelativeIndex;
 
   private boolean freed;
 
   Tuple2ByteBuf(ByteBufAllocator allocator, ByteBuf one, ByteBuf two) {
     super(allocator, one.readableBytes() + two.readableBytes());
+    this.handle = null;
+    init(one, two);
+  }
+
+  private Tuple2ByteBuf(Handle<Tuple2ByteBuf> handle) {
+    super(null, 0);
+    this.handle = handle;
+  }
 
+  /** Returns a recycled instance, which goes back to the pool once released. */
+  static Tuple2ByteBuf newInstance(ByteBufAllocator allocator, ByteBuf one, ByteBuf two) {
+    Tuple2ByteBuf tuple = RECYCLER.get();
+    tuple.reuse(allocator, one.readableBytes() + two.readableBytes());
+    tuple.init(one, two);
+    return tuple;
+  }
+
+  private void init(ByteBuf one, ByteBuf two) {
     this.one = one;
     this.two = two;
 
@@ -348,6 +373,12 @@ protected void deallocate() {
     freed = true;
     ReferenceCountUtil.safeRelease(one);
     ReferenceCountUtil.safeRelease(two);
+
+    if (handle != null) {
+      one = null;
+      two = null;
+      handle.recycle(this);
+    }
   }
 
   @Override
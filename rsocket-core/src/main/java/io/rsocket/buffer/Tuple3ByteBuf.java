@@ -3,7 +3,10 @@
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
 import io.netty.buffer.Unpooled;
+import io.netty.util.Recycler;
+import io.netty.util.Recycler.Handle;
 import io.netty.util.ReferenceCountUtil;
+import io.rsocket.util.RecyclerFactory;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
@@ -17,23 +20,46 @@ class Tuple3ByteBuf extends AbstractTupleByteBuf {
   private static final long THREE_MASK = 0x400000000L;
   private static final long MASK = 0x700000000L;
 
-  private final ByteBuf one;
-  private final ByteBuf two;
-  private final ByteBuf three;
-  private final int oneReadIndex;
-  private final int twoReadIndex;
-  private final int threeReadIndex;
-  private final int oneReadableBytes;
-  private final int twoReadableBytes;
-  private final int threeReadableBytes;
-  private final int twoRelativeIndex;
-  private final int threeRelativeIndex;
+  private static final Recycler<Tuple3ByteBuf> RECYCLER =
+      RecyclerFactory.createRecycler(Tuple3ByteBuf::new);
+
+  private final Handle<Tuple3ByteBuf> handle;
+
+  private ByteBuf one;
+  private ByteBuf two;
+  private ByteBuf three;
+  private int oneReadIndex;
+  private int twoReadIndex;
+  private int threeReadIndex;
+  private int oneReadableBytes;
+  private int twoReadableBytes;
+  private int threeReadableBytes;
+  private int twoRelativeIndex;
+  private int threeRelativeIndex;
 
   private boolean freed;
 
   Tuple3ByteBuf(ByteBufAllocator allocator, ByteBuf one, ByteBuf two, ByteBuf three) {
     super(allocator, one.readableBytes() + two.readableBytes() + three.readableBytes());
+    this.handle = null;
+    init(one, two, three);
+  }
+
+  private Tuple3ByteBuf(Handle<Tuple3ByteBuf> handle) {
+    super(null, 0);
+    this.handle = handle;
+  }
 
+  /** Returns a recycled instance, which goes back to the pool once released. */
+  static Tuple3ByteBuf newInstance(
+      ByteBufAllocator allocator, ByteBuf one, ByteBuf two, ByteBuf three) {
+    Tuple3ByteBuf tuple = RECYCLER.get();
+    tuple.reuse(allocator, one.readableBytes() + two.readableBytes() + three.readableBytes());
+    tuple.init(one, two, three);
+    return tuple;
+  }
+
+  private void init(ByteBuf one, ByteBuf two, ByteBuf three) {
     this.one = one;
     this.two = two;
     this.three = three;
@@ -525,6 +551,13 @@ protected void deallocate() {
     ReferenceCountUtil.safeRelease(one);
     ReferenceCountUtil.safeRelease(two);
     ReferenceCountUtil.safeRelease(three);
+
+    if (handle != null) {
+      one = null;
+      two = null;
+      three = null;
+      handle.recycle(this);
+    }
   }
 
   @Override
@@ -4,6 +4,11 @@
 import io.netty.buffer.ByteBufAllocator;
 import java.util.Objects;
 
+/**
+ * Composes buffers without copying them. The returned buffers own their components, which they
+ * release along with themselves, and are recycled once released, so they must not be used
+ * afterwards.
+ */
 public abstract class TupleByteBuf {
 
   private TupleByteBuf() {}
@@ -17,7 +22,7 @@ public static ByteBuf of(ByteBufAllocator allocator, ByteBuf one, ByteBuf two) {
     Objects.requireNonNull(one);
     Objects.requireNonNull(two);
 
-    return new Tuple2ByteBuf(allocator, one, two);
+    return Tuple2ByteBuf.newInstance(allocator, one, two);
   }
 
   public static ByteBuf of(ByteBuf one, ByteBuf two, ByteBuf three) {
@@ -30,6 +35,6 @@ public static ByteBuf of(ByteBufAllocator allocator, ByteBuf one, ByteBuf two, B
     Objects.requireNonNull(two);
     Objects.requireNonNull(three);
 
-    return new Tuple3ByteBuf(allocator, one, two, three);
+    return Tuple3ByteBuf.newInstance(allocator, one, two, three);
   }
 }
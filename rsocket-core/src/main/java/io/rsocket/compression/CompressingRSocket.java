@@ -0,0 +1,86 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rsocket.compression;
+
+import io.rsocket.Payload;
+import io.rsocket.RSocket;
+import io.rsocket.util.RSocketProxy;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Compresses the payloads sent through an {@link RSocket} and decompresses those it receives. A
+ * requester sends requests and receives responses, a responder the opposite.
+ */
+final class CompressingRSocket extends RSocketProxy {
+  private final PayloadCompression compression;
+  private final CompressionCodec codec;
+  private final boolean requester;
+
+  CompressingRSocket(
+      RSocket source, PayloadCompression compression, CompressionCodec codec, boolean requester) {
+    super(source);
+    this.compression = compression;
+    this.codec = codec;
+    this.requester = requester;
+  }
+
+  @Override
+  public Mono<Void> fireAndForget(Payload payload) {
+    try {
+      return source.fireAndForget(request(payload));
+    } catch (Throwable t) {
+      return Mono.error(t);
+    }
+  }
+
+  @Override
+  public Mono<Payload> requestResponse(Payload payload) {
+    try {
+      return source.requestResponse(request(payload)).map(this::response);
+    } catch (Throwable t) {
+      return Mono.error(t);
+    }
+  }
+
+  @Override
+  public Flux<Payload> requestStream(Payload payload) {
+    try {
+      return source.requestStream(request(payload)).map(this::response);
+    } catch (Throwable t) {
+      return Flux.error(t);
+    }
+  }
+
+  @Override
+  public Flux<Payload> requestChannel(Publisher<Payload> payloads) {
+    return source.requestChannel(Flux.from(payloads).map(this::request)).map(this::response);
+  }
+
+  private Payload request(Payload payload) {
+    return requester
+        ? compression.compress(payload, codec)
+        : compression.decompress(payload, codec);
+  }
+
+  private Payload response(Payload payload) {
+    return requester
+        ? compression.decompress(payload, codec)
+        : compression.compress(payload, codec);
+  }
+}
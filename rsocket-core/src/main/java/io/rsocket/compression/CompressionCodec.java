@@ -0,0 +1,54 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rsocket.compression;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+
+/**
+ * A compression algorithm applied to payload data by {@link PayloadCompression}. Implementations
+ * must be thread safe.
+ */
+public interface CompressionCodec {
+
+  /**
+   * Returns the name identifying the codec in the SETUP data mime type, such as {@code lz4}.
+   *
+   * @return the name of the codec
+   */
+  String name();
+
+  /**
+   * Compresses the readable bytes of {@code source}, leaving its reader index untouched.
+   *
+   * @param allocator the allocator of the compressed buffer
+   * @param source the bytes to compress
+   * @return a new buffer holding the compressed bytes
+   */
+  ByteBuf compress(ByteBufAllocator allocator, ByteBuf source);
+
+  /**
+   * Decompresses the readable bytes of {@code source}, leaving its reader index untouched.
+   *
+   * @param allocator the allocator of the decompressed buffer
+   * @param source the bytes to decompress
+   * @param length the length of the decompressed bytes
+   * @return a new buffer holding exactly {@code length} decompressed bytes
+   * @throws IllegalArgumentException if {@code source} is malformed
+   */
+  ByteBuf decompress(ByteBufAllocator allocator, ByteBuf source, int length);
+}
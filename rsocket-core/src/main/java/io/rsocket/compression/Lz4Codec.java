@@ -0,0 +1,236 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rsocket.compression;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.util.concurrent.FastThreadLocal;
+import java.util.Arrays;
+
+/**
+ * A pure Java implementation of the LZ4 block format, favouring speed over compression ratio. The
+ * compressor is the greedy single-probe one of the reference implementation, with a hash table
+ * that is kept per thread and sized after the input, so that small payloads do not pay for
+ * clearing a large table.
+ *
+ * @see <a href="https://github.com/lz4/lz4/blob/dev/doc/lz4_Block_format.md">LZ4 Block Format</a>
+ */
+public final class Lz4Codec implements CompressionCodec {
+
+  /** The shared instance. */
+  public static final Lz4Codec INSTANCE = new Lz4Codec();
+
+  private static final int MIN_MATCH = 4;
+  private static final int LAST_LITERALS = 5;
+  private static final int MF_LIMIT = 12;
+  private static final int MAX_DISTANCE = 65535;
+  private static final int RUN_MASK = 15;
+  private static final int MIN_HASH_LOG = 8;
+  private static final int MAX_HASH_LOG = 14;
+  private static final int SKIP_TRIGGER = 6;
+
+  private static final FastThreadLocal<int[]> HASH_TABLE =
+      new FastThreadLocal<int[]>() {
+        @Override
+        protected int[] initialValue() {
+          return new int[1 << MAX_HASH_LOG];
+        }
+      };
+
+  private Lz4Codec() {}
+
+  @Override
+  public String name() {
+    return "lz4";
+  }
+
+  /**
+   * Returns the size of the largest block the compression of {@code length} bytes can produce.
+   *
+   * @param length the length of the input
+   * @return the maximum compressed length
+   */
+  public static int maxCompressedLength(int length) {
+    return length + length / 255 + 16;
+  }
+
+  @Override
+  public ByteBuf compress(ByteBufAllocator allocator, ByteBuf source) {
+    int start = source.readerIndex();
+    int length = source.readableBytes();
+    ByteBuf target = allocator.buffer(maxCompressedLength(length));
+    try {
+      compress(source, start, start + length, target);
+      return target;
+    } catch (Throwable t) {
+      target.release();
+      throw t;
+    }
+  }
+
+  private static void compress(ByteBuf src, int start, int end, ByteBuf dst) {
+    int anchor = start;
+    if (end - start >= MF_LIMIT) {
+      int hashLog = hashLog(end - start);
+      int[] table = HASH_TABLE.get();
+      // positions are stored one-based so that zero marks an empty slot
+      Arrays.fill(table, 0, 1 << hashLog, 0);
+
+      int matchLimit = end - LAST_LITERALS;
+      int mfLimit = end - MF_LIMIT;
+      int ip = start + 1;
+      int searchCount = 1 << SKIP_TRIGGER;
+      while (ip < mfLimit) {
+        int sequence = src.getIntLE(ip);
+        int h = hash(sequence, hashLog);
+        int ref = table[h] - 1 + start;
+        table[h] = ip - start + 1;
+        if (ref < start || ip - ref > MAX_DISTANCE || src.getIntLE(ref) != sequence) {
+          // skip faster over incompressible input
+          ip += searchCount++ >>> SKIP_TRIGGER;
+          continue;
+        }
+        searchCount = 1 << SKIP_TRIGGER;
+
+        while (ip > anchor && ref > start && src.getByte(ip - 1) == src.getByte(ref - 1)) {
+          ip--;
+          ref--;
+        }
+        int matchLength = MIN_MATCH;
+        while (ip + matchLength < matchLimit
+            && src.getByte(ip + matchLength) == src.getByte(ref + matchLength)) {
+          matchLength++;
+        }
+
+        writeSequence(src, anchor, ip - anchor, ip - ref, matchLength - MIN_MATCH, dst);
+        ip += matchLength;
+        anchor = ip;
+      }
+    }
+
+    int literalLength = end - anchor;
+    if (literalLength >= RUN_MASK) {
+      dst.writeByte(RUN_MASK << 4);
+      writeLength(literalLength - RUN_MASK, dst);
+    } else {
+      dst.writeByte(literalLength << 4);
+    }
+    dst.writeBytes(src, anchor, literalLength);
+  }
+
+  private static void writeSequence(
+      ByteBuf src, int anchor, int literalLength, int offset, int matchCode, ByteBuf dst) {
+    int token = (Math.min(literalLength, RUN_MASK) << 4) | Math.min(matchCode, RUN_MASK);
+    dst.writeByte(token);
+    if (literalLength >= RUN_MASK) {
+      writeLength(literalLength - RUN_MASK, dst);
+    }
+    dst.writeBytes(src, anchor, literalLength);
+    dst.writeShortLE(offset);
+    if (matchCode >= RUN_MASK) {
+      writeLength(matchCode - RUN_MASK, dst);
+    }
+  }
+
+  private static void writeLength(int length, ByteBuf dst) {
+    while (length >= 255) {
+      dst.writeByte(255);
+      length -= 255;
+    }
+    dst.writeByte(length);
+  }
+
+  private static int hashLog(int length) {
+    int log = 32 - Integer.numberOfLeadingZeros(length - 1);
+    return Math.max(MIN_HASH_LOG, Math.min(MAX_HASH_LOG, log));
+  }
+
+  private static int hash(int sequence, int hashLog) {
+    return (sequence * -1640531535) >>> (32 - hashLog);
+  }
+
+  @Override
+  public ByteBuf decompress(ByteBufAllocator allocator, ByteBuf source, int length) {
+    ByteBuf target = allocator.buffer(length, length);
+    try {
+      decompress(source.duplicate(), target, length);
+      return target;
+    } catch (Throwable t) {
+      target.release();
+      throw t;
+    }
+  }
+
+  private static void decompress(ByteBuf src, ByteBuf dst, int length) {
+    while (src.isReadable()) {
+      int token = src.readUnsignedByte();
+
+      int literalLength = token >>> 4;
+      if (literalLength == RUN_MASK) {
+        literalLength += readLength(src);
+      }
+      if (literalLength > src.readableBytes() || literalLength > dst.writableBytes()) {
+        throw new IllegalArgumentException("malformed LZ4 block: literals out of bounds");
+      }
+      dst.writeBytes(src, literalLength);
+      if (!src.isReadable()) {
+        break;
+      }
+
+      if (src.readableBytes() < 2) {
+        throw new IllegalArgumentException("malformed LZ4 block: truncated match offset");
+      }
+      int offset = src.readUnsignedShortLE();
+      int matchLength = token & RUN_MASK;
+      if (matchLength == RUN_MASK) {
+        matchLength += readLength(src);
+      }
+      matchLength += MIN_MATCH;
+      int position = dst.writerIndex();
+      if (offset == 0 || offset > position || matchLength > dst.writableBytes()) {
+        throw new IllegalArgumentException("malformed LZ4 block: match out of bounds");
+      }
+
+      if (offset >= matchLength) {
+        dst.writeBytes(dst, position - offset, matchLength);
+      } else {
+        // overlapping match, repeats the last offset bytes
+        for (int i = 0; i < matchLength; i++) {
+          dst.writeByte(dst.getByte(position - offset + i));
+        }
+      }
+    }
+
+    if (dst.writerIndex() != length) {
+      throw new IllegalArgumentException(
+          "malformed LZ4 block: expected " + length + " bytes, got " + dst.writerIndex());
+    }
+  }
+
+  private static int readLength(ByteBuf src) {
+    int length = 0;
+    int b;
+    do {
+      if (!src.isReadable()) {
+        throw new IllegalArgumentException("malformed LZ4 block: truncated length");
+      }
+      b = src.readUnsignedByte();
+      length += b;
+    } while (b == 255);
+    return length;
+  }
+}
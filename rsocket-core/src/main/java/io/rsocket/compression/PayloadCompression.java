@@ -0,0 +1,341 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rsocket.compression;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.rsocket.Payload;
+import io.rsocket.SocketAcceptor;
+import io.rsocket.buffer.TupleByteBuf;
+import io.rsocket.exceptions.UnsupportedSetupException;
+import io.rsocket.plugins.RSocketInterceptor;
+import io.rsocket.util.ByteBufPayload;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import javax.annotation.Nullable;
+import reactor.core.publisher.Mono;
+
+/**
+ * Compresses the data of payloads, with a {@link CompressionCodec} negotiated at setup.
+ *
+ * <p>The client proposes a codec by appending a {@code compression} parameter to the data mime
+ * type of its SETUP frame, see {@link #dataMimeType(String)}, and compresses its payloads with the
+ * {@link #requesterInterceptor()} and {@link #responderInterceptor()}. The server wraps its
+ * acceptor with {@link #acceptor(SocketAcceptor)}, which compresses the payloads of connections
+ * proposing a codec it knows and rejects the setup of those proposing one it does not.
+ *
+ * <p>RSocket has no setup response, so the client never learns which codec the server accepted: it
+ * compresses its payloads as soon as it proposes a codec, without waiting for a confirmation. A
+ * server whose acceptor is not wrapped receives compressed data it cannot read, so both sides must
+ * be configured together. A server whose acceptor is wrapped rejects a codec it was not configured
+ * with, see {@link Builder#codec(CompressionCodec)} and {@link Builder#accept(CompressionCodec)},
+ * which closes the connection and fails the requests sent before the rejection arrived.
+ *
+ * <pre>{@code
+ * PayloadCompression compression = PayloadCompression.builder().build();
+ * RSocketFactory.connect()
+ *     .dataMimeType(compression.dataMimeType("application/json"))
+ *     .addRequesterPlugin(compression.requesterInterceptor())
+ *     .addResponderPlugin(compression.responderInterceptor())
+ *     ...
+ * RSocketFactory.receive().acceptor(compression.acceptor(acceptor))...
+ * }</pre>
+ *
+ * <p>Once negotiated, the data of every payload starts with a one byte header telling whether it is
+ * compressed, followed by the decompressed length if it is. Data smaller than {@link
+ * Builder#minSize(int)}, or that does not shrink, is sent as is. Metadata is never compressed, so
+ * that it stays readable for routing.
+ */
+public final class PayloadCompression {
+
+  static final String PARAMETER = "compression=";
+
+  private static final byte STORED = 0;
+  private static final byte COMPRESSED = 1;
+  private static final int COMPRESSED_HEADER_SIZE = Byte.BYTES + Integer.BYTES;
+
+  private final CompressionCodec codec;
+  private final Map<String, CompressionCodec> acceptedCodecs;
+  private final int minSize;
+  private final int maxDecompressedSize;
+  private final ByteBufAllocator allocator;
+
+  private PayloadCompression(Builder builder) {
+    this.codec = builder.codec;
+    this.acceptedCodecs = new HashMap<>(builder.acceptedCodecs);
+    this.acceptedCodecs.put(codec.name(), codec);
+    this.minSize = builder.minSize;
+    this.maxDecompressedSize = builder.maxDecompressedSize;
+    this.allocator = builder.allocator;
+  }
+
+  /**
+   * Returns a new builder using {@link Lz4Codec}, compressing data of 512 bytes or more.
+   *
+   * @return a new builder
+   */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * Returns the data mime type proposing the codec of this compression, e.g. {@code
+   * application/json; compression=lz4}.
+   *
+   * @param dataMimeType the mime type of the uncompressed data
+   * @return the mime type to send in the SETUP frame
+   */
+  public String dataMimeType(String dataMimeType) {
+    return dataMimeType + "; " + PARAMETER + codec.name();
+  }
+
+  /**
+   * Returns the name of the codec proposed by a SETUP data mime type.
+   *
+   * @param dataMimeType the data mime type of a SETUP frame
+   * @return the name of the codec, or {@code null} if none is proposed
+   */
+  @Nullable
+  public static String codecName(String dataMimeType) {
+    int start = dataMimeType.indexOf(PARAMETER);
+    if (start < 0) {
+      return null;
+    }
+    start += PARAMETER.length();
+    int end = dataMimeType.indexOf(';', start);
+    return (end < 0 ? dataMimeType.substring(start) : dataMimeType.substring(start, end)).trim();
+  }
+
+  /**
+   * Returns the interceptor compressing the requests sent by a client and decompressing the
+   * responses it receives.
+   *
+   * <p>Requests are compressed right away, with the codec proposed by {@link
+   * #dataMimeType(String)}, before the server had a chance to reject it. The server must wrap its
+   * acceptor with {@link #acceptor(SocketAcceptor)} of a compression accepting that codec.
+   *
+   * @return the requester interceptor
+   */
+  public RSocketInterceptor requesterInterceptor() {
+    return rSocket -> new CompressingRSocket(rSocket, this, codec, true);
+  }
+
+  /**
+   * Returns the interceptor decompressing the requests received by a client and compressing the
+   * responses it sends.
+   *
+   * @return the responder interceptor
+   */
+  public RSocketInterceptor responderInterceptor() {
+    return rSocket -> new CompressingRSocket(rSocket, this, codec, false);
+  }
+
+  /**
+   * Returns an acceptor compressing the payloads of the connections that propose a known codec in
+   * their SETUP frame before handing them to {@code acceptor}. Only the codecs this compression was
+   * configured with are known; the setup of a connection proposing any other codec is rejected
+   * without calling {@code acceptor}. Connections proposing no codec are handed over as is.
+   *
+   * @param acceptor the acceptor of the server
+   * @return the compressing acceptor
+   */
+  public SocketAcceptor acceptor(SocketAcceptor acceptor) {
+    Objects.requireNonNull(acceptor, "acceptor must not be null");
+    return (setup, sendingSocket) -> {
+      String name = codecName(setup.dataMimeType());
+      if (name == null) {
+        return acceptor.accept(setup, sendingSocket);
+      }
+      CompressionCodec codec = acceptedCodecs.get(name);
+      if (codec == null) {
+        return Mono.error(new UnsupportedSetupException("unsupported compression codec: " + name));
+      }
+      return acceptor
+          .accept(setup, new CompressingRSocket(sendingSocket, this, codec, true))
+          .map(handler -> new CompressingRSocket(handler, this, codec, false));
+    };
+  }
+
+  /* takes ownership of the payload */
+  Payload compress(Payload payload, CompressionCodec codec) {
+    ByteBuf data = payload.sliceData();
+    int length = data.readableBytes();
+    if (length == 0) {
+      return payload;
+    }
+
+    ByteBuf encoded = null;
+    if (length >= minSize) {
+      ByteBuf compressed = codec.compress(allocator, data);
+      if (compressed.readableBytes() + COMPRESSED_HEADER_SIZE < length) {
+        ByteBuf header =
+            allocator.buffer(COMPRESSED_HEADER_SIZE).writeByte(COMPRESSED).writeInt(length);
+        encoded = TupleByteBuf.of(allocator, header, compressed);
+      } else {
+        compressed.release();
+      }
+    }
+    if (encoded == null) {
+      ByteBuf header = allocator.buffer(Byte.BYTES).writeByte(STORED);
+      encoded = TupleByteBuf.of(allocator, header, data.retain());
+    }
+    return replaceData(payload, encoded);
+  }
+
+  /* takes ownership of the payload */
+  Payload decompress(Payload payload, CompressionCodec codec) {
+    try {
+      ByteBuf data = payload.sliceData();
+      int length = data.readableBytes();
+      if (length == 0) {
+        return payload;
+      }
+
+      int readerIndex = data.readerIndex();
+      byte encoding = data.getByte(readerIndex);
+      ByteBuf decoded;
+      if (encoding == STORED) {
+        decoded = data.retainedSlice(readerIndex + Byte.BYTES, length - Byte.BYTES);
+      } else if (encoding == COMPRESSED && length >= COMPRESSED_HEADER_SIZE) {
+        int decompressedLength = data.getInt(readerIndex + Byte.BYTES);
+        if (decompressedLength < 0 || decompressedLength > maxDecompressedSize) {
+          throw new IllegalArgumentException(
+              "decompressed payload of " + decompressedLength + " bytes exceeds the maximum");
+        }
+        decoded =
+            codec.decompress(
+                allocator,
+                data.slice(readerIndex + COMPRESSED_HEADER_SIZE, length - COMPRESSED_HEADER_SIZE),
+                decompressedLength);
+      } else {
+        throw new IllegalArgumentException("malformed compressed payload");
+      }
+      return replaceData(payload, decoded);
+    } catch (Throwable t) {
+      payload.release();
+      throw t;
+    }
+  }
+
+  private static Payload replaceData(Payload payload, ByteBuf data) {
+    ByteBuf metadata = payload.hasMetadata() ? payload.sliceMetadata().retain() : null;
+    Payload replaced = ByteBufPayload.create(data, metadata);
+    payload.release();
+    return replaced;
+  }
+
+  @Override
+  public String toString() {
+    return "PayloadCompression{"
+        + "codec="
+        + codec.name()
+        + ", acceptedCodecs="
+        + acceptedCodecs.keySet()
+        + ", minSize="
+        + minSize
+        + '}';
+  }
+
+  /** Builder of {@link PayloadCompression}. */
+  public static final class Builder {
+    private final Map<String, CompressionCodec> acceptedCodecs = new HashMap<>();
+    private CompressionCodec codec = Lz4Codec.INSTANCE;
+    private int minSize = 512;
+    private int maxDecompressedSize = 64 * 1024 * 1024;
+    private ByteBufAllocator allocator = ByteBufAllocator.DEFAULT;
+
+    private Builder() {}
+
+    /**
+     * Sets the codec proposed by clients. It is also accepted by servers. Defaults to {@link
+     * Lz4Codec}.
+     *
+     * @param codec the codec
+     * @return this builder
+     */
+    public Builder codec(CompressionCodec codec) {
+      this.codec = Objects.requireNonNull(codec, "codec must not be null");
+      return this;
+    }
+
+    /**
+     * Adds a codec accepted by servers, in addition to the one of {@link
+     * #codec(CompressionCodec)}.
+     *
+     * @param codec the accepted codec
+     * @return this builder
+     */
+    public Builder accept(CompressionCodec codec) {
+      Objects.requireNonNull(codec, "codec must not be null");
+      acceptedCodecs.put(codec.name(), codec);
+      return this;
+    }
+
+    /**
+     * Sets the size in bytes below which data is sent uncompressed. Defaults to {@code 512}.
+     *
+     * @param minSize the minimum size of compressed data
+     * @return this builder
+     * @throws IllegalArgumentException if {@code minSize} is negative
+     */
+    public Builder minSize(int minSize) {
+      if (minSize < 0) {
+        throw new IllegalArgumentException("minSize must be >= 0");
+      }
+      this.minSize = minSize;
+      return this;
+    }
+
+    /**
+     * Sets the size in bytes above which received data is not decompressed but rejected. Defaults
+     * to 64 MiB.
+     *
+     * @param maxDecompressedSize the maximum size of decompressed data
+     * @return this builder
+     * @throws IllegalArgumentException if {@code maxDecompressedSize} is not positive
+     */
+    public Builder maxDecompressedSize(int maxDecompressedSize) {
+      if (maxDecompressedSize <= 0) {
+        throw new IllegalArgumentException("maxDecompressedSize must be > 0");
+      }
+      this.maxDecompressedSize = maxDecompressedSize;
+      return this;
+    }
+
+    /**
+     * Sets the allocator of the compressed and decompressed buffers. Defaults to the pooled {@link
+     * ByteBufAllocator#DEFAULT}.
+     *
+     * @param allocator the allocator
+     * @return this builder
+     */
+    public Builder allocator(ByteBufAllocator allocator) {
+      this.allocator = Objects.requireNonNull(allocator, "allocator must not be null");
+      return this;
+    }
+
+    /**
+     * Returns the compression.
+     *
+     * @return the compression
+     */
+    public PayloadCompression build() {
+      return new PayloadCompression(this);
+    }
+  }
+}
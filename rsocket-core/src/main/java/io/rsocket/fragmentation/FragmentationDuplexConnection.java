@@ -25,6 +25,7 @@
 import io.rsocket.frame.FrameHeaderFlyweight;
 import io.rsocket.frame.FrameLengthFlyweight;
 import io.rsocket.frame.FrameType;
+import io.rsocket.frame.SetupFrameFlyweight;
 import java.util.Objects;
 import javax.annotation.Nullable;
 import org.reactivestreams.Publisher;
@@ -41,6 +42,15 @@
  *     and Reassembly</a>
  */
 public final class FragmentationDuplexConnection implements DuplexConnection {
+  /**
+   * System property setting the default maximum number of bytes buffered to reassemble fragmented
+   * frames on a connection. Unbounded by default.
+   */
+  public static final String MAX_REASSEMBLY_BYTES = "io.rsocket.fragmentation.maxReassemblyBytes";
+
+  private static final int DEFAULT_MAX_REASSEMBLY_BYTES =
+      Integer.getInteger(MAX_REASSEMBLY_BYTES, Integer.MAX_VALUE);
+
   private static final int MIN_MTU_SIZE = 64;
   private static final Logger logger = LoggerFactory.getLogger(FragmentationDuplexConnection.class);
   private final DuplexConnection delegate;
@@ -56,13 +66,38 @@ public FragmentationDuplexConnection(
       int mtu,
       boolean encodeLength,
       String type) {
+    this(delegate, allocator, mtu, encodeLength, type, DEFAULT_MAX_REASSEMBLY_BYTES);
+  }
+
+  /**
+   * Creates a new instance.
+   *
+   * @param delegate the connection to fragment frames on
+   * @param allocator the allocator of fragments and reassembled frames
+   * @param mtu the maximum size of a frame
+   * @param encodeLength whether frames on the connection are prefixed with their length
+   * @param type the side of the connection, for logging
+   * @param maxReassemblyBytes the maximum number of bytes buffered to reassemble fragmented frames,
+   *     streams exceeding it are rejected. Not applied once the connection sends or receives a
+   *     SETUP frame enabling resumption or a RESUME frame
+   */
+  public FragmentationDuplexConnection(
+      DuplexConnection delegate,
+      ByteBufAllocator allocator,
+      int mtu,
+      boolean encodeLength,
+      String type,
+      int maxReassemblyBytes) {
     Objects.requireNonNull(delegate, "delegate must not be null");
     Objects.requireNonNull(allocator, "byteBufAllocator must not be null");
+    if (maxReassemblyBytes <= 0) {
+      throw new IllegalArgumentException("maxReassemblyBytes must be > 0");
+    }
     this.encodeLength = encodeLength;
     this.allocator = allocator;
     this.delegate = delegate;
     this.mtu = assertMtu(mtu);
-    this.frameReassembler = new FrameReassembler(allocator);
+    this.frameReassembler = new FrameReassembler(allocator, maxReassemblyBytes, this::reject);
     this.type = type;
 
     delegate.onClose().doFinally(s -> frameReassembler.dispose()).subscribe();
@@ -106,6 +141,7 @@ public Mono<Void> send(Publisher<ByteBuf> frames) {
   @Override
   public Mono<Void> sendOne(ByteBuf frame) {
     FrameType frameType = FrameHeaderFlyweight.frameType(frame);
+    checkResumable(frame, frameType);
     int readableBytes = frame.readableBytes();
     if (shouldFragment(frameType, readableBytes)) {
       if (logger.isDebugEnabled()) {
@@ -130,6 +166,23 @@ public Mono<Void> sendOne(ByteBuf frame) {
     }
   }
 
+  /*
+   * rejections are sent below the resume layer, which would not count them in its positions and
+   * fail the next resumption, so resumable connections are not capped
+   */
+  private void checkResumable(ByteBuf frame, FrameType frameType) {
+    if (frameType == FrameType.RESUME
+        || frameType == FrameType.SETUP && SetupFrameFlyweight.resumeEnabled(frame)) {
+      frameReassembler.uncap();
+    }
+  }
+
+  private void reject(ByteBuf frame) {
+    delegate
+        .sendOne(encode(frame))
+        .subscribe(null, t -> logger.debug("{} - failed to reject stream", type, t));
+  }
+
   private ByteBuf encode(ByteBuf frame) {
     if (encodeLength) {
       return FrameLengthFlyweight.encode(allocator, frame.readableBytes(), frame);
@@ -153,6 +206,7 @@ public Flux<ByteBuf> receive() {
         .handle(
             (byteBuf, sink) -> {
               ByteBuf decode = decode(byteBuf);
+              checkResumable(decode, FrameHeaderFlyweight.frameType(decode));
               frameReassembler.reassembleFrame(decode, sink);
             });
   }
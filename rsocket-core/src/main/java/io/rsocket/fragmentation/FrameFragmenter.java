@@ -21,10 +21,15 @@
 import io.netty.buffer.Unpooled;
 import io.netty.util.ReferenceCountUtil;
 import io.rsocket.frame.*;
-import java.util.function.Consumer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscription;
+import reactor.core.CoreSubscriber;
 import reactor.core.publisher.Flux;
-import reactor.core.publisher.SynchronousSink;
+import reactor.core.publisher.Operators;
 
 /**
  * The implementation of the RSocket fragmentation behavior.
@@ -43,29 +48,28 @@ static Publisher<ByteBuf> fragmentFrame(
     ByteBuf metadata = getMetadata(frame, frameType);
     ByteBuf data = getData(frame, frameType);
     int streamId = FrameHeaderFlyweight.streamId(frame);
-    return Flux.generate(
-            new Consumer<SynchronousSink<ByteBuf>>() {
-              boolean first = true;
-
-              @Override
-              public void accept(SynchronousSink<ByteBuf> sink) {
-                ByteBuf byteBuf;
-                if (first) {
-                  first = false;
-                  byteBuf =
-                      encodeFirstFragment(
-                          allocator, mtu, frame, frameType, streamId, metadata, data);
-                } else {
-                  byteBuf = encodeFollowsFragment(allocator, mtu, streamId, metadata, data);
-                }
-
-                sink.next(encode(allocator, byteBuf, encodeLength));
-                if (!metadata.isReadable() && !data.isReadable()) {
-                  sink.complete();
-                }
-              }
-            })
-        .doFinally(signalType -> ReferenceCountUtil.safeRelease(frame));
+
+    // every fragment holds retained slices of the frame, so it is released once they are built
+    ByteBuf[] fragments;
+    try {
+      List<ByteBuf> list = new ArrayList<>(frame.readableBytes() / mtu + 2);
+      list.add(
+          encode(
+              allocator,
+              encodeFirstFragment(allocator, mtu, frame, frameType, streamId, metadata, data),
+              encodeLength));
+      while (metadata.isReadable() || data.isReadable()) {
+        list.add(
+            encode(
+                allocator,
+                encodeFollowsFragment(allocator, mtu, streamId, metadata, data),
+                encodeLength));
+      }
+      fragments = list.toArray(new ByteBuf[0]);
+    } finally {
+      ReferenceCountUtil.safeRelease(frame);
+    }
+    return new Fragments(fragments);
   }
 
   static ByteBuf encodeFirstFragment(
@@ -238,4 +242,96 @@ static ByteBuf encode(ByteBufAllocator allocator, ByteBuf frame, boolean encodeL
       return frame;
     }
   }
+
+  /**
+   * Emits the fragments of a frame, all built before the first one is requested, so that the
+   * transport receives them as a single batch and can write them with one flush. Fragments that
+   * have not been emitted when the subscriber cancels are released.
+   */
+  static final class Fragments extends Flux<ByteBuf> implements Subscription {
+    static final AtomicLongFieldUpdater<Fragments> REQUESTED =
+        AtomicLongFieldUpdater.newUpdater(Fragments.class, "requested");
+    static final AtomicIntegerFieldUpdater<Fragments> WIP =
+        AtomicIntegerFieldUpdater.newUpdater(Fragments.class, "wip");
+    static final AtomicIntegerFieldUpdater<Fragments> ONCE =
+        AtomicIntegerFieldUpdater.newUpdater(Fragments.class, "once");
+
+    final ByteBuf[] fragments;
+    int index;
+    CoreSubscriber<? super ByteBuf> actual;
+
+    volatile long requested;
+    volatile int wip;
+    volatile int once;
+    volatile boolean cancelled;
+
+    Fragments(ByteBuf[] fragments) {
+      this.fragments = fragments;
+    }
+
+    @Override
+    public void subscribe(CoreSubscriber<? super ByteBuf> actual) {
+      if (once == 0 && ONCE.compareAndSet(this, 0, 1)) {
+        this.actual = actual;
+        actual.onSubscribe(this);
+      } else {
+        Operators.error(
+            actual, new IllegalStateException("Fragments allow only a single Subscriber"));
+      }
+    }
+
+    @Override
+    public void request(long n) {
+      if (Operators.validate(n)) {
+        Operators.addCap(REQUESTED, this, n);
+        drain();
+      }
+    }
+
+    @Override
+    public void cancel() {
+      cancelled = true;
+      drain();
+    }
+
+    void drain() {
+      if (WIP.getAndIncrement(this) != 0) {
+        return;
+      }
+
+      final ByteBuf[] fragments = this.fragments;
+      final CoreSubscriber<? super ByteBuf> a = actual;
+      int missed = 1;
+      for (; ; ) {
+        int i = index;
+        if (cancelled) {
+          for (; i < fragments.length; i++) {
+            ReferenceCountUtil.safeRelease(fragments[i]);
+            fragments[i] = null;
+          }
+        } else if (i < fragments.length) {
+          long r = requested;
+          long e = 0;
+          while (e != r && i < fragments.length && !cancelled) {
+            ByteBuf fragment = fragments[i];
+            fragments[i++] = null;
+            a.onNext(fragment);
+            e++;
+          }
+          if (i == fragments.length && !cancelled) {
+            a.onComplete();
+          }
+          if (e != 0 && r != Long.MAX_VALUE) {
+            REQUESTED.addAndGet(this, -e);
+          }
+        }
+        index = i;
+
+        missed = WIP.addAndGet(this, -missed);
+        if (missed == 0) {
+          return;
+        }
+      }
+    }
+  }
 }
@@ -23,8 +23,12 @@
 import io.netty.util.ReferenceCountUtil;
 import io.netty.util.collection.IntObjectHashMap;
 import io.netty.util.collection.IntObjectMap;
+import io.rsocket.exceptions.CanceledException;
+import io.rsocket.exceptions.RejectedException;
 import io.rsocket.frame.*;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.function.Consumer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import reactor.core.Disposable;
@@ -33,6 +37,20 @@
 /**
  * The implementation of the RSocket reassembly behavior.
  *
+ * <p>The fragments buffered for reassembly on a connection are capped by {@code
+ * maxReassemblyBytes}. A stream that would exceed the cap is rejected as soon as it does: its
+ * fragments are released and the remaining ones dropped, the peer receives an ERROR frame if it was
+ * sending a request or a CANCEL frame otherwise, and a local subscriber receives a {@link
+ * CanceledException}.
+ *
+ * <p>These frames are made up below the resume layer, which does not count them in its positions,
+ * so the cap is lifted with {@link #uncap()} once a connection turns out to be resumable.
+ *
+ * <p>Frames are reassembled by a single thread at a time, the one delivering the inbound frames of
+ * the connection, so the state of each stream is kept in a plain {@link StreamContext} that is
+ * looked up once per fragment. {@link #dispose()} may run concurrently: the state is released by
+ * whichever of the two finishes last, and frames arriving afterwards are released.
+ *
  * @see <a
  *     href="https://github.com/rsocket/rsocket/blob/master/Protocol.md#fragmentation-and-reassembly">Fragmentation
  *     and Reassembly</a>
@@ -40,38 +58,44 @@
 final class FrameReassembler extends AtomicBoolean implements Disposable {
   private static final Logger logger = LoggerFactory.getLogger(FrameReassembler.class);
 
-  final IntObjectMap<ByteBuf> headers;
-  final IntObjectMap<CompositeByteBuf> metadata;
-  final IntObjectMap<CompositeByteBuf> data;
+  private static final AtomicIntegerFieldUpdater<FrameReassembler> WIP =
+      AtomicIntegerFieldUpdater.newUpdater(FrameReassembler.class, "wip");
+
+  final IntObjectMap<StreamContext> contexts;
 
   private final ByteBufAllocator allocator;
+  private volatile int maxReassemblyBytes;
+  private final Consumer<ByteBuf> outbound;
+
+  private long reassemblyBytes;
+  private volatile int wip;
 
   public FrameReassembler(ByteBufAllocator allocator) {
+    this(allocator, Integer.MAX_VALUE, frame -> frame.release());
+  }
+
+  /**
+   * @param allocator the allocator of reassembled frames
+   * @param maxReassemblyBytes the maximum number of bytes buffered for all streams
+   * @param outbound sends frames rejecting a stream to the peer
+   */
+  FrameReassembler(
+      ByteBufAllocator allocator, int maxReassemblyBytes, Consumer<ByteBuf> outbound) {
     this.allocator = allocator;
-    this.headers = new IntObjectHashMap<>();
-    this.metadata = new IntObjectHashMap<>();
-    this.data = new IntObjectHashMap<>();
+    this.maxReassemblyBytes = maxReassemblyBytes;
+    this.outbound = outbound;
+    this.contexts = new IntObjectHashMap<>();
+  }
+
+  /* stops rejecting streams, the connection is resumable */
+  void uncap() {
+    maxReassemblyBytes = Integer.MAX_VALUE;
   }
 
   @Override
   public void dispose() {
-    if (compareAndSet(false, true)) {
-      synchronized (FrameReassembler.this) {
-        for (ByteBuf byteBuf : headers.values()) {
-          ReferenceCountUtil.safeRelease(byteBuf);
-        }
-        headers.clear();
-
-        for (ByteBuf byteBuf : metadata.values()) {
-          ReferenceCountUtil.safeRelease(byteBuf);
-        }
-        metadata.clear();
-
-        for (ByteBuf byteBuf : data.values()) {
-          ReferenceCountUtil.safeRelease(byteBuf);
-        }
-        data.clear();
-      }
+    if (compareAndSet(false, true) && WIP.getAndIncrement(this) == 0) {
+      clear();
     }
   }
 
@@ -80,74 +104,64 @@ public boolean isDisposed() {
     return get();
   }
 
-  synchronized ByteBuf getHeader(int streamId) {
-    return headers.get(streamId);
-  }
-
-  synchronized CompositeByteBuf getMetadata(int streamId) {
-    CompositeByteBuf byteBuf = metadata.get(streamId);
-
-    if (byteBuf == null) {
-      byteBuf = allocator.compositeBuffer();
-      metadata.put(streamId, byteBuf);
-    }
-
-    return byteBuf;
-  }
-
-  synchronized CompositeByteBuf getData(int streamId) {
-    CompositeByteBuf byteBuf = data.get(streamId);
-
-    if (byteBuf == null) {
-      byteBuf = allocator.compositeBuffer();
-      data.put(streamId, byteBuf);
+  /* releases the state of every stream, the reassembler is left in use forever */
+  private void clear() {
+    for (StreamContext context : contexts.values()) {
+      context.release();
     }
-
-    return byteBuf;
-  }
-
-  synchronized ByteBuf removeHeader(int streamId) {
-    return headers.remove(streamId);
-  }
-
-  synchronized CompositeByteBuf removeMetadata(int streamId) {
-    return metadata.remove(streamId);
+    contexts.clear();
+    reassemblyBytes = 0;
   }
 
-  synchronized CompositeByteBuf removeData(int streamId) {
-    return data.remove(streamId);
-  }
-
-  synchronized void putHeader(int streamId, ByteBuf header) {
-    headers.put(streamId, header);
+  private void discard(StreamContext context) {
+    reassemblyBytes -= context.bytes;
+    context.release();
   }
 
   void cancelAssemble(int streamId) {
-    ByteBuf header = removeHeader(streamId);
-    CompositeByteBuf metadata = removeMetadata(streamId);
-    CompositeByteBuf data = removeData(streamId);
-
-    if (header != null) {
-      ReferenceCountUtil.safeRelease(header);
+    StreamContext context = contexts.remove(streamId);
+    if (context != null) {
+      discard(context);
     }
+  }
 
-    if (metadata != null) {
-      ReferenceCountUtil.safeRelease(metadata);
+  void rejectAssemble(
+      ByteBuf frame, SynchronousSink<ByteBuf> sink, int streamId, StreamContext context) {
+    FrameType frameType;
+    if (context == null) {
+      frameType = FrameHeaderFlyweight.frameType(frame);
+      context = new StreamContext();
+      contexts.put(streamId, context);
+    } else {
+      frameType = FrameHeaderFlyweight.frameType(context.header != null ? context.header : frame);
+      discard(context);
     }
+    context.rejected = true;
+    frame.release();
 
-    if (data != null) {
-      ReferenceCountUtil.safeRelease(data);
+    String message =
+        "reassembly of stream " + streamId + " exceeds " + maxReassemblyBytes + " bytes";
+    if (frameType.isRequestType()) {
+      outbound.accept(
+          ErrorFrameFlyweight.encode(allocator, streamId, new RejectedException(message)));
+    } else {
+      outbound.accept(CancelFrameFlyweight.encode(allocator, streamId));
+      sink.next(ErrorFrameFlyweight.encode(allocator, streamId, new CanceledException(message)));
     }
   }
 
-  void handleNoFollowsFlag(ByteBuf frame, SynchronousSink<ByteBuf> sink, int streamId) {
-    ByteBuf header = removeHeader(streamId);
-    if (header != null) {
+  void handleNoFollowsFlag(
+      ByteBuf frame, SynchronousSink<ByteBuf> sink, int streamId, StreamContext context) {
+    if (context != null && context.header != null) {
+      contexts.remove(streamId);
+      reassemblyBytes -= context.bytes;
+
+      ByteBuf header = context.header;
       if (FrameHeaderFlyweight.hasMetadata(header)) {
-        ByteBuf assembledFrame = assembleFrameWithMetadata(frame, streamId, header);
+        ByteBuf assembledFrame = assembleFrameWithMetadata(frame, context, header);
         sink.next(assembledFrame);
       } else {
-        ByteBuf data = assembleData(frame, streamId);
+        ByteBuf data = assembleData(frame, context);
         ByteBuf assembledFrame = FragmentationFlyweight.encode(allocator, header, data);
         sink.next(assembledFrame);
       }
@@ -157,75 +171,58 @@ void handleNoFollowsFlag(ByteBuf frame, SynchronousSink<ByteBuf> sink, int strea
     }
   }
 
-  void handleFollowsFlag(ByteBuf frame, int streamId, FrameType frameType) {
-    ByteBuf header = getHeader(streamId);
-    if (header == null) {
-      header = frame.copy(frame.readerIndex(), FrameHeaderFlyweight.size());
+  void handleFollowsFlag(
+      ByteBuf frame,
+      SynchronousSink<ByteBuf> sink,
+      int streamId,
+      FrameType frameType,
+      StreamContext context) {
+    ByteBuf metadataFragment = FrameFragmenter.getMetadata(frame, frameType);
+    ByteBuf dataFragment = FrameFragmenter.getData(frame, frameType);
+    int length = metadataFragment.readableBytes() + dataFragment.readableBytes();
+    if (reassemblyBytes + length > maxReassemblyBytes) {
+      rejectAssemble(frame, sink, streamId, context);
+      return;
+    }
+
+    if (context == null) {
+      context = new StreamContext();
+      contexts.put(streamId, context);
+    }
+
+    if (context.header == null) {
+      ByteBuf header = frame.copy(frame.readerIndex(), FrameHeaderFlyweight.size());
 
       if (frameType == FrameType.REQUEST_CHANNEL || frameType == FrameType.REQUEST_STREAM) {
         int i = RequestChannelFrameFlyweight.initialRequestN(frame);
         header.writeInt(i);
       }
-      putHeader(streamId, header);
+      context.header = header;
     }
 
     if (FrameHeaderFlyweight.hasMetadata(frame)) {
-      CompositeByteBuf metadata = getMetadata(streamId);
-      switch (frameType) {
-        case REQUEST_FNF:
-          metadata.addComponents(true, RequestFireAndForgetFrameFlyweight.metadata(frame).retain());
-          break;
-        case REQUEST_STREAM:
-          metadata.addComponents(true, RequestStreamFrameFlyweight.metadata(frame).retain());
-          break;
-        case REQUEST_RESPONSE:
-          metadata.addComponents(true, RequestResponseFrameFlyweight.metadata(frame).retain());
-          break;
-        case REQUEST_CHANNEL:
-          metadata.addComponents(true, RequestChannelFrameFlyweight.metadata(frame).retain());
-          break;
-          // Payload and synthetic types
-        case PAYLOAD:
-        case NEXT:
-        case NEXT_COMPLETE:
-        case COMPLETE:
-          metadata.addComponents(true, PayloadFrameFlyweight.metadata(frame).retain());
-          break;
-        default:
-          throw new IllegalStateException("unsupported fragment type");
+      if (context.metadata == null) {
+        context.metadata = allocator.compositeBuffer();
       }
+      context.metadata.addComponents(true, metadataFragment.retain());
     }
-
-    ByteBuf data;
-    switch (frameType) {
-      case REQUEST_FNF:
-        data = RequestFireAndForgetFrameFlyweight.data(frame).retain();
-        break;
-      case REQUEST_STREAM:
-        data = RequestStreamFrameFlyweight.data(frame).retain();
-        break;
-      case REQUEST_RESPONSE:
-        data = RequestResponseFrameFlyweight.data(frame).retain();
-        break;
-      case REQUEST_CHANNEL:
-        data = RequestChannelFrameFlyweight.data(frame).retain();
-        break;
-        // Payload and synthetic types
-      case PAYLOAD:
-      case NEXT:
-      case NEXT_COMPLETE:
-      case COMPLETE:
-        data = PayloadFrameFlyweight.data(frame).retain();
-        break;
-      default:
-        throw new IllegalStateException("unsupported fragment type");
+    if (context.data == null) {
+      context.data = allocator.compositeBuffer();
     }
+    context.data.addComponents(true, dataFragment.retain());
 
-    getData(streamId).addComponents(true, data);
+    context.bytes += length;
+    reassemblyBytes += length;
     frame.release();
   }
 
   void reassembleFrame(ByteBuf frame, SynchronousSink<ByteBuf> sink) {
+    if (!WIP.compareAndSet(this, 0, 1)) {
+      // disposed
+      frame.release();
+      return;
+    }
+
     try {
       FrameType frameType = FrameHeaderFlyweight.frameType(frame);
       int streamId = FrameHeaderFlyweight.streamId(frame);
@@ -242,36 +239,46 @@ void reassembleFrame(ByteBuf frame, SynchronousSink<ByteBuf> sink) {
       }
 
       boolean hasFollows = FrameHeaderFlyweight.hasFollows(frame);
+      StreamContext context = contexts.get(streamId);
 
-      if (hasFollows) {
-        handleFollowsFlag(frame, streamId, frameType);
+      if (context != null && context.rejected) {
+        if (!hasFollows) {
+          contexts.remove(streamId);
+        }
+        frame.release();
+      } else if (hasFollows) {
+        handleFollowsFlag(frame, sink, streamId, frameType, context);
       } else {
-        handleNoFollowsFlag(frame, sink, streamId);
+        handleNoFollowsFlag(frame, sink, streamId, context);
       }
 
     } catch (Throwable t) {
       logger.error("error reassemble frame", t);
       sink.error(t);
+    } finally {
+      if (WIP.decrementAndGet(this) != 0) {
+        clear();
+      }
     }
   }
 
-  private ByteBuf assembleFrameWithMetadata(ByteBuf frame, int streamId, ByteBuf header) {
+  private ByteBuf assembleFrameWithMetadata(ByteBuf frame, StreamContext context, ByteBuf header) {
     ByteBuf metadata;
-    CompositeByteBuf cm = removeMetadata(streamId);
+    CompositeByteBuf cm = context.metadata;
     if (cm != null) {
       metadata = cm.addComponents(true, PayloadFrameFlyweight.metadata(frame).retain());
     } else {
       metadata = PayloadFrameFlyweight.metadata(frame).retain();
     }
 
-    ByteBuf data = assembleData(frame, streamId);
+    ByteBuf data = assembleData(frame, context);
 
     return FragmentationFlyweight.encode(allocator, header, metadata, data);
   }
 
-  private ByteBuf assembleData(ByteBuf frame, int streamId) {
+  private ByteBuf assembleData(ByteBuf frame, StreamContext context) {
     ByteBuf data;
-    CompositeByteBuf cd = removeData(streamId);
+    CompositeByteBuf cd = context.data;
     if (cd != null) {
       cd.addComponents(true, PayloadFrameFlyweight.data(frame).retain());
       data = cd;
@@ -281,4 +288,31 @@ private ByteBuf assembleData(ByteBuf frame, int streamId) {
 
     return data;
   }
+
+  /** The reassembly state of a stream. */
+  static final class StreamContext {
+    ByteBuf header;
+    CompositeByteBuf metadata;
+    CompositeByteBuf data;
+    /* bytes of the fragments buffered in metadata and data */
+    int bytes;
+    /* rejected while fragments still follow */
+    boolean rejected;
+
+    void release() {
+      if (header != null) {
+        ReferenceCountUtil.safeRelease(header);
+        header = null;
+      }
+      if (metadata != null) {
+        ReferenceCountUtil.safeRelease(metadata);
+        metadata = null;
+      }
+      if (data != null) {
+        ReferenceCountUtil.safeRelease(data);
+        data = null;
+      }
+      bytes = 0;
+    }
+  }
 }
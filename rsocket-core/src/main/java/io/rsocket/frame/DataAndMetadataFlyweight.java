@@ -4,12 +4,41 @@
 import io.netty.buffer.ByteBufAllocator;
 import io.netty.buffer.Unpooled;
 import io.rsocket.buffer.TupleByteBuf;
+import reactor.util.annotation.Nullable;
 
 class DataAndMetadataFlyweight {
   public static final int FRAME_LENGTH_MASK = 0xFFFFFF;
 
+  static final int COPY_THRESHOLD = Integer.getInteger(FrameHeaderFlyweight.COPY_THRESHOLD, 0);
+
   private DataAndMetadataFlyweight() {}
 
+  /**
+   * Returns the initial capacity of the header of a frame, so that neither the metadata length nor,
+   * when the frame is below the copy threshold, the metadata and data make the header grow.
+   */
+  static int headerCapacity(int headerSize, @Nullable ByteBuf metadata, @Nullable ByteBuf data) {
+    return headerCapacity(headerSize, metadata, data, COPY_THRESHOLD);
+  }
+
+  static int headerCapacity(
+      int headerSize, @Nullable ByteBuf metadata, @Nullable ByteBuf data, int copyThreshold) {
+    int capacity =
+        metadata != null ? headerSize + FrameLengthFlyweight.FRAME_LENGTH_SIZE : headerSize;
+    int frameLength = capacity;
+    if (metadata != null) {
+      frameLength += metadata.readableBytes();
+    }
+    if (data != null) {
+      frameLength += data.readableBytes();
+    }
+    return frameLength <= copyThreshold ? frameLength : capacity;
+  }
+
+  private static boolean shouldCopy(ByteBuf header, int length, int copyThreshold) {
+    return header.readableBytes() + length <= copyThreshold;
+  }
+
   private static void encodeLength(final ByteBuf byteBuf, final int length) {
     if ((length & ~FRAME_LENGTH_MASK) != 0) {
       throw new IllegalArgumentException("Length is larger than 24 bits");
@@ -33,18 +62,47 @@ private static int decodeLength(final ByteBuf byteBuf) {
 
   static ByteBuf encodeOnlyMetadata(
       ByteBufAllocator allocator, final ByteBuf header, ByteBuf metadata) {
+    if (shouldCopy(header, metadata.readableBytes(), COPY_THRESHOLD)) {
+      header.writeBytes(metadata);
+      metadata.release();
+      return header;
+    }
     return TupleByteBuf.of(allocator, header, metadata);
   }
 
   static ByteBuf encodeOnlyData(ByteBufAllocator allocator, final ByteBuf header, ByteBuf data) {
+    return encodeOnlyData(allocator, header, data, COPY_THRESHOLD);
+  }
+
+  static ByteBuf encodeOnlyData(
+      ByteBufAllocator allocator, final ByteBuf header, ByteBuf data, int copyThreshold) {
+    if (shouldCopy(header, data.readableBytes(), copyThreshold)) {
+      header.writeBytes(data);
+      data.release();
+      return header;
+    }
     return TupleByteBuf.of(allocator, header, data);
   }
 
   static ByteBuf encode(
       ByteBufAllocator allocator, final ByteBuf header, ByteBuf metadata, ByteBuf data) {
+    return encode(allocator, header, metadata, data, COPY_THRESHOLD);
+  }
 
+  static ByteBuf encode(
+      ByteBufAllocator allocator,
+      final ByteBuf header,
+      ByteBuf metadata,
+      ByteBuf data,
+      int copyThreshold) {
     int length = metadata.readableBytes();
     encodeLength(header, length);
+    if (shouldCopy(header, length + data.readableBytes(), copyThreshold)) {
+      header.writeBytes(metadata).writeBytes(data);
+      metadata.release();
+      data.release();
+      return header;
+    }
     return TupleByteBuf.of(allocator, header, metadata, data);
   }
 
@@ -20,7 +20,14 @@ public static ByteBuf encode(
       flags |= FrameHeaderFlyweight.FLAGS_M;
     }
 
-    ByteBuf header = FrameHeaderFlyweight.encode(allocator, streamId, FrameType.EXT, flags);
+    ByteBuf header =
+        FrameHeaderFlyweight.encode(
+            allocator,
+            streamId,
+            FrameType.EXT,
+            flags,
+            DataAndMetadataFlyweight.headerCapacity(
+                FrameHeaderFlyweight.size() + Integer.BYTES, metadata, data));
     header.writeInt(extendedType);
     if (data == null && metadata == null) {
       return header;
@@ -28,6 +28,11 @@ public final class FrameHeaderFlyweight {
   public static final int FLAGS_N = 0b00_0010_0000;
 
   public static final String DISABLE_FRAME_TYPE_CHECK = "io.rsocket.frames.disableFrameTypeCheck";
+  /**
+   * Frames up to this many bytes are encoded into a single buffer, copying the metadata and data,
+   * instead of composing the header with them. Defaults to {@code 0}, which never copies.
+   */
+  public static final String COPY_THRESHOLD = "io.rsocket.frames.copyThreshold";
   private static final int FRAME_FLAGS_MASK = 0b0000_0011_1111_1111;
   private static final int FRAME_TYPE_BITS = 6;
   private static final int FRAME_TYPE_SHIFT = 16 - FRAME_TYPE_BITS;
@@ -47,13 +52,22 @@ static ByteBuf encodeStreamZero(
 
   public static ByteBuf encode(
       final ByteBufAllocator allocator, final int streamId, final FrameType frameType, int flags) {
+    return encode(allocator, streamId, frameType, flags, 256);
+  }
+
+  static ByteBuf encode(
+      final ByteBufAllocator allocator,
+      final int streamId,
+      final FrameType frameType,
+      int flags,
+      int initialCapacity) {
     if (!frameType.canHaveMetadata() && ((flags & FLAGS_M) == FLAGS_M)) {
       throw new IllegalStateException("bad value for metadata flag");
     }
 
     short typeAndFlags = (short) (frameType.getEncodedType() << FRAME_TYPE_SHIFT | (short) flags);
 
-    return allocator.buffer().writeInt(streamId).writeShort(typeAndFlags);
+    return allocator.buffer(initialCapacity).writeInt(streamId).writeShort(typeAndFlags);
   }
 
   public static boolean hasFollows(ByteBuf byteBuf) {
@@ -29,6 +29,28 @@ ByteBuf encode(
       int requestN,
       @Nullable ByteBuf metadata,
       ByteBuf data) {
+    return encode(
+        allocator,
+        streamId,
+        fragmentFollows,
+        complete,
+        next,
+        requestN,
+        metadata,
+        data,
+        DataAndMetadataFlyweight.COPY_THRESHOLD);
+  }
+
+  ByteBuf encode(
+      final ByteBufAllocator allocator,
+      final int streamId,
+      boolean fragmentFollows,
+      boolean complete,
+      boolean next,
+      int requestN,
+      @Nullable ByteBuf metadata,
+      ByteBuf data,
+      int copyThreshold) {
     int flags = 0;
 
     if (metadata != null) {
@@ -47,7 +69,15 @@ ByteBuf encode(
       flags |= FrameHeaderFlyweight.FLAGS_N;
     }
 
-    ByteBuf header = FrameHeaderFlyweight.encode(allocator, streamId, frameType, flags);
+    int headerSize =
+        requestN > 0 ? FrameHeaderFlyweight.size() + Integer.BYTES : FrameHeaderFlyweight.size();
+    ByteBuf header =
+        FrameHeaderFlyweight.encode(
+            allocator,
+            streamId,
+            frameType,
+            flags,
+            DataAndMetadataFlyweight.headerCapacity(headerSize, metadata, data, copyThreshold));
 
     if (requestN > 0) {
       header.writeInt(requestN);
@@ -56,9 +86,9 @@ ByteBuf encode(
     if (data == null && metadata == null) {
       return header;
     } else if (metadata != null) {
-      return DataAndMetadataFlyweight.encode(allocator, header, metadata, data);
+      return DataAndMetadataFlyweight.encode(allocator, header, metadata, data, copyThreshold);
     } else {
-      return DataAndMetadataFlyweight.encodeOnlyData(allocator, header, data);
+      return DataAndMetadataFlyweight.encodeOnlyData(allocator, header, data, copyThreshold);
     }
   }
 
@@ -17,18 +17,25 @@
 package io.rsocket.internal;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.util.ReferenceCountUtil;
 import io.rsocket.Closeable;
 import io.rsocket.DuplexConnection;
 import io.rsocket.frame.FrameHeaderFlyweight;
 import io.rsocket.frame.FrameUtil;
 import io.rsocket.plugins.DuplexConnectionInterceptor.Type;
 import io.rsocket.plugins.PluginRegistry;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscription;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import reactor.core.CoreSubscriber;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.core.publisher.MonoProcessor;
+import reactor.core.publisher.Operators;
+import reactor.util.concurrent.Queues;
 
 /**
  * {@link DuplexConnection#receive()} is a single stream on which the following type of frames
@@ -42,6 +49,9 @@
  * <p>The only way to differentiate these two frames is determining whether the stream Id is odd or
  * even. Even IDs are for the streams initiated by server and odds are for streams initiated by the
  * client.
+ *
+ * <p>Frames are classified as they arrive and pushed directly to the subscriber of the matching
+ * connection. They are only queued while that subscriber is not there yet or has no demand.
  */
 public class ClientServerInputMultiplexer implements Closeable {
   private static final Logger LOGGER = LoggerFactory.getLogger("io.rsocket.FrameLogger");
@@ -52,6 +62,10 @@ public class ClientServerInputMultiplexer implements Closeable {
   private final DuplexConnection clientConnection;
   private final DuplexConnection source;
   private final DuplexConnection clientServerConnection;
+  private final FrameReceiver setup;
+  private final FrameReceiver server;
+  private final FrameReceiver client;
+  private final boolean isClient;
 
   public ClientServerInputMultiplexer(DuplexConnection source) {
     this(source, emptyPluginRegistry, false);
@@ -60,9 +74,10 @@ public ClientServerInputMultiplexer(DuplexConnection source) {
   public ClientServerInputMultiplexer(
       DuplexConnection source, PluginRegistry plugins, boolean isClient) {
     this.source = source;
-    final MonoProcessor<Flux<ByteBuf>> setup = MonoProcessor.create();
-    final MonoProcessor<Flux<ByteBuf>> server = MonoProcessor.create();
-    final MonoProcessor<Flux<ByteBuf>> client = MonoProcessor.create();
+    this.isClient = isClient;
+    this.setup = new FrameReceiver();
+    this.server = new FrameReceiver();
+    this.client = new FrameReceiver();
 
     source = plugins.applyConnection(Type.SOURCE, source);
     setupConnection =
@@ -73,54 +88,47 @@ public ClientServerInputMultiplexer(
         plugins.applyConnection(Type.CLIENT, new InternalDuplexConnection(source, client));
     clientServerConnection = new InternalDuplexConnection(source, client, server);
 
-    source
-        .receive()
-        .groupBy(
-            frame -> {
-              int streamId = FrameHeaderFlyweight.streamId(frame);
-              final Type type;
-              if (streamId == 0) {
-                switch (FrameHeaderFlyweight.frameType(frame)) {
-                  case SETUP:
-                  case RESUME:
-                  case RESUME_OK:
-                    type = Type.SETUP;
-                    break;
-                  case LEASE:
-                  case KEEPALIVE:
-                  case ERROR:
-                    type = isClient ? Type.CLIENT : Type.SERVER;
-                    break;
-                  default:
-                    type = isClient ? Type.SERVER : Type.CLIENT;
-                }
-              } else if ((streamId & 0b1) == 0) {
-                type = Type.SERVER;
-              } else {
-                type = Type.CLIENT;
-              }
-              return type;
-            })
-        .subscribe(
-            group -> {
-              switch (group.key()) {
-                case SETUP:
-                  setup.onNext(group);
-                  break;
-
-                case SERVER:
-                  server.onNext(group);
-                  break;
-
-                case CLIENT:
-                  client.onNext(group);
-                  break;
-              }
-            },
-            t -> {
-              LOGGER.error("Error receiving frame:", t);
-              dispose();
-            });
+    source.receive().subscribe(this::dispatch, this::onError, this::onComplete);
+  }
+
+  private void dispatch(ByteBuf frame) {
+    int streamId = FrameHeaderFlyweight.streamId(frame);
+    final FrameReceiver receiver;
+    if (streamId == 0) {
+      switch (FrameHeaderFlyweight.frameType(frame)) {
+        case SETUP:
+        case RESUME:
+        case RESUME_OK:
+          receiver = setup;
+          break;
+        case LEASE:
+        case KEEPALIVE:
+        case ERROR:
+          receiver = isClient ? client : server;
+          break;
+        default:
+          receiver = isClient ? server : client;
+      }
+    } else if ((streamId & 0b1) == 0) {
+      receiver = server;
+    } else {
+      receiver = client;
+    }
+    receiver.onNext(frame);
+  }
+
+  private void onError(Throwable t) {
+    LOGGER.error("Error receiving frame:", t);
+    setup.onError(t);
+    server.onError(t);
+    client.onError(t);
+    dispose();
+  }
+
+  private void onComplete() {
+    setup.onComplete();
+    server.onComplete();
+    client.onComplete();
   }
 
   public DuplexConnection asClientServerConnection() {
@@ -156,14 +164,19 @@ public Mono<Void> onClose() {
 
   private static class InternalDuplexConnection implements DuplexConnection {
     private final DuplexConnection source;
-    private final MonoProcessor<Flux<ByteBuf>>[] processors;
+    private final Flux<ByteBuf> receive;
     private final boolean debugEnabled;
 
-    public InternalDuplexConnection(
-        DuplexConnection source, MonoProcessor<Flux<ByteBuf>>... processors) {
+    public InternalDuplexConnection(DuplexConnection source, FrameReceiver... receivers) {
       this.source = source;
-      this.processors = processors;
       this.debugEnabled = LOGGER.isDebugEnabled();
+
+      Flux<ByteBuf> receive = receivers.length == 1 ? receivers[0] : Flux.merge(receivers);
+      if (debugEnabled) {
+        receive =
+            receive.doOnNext(frame -> LOGGER.debug("receiving -> " + FrameUtil.toString(frame)));
+      }
+      this.receive = receive;
     }
 
     @Override
@@ -186,18 +199,7 @@ public Mono<Void> sendOne(ByteBuf frame) {
 
     @Override
     public Flux<ByteBuf> receive() {
-      return Flux.fromArray(processors)
-          .flatMap(
-              p ->
-                  p.flatMapMany(
-                      f -> {
-                        if (debugEnabled) {
-                          return f.doOnNext(
-                              frame -> LOGGER.debug("receiving -> " + FrameUtil.toString(frame)));
-                        } else {
-                          return f;
-                        }
-                      }));
+      return receive;
     }
 
     @Override
@@ -220,4 +222,163 @@ public double availability() {
       return source.availability();
     }
   }
+
+  /**
+   * Hands frames of one type over to a single subscriber. Frames are delivered on the calling
+   * thread while the subscriber keeps up, and buffered only until it subscribes or requests more.
+   */
+  static final class FrameReceiver extends Flux<ByteBuf> implements Subscription {
+
+    static final AtomicIntegerFieldUpdater<FrameReceiver> ONCE =
+        AtomicIntegerFieldUpdater.newUpdater(FrameReceiver.class, "once");
+
+    static final AtomicIntegerFieldUpdater<FrameReceiver> WIP =
+        AtomicIntegerFieldUpdater.newUpdater(FrameReceiver.class, "wip");
+
+    static final AtomicLongFieldUpdater<FrameReceiver> REQUESTED =
+        AtomicLongFieldUpdater.newUpdater(FrameReceiver.class, "requested");
+
+    final Queue<ByteBuf> queue = Queues.<ByteBuf>unbounded().get();
+    volatile CoreSubscriber<? super ByteBuf> actual;
+    volatile boolean done;
+    Throwable error;
+    volatile boolean cancelled;
+    volatile int once;
+    volatile int wip;
+    volatile long requested;
+
+    @Override
+    public void subscribe(CoreSubscriber<? super ByteBuf> actual) {
+      if (once == 0 && ONCE.compareAndSet(this, 0, 1)) {
+        actual.onSubscribe(this);
+        this.actual = actual;
+        drain();
+      } else {
+        Operators.error(
+            actual,
+            new IllegalStateException(
+                "ClientServerInputMultiplexer allows only a single Subscriber per connection"));
+      }
+    }
+
+    /* called serially by the source connection */
+    void onNext(ByteBuf frame) {
+      if (cancelled) {
+        ReferenceCountUtil.safeRelease(frame);
+        return;
+      }
+
+      if (wip == 0 && WIP.compareAndSet(this, 0, 1)) {
+        CoreSubscriber<? super ByteBuf> a = actual;
+        long r = requested;
+        if (a != null && r != 0 && queue.isEmpty()) {
+          a.onNext(frame);
+          if (r != Long.MAX_VALUE) {
+            REQUESTED.decrementAndGet(this);
+          }
+        } else {
+          queue.offer(frame);
+        }
+        if (WIP.decrementAndGet(this) == 0) {
+          return;
+        }
+      } else {
+        queue.offer(frame);
+        if (WIP.getAndIncrement(this) != 0) {
+          return;
+        }
+      }
+      drainLoop();
+    }
+
+    void onError(Throwable t) {
+      error = t;
+      done = true;
+      drain();
+    }
+
+    void onComplete() {
+      done = true;
+      drain();
+    }
+
+    @Override
+    public void request(long n) {
+      if (Operators.validate(n)) {
+        Operators.addCap(REQUESTED, this, n);
+        drain();
+      }
+    }
+
+    @Override
+    public void cancel() {
+      cancelled = true;
+      drain();
+    }
+
+    void drain() {
+      if (WIP.getAndIncrement(this) == 0) {
+        drainLoop();
+      }
+    }
+
+    void drainLoop() {
+      int missed = 1;
+      for (; ; ) {
+        if (cancelled) {
+          actual = null;
+          clear();
+        } else {
+          CoreSubscriber<? super ByteBuf> a = actual;
+          if (a != null) {
+            long r = requested;
+            long e = 0L;
+            while (e != r) {
+              boolean d = done;
+              ByteBuf frame = queue.poll();
+              boolean empty = frame == null;
+              if (d && empty) {
+                terminate(a);
+                return;
+              }
+              if (empty) {
+                break;
+              }
+              a.onNext(frame);
+              e++;
+            }
+            if (e == r && done && queue.isEmpty()) {
+              terminate(a);
+              return;
+            }
+            if (e != 0 && r != Long.MAX_VALUE) {
+              REQUESTED.addAndGet(this, -e);
+            }
+          }
+        }
+
+        missed = WIP.addAndGet(this, -missed);
+        if (missed == 0) {
+          break;
+        }
+      }
+    }
+
+    void terminate(CoreSubscriber<? super ByteBuf> a) {
+      actual = null;
+      Throwable e = error;
+      if (e != null) {
+        a.onError(e);
+      } else {
+        a.onComplete();
+      }
+    }
+
+    void clear() {
+      ByteBuf frame;
+      while ((frame = queue.poll()) != null) {
+        ReferenceCountUtil.safeRelease(frame);
+      }
+    }
+  }
 }
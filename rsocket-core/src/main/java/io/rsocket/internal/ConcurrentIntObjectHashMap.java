@@ -0,0 +1,331 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rsocket.internal;
+
+import io.rsocket.internal.jctools.util.Pow2;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+import javax.annotation.Nullable;
+
+/**
+ * A concurrent hash map with primitive {@code int} keys, used to keep per-stream state. The map is
+ * split into independently locked segments so that writers for different streams rarely contend,
+ * while {@link #get(int)}, {@link #containsKey(int)} and {@link #forEach(Consumer)} never take a
+ * lock.
+ *
+ * <p>Each segment is a chained hash table whose bucket heads are published through an {@link
+ * AtomicReferenceArray} and whose links are volatile. Removal unlinks a node in place and keeps its
+ * {@code next} pointer intact, so a reader (or an iteration that removes entries from its callback)
+ * positioned on a removed node still reaches the rest of the chain. Growing a segment copies its
+ * nodes into a new table, leaving the old table untouched for readers that are still walking it.
+ *
+ * <p>Iteration is weakly consistent: it reflects every entry present for the whole duration of the
+ * iteration and may or may not reflect concurrent insertions and removals. It does not allocate.
+ * {@code null} values are not permitted.
+ *
+ * @param <V> The value type stored in the map.
+ */
+public final class ConcurrentIntObjectHashMap<V> {
+
+  /** Default initial capacity of the whole map. Used if not specified in the constructor */
+  public static final int DEFAULT_CAPACITY = 64;
+
+  /** Default number of segments. Used if not specified in the constructor */
+  public static final int DEFAULT_CONCURRENCY_LEVEL =
+      Pow2.roundToPowerOfTwo(Math.min(64, Runtime.getRuntime().availableProcessors() * 2));
+
+  private static final float LOAD_FACTOR = 0.75f;
+
+  private final Segment<V>[] segments;
+  private final int segmentMask;
+  private final int segmentShift;
+
+  public ConcurrentIntObjectHashMap() {
+    this(DEFAULT_CAPACITY, DEFAULT_CONCURRENCY_LEVEL);
+  }
+
+  public ConcurrentIntObjectHashMap(int initialCapacity) {
+    this(initialCapacity, DEFAULT_CONCURRENCY_LEVEL);
+  }
+
+  @SuppressWarnings("unchecked")
+  public ConcurrentIntObjectHashMap(int initialCapacity, int concurrencyLevel) {
+    if (initialCapacity < 0) {
+      throw new IllegalArgumentException("initialCapacity must be >= 0");
+    }
+    if (concurrencyLevel <= 0) {
+      throw new IllegalArgumentException("concurrencyLevel must be > 0");
+    }
+
+    int segmentCount = Pow2.roundToPowerOfTwo(concurrencyLevel);
+    int segmentCapacity =
+        Math.max(2, Pow2.roundToPowerOfTwo((initialCapacity + segmentCount - 1) / segmentCount));
+
+    this.segmentMask = segmentCount - 1;
+    this.segmentShift = Integer.numberOfTrailingZeros(segmentCount);
+    this.segments = (Segment<V>[]) new Segment[segmentCount];
+    for (int i = 0; i < segmentCount; i++) {
+      segments[i] = new Segment<>(segmentCapacity);
+    }
+  }
+
+  /**
+   * Spreads sequential stream ids (which advance by 2) across segments and buckets. The low bits
+   * select the segment, the remaining bits select the bucket within the segment.
+   */
+  private static int hash(int key) {
+    int h = key * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+
+  private Segment<V> segmentFor(int hash) {
+    return segments[hash & segmentMask];
+  }
+
+  /**
+   * Returns the value mapped to the given key, or {@code null} if there is none. Never blocks.
+   *
+   * @param key the key whose associated value is to be returned
+   * @return the value mapped to the key or {@code null}
+   */
+  @Nullable
+  public V get(int key) {
+    int h = hash(key);
+    return segmentFor(h).get(key, h >>> segmentShift);
+  }
+
+  /**
+   * Returns {@code true} if the map contains a mapping for the given key. Never blocks.
+   *
+   * @param key the key whose presence is to be tested
+   * @return {@code true} if the key is present
+   */
+  public boolean containsKey(int key) {
+    return get(key) != null;
+  }
+
+  /**
+   * Maps the key to the given value, replacing any previous mapping.
+   *
+   * @param key the key
+   * @param value the value, must not be {@code null}
+   * @return the previous value mapped to the key or {@code null}
+   */
+  @Nullable
+  public V put(int key, V value) {
+    Objects.requireNonNull(value, "value must not be null");
+    int h = hash(key);
+    return segmentFor(h).put(key, value, h >>> segmentShift);
+  }
+
+  /**
+   * Removes the mapping for the given key if present.
+   *
+   * @param key the key
+   * @return the removed value or {@code null} if there was none
+   */
+  @Nullable
+  public V remove(int key) {
+    int h = hash(key);
+    return segmentFor(h).remove(key, h >>> segmentShift);
+  }
+
+  /** @return the number of mappings, as observed by summing the segment counts */
+  public int size() {
+    int size = 0;
+    for (Segment<V> segment : segments) {
+      size += segment.count;
+    }
+    return size;
+  }
+
+  public boolean isEmpty() {
+    for (Segment<V> segment : segments) {
+      if (segment.count != 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Removes all mappings. Concurrent insertions may survive the call. */
+  public void clear() {
+    for (Segment<V> segment : segments) {
+      segment.clear();
+    }
+  }
+
+  /**
+   * Performs the given action for each value in the map without taking any lock and without
+   * allocating. The action may remove entries from this map, including the one it is called for.
+   *
+   * @param action the action to be performed for each value
+   */
+  public void forEach(Consumer<? super V> action) {
+    for (Segment<V> segment : segments) {
+      if (segment.count == 0) {
+        continue;
+      }
+      AtomicReferenceArray<Node<V>> table = segment.table;
+      for (int i = 0, length = table.length(); i < length; i++) {
+        for (Node<V> e = table.get(i); e != null; e = e.next) {
+          V value = e.value;
+          if (value != null) {
+            action.accept(value);
+          }
+        }
+      }
+    }
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder("{");
+    for (Segment<V> segment : segments) {
+      AtomicReferenceArray<Node<V>> table = segment.table;
+      for (int i = 0, length = table.length(); i < length; i++) {
+        for (Node<V> e = table.get(i); e != null; e = e.next) {
+          if (sb.length() > 1) {
+            sb.append(", ");
+          }
+          sb.append(e.key).append('=').append(e.value);
+        }
+      }
+    }
+    return sb.append('}').toString();
+  }
+
+  static final class Node<V> {
+    final int key;
+    final int hash;
+    volatile V value;
+    volatile Node<V> next;
+
+    Node(int key, int hash, V value, Node<V> next) {
+      this.key = key;
+      this.hash = hash;
+      this.value = value;
+      this.next = next;
+    }
+  }
+
+  /**
+   * A chained hash table guarded by its own monitor for writes. Reads only rely on the volatile
+   * {@link #table} and {@link #count} fields and on the volatile links of the nodes.
+   */
+  static final class Segment<V> {
+    volatile AtomicReferenceArray<Node<V>> table;
+    volatile int count;
+    int threshold;
+
+    Segment(int capacity) {
+      this.table = new AtomicReferenceArray<>(capacity);
+      this.threshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    V get(int key, int hash) {
+      if (count != 0) {
+        AtomicReferenceArray<Node<V>> table = this.table;
+        for (Node<V> e = table.get(hash & (table.length() - 1)); e != null; e = e.next) {
+          if (e.key == key) {
+            return e.value;
+          }
+        }
+      }
+      return null;
+    }
+
+    synchronized V put(int key, V value, int hash) {
+      AtomicReferenceArray<Node<V>> table = this.table;
+      int index = hash & (table.length() - 1);
+      Node<V> first = table.get(index);
+      for (Node<V> e = first; e != null; e = e.next) {
+        if (e.key == key) {
+          V previous = e.value;
+          e.value = value;
+          return previous;
+        }
+      }
+
+      int c = count + 1;
+      if (c > threshold) {
+        table = rehash(table);
+        index = hash & (table.length() - 1);
+        first = table.get(index);
+      }
+      table.set(index, new Node<>(key, hash, value, first));
+      count = c;
+      return null;
+    }
+
+    synchronized V remove(int key, int hash) {
+      AtomicReferenceArray<Node<V>> table = this.table;
+      int index = hash & (table.length() - 1);
+      Node<V> previous = null;
+      for (Node<V> e = table.get(index); e != null; previous = e, e = e.next) {
+        if (e.key == key) {
+          // e.next is deliberately left as is so concurrent readers sitting on e can move on
+          if (previous == null) {
+            table.set(index, e.next);
+          } else {
+            previous.next = e.next;
+          }
+          count = count - 1;
+          return e.value;
+        }
+      }
+      return null;
+    }
+
+    synchronized void clear() {
+      if (count != 0) {
+        AtomicReferenceArray<Node<V>> table = this.table;
+        for (int i = 0, length = table.length(); i < length; i++) {
+          table.set(i, null);
+        }
+        count = 0;
+      }
+    }
+
+    /**
+     * Doubles the table. Nodes are copied rather than relinked so that readers still walking the
+     * old table observe consistent chains.
+     */
+    private AtomicReferenceArray<Node<V>> rehash(AtomicReferenceArray<Node<V>> oldTable) {
+      int oldCapacity = oldTable.length();
+      if (oldCapacity >= Pow2.MAX_POW2) {
+        return oldTable;
+      }
+
+      int newCapacity = oldCapacity << 1;
+      int mask = newCapacity - 1;
+      AtomicReferenceArray<Node<V>> newTable = new AtomicReferenceArray<>(newCapacity);
+      for (int i = 0; i < oldCapacity; i++) {
+        for (Node<V> e = oldTable.get(i); e != null; e = e.next) {
+          int index = e.hash & mask;
+          newTable.lazySet(index, new Node<>(e.key, e.hash, e.value, newTable.get(index)));
+        }
+      }
+
+      threshold = (int) (newCapacity * LOAD_FACTOR);
+      // volatile write publishes the fully populated table
+      this.table = newTable;
+      return newTable;
+    }
+  }
+}
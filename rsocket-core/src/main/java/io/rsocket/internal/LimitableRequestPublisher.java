@@ -17,6 +17,8 @@
 package io.rsocket.internal;
 
 import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 import javax.annotation.Nullable;
 import org.reactivestreams.Publisher;
 import org.reactivestreams.Subscriber;
@@ -25,7 +27,14 @@
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Operators;
 
-/** */
+/**
+ * Requests from the source the minimum of the demand of its subscriber and of an internal limit,
+ * raised with {@link #increaseInternalLimit(long)}.
+ *
+ * <p>Both demands are accumulated with atomic updates and handed to the source by a
+ * work-in-progress drain loop, so concurrent calls never block: the caller that enters the loop also
+ * requests the demand added by the callers that arrived meanwhile.
+ */
 public class LimitableRequestPublisher<T> extends Flux<T> implements Subscription {
 
   private static final int NOT_CANCELED_STATE = 0;
@@ -37,15 +46,29 @@
   private static final AtomicIntegerFieldUpdater<LimitableRequestPublisher> CANCELED =
       AtomicIntegerFieldUpdater.newUpdater(LimitableRequestPublisher.class, "canceled");
 
-  private final long prefetch;
+  private volatile int subscribed;
+  private static final AtomicIntegerFieldUpdater<LimitableRequestPublisher> SUBSCRIBED =
+      AtomicIntegerFieldUpdater.newUpdater(LimitableRequestPublisher.class, "subscribed");
 
-  private long internalRequested;
+  private volatile int wip;
+  private static final AtomicIntegerFieldUpdater<LimitableRequestPublisher> WIP =
+      AtomicIntegerFieldUpdater.newUpdater(LimitableRequestPublisher.class, "wip");
 
-  private long externalRequested;
+  private volatile long internalRequested;
+  private static final AtomicLongFieldUpdater<LimitableRequestPublisher> INTERNAL_REQUESTED =
+      AtomicLongFieldUpdater.newUpdater(LimitableRequestPublisher.class, "internalRequested");
 
-  private boolean subscribed;
+  private volatile long externalRequested;
+  private static final AtomicLongFieldUpdater<LimitableRequestPublisher> EXTERNAL_REQUESTED =
+      AtomicLongFieldUpdater.newUpdater(LimitableRequestPublisher.class, "externalRequested");
 
-  private @Nullable Subscription internalSubscription;
+  private volatile @Nullable Subscription internalSubscription;
+  private static final AtomicReferenceFieldUpdater<LimitableRequestPublisher, Subscription>
+      INTERNAL_SUBSCRIPTION =
+          AtomicReferenceFieldUpdater.newUpdater(
+              LimitableRequestPublisher.class, Subscription.class, "internalSubscription");
+
+  private final long prefetch;
 
   private LimitableRequestPublisher(Publisher<T> source, long prefetch) {
     this.source = source;
@@ -62,12 +85,8 @@ public static <T> LimitableRequestPublisher<T> wrap(Publisher<T> source) {
 
   @Override
   public void subscribe(CoreSubscriber<? super T> destination) {
-    synchronized (this) {
-      if (subscribed) {
-        throw new IllegalStateException("only one subscriber at a time");
-      }
-
-      subscribed = true;
+    if (!SUBSCRIBED.compareAndSet(this, 0, 1)) {
+      throw new IllegalStateException("only one subscriber at a time");
     }
     final InnerOperator s = new InnerOperator(destination);
 
@@ -77,70 +96,53 @@ public void subscribe(CoreSubscriber<? super T> destination) {
   }
 
   public void increaseInternalLimit(long n) {
-    synchronized (this) {
-      long requested = internalRequested;
-      if (requested == Long.MAX_VALUE) {
-        return;
-      }
-      internalRequested = Operators.addCap(n, requested);
+    if (internalRequested == Long.MAX_VALUE) {
+      return;
     }
+    Operators.addCap(INTERNAL_REQUESTED, this, n);
 
     requestN();
   }
 
   @Override
   public void request(long n) {
-    synchronized (this) {
-      long requested = externalRequested;
-      if (requested == Long.MAX_VALUE) {
-        return;
-      }
-      externalRequested = Operators.addCap(n, requested);
+    if (externalRequested == Long.MAX_VALUE) {
+      return;
     }
+    Operators.addCap(EXTERNAL_REQUESTED, this, n);
 
     requestN();
   }
 
   private void requestN() {
-    long r;
-    final Subscription s;
-
-    synchronized (this) {
-      s = internalSubscription;
-      if (s == null) {
-        return;
-      }
-
-      long er = externalRequested;
-      long ir = internalRequested;
+    if (WIP.getAndIncrement(this) != 0) {
+      return;
+    }
 
-      if (er != Long.MAX_VALUE || ir != Long.MAX_VALUE) {
-        r = Math.min(ir, er);
-        if (er != Long.MAX_VALUE) {
-          externalRequested -= r;
-        }
-        if (ir != Long.MAX_VALUE) {
-          internalRequested -= r;
+    int missed = 1;
+    for (; ; ) {
+      final Subscription s = internalSubscription;
+      if (s != null) {
+        long r = Math.min(internalRequested, externalRequested);
+        if (r > 0) {
+          // leaves an unbounded demand untouched
+          Operators.produced(EXTERNAL_REQUESTED, this, r);
+          Operators.produced(INTERNAL_REQUESTED, this, r);
+          s.request(r);
         }
-      } else {
-        r = Long.MAX_VALUE;
       }
-    }
 
-    if (r > 0) {
-      s.request(r);
+      missed = WIP.addAndGet(this, -missed);
+      if (missed == 0) {
+        return;
+      }
     }
   }
 
   public void cancel() {
     if (!isCanceled() && CANCELED.compareAndSet(this, NOT_CANCELED_STATE, CANCELED_STATE)) {
-      Subscription s;
-
-      synchronized (this) {
-        s = internalSubscription;
-        internalSubscription = null;
-        subscribed = false;
-      }
+      Subscription s = INTERNAL_SUBSCRIPTION.getAndSet(this, null);
+      subscribed = 0;
 
       if (s != null) {
         s.cancel();
@@ -161,14 +163,14 @@ private InnerOperator(Subscriber<? super T> destination) {
 
     @Override
     public void onSubscribe(Subscription s) {
-      synchronized (LimitableRequestPublisher.this) {
-        LimitableRequestPublisher.this.internalSubscription = s;
+      internalSubscription = s;
 
-        if (isCanceled()) {
-          s.cancel();
-          subscribed = false;
-          LimitableRequestPublisher.this.internalSubscription = null;
-        }
+      // a concurrent cancel either took the subscription or is visible here
+      if (isCanceled()
+          && INTERNAL_SUBSCRIPTION.compareAndSet(LimitableRequestPublisher.this, s, null)) {
+        s.cancel();
+        subscribed = 0;
+        return;
       }
 
       requestN();
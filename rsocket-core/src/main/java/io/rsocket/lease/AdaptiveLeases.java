@@ -0,0 +1,259 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rsocket.lease;
+
+import io.rsocket.plugins.RSocketInterceptor;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
+import reactor.core.publisher.Flux;
+
+/**
+ * Sends leases sized from the load of the responder, so that the requests it handles stay close to
+ * a target utilization of its capacity.
+ *
+ * <p>The {@link #responderInterceptor()} records the requests in flight and the latency of the
+ * last requests over all connections. Every {@link Builder#period(Duration) period}, the lease of
+ * a connection grants its share of the requests the responder can complete in a period at the
+ * target utilization, that is the target number of requests in flight times the period divided by
+ * the median latency. Shares are proportional to the demand of each connection in its last period,
+ * which is doubled for connections that used up their lease, so capacity moves to the requesters
+ * that need it. Leases live one period plus the 99th percentile latency, so that they overlap with
+ * the next one.
+ *
+ * <pre>{@code
+ * AdaptiveLeases leases = AdaptiveLeases.builder().capacity(200).build();
+ * RSocketFactory.receive()
+ *     .lease(leases::leases)
+ *     .addResponderPlugin(leases.responderInterceptor())
+ *     ...
+ * }</pre>
+ */
+public final class AdaptiveLeases {
+  private final IntSupplier capacity;
+  private final double targetUtilization;
+  private final Duration period;
+  private final LatencyWindow latencies;
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private final Set<ResponderLoadStats> connections = ConcurrentHashMap.newKeySet();
+
+  private AdaptiveLeases(Builder builder) {
+    this.capacity = builder.capacity;
+    this.targetUtilization = builder.targetUtilization;
+    this.period = builder.period;
+    this.latencies = new LatencyWindow(builder.windowSize);
+  }
+
+  /**
+   * Returns a new builder with a capacity of 100 requests in flight, a target utilization of 0.8
+   * and a period of 1 second.
+   *
+   * @return a new builder
+   */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * Returns the leases of a new connection, to be used as the lease supplier of a server.
+   *
+   * @return the leases of a connection
+   */
+  public Leases<ResponderLoadStats> leases() {
+    ResponderLoadStats stats = new ResponderLoadStats(this);
+    return Leases.<ResponderLoadStats>create()
+        .stats(stats)
+        .sender(
+            leaseStats ->
+                Flux.interval(Duration.ZERO, period)
+                    .onBackpressureLatest()
+                    .map(tick -> nextLease(stats))
+                    .doOnSubscribe(subscription -> connections.add(stats))
+                    .doFinally(signalType -> connections.remove(stats)));
+  }
+
+  /**
+   * Returns the interceptor recording the load of the responder. The same instance must be added
+   * to the responder plugins, so that the load of all connections is recorded.
+   *
+   * @return the responder interceptor
+   */
+  public RSocketInterceptor responderInterceptor() {
+    return rSocket -> new LoadTrackingRSocket(rSocket, this);
+  }
+
+  Lease nextLease(ResponderLoadStats stats) {
+    stats.roll();
+
+    long[] snapshot = latencySnapshot();
+    long periodNanos = period.toNanos();
+    double targetInFlight = Math.max(1, capacity.getAsInt()) * targetUtilization;
+    long medianLatency = LatencyWindow.percentile(snapshot, 0.5);
+    double total =
+        medianLatency > 0 ? targetInFlight * periodNanos / medianLatency : targetInFlight;
+    int inFlight = this.inFlight.get();
+    if (inFlight > targetInFlight) {
+      // requests are piling up, grant fewer of them until they drain
+      total *= targetInFlight / inFlight;
+    }
+
+    double totalWeight = stats.weight();
+    for (ResponderLoadStats connection : connections) {
+      if (connection != stats) {
+        totalWeight += connection.weight();
+      }
+    }
+    double share = total * stats.weight() / totalWeight;
+    int requests = (int) Math.max(1, Math.min(Integer.MAX_VALUE, share));
+    stats.granted(requests);
+
+    long tailLatencyMillis = nanosToMillisRoundingUp(LatencyWindow.percentile(snapshot, 0.99));
+    long ttlMillis = Math.min(Integer.MAX_VALUE, period.toMillis() + tailLatencyMillis);
+    return Lease.create((int) ttlMillis, requests);
+  }
+
+  long onStart() {
+    inFlight.incrementAndGet();
+    return System.nanoTime();
+  }
+
+  void onComplete(long start) {
+    inFlight.decrementAndGet();
+    latencies.record(System.nanoTime() - start);
+  }
+
+  void onTerminate() {
+    inFlight.decrementAndGet();
+  }
+
+  int inFlight() {
+    return inFlight.get();
+  }
+
+  double utilization() {
+    return (double) inFlight.get() / Math.max(1, capacity.getAsInt());
+  }
+
+  long[] latencySnapshot() {
+    return latencies.snapshot();
+  }
+
+  private static long nanosToMillisRoundingUp(long nanos) {
+    long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+    return TimeUnit.MILLISECONDS.toNanos(millis) < nanos ? millis + 1 : millis;
+  }
+
+  static long queueingDelayNanos(long[] snapshot) {
+    return snapshot.length == 0 ? 0 : LatencyWindow.percentile(snapshot, 0.5) - snapshot[0];
+  }
+
+  public static final class Builder {
+    private IntSupplier capacity = () -> 100;
+    private double targetUtilization = 0.8;
+    private Duration period = Duration.ofSeconds(1);
+    private int windowSize = 1024;
+
+    private Builder() {}
+
+    /**
+     * Sets how many requests the responder can have in flight. Defaults to {@code 100}.
+     *
+     * @param capacity the maximum number of requests in flight
+     * @return this builder
+     * @throws IllegalArgumentException if {@code capacity} is not positive
+     */
+    public Builder capacity(int capacity) {
+      if (capacity <= 0) {
+        throw new IllegalArgumentException("capacity must be > 0");
+      }
+      this.capacity = () -> capacity;
+      return this;
+    }
+
+    /**
+     * Sets a capacity that changes over time, e.g. the limit of a {@link
+     * io.rsocket.limit.ConcurrencyLimiter} with {@code limiter::limit}.
+     *
+     * @param capacity the maximum number of requests in flight
+     * @return this builder
+     */
+    public Builder capacity(IntSupplier capacity) {
+      this.capacity = Objects.requireNonNull(capacity, "capacity must not be null");
+      return this;
+    }
+
+    /**
+     * Sets the share of the capacity that leases aim to use. Defaults to {@code 0.8}.
+     *
+     * @param targetUtilization the target utilization, greater than 0 and at most 1
+     * @return this builder
+     * @throws IllegalArgumentException if {@code targetUtilization} is out of range
+     */
+    public Builder targetUtilization(double targetUtilization) {
+      if (targetUtilization <= 0 || targetUtilization > 1) {
+        throw new IllegalArgumentException("targetUtilization must be in (0, 1]");
+      }
+      this.targetUtilization = targetUtilization;
+      return this;
+    }
+
+    /**
+     * Sets how often a lease is sent to each connection. Defaults to 1 second.
+     *
+     * @param period the lease period
+     * @return this builder
+     * @throws IllegalArgumentException if {@code period} is shorter than a millisecond
+     */
+    public Builder period(Duration period) {
+      Objects.requireNonNull(period, "period must not be null");
+      if (period.toMillis() <= 0) {
+        throw new IllegalArgumentException("period must be at least 1 millisecond");
+      }
+      this.period = period;
+      return this;
+    }
+
+    /**
+     * Sets how many of the last latencies the percentiles are computed from. Defaults to {@code
+     * 1024}.
+     *
+     * @param windowSize the number of latency samples
+     * @return this builder
+     * @throws IllegalArgumentException if {@code windowSize} is not positive
+     */
+    public Builder windowSize(int windowSize) {
+      if (windowSize <= 0) {
+        throw new IllegalArgumentException("windowSize must be > 0");
+      }
+      this.windowSize = windowSize;
+      return this;
+    }
+
+    /**
+     * Builds the leases.
+     *
+     * @return the leases
+     */
+    public AdaptiveLeases build() {
+      return new AdaptiveLeases(this);
+    }
+  }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rsocket.lease;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The latencies of the last requests, recorded without locking. Percentiles are computed over a
+ * copy, so they are meant to be read once in a while, e.g. when sizing a lease.
+ */
+final class LatencyWindow {
+  private final AtomicLongArray samples;
+  private final AtomicLong count = new AtomicLong();
+
+  LatencyWindow(int size) {
+    this.samples = new AtomicLongArray(size);
+  }
+
+  void record(long latencyNanos) {
+    long index = count.getAndIncrement();
+    samples.set((int) (index % samples.length()), latencyNanos);
+  }
+
+  /**
+   * Copies the samples of the window.
+   *
+   * @return the samples, sorted, which are empty if none was recorded
+   */
+  long[] snapshot() {
+    int size = (int) Math.min(count.get(), samples.length());
+    long[] snapshot = new long[size];
+    for (int i = 0; i < size; i++) {
+      snapshot[i] = samples.get(i);
+    }
+    Arrays.sort(snapshot);
+    return snapshot;
+  }
+
+  /**
+   * Returns a percentile of sorted samples.
+   *
+   * @param snapshot the sorted samples
+   * @param quantile the quantile, between 0 and 1
+   * @return the percentile, or 0 if there is no sample
+   */
+  static long percentile(long[] snapshot, double quantile) {
+    if (snapshot.length == 0) {
+      return 0;
+    }
+    int index = (int) Math.ceil(quantile * snapshot.length) - 1;
+    return snapshot[Math.max(0, Math.min(snapshot.length - 1, index))];
+  }
+}
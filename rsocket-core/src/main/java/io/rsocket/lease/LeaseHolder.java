@@ -0,0 +1,35 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rsocket.lease;
+
+import javax.annotation.Nullable;
+
+/**
+ * Gives access to the lease bounding the requests of an RSocket, so that callers can tell how many
+ * requests it still allows and for how long before sending them. Implemented by the requester of a
+ * connection and by {@link io.rsocket.util.RSocketProxy proxies}, which forward it.
+ */
+public interface LeaseHolder {
+
+  /**
+   * Returns the lease last received from the responder, which is empty until one is received.
+   *
+   * @return the current lease, or {@code null} if requests are not bounded by leases
+   */
+  @Nullable
+  Lease currentLease();
+}
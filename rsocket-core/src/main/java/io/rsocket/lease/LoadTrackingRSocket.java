@@ -0,0 +1,88 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rsocket.lease;
+
+import io.rsocket.Payload;
+import io.rsocket.RSocket;
+import io.rsocket.util.RSocketProxy;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+/**
+ * Records the requests handled by a responder {@link RSocket} into {@link AdaptiveLeases}. All
+ * requests count as in flight until they terminate, but only the latency of fire-and-forget and
+ * request-response is sampled, as that of streams depends on how much the requester asks for.
+ */
+final class LoadTrackingRSocket extends RSocketProxy {
+  private final AdaptiveLeases leases;
+
+  LoadTrackingRSocket(RSocket source, AdaptiveLeases leases) {
+    super(source);
+    this.leases = leases;
+  }
+
+  @Override
+  public Mono<Void> fireAndForget(Payload payload) {
+    return Mono.defer(
+        () -> {
+          long start = leases.onStart();
+          return source
+              .fireAndForget(payload)
+              .doFinally(signalType -> onFinally(start, signalType));
+        });
+  }
+
+  @Override
+  public Mono<Payload> requestResponse(Payload payload) {
+    return Mono.defer(
+        () -> {
+          long start = leases.onStart();
+          return source
+              .requestResponse(payload)
+              .doFinally(signalType -> onFinally(start, signalType));
+        });
+  }
+
+  /* runs once, even when a cancellation races with the completion */
+  private void onFinally(long start, SignalType signalType) {
+    if (signalType == SignalType.ON_COMPLETE) {
+      leases.onComplete(start);
+    } else {
+      leases.onTerminate();
+    }
+  }
+
+  @Override
+  public Flux<Payload> requestStream(Payload payload) {
+    return Flux.defer(
+        () -> {
+          leases.onStart();
+          return source.requestStream(payload).doFinally(signalType -> leases.onTerminate());
+        });
+  }
+
+  @Override
+  public Flux<Payload> requestChannel(Publisher<Payload> payloads) {
+    return Flux.defer(
+        () -> {
+          leases.onStart();
+          return source.requestChannel(payloads).doFinally(signalType -> leases.onTerminate());
+        });
+  }
+}
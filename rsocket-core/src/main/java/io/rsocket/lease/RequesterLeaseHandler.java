@@ -21,6 +21,7 @@
 import io.rsocket.exceptions.MissingLeaseException;
 import io.rsocket.frame.LeaseFrameFlyweight;
 import java.util.function.Consumer;
+import javax.annotation.Nullable;
 import reactor.core.Disposable;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.ReplayProcessor;
@@ -33,6 +34,16 @@ public interface RequesterLeaseHandler extends Availability, Disposable {
 
   void receive(ByteBuf leaseFrame);
 
+  /**
+   * Returns the lease last received, which is empty until one is received.
+   *
+   * @return the current lease, or {@code null} if requests are not bounded by leases
+   */
+  @Nullable
+  default Lease currentLease() {
+    return null;
+  }
+
   void dispose();
 
   final class Impl implements RequesterLeaseHandler {
@@ -72,6 +83,11 @@ public void receive(ByteBuf leaseFrame) {
       receivedLease.onNext(lease);
     }
 
+    @Override
+    public Lease currentLease() {
+      return currentLease;
+    }
+
     @Override
     public void dispose() {
       receivedLease.onComplete();
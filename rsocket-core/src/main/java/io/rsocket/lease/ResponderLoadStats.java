@@ -0,0 +1,125 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rsocket.lease;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The {@link LeaseStats} of a connection to a responder using {@link AdaptiveLeases}. Besides the
+ * requests accepted and rejected on the connection, it gives the load of the whole responder: the
+ * requests in flight, latency percentiles and queueing delay.
+ */
+public final class ResponderLoadStats implements LeaseStats {
+  private final AdaptiveLeases leases;
+  private final AtomicInteger accepted = new AtomicInteger();
+  private final AtomicInteger rejected = new AtomicInteger();
+  // the requests of the last lease, or -1 before the first one
+  private volatile int grantedRequests = -1;
+  // the demand of the connection in its last lease period, to which its share is proportional
+  private volatile double weight = 1.0;
+
+  ResponderLoadStats(AdaptiveLeases leases) {
+    this.leases = leases;
+  }
+
+  @Override
+  public void onEvent(EventType eventType) {
+    switch (eventType) {
+      case ACCEPT:
+        accepted.incrementAndGet();
+        break;
+      case REJECT:
+        rejected.incrementAndGet();
+        break;
+      default:
+        break;
+    }
+  }
+
+  /**
+   * Returns the requests accepted on this connection since its last lease.
+   *
+   * @return the number of accepted requests
+   */
+  public int acceptedRequests() {
+    return accepted.get();
+  }
+
+  /**
+   * Returns the requests rejected on this connection for lack of a lease since its last lease.
+   *
+   * @return the number of rejected requests
+   */
+  public int rejectedRequests() {
+    return rejected.get();
+  }
+
+  /**
+   * Returns the requests in flight on the responder, over all connections.
+   *
+   * @return the number of requests in flight
+   */
+  public int inFlight() {
+    return leases.inFlight();
+  }
+
+  /**
+   * Returns the share of the capacity of the responder used by the requests in flight.
+   *
+   * @return the utilization, 1 being the capacity
+   */
+  public double utilization() {
+    return leases.utilization();
+  }
+
+  /**
+   * Returns a percentile of the latency of the last requests handled by the responder.
+   *
+   * @param quantile the quantile, between 0 and 1, e.g. 0.99 for the 99th percentile
+   * @return the latency in nanoseconds, or 0 if no request completed yet
+   */
+  public long latencyNanos(double quantile) {
+    return LatencyWindow.percentile(leases.latencySnapshot(), quantile);
+  }
+
+  /**
+   * Returns how long the last requests waited rather than ran, estimated by how much their median
+   * latency exceeds the lowest one.
+   *
+   * @return the queueing delay in nanoseconds
+   */
+  public long queueingDelayNanos() {
+    return AdaptiveLeases.queueingDelayNanos(leases.latencySnapshot());
+  }
+
+  double weight() {
+    return weight;
+  }
+
+  /** Starts a new lease period, weighting the connection by its demand in the one that ended. */
+  void roll() {
+    int accepted = this.accepted.getAndSet(0);
+    int rejected = this.rejected.getAndSet(0);
+    boolean exhausted = rejected > 0 || (grantedRequests >= 0 && accepted >= grantedRequests);
+    // a connection that used up its lease may want more than it got
+    weight = 1.0 + (exhausted ? 2 : 1) * (accepted + rejected);
+  }
+
+  void granted(int requests) {
+    grantedRequests = requests;
+  }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rsocket.limit;
+
+/**
+ * Estimates how many requests may be in flight at once from the latencies observed, like TCP
+ * congestion control estimates a window from round trips.
+ *
+ * <p>An instance is fed by a single {@link ConcurrencyLimiter}, one sample at a time, while its
+ * limit may be read concurrently.
+ */
+public interface AdaptiveLimit {
+
+  /**
+   * Returns the current limit.
+   *
+   * @return the number of requests that may be in flight at once, at least 1
+   */
+  int limit();
+
+  /**
+   * Updates the limit with the outcome of a request.
+   *
+   * @param rttNanos the time the request took to complete, in nanoseconds
+   * @param inFlight the number of requests in flight when it was sent, itself included
+   * @param dropped whether the request was rejected or timed out rather than completed
+   */
+  void onSample(long rttNanos, int inFlight, boolean dropped);
+}
@@ -0,0 +1,220 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rsocket.limit;
+
+import io.rsocket.RSocket;
+import io.rsocket.exceptions.RejectedException;
+import io.rsocket.lease.Lease;
+import io.rsocket.lease.LeaseStats;
+import io.rsocket.plugins.RSocketInterceptor;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import javax.annotation.Nullable;
+import reactor.core.publisher.Flux;
+
+/**
+ * Admits requests up to a concurrency limit estimated by an {@link AdaptiveLimit} from their
+ * latency, and rejects the others right away with a {@link RejectedException} rather than letting
+ * them queue.
+ *
+ * <p>As a requester plugin, it limits the requests sent to the peer. As a responder plugin, it
+ * limits the requests handled, across all the connections it is registered for, and can turn its
+ * limit into leases so that requesters back off before requests get rejected:
+ *
+ * <pre>{@code
+ * ConcurrencyLimiter limiter = ConcurrencyLimiter.create(new GradientLimit());
+ * RSocketFactory.receive()
+ *     .lease(() -> Leases.create().sender(limiter.leaseSender(Duration.ofSeconds(1))))
+ *     .addResponderPlugin(limiter)
+ *     ...
+ * }</pre>
+ *
+ * <p>Request-response requests are sampled from their subscription until they complete. Other
+ * requests count towards the requests in flight until they terminate, but their duration says
+ * nothing of the load, so it is not sampled: fire-and-forget requests complete as soon as they are
+ * sent on a requester, and streams and channels last as long as their subscriber wants.
+ */
+public final class ConcurrencyLimiter implements RSocketInterceptor {
+
+  private final AdaptiveLimit limit;
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private final AtomicInteger leasedConnections = new AtomicInteger();
+  private volatile long rttNanos;
+
+  private ConcurrencyLimiter(AdaptiveLimit limit) {
+    this.limit = limit;
+  }
+
+  /**
+   * Creates a limiter with a {@link VegasLimit}.
+   *
+   * @return a new limiter
+   */
+  public static ConcurrencyLimiter create() {
+    return create(new VegasLimit());
+  }
+
+  /**
+   * Creates a limiter.
+   *
+   * @param limit the estimation of the limit, which must not be shared with another limiter
+   * @return a new limiter
+   */
+  public static ConcurrencyLimiter create(AdaptiveLimit limit) {
+    return new ConcurrencyLimiter(limit);
+  }
+
+  @Override
+  public RSocket apply(RSocket rSocket) {
+    return new LimitingRSocket(rSocket, this);
+  }
+
+  /**
+   * Returns the current limit.
+   *
+   * @return the number of requests that may be in flight at once
+   */
+  public int limit() {
+    return limit.limit();
+  }
+
+  /**
+   * Returns the number of requests in flight.
+   *
+   * @return the number of requests in flight
+   */
+  public int inFlight() {
+    return inFlight.get();
+  }
+
+  /**
+   * Returns a lease sender granting each connection its share of the requests the limit allows
+   * within a period, renewing the lease twice per time to live. The requests the limit allows are
+   * estimated from the average latency, or are the limit itself until a request completed.
+   *
+   * @param timeToLive the time to live of the leases
+   * @param <T> the type of the lease stats, which are not used
+   * @return the lease sender to pass to {@link io.rsocket.lease.Leases#sender(Function)}
+   */
+  public <T extends LeaseStats> Function<Optional<T>, Flux<Lease>> leaseSender(
+      Duration timeToLive) {
+    int timeToLiveMillis = (int) timeToLive.toMillis();
+    if (timeToLiveMillis < 2) {
+      throw new IllegalArgumentException("time to live is too short: " + timeToLive);
+    }
+    Duration period = timeToLive.dividedBy(2);
+    return stats ->
+        Flux.interval(Duration.ZERO, period)
+            .onBackpressureLatest()
+            .map(tick -> Lease.create(timeToLiveMillis, leasePermits(period)))
+            .doOnSubscribe(s -> leasedConnections.incrementAndGet())
+            .doFinally(signalType -> leasedConnections.decrementAndGet());
+  }
+
+  int leasePermits(Duration period) {
+    long rttNanos = this.rttNanos;
+    double permits = limit.limit();
+    if (rttNanos > 0) {
+      permits *= (double) period.toNanos() / rttNanos;
+    }
+    permits /= Math.max(1, leasedConnections.get());
+    return (int) Math.max(1, Math.min(Integer.MAX_VALUE, permits));
+  }
+
+  /**
+   * Admits a request if the limit allows it.
+   *
+   * @return the permit of the request, or {@code null} if it is rejected
+   */
+  @Nullable
+  Permit tryAcquire() {
+    for (; ; ) {
+      int inFlight = this.inFlight.get();
+      if (inFlight >= limit.limit()) {
+        return null;
+      }
+      if (this.inFlight.compareAndSet(inFlight, inFlight + 1)) {
+        return new Permit(inFlight + 1);
+      }
+    }
+  }
+
+  RejectedException rejectedException() {
+    return new RejectedException("concurrency limit of " + limit.limit() + " reached");
+  }
+
+  private synchronized void onSample(long rttNanos, int inFlight, boolean dropped) {
+    limit.onSample(rttNanos, inFlight, dropped);
+    if (!dropped) {
+      long average = this.rttNanos;
+      this.rttNanos = average == 0 ? rttNanos : average + (rttNanos - average) / 8;
+    }
+  }
+
+  /** A request in flight, released once whatever happens to it. */
+  final class Permit {
+    private final int inFlight;
+    private final long start = System.nanoTime();
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    private Permit(int inFlight) {
+      this.inFlight = inFlight;
+    }
+
+    void onComplete() {
+      if (release()) {
+        onSample(System.nanoTime() - start, inFlight, false);
+      }
+    }
+
+    void onError(Throwable t) {
+      if (release() && (t instanceof RejectedException || t instanceof TimeoutException)) {
+        onSample(System.nanoTime() - start, inFlight, true);
+      }
+    }
+
+    /** Releases the request without sampling it, when it is cancelled or not sampled. */
+    void onTerminate() {
+      release();
+    }
+
+    private boolean release() {
+      if (released.compareAndSet(false, true)) {
+        ConcurrencyLimiter.this.inFlight.decrementAndGet();
+        return true;
+      }
+      return false;
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "ConcurrencyLimiter{"
+        + "limit="
+        + limit
+        + ", inFlight="
+        + inFlight
+        + ", rtt="
+        + TimeUnit.NANOSECONDS.toMicros(rttNanos)
+        + "us}";
+  }
+}
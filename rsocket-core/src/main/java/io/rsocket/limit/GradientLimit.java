@@ -0,0 +1,96 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rsocket.limit;
+
+/**
+ * Estimates the limit from the gradient between the long term average latency and the latest one:
+ * the limit is scaled down as soon as the latest latency exceeds the average by more than a
+ * tolerance of 50%, and grows by its square root otherwise, which leaves room for a small queue.
+ * Changes are smoothed so that a single slow request does not halve the limit.
+ */
+public final class GradientLimit implements AdaptiveLimit {
+
+  private static final double TOLERANCE = 1.5;
+  private static final double SMOOTHING = 0.2;
+  private static final int LONG_WINDOW = 600;
+
+  private final int maxLimit;
+  private volatile int limit;
+  private double estimatedLimit;
+  private double longRtt;
+  private int samples;
+
+  /** Creates a limit starting at 20, up to 1000. */
+  public GradientLimit() {
+    this(20, 1000);
+  }
+
+  /**
+   * @param initialLimit the limit before any sample
+   * @param maxLimit the highest limit
+   */
+  public GradientLimit(int initialLimit, int maxLimit) {
+    if (initialLimit < 1 || maxLimit < initialLimit) {
+      throw new IllegalArgumentException(
+          "invalid limits: initial " + initialLimit + ", max " + maxLimit);
+    }
+    this.maxLimit = maxLimit;
+    this.limit = initialLimit;
+    this.estimatedLimit = initialLimit;
+  }
+
+  @Override
+  public int limit() {
+    return limit;
+  }
+
+  @Override
+  public void onSample(long rttNanos, int inFlight, boolean dropped) {
+    double shortRtt = Math.max(1, rttNanos);
+    // an average of the first samples, then an exponential moving average over the window
+    if (samples < LONG_WINDOW) {
+      samples++;
+      longRtt += (shortRtt - longRtt) / samples;
+    } else {
+      longRtt += (shortRtt - longRtt) * 2 / (LONG_WINDOW + 1);
+    }
+    if (longRtt / shortRtt > 2) {
+      // the latency went back down after a long period of load, forget it faster
+      longRtt *= 0.95;
+    }
+
+    double estimatedLimit = this.estimatedLimit;
+    if (!dropped && inFlight * 2 < estimatedLimit) {
+      // too few requests to tell whether the limit is too low
+      return;
+    }
+
+    double gradient =
+        dropped ? 0.5 : Math.max(0.5, Math.min(1.0, TOLERANCE * longRtt / shortRtt));
+    double newLimit = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+    estimatedLimit = estimatedLimit * (1 - SMOOTHING) + newLimit * SMOOTHING;
+
+    estimatedLimit = Math.max(1.0, Math.min(maxLimit, estimatedLimit));
+    this.estimatedLimit = estimatedLimit;
+    this.limit = (int) estimatedLimit;
+  }
+
+  @Override
+  public String toString() {
+    return "GradientLimit{limit=" + limit + ", longRtt=" + (long) longRtt + "ns}";
+  }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rsocket.limit;
+
+import io.rsocket.Payload;
+import io.rsocket.RSocket;
+import io.rsocket.limit.ConcurrencyLimiter.Permit;
+import io.rsocket.util.RSocketProxy;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Admits the requests going through an {@link RSocket} when they are subscribed, if the {@link
+ * ConcurrencyLimiter} allows it. Metadata pushes are not limited.
+ */
+final class LimitingRSocket extends RSocketProxy {
+  private final ConcurrencyLimiter limiter;
+
+  LimitingRSocket(RSocket source, ConcurrencyLimiter limiter) {
+    super(source);
+    this.limiter = limiter;
+  }
+
+  @Override
+  public Mono<Void> fireAndForget(Payload payload) {
+    return Mono.defer(
+        () -> {
+          Permit permit = limiter.tryAcquire();
+          if (permit == null) {
+            payload.release();
+            return Mono.error(limiter.rejectedException());
+          }
+          // a requester completes as soon as the frame is sent, which is no latency to sample
+          return source.fireAndForget(payload).doFinally(signalType -> permit.onTerminate());
+        });
+  }
+
+  @Override
+  public Mono<Payload> requestResponse(Payload payload) {
+    return Mono.defer(
+        () -> {
+          Permit permit = limiter.tryAcquire();
+          if (permit == null) {
+            payload.release();
+            return Mono.error(limiter.rejectedException());
+          }
+          return source
+              .requestResponse(payload)
+              .doOnSuccess(response -> permit.onComplete())
+              .doOnError(permit::onError)
+              .doOnCancel(permit::onTerminate);
+        });
+  }
+
+  @Override
+  public Flux<Payload> requestStream(Payload payload) {
+    return Flux.defer(
+        () -> {
+          Permit permit = limiter.tryAcquire();
+          if (permit == null) {
+            payload.release();
+            return Flux.error(limiter.rejectedException());
+          }
+          return source.requestStream(payload).doFinally(signalType -> permit.onTerminate());
+        });
+  }
+
+  @Override
+  public Flux<Payload> requestChannel(Publisher<Payload> payloads) {
+    return Flux.defer(
+        () -> {
+          Permit permit = limiter.tryAcquire();
+          if (permit == null) {
+            return Flux.error(limiter.rejectedException());
+          }
+          return source.requestChannel(payloads).doFinally(signalType -> permit.onTerminate());
+        });
+  }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rsocket.limit;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Estimates the limit like TCP Vegas: the requests queued beyond the limit are estimated by how
+ * much the latency exceeds the latency without load, and the limit grows while the queue is small
+ * and shrinks when it is long, by steps that grow with the logarithm of the limit.
+ *
+ * <p>The latency without load is the lowest seen, probed again every now and then so that it
+ * follows a backend that became slower for good.
+ */
+public final class VegasLimit implements AdaptiveLimit {
+
+  private static final int PROBE_MULTIPLIER = 30;
+
+  private final int maxLimit;
+  private volatile int limit;
+  private double estimatedLimit;
+  private long rttNoLoad;
+  private int probeCountdown;
+
+  /** Creates a limit starting at 20, up to 1000. */
+  public VegasLimit() {
+    this(20, 1000);
+  }
+
+  /**
+   * @param initialLimit the limit before any sample
+   * @param maxLimit the highest limit
+   */
+  public VegasLimit(int initialLimit, int maxLimit) {
+    if (initialLimit < 1 || maxLimit < initialLimit) {
+      throw new IllegalArgumentException(
+          "invalid limits: initial " + initialLimit + ", max " + maxLimit);
+    }
+    this.maxLimit = maxLimit;
+    this.limit = initialLimit;
+    this.estimatedLimit = initialLimit;
+    this.probeCountdown = nextProbeCountdown();
+  }
+
+  @Override
+  public int limit() {
+    return limit;
+  }
+
+  @Override
+  public void onSample(long rttNanos, int inFlight, boolean dropped) {
+    double estimatedLimit = this.estimatedLimit;
+    double step = Math.max(1.0, Math.log10(estimatedLimit));
+    if (dropped) {
+      // drops are often fast rejections, which say nothing of the latency without load
+      setEstimatedLimit(estimatedLimit - step);
+      return;
+    }
+
+    if (--probeCountdown <= 0) {
+      probeCountdown = nextProbeCountdown();
+      rttNoLoad = rttNanos;
+      return;
+    }
+    if (rttNoLoad == 0 || rttNanos < rttNoLoad) {
+      rttNoLoad = rttNanos;
+      return;
+    }
+    if (inFlight * 2 < estimatedLimit) {
+      // too few requests to tell whether the limit is too low
+      return;
+    }
+
+    double queueSize = Math.ceil(estimatedLimit * (1.0 - (double) rttNoLoad / rttNanos));
+    if (queueSize <= step) {
+      setEstimatedLimit(estimatedLimit + 6 * step);
+    } else if (queueSize < 3 * step) {
+      setEstimatedLimit(estimatedLimit + step);
+    } else if (queueSize > 6 * step) {
+      setEstimatedLimit(estimatedLimit - step);
+    }
+  }
+
+  private void setEstimatedLimit(double estimatedLimit) {
+    estimatedLimit = Math.max(1.0, Math.min(maxLimit, estimatedLimit));
+    this.estimatedLimit = estimatedLimit;
+    this.limit = (int) estimatedLimit;
+  }
+
+  private int nextProbeCountdown() {
+    double jitter = 0.5 + ThreadLocalRandom.current().nextDouble() * 0.5;
+    return Math.max(1, (int) (PROBE_MULTIPLIER * limit * jitter));
+  }
+
+  @Override
+  public String toString() {
+    return "VegasLimit{limit=" + limit + ", rttNoLoad=" + rttNoLoad + "ns}";
+  }
+}
@@ -54,6 +54,9 @@
  * buffer should be kept around and re-encoded using {@link
  * CompositeMetadataFlyweight#encodeAndAddMetadata(CompositeByteBuf, ByteBufAllocator, byte,
  * ByteBuf)} in case passing that entry through is required.
+ *
+ * <p>Each step allocates an {@link Entry} and slices of the source: see {@link
+ * CompositeMetadataCursor} for allocation-free decoding on hot paths.
  */
 public final class CompositeMetadata implements Iterable<Entry> {
 
@@ -0,0 +1,250 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rsocket.metadata;
+
+import static io.rsocket.metadata.CompositeMetadataFlyweight.STREAM_METADATA_KNOWN_MASK;
+import static io.rsocket.metadata.CompositeMetadataFlyweight.STREAM_METADATA_LENGTH_MASK;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.util.CharsetUtil;
+import reactor.util.annotation.Nullable;
+
+/**
+ * A reusable cursor over the entries of composite metadata, which decodes them in place instead of
+ * allocating an {@link CompositeMetadata.Entry}, an array and slices for each of them like {@link
+ * CompositeMetadata} does.
+ *
+ * <pre>{@code
+ * CompositeMetadataCursor cursor = new CompositeMetadataCursor();
+ * cursor.reset(metadata);
+ * if (cursor.seek(WellKnownMimeType.MESSAGE_RSOCKET_ROUTING)) {
+ *   route(metadata, cursor.contentIndex(), cursor.contentLength());
+ * }
+ * }</pre>
+ *
+ * <p>The cursor is positioned before the first entry when reset, and moved to the next entry by
+ * {@link #next()}. What it returns about the current entry, including the {@link #mimeType()} view,
+ * is only valid until it moves. It does not move the reader index of the metadata, and it is not
+ * thread-safe.
+ */
+public final class CompositeMetadataCursor {
+
+  private final MimeTypeSequence explicitMimeType = new MimeTypeSequence();
+
+  @Nullable private ByteBuf metadata;
+  private int nextIndex;
+  private int mimeIdOrLength;
+  private int contentIndex;
+  private int contentLength;
+
+  /**
+   * Positions the cursor before the first entry of some composite metadata.
+   *
+   * @param metadata the composite metadata
+   * @return this cursor
+   */
+  public CompositeMetadataCursor reset(ByteBuf metadata) {
+    this.metadata = metadata;
+    this.nextIndex = metadata.readerIndex();
+    this.mimeIdOrLength = -1;
+    this.contentIndex = -1;
+    this.contentLength = 0;
+    return this;
+  }
+
+  /**
+   * Moves the cursor to the next entry.
+   *
+   * @return {@code true} if there is a next entry, {@code false} if the cursor reached the end
+   * @throws IllegalStateException if the metadata does not contain a whole entry
+   */
+  public boolean next() {
+    ByteBuf metadata = this.metadata;
+    if (metadata == null) {
+      throw new IllegalStateException("cursor is not reset");
+    }
+    int index = nextIndex;
+    if (index >= metadata.writerIndex()) {
+      contentIndex = -1;
+      return false;
+    }
+
+    int entryLength = CompositeMetadataFlyweight.entryLength(metadata, index);
+    int mimeIdOrLength = metadata.getUnsignedByte(index);
+    int headerLength =
+        (mimeIdOrLength & STREAM_METADATA_KNOWN_MASK) == STREAM_METADATA_KNOWN_MASK
+            ? 1
+            : mimeIdOrLength + 2;
+    this.mimeIdOrLength = mimeIdOrLength;
+    this.contentIndex = index + headerLength + 3;
+    this.contentLength = entryLength - headerLength - 3;
+    this.nextIndex = index + entryLength;
+    if (!isWellKnownMimeType()) {
+      explicitMimeType.reset(metadata, index + 1, mimeIdOrLength + 1);
+    }
+    return true;
+  }
+
+  /**
+   * Moves the cursor to the next entry of a given well known mime type, skipping the others.
+   *
+   * @param mimeType the mime type to look for
+   * @return {@code true} if an entry was found, {@code false} if the cursor reached the end
+   */
+  public boolean seek(WellKnownMimeType mimeType) {
+    byte id = mimeType.getIdentifier();
+    String string = mimeType.getString();
+    while (next()) {
+      if (isWellKnownMimeType() ? mimeId() == id : explicitMimeType.contentEquals(string)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Moves the cursor to the next entry of a given mime type, skipping the others. Entries of a well
+   * known mime type match both its id and its string.
+   *
+   * @param mimeType the mime type to look for
+   * @return {@code true} if an entry was found, {@code false} if the cursor reached the end
+   */
+  public boolean seek(CharSequence mimeType) {
+    WellKnownMimeType wellKnownMimeType = WellKnownMimeType.fromString(mimeType.toString());
+    if (wellKnownMimeType != WellKnownMimeType.UNPARSEABLE_MIME_TYPE) {
+      return seek(wellKnownMimeType);
+    }
+    while (next()) {
+      if (!isWellKnownMimeType() && explicitMimeType.contentEquals(mimeType)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns whether the current entry has a mime type encoded as an id.
+   *
+   * @return whether the current entry has a mime type encoded as an id
+   */
+  public boolean isWellKnownMimeType() {
+    return (mimeIdOrLength & STREAM_METADATA_KNOWN_MASK) == STREAM_METADATA_KNOWN_MASK;
+  }
+
+  /**
+   * Returns the mime type id of the current entry, which may be one that is only reserved.
+   *
+   * @return the mime type id, between 0 and 127, or {@code -1} if the mime type is explicit
+   */
+  public byte mimeId() {
+    return isWellKnownMimeType() ? (byte) (mimeIdOrLength & STREAM_METADATA_LENGTH_MASK) : -1;
+  }
+
+  /**
+   * Returns the mime type of the current entry. Explicit mime types are returned as a view of the
+   * metadata, which is reused by the next entries: call {@link Object#toString()} to keep it.
+   *
+   * @return the mime type, or {@code null} if it is an id that is only reserved
+   */
+  @Nullable
+  public CharSequence mimeType() {
+    if (!isWellKnownMimeType()) {
+      return explicitMimeType;
+    }
+    WellKnownMimeType mimeType = WellKnownMimeType.fromIdentifier(mimeId());
+    return mimeType == WellKnownMimeType.UNKNOWN_RESERVED_MIME_TYPE ? null : mimeType.getString();
+  }
+
+  /**
+   * Returns the index of the content of the current entry in the metadata.
+   *
+   * @return the index of the content
+   */
+  public int contentIndex() {
+    return contentIndex;
+  }
+
+  /**
+   * Returns the length of the content of the current entry.
+   *
+   * @return the length of the content
+   */
+  public int contentLength() {
+    return contentLength;
+  }
+
+  /**
+   * Returns a slice of the content of the current entry. Unlike the other accessors, this
+   * allocates the slice.
+   *
+   * @return the content of the current entry
+   */
+  public ByteBuf content() {
+    if (metadata == null || contentIndex < 0) {
+      throw new IllegalStateException("cursor is not on an entry");
+    }
+    return metadata.slice(contentIndex, contentLength);
+  }
+
+  /** A view of the US-ASCII bytes of an explicit mime type. */
+  static final class MimeTypeSequence implements CharSequence {
+    private ByteBuf buffer;
+    private int index;
+    private int length;
+
+    void reset(ByteBuf buffer, int index, int length) {
+      this.buffer = buffer;
+      this.index = index;
+      this.length = length;
+    }
+
+    boolean contentEquals(CharSequence other) {
+      if (other.length() != length) {
+        return false;
+      }
+      for (int i = 0; i < length; i++) {
+        if ((buffer.getByte(index + i) & 0xFF) != other.charAt(i)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    @Override
+    public int length() {
+      return length;
+    }
+
+    @Override
+    public char charAt(int i) {
+      if (i < 0 || i >= length) {
+        throw new IndexOutOfBoundsException("index " + i + " out of " + length);
+      }
+      return (char) (buffer.getByte(index + i) & 0xFF);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+      return toString().subSequence(start, end);
+    }
+
+    @Override
+    public String toString() {
+      return buffer.toString(index, length, CharsetUtil.US_ASCII);
+    }
+  }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rsocket.metadata;
+
+import io.rsocket.plugins.DuplexConnectionInterceptor;
+
+/**
+ * A per-connection dictionary of the composite metadata entries of requests, in the spirit of
+ * HPACK. Routing and tracing entries that repeat from one request to the next are sent as a one
+ * byte reference to the dictionary instead of the whole entry, and expanded on the receiving side
+ * without copying.
+ *
+ * <p>The client proposes a dictionary by appending a {@code dictionary} parameter, the number of
+ * entries to keep, to the composite metadata mime type of its SETUP frame. Both peers adopt the
+ * proposed capacity for the requests of both sides, and both install the {@link #interceptor()}:
+ *
+ * <pre>{@code
+ * RSocketFactory.connect()
+ *     .metadataMimeType(CompositeMetadataDictionary.metadataMimeType(64))
+ *     .addConnectionPlugin(CompositeMetadataDictionary.interceptor())
+ *     ...
+ * RSocketFactory.receive()
+ *     .addConnectionPlugin(CompositeMetadataDictionary.interceptor())
+ *     ...
+ * }</pre>
+ *
+ * <p>A server offered a dictionary must install the interceptor, as the client cannot tell whether
+ * it did. The dictionary is not used by sessions with resumption enabled, whose frames are replayed
+ * on connections that do not start with a SETUP frame.
+ *
+ * <p>Only the metadata of request frames is encoded, as it is the only one defined to be composite
+ * metadata. The dictionary keeps up to 128 entries of up to 1024 bytes each, evicted in
+ * round-robin order. Note that the server acceptor sees the parameter in the metadata mime type of
+ * the setup payload.
+ */
+public final class CompositeMetadataDictionary {
+
+  static final String PARAMETER = "dictionary=";
+
+  private CompositeMetadataDictionary() {}
+
+  /**
+   * Returns the composite metadata mime type proposing a dictionary.
+   *
+   * @param capacity the number of entries of the dictionary, between 1 and 128
+   * @return the metadata mime type to set up the connection with
+   */
+  public static String metadataMimeType(int capacity) {
+    return WellKnownMimeType.MESSAGE_RSOCKET_COMPOSITE_METADATA.getString()
+        + "; "
+        + PARAMETER
+        + requireCapacity(capacity);
+  }
+
+  /**
+   * Returns the dictionary capacity proposed by a metadata mime type.
+   *
+   * @param metadataMimeType the metadata mime type of a SETUP frame
+   * @return the proposed capacity, or {@code 0} if there is none
+   * @throws IllegalArgumentException if the proposed capacity is invalid
+   */
+  public static int capacity(String metadataMimeType) {
+    int start = metadataMimeType.indexOf(PARAMETER);
+    if (start < 0) {
+      return 0;
+    }
+    start += PARAMETER.length();
+    int end = metadataMimeType.indexOf(';', start);
+    String capacity =
+        (end < 0 ? metadataMimeType.substring(start) : metadataMimeType.substring(start, end))
+            .trim();
+    try {
+      return requireCapacity(Integer.parseInt(capacity));
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("invalid metadata dictionary capacity: " + capacity, e);
+    }
+  }
+
+  /**
+   * Returns the interceptor of the connections of clients and servers, which uses a dictionary on
+   * the connections whose SETUP frame proposes one.
+   *
+   * @return the connection interceptor
+   */
+  public static DuplexConnectionInterceptor interceptor() {
+    return (type, connection) ->
+        type == DuplexConnectionInterceptor.Type.SOURCE
+            ? new MetadataDictionaryDuplexConnection(connection)
+            : connection;
+  }
+
+  private static int requireCapacity(int capacity) {
+    if (capacity < 1 || capacity > MetadataDictionaryEncoder.MAX_CAPACITY) {
+      throw new IllegalArgumentException(
+          "metadata dictionary capacity must be between 1 and "
+              + MetadataDictionaryEncoder.MAX_CAPACITY
+              + ": "
+              + capacity);
+    }
+    return capacity;
+  }
+}
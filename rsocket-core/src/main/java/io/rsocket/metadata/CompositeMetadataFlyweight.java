@@ -281,6 +281,36 @@ public static boolean hasEntry(ByteBuf compositeMetadata, int entryIndex) {
     return compositeMetadata.writerIndex() - entryIndex > 0;
   }
 
+  /**
+   * Returns the length of the whole entry at a given index, mime header and content length
+   * included, without moving the reader index of the buffer.
+   *
+   * @param compositeMetadata the buffer to inspect
+   * @param entryIndex the index of the entry
+   * @return the length of the entry, in bytes
+   * @throws IllegalStateException if the buffer does not contain a whole entry at that index
+   */
+  static int entryLength(ByteBuf compositeMetadata, int entryIndex) {
+    int remaining = compositeMetadata.writerIndex() - entryIndex;
+    if (remaining < 1) {
+      throw new IllegalStateException("metadata is malformed");
+    }
+    byte mimeIdOrLength = compositeMetadata.getByte(entryIndex);
+    int headerLength =
+        (mimeIdOrLength & STREAM_METADATA_KNOWN_MASK) == STREAM_METADATA_KNOWN_MASK
+            ? 1
+            : Byte.toUnsignedInt(mimeIdOrLength) + 2;
+    if (remaining < headerLength + 3) {
+      throw new IllegalStateException("metadata is malformed");
+    }
+    int length =
+        headerLength + 3 + compositeMetadata.getUnsignedMedium(entryIndex + headerLength);
+    if (remaining < length) {
+      throw new IllegalStateException("metadata is malformed");
+    }
+    return length;
+  }
+
   /**
    * Returns whether the header represents a well-known MIME type.
    *
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rsocket.metadata;
+
+import static io.rsocket.metadata.CompositeMetadataFlyweight.entryLength;
+import static io.rsocket.metadata.MetadataDictionaryEncoder.LITERAL;
+import static io.rsocket.metadata.MetadataDictionaryEncoder.LITERAL_INDEXED;
+import static io.rsocket.metadata.MetadataDictionaryEncoder.MAX_ENTRY_SIZE;
+import static io.rsocket.metadata.MetadataDictionaryEncoder.REFERENCE;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+
+/**
+ * Expands the metadata encoded by a {@link MetadataDictionaryEncoder} back into composite
+ * metadata. The result is a composite of slices of the encoded metadata and of the dictionary
+ * entries, so that referenced entries are not copied: an entry is only copied once, when it is
+ * added to the dictionary. Not thread-safe.
+ */
+final class MetadataDictionaryDecoder {
+
+  private final ByteBuf[] entries;
+  private int nextSlot;
+
+  MetadataDictionaryDecoder(int capacity) {
+    this.entries = new ByteBuf[capacity];
+  }
+
+  /**
+   * Decodes metadata, without moving its reader index.
+   *
+   * @param allocator the allocator of the decoded metadata
+   * @param metadata the encoded metadata
+   * @return the composite metadata, which retains the slices it is made of
+   * @throws IllegalStateException if the metadata is malformed or references an unknown slot
+   */
+  ByteBuf decode(ByteBufAllocator allocator, ByteBuf metadata) {
+    CompositeByteBuf decoded = allocator.compositeBuffer();
+    try {
+      int index = metadata.readerIndex();
+      int end = metadata.writerIndex();
+      while (index < end) {
+        int instruction = metadata.getUnsignedByte(index++);
+        if ((instruction & REFERENCE) == REFERENCE) {
+          ByteBuf entry = entry(instruction & ~REFERENCE);
+          decoded.addComponent(true, entry.retainedDuplicate());
+          continue;
+        }
+
+        int length = entryLength(metadata, index);
+        if (instruction == LITERAL_INDEXED) {
+          if (length > MAX_ENTRY_SIZE) {
+            throw new IllegalStateException("metadata dictionary entry is too large: " + length);
+          }
+          add(Unpooled.copiedBuffer(metadata.slice(index, length)));
+        } else if (instruction != LITERAL) {
+          throw new IllegalStateException(
+              "unknown metadata dictionary instruction: " + instruction);
+        }
+        decoded.addComponent(true, metadata.retainedSlice(index, length));
+        index += length;
+      }
+      return decoded;
+    } catch (Throwable t) {
+      decoded.release();
+      throw t;
+    }
+  }
+
+  private ByteBuf entry(int slot) {
+    ByteBuf entry = slot < entries.length ? entries[slot] : null;
+    if (entry == null) {
+      throw new IllegalStateException("unknown metadata dictionary slot: " + slot);
+    }
+    return entry;
+  }
+
+  private void add(ByteBuf entry) {
+    int slot = nextSlot;
+    entries[slot] = entry;
+    nextSlot = slot + 1 == entries.length ? 0 : slot + 1;
+  }
+}
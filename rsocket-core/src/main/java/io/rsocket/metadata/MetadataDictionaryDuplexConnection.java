@@ -0,0 +1,179 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rsocket.metadata;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.rsocket.DuplexConnection;
+import io.rsocket.buffer.TupleByteBuf;
+import io.rsocket.frame.FrameHeaderFlyweight;
+import io.rsocket.frame.FrameType;
+import io.rsocket.frame.SetupFrameFlyweight;
+import io.rsocket.util.NumberUtils;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Encodes the metadata of the request frames sent on a connection, and decodes the metadata of the
+ * request frames it receives, with a {@link MetadataDictionaryEncoder} and a {@link
+ * MetadataDictionaryDecoder}. This sits right above the transport, where all the requests of one
+ * side go through a single ordered stream in each direction.
+ *
+ * <p>The dictionaries are created when the SETUP frame proposing them goes through the
+ * connection, sent by the client or received by the server, so that both sides agree on whether
+ * and how metadata is encoded. They are not created for a session with resumption enabled, as the
+ * connection of a resumed session starts without a SETUP frame and frames are replayed across
+ * connections.
+ */
+final class MetadataDictionaryDuplexConnection implements DuplexConnection {
+
+  private final DuplexConnection source;
+  private volatile MetadataDictionaryEncoder encoder;
+  private volatile MetadataDictionaryDecoder decoder;
+
+  MetadataDictionaryDuplexConnection(DuplexConnection source) {
+    this.source = source;
+  }
+
+  @Override
+  public Mono<Void> send(Publisher<ByteBuf> frames) {
+    return source.send(Flux.from(frames).map(this::encode));
+  }
+
+  @Override
+  public Mono<Void> sendOne(ByteBuf frame) {
+    return source.sendOne(encode(frame));
+  }
+
+  @Override
+  public Flux<ByteBuf> receive() {
+    return source.receive().map(this::decode);
+  }
+
+  @Override
+  public double availability() {
+    return source.availability();
+  }
+
+  @Override
+  public Mono<Void> onClose() {
+    return source.onClose();
+  }
+
+  @Override
+  public void dispose() {
+    source.dispose();
+  }
+
+  @Override
+  public boolean isDisposed() {
+    return source.isDisposed();
+  }
+
+  private ByteBuf encode(ByteBuf frame) {
+    MetadataDictionaryEncoder encoder = this.encoder;
+    if (encoder == null) {
+      setup(frame);
+      return frame;
+    }
+
+    int prefixLength = metadataOffset(frame);
+    if (prefixLength < 0) {
+      return frame;
+    }
+
+    ByteBufAllocator allocator = frame.alloc();
+    ByteBuf metadata = encoder.encode(allocator, metadata(frame, prefixLength));
+    return TupleByteBuf.of(
+        allocator, prefix(frame, prefixLength, metadata), metadata, data(frame, prefixLength));
+  }
+
+  private ByteBuf decode(ByteBuf frame) {
+    MetadataDictionaryDecoder decoder = this.decoder;
+    if (decoder == null) {
+      setup(frame);
+      return frame;
+    }
+
+    int prefixLength = metadataOffset(frame);
+    if (prefixLength < 0) {
+      return frame;
+    }
+
+    ByteBufAllocator allocator = frame.alloc();
+    ByteBuf metadata = decoder.decode(allocator, metadata(frame, prefixLength));
+    ByteBuf prefix = prefix(frame, prefixLength, metadata);
+    return allocator
+        .compositeBuffer(3)
+        .addComponents(true, prefix, metadata, data(frame, prefixLength));
+  }
+
+  /* creates the dictionaries if the frame is a SETUP frame proposing them */
+  private void setup(ByteBuf frame) {
+    if (FrameHeaderFlyweight.frameType(frame) != FrameType.SETUP
+        || SetupFrameFlyweight.resumeEnabled(frame)) {
+      return;
+    }
+    int capacity =
+        CompositeMetadataDictionary.capacity(SetupFrameFlyweight.metadataMimeType(frame));
+    if (capacity > 0) {
+      this.decoder = new MetadataDictionaryDecoder(capacity);
+      this.encoder = new MetadataDictionaryEncoder(capacity);
+    }
+  }
+
+  /*
+   * Returns the offset of the metadata length of request frames carrying whole metadata, or -1 for
+   * the frames that are left alone.
+   */
+  private static int metadataOffset(ByteBuf frame) {
+    FrameType frameType = FrameHeaderFlyweight.frameType(frame);
+    if (!frameType.isRequestType()
+        || !FrameHeaderFlyweight.hasMetadata(frame)
+        || FrameHeaderFlyweight.hasFollows(frame)) {
+      return -1;
+    }
+    return frameType.hasInitialRequestN()
+        ? FrameHeaderFlyweight.size() + Integer.BYTES
+        : FrameHeaderFlyweight.size();
+  }
+
+  private static ByteBuf metadata(ByteBuf frame, int prefixLength) {
+    int offset = frame.readerIndex() + prefixLength;
+    return frame.slice(offset + NumberUtils.MEDIUM_BYTES, frame.getUnsignedMedium(offset));
+  }
+
+  private static ByteBuf prefix(ByteBuf frame, int prefixLength, ByteBuf metadata) {
+    ByteBuf prefix =
+        frame
+            .alloc()
+            .buffer(prefixLength + NumberUtils.MEDIUM_BYTES)
+            .writeBytes(frame, frame.readerIndex(), prefixLength);
+    NumberUtils.encodeUnsignedMedium(prefix, metadata.readableBytes());
+    return prefix;
+  }
+
+  /* Returns the data that follows the metadata, releasing the rest of the frame. */
+  private static ByteBuf data(ByteBuf frame, int prefixLength) {
+    int offset = frame.readerIndex() + prefixLength;
+    int dataOffset = offset + NumberUtils.MEDIUM_BYTES + frame.getUnsignedMedium(offset);
+    ByteBuf data = frame.retainedSlice(dataOffset, frame.writerIndex() - dataOffset);
+    frame.release();
+    return data;
+  }
+}
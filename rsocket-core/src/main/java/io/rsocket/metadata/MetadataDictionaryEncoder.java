@@ -0,0 +1,97 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rsocket.metadata;
+
+import static io.rsocket.metadata.CompositeMetadataFlyweight.entryLength;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Encodes the composite metadata sent on one connection against a dictionary of the entries sent
+ * before. Each entry is preceded by an instruction byte: a reference to a dictionary slot, which
+ * replaces the entry altogether, a literal entry to add to the next slot of the dictionary, or a
+ * literal entry that is not worth adding.
+ *
+ * <p>Slots are reused in round-robin order, which the {@link MetadataDictionaryDecoder} on the
+ * other side replays, so both tables stay in sync as long as metadata is decoded in the order it
+ * was encoded. Not thread-safe.
+ */
+final class MetadataDictionaryEncoder {
+
+  static final int REFERENCE = 0x80;
+  static final int LITERAL = 0x00;
+  static final int LITERAL_INDEXED = 0x01;
+  static final int MAX_CAPACITY = 128;
+  static final int MAX_ENTRY_SIZE = 1024;
+
+  private final Map<ByteBuf, Integer> slotsByEntry;
+  private final ByteBuf[] entries;
+  private int nextSlot;
+
+  MetadataDictionaryEncoder(int capacity) {
+    this.slotsByEntry = new HashMap<>(capacity * 2);
+    this.entries = new ByteBuf[capacity];
+  }
+
+  /**
+   * Encodes composite metadata, without moving its reader index.
+   *
+   * @param allocator the allocator of the encoded metadata
+   * @param metadata the composite metadata
+   * @return the encoded metadata
+   */
+  ByteBuf encode(ByteBufAllocator allocator, ByteBuf metadata) {
+    ByteBuf encoded = allocator.buffer(metadata.readableBytes());
+    try {
+      int index = metadata.readerIndex();
+      int end = metadata.writerIndex();
+      while (index < end) {
+        int length = entryLength(metadata, index);
+        // hashing and comparing a slice looks at its content only
+        Integer slot = slotsByEntry.get(metadata.slice(index, length));
+        if (slot != null) {
+          encoded.writeByte(REFERENCE | slot);
+        } else if (length <= MAX_ENTRY_SIZE) {
+          encoded.writeByte(LITERAL_INDEXED).writeBytes(metadata, index, length);
+          add(Unpooled.copiedBuffer(metadata.slice(index, length)));
+        } else {
+          encoded.writeByte(LITERAL).writeBytes(metadata, index, length);
+        }
+        index += length;
+      }
+      return encoded;
+    } catch (Throwable t) {
+      encoded.release();
+      throw t;
+    }
+  }
+
+  private void add(ByteBuf entry) {
+    int slot = nextSlot;
+    ByteBuf evicted = entries[slot];
+    if (evicted != null) {
+      slotsByEntry.remove(evicted);
+    }
+    entries[slot] = entry;
+    slotsByEntry.put(entry, slot);
+    nextSlot = slot + 1 == entries.length ? 0 : slot + 1;
+  }
+}
@@ -17,25 +17,22 @@
 package io.rsocket.resume;
 
 import io.netty.buffer.ByteBuf;
-import java.util.Queue;
-import org.reactivestreams.Subscriber;
-import org.reactivestreams.Subscription;
+import java.util.concurrent.Callable;
+import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.core.publisher.MonoProcessor;
-import reactor.util.concurrent.Queues;
 
 public class InMemoryResumableFramesStore implements ResumableFramesStore {
   private static final Logger logger = LoggerFactory.getLogger(InMemoryResumableFramesStore.class);
-  private static final long SAVE_REQUEST_SIZE = Long.MAX_VALUE;
+  private static final int INITIAL_CACHE_CAPACITY = 256;
 
   private final MonoProcessor<Void> disposed = MonoProcessor.create();
   volatile long position;
   volatile long impliedPosition;
-  volatile int cacheSize;
-  final Queue<ByteBuf> cachedFrames;
+  final ResumableFramesRing cachedFrames;
   private final String tag;
   private final int cacheLimit;
   private volatile int upstreamFrameRefCnt;
@@ -43,29 +40,30 @@ public class InMemoryResumableFramesStore implements ResumableFramesStore {
   public InMemoryResumableFramesStore(String tag, int cacheSizeBytes) {
     this.tag = tag;
     this.cacheLimit = cacheSizeBytes;
-    this.cachedFrames = cachedFramesQueue(cacheSizeBytes);
+    this.cachedFrames = new ResumableFramesRing(INITIAL_CACHE_CAPACITY);
   }
 
   public Mono<Void> saveFrames(Flux<ByteBuf> frames) {
     MonoProcessor<Void> completed = MonoProcessor.create();
     frames
         .doFinally(s -> completed.onComplete())
-        .subscribe(new FramesSubscriber(SAVE_REQUEST_SIZE));
+        .subscribe(new SaveFramesSubscriber(this::saveFrame));
     return completed;
   }
 
   @Override
-  public void releaseFrames(long remoteImpliedPos) {
+  public synchronized void releaseFrames(long remoteImpliedPos) {
     long pos = position;
     logger.debug(
         "{} Removing frames for local: {}, remote implied: {}", tag, pos, remoteImpliedPos);
     long removeSize = Math.max(0, remoteImpliedPos - pos);
-    while (removeSize > 0) {
-      ByteBuf cachedFrame = cachedFrames.poll();
-      if (cachedFrame != null) {
-        removeSize -= releaseTailFrame(cachedFrame);
-      } else {
-        break;
+    if (removeSize > 0) {
+      long released = cachedFrames.releaseTo(remoteImpliedPos);
+      position += released;
+      removeSize -= released;
+      if (removeSize > 0 && !cachedFrames.isEmpty()) {
+        /*next frame straddles remote implied position*/
+        removeSize = -1;
       }
     }
     if (removeSize > 0) {
@@ -78,22 +76,32 @@ public void releaseFrames(long remoteImpliedPos) {
       throw new IllegalStateException(
           "Local and remote state disagreement: " + "local and remote frame sizes are not equal");
     } else {
-      logger.debug("{} Removed frames. Current cache size: {}", tag, cacheSize);
+      logger.debug("{} Removed frames. Current cache size: {}", tag, cachedFrames.occupancy());
     }
   }
 
   @Override
   public Flux<ByteBuf> resumeStream() {
+    return resumeStream(this::resumeStreamState);
+  }
+
+  /**
+   * Replays cached frames starting at a byte position instead of the tail. Frames before the
+   * position are neither replayed nor released.
+   *
+   * @param position byte position of a cached frame, or the position after the last cached frame
+   * @return cached frames from the position on, or an error if no cached frame starts there
+   */
+  public Flux<ByteBuf> resumeStream(long position) {
+    return resumeStream(() -> resumeStreamState(position));
+  }
+
+  private Flux<ByteBuf> resumeStream(Callable<ResumeStreamState> initialState) {
     return Flux.generate(
-        () -> new ResumeStreamState(cachedFrames.size(), upstreamFrameRefCnt),
+        initialState,
         (state, sink) -> {
-          if (state.next()) {
-            /*spsc queue has no iterator - iterating by consuming*/
-            ByteBuf frame = cachedFrames.poll();
-            if (state.shouldRetain(frame)) {
-              frame.retain();
-            }
-            cachedFrames.offer(frame);
+          ByteBuf frame = nextResumedFrame(state);
+          if (frame != null) {
             sink.next(frame);
           } else {
             sink.complete();
@@ -126,11 +134,8 @@ public Mono<Void> onClose() {
 
   @Override
   public void dispose() {
-    cacheSize = 0;
-    ByteBuf frame = cachedFrames.poll();
-    while (frame != null) {
-      frame.release();
-      frame = cachedFrames.poll();
+    synchronized (this) {
+      cachedFrames.clear();
     }
     disposed.onComplete();
   }
@@ -140,25 +145,21 @@ public boolean isDisposed() {
     return disposed.isTerminated();
   }
 
-  /* this method and saveFrame() won't be called concurrently,
-   * so non-atomic on volatile is safe*/
+  /* called while holding the lock, so non-atomic on volatile is safe */
   private int releaseTailFrame(ByteBuf content) {
     int frameSize = content.readableBytes();
-    cacheSize -= frameSize;
     position += frameSize;
     content.release();
     return frameSize;
   }
 
-  /*this method and releaseTailFrame() won't be called concurrently,
-   * so non-atomic on volatile is safe*/
-  void saveFrame(ByteBuf frame) {
+  synchronized void saveFrame(ByteBuf frame) {
     if (upstreamFrameRefCnt == 0) {
       upstreamFrameRefCnt = frame.refCnt();
     }
 
     int frameSize = frame.readableBytes();
-    long availableSize = cacheLimit - cacheSize;
+    long availableSize = cacheLimit - cachedFrames.occupancy();
     while (availableSize < frameSize) {
       ByteBuf cachedFrame = cachedFrames.poll();
       if (cachedFrame != null) {
@@ -169,72 +170,81 @@ void saveFrame(ByteBuf frame) {
     }
     if (availableSize >= frameSize) {
       cachedFrames.offer(frame.retain());
-      cacheSize += frameSize;
     } else {
+      cachedFrames.skip(frameSize);
       position += frameSize;
     }
   }
 
-  static class ResumeStreamState {
-    private final int cacheSize;
-    private final int expectedRefCnt;
-    private int cacheCounter;
+  private synchronized ResumeStreamState resumeStreamState() {
+    return new ResumeStreamState(cachedFrames.tail(), cachedFrames.head(), upstreamFrameRefCnt);
+  }
 
-    public ResumeStreamState(int cacheSize, int expectedRefCnt) {
-      this.cacheSize = cacheSize;
-      this.expectedRefCnt = expectedRefCnt;
+  private synchronized ResumeStreamState resumeStreamState(long position) {
+    long start =
+        position == cachedFrames.headPosition()
+            ? cachedFrames.head()
+            : cachedFrames.sequenceAt(position);
+    if (start < 0) {
+      throw new IllegalStateException(
+          String.format("No cached frame starts at position %d", position));
     }
+    return new ResumeStreamState(start, cachedFrames.head(), upstreamFrameRefCnt);
+  }
 
-    public boolean next() {
-      if (cacheCounter < cacheSize) {
-        cacheCounter++;
-        return true;
-      } else {
-        return false;
-      }
+  /* frames are read in place, the cache is left untouched */
+  @Nullable
+  private synchronized ByteBuf nextResumedFrame(ResumeStreamState state) {
+    long sequence = state.next(cachedFrames.tail());
+    if (sequence < 0) {
+      return null;
     }
-
-    public boolean shouldRetain(ByteBuf frame) {
-      return frame.refCnt() == expectedRefCnt;
+    ByteBuf frame = cachedFrames.get(sequence);
+    if (state.shouldRetain(frame)) {
+      frame.retain();
     }
+    return frame;
   }
 
-  static Queue<ByteBuf> cachedFramesQueue(int size) {
-    return Queues.<ByteBuf>get(size).get();
+  /** @return number of frames currently held for resumption */
+  public int cachedFramesCount() {
+    return cachedFrames.size();
   }
 
-  class FramesSubscriber implements Subscriber<ByteBuf> {
-    private final long firstRequestSize;
-    private final long refillSize;
-    private int received;
-    private Subscription s;
+  /** @return number of bytes currently held for resumption */
+  public synchronized int cachedBytes() {
+    return (int) cachedFrames.occupancy();
+  }
 
-    public FramesSubscriber(long requestSize) {
-      this.firstRequestSize = requestSize;
-      this.refillSize = firstRequestSize / 2;
-    }
+  static class ResumeStreamState {
+    private final long end;
+    private final int expectedRefCnt;
+    private long sequence;
 
-    @Override
-    public void onSubscribe(Subscription s) {
-      this.s = s;
-      s.request(firstRequestSize);
+    public ResumeStreamState(long start, long end, int expectedRefCnt) {
+      this.sequence = start;
+      this.end = end;
+      this.expectedRefCnt = expectedRefCnt;
     }
 
-    @Override
-    public void onNext(ByteBuf byteBuf) {
-      saveFrame(byteBuf);
-      if (firstRequestSize != Long.MAX_VALUE && ++received == refillSize) {
-        received = 0;
-        s.request(refillSize);
+    /**
+     * @param tail sequence of the oldest frame still cached
+     * @return the sequence of the next frame to resume or {@code -1} once all are resumed
+     */
+    public long next(long tail) {
+      if (sequence < tail) {
+        /*frames released while resuming were acknowledged by the peer*/
+        sequence = tail;
+      }
+      if (sequence < end) {
+        return sequence++;
+      } else {
+        return -1;
       }
     }
 
-    @Override
-    public void onError(Throwable t) {
-      logger.info("unexpected onError signal: {}, {}", t.getClass(), t.getMessage());
+    public boolean shouldRetain(ByteBuf frame) {
+      return frame.refCnt() == expectedRefCnt;
     }
-
-    @Override
-    public void onComplete() {}
   }
 }
@@ -0,0 +1,333 @@
+/*
+ * Copyright 2015-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rsocket.resume;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.buffer.UnpooledDirectByteBuf;
+import io.netty.util.internal.PlatformDependent;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Objects;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+
+/**
+ * {@link ResumableFramesStore} that keeps unacknowledged frames in memory-mapped segment files
+ * instead of pooled buffers. Saved frames are copied once into the mapping, so the pooled frame can
+ * be released as soon as it has been sent, and the operating system is free to page out the state
+ * of idle sessions.
+ *
+ * <p>Each segment is a file of {@code segmentSizeBytes} holding length-prefixed frames. Frames
+ * replayed by {@link #resumeStream()} are retained slices of the mapping, so resumption does not
+ * copy. {@link #releaseFrames(long)} unmaps a segment once every frame in it has been acknowledged,
+ * and {@code cacheSizeBytes} is enforced by dropping whole segments from the tail. A segment stays
+ * mapped until the last replayed slice of it is released.
+ *
+ * <p>Segment files are deleted as soon as they are mapped, so nothing is left on disk when the
+ * process terminates.
+ */
+public class MappedResumableFramesStore implements ResumableFramesStore {
+  private static final Logger logger = LoggerFactory.getLogger(MappedResumableFramesStore.class);
+  private static final int FRAME_LENGTH_SIZE = Integer.BYTES;
+
+  private final MonoProcessor<Void> disposed = MonoProcessor.create();
+  private final String tag;
+  private final Path directory;
+  private final int segmentSize;
+  private final long cacheLimit;
+  /* guarded by this */
+  private final ArrayDeque<Segment> segments = new ArrayDeque<>();
+  /* guarded by this */
+  long cacheSize;
+  volatile long position;
+  volatile long impliedPosition;
+
+  /**
+   * @param tag tag used in log messages
+   * @param directory directory to create segment files in
+   * @param segmentSizeBytes size of each segment file, frames larger than this get a segment of
+   *     their own
+   * @param cacheSizeBytes maximum number of frame bytes kept for resumption
+   */
+  public MappedResumableFramesStore(
+      String tag, Path directory, int segmentSizeBytes, long cacheSizeBytes) {
+    if (segmentSizeBytes <= FRAME_LENGTH_SIZE) {
+      throw new IllegalArgumentException("segmentSizeBytes must be > " + FRAME_LENGTH_SIZE);
+    }
+    if (cacheSizeBytes < 0) {
+      throw new IllegalArgumentException("cacheSizeBytes must be >= 0");
+    }
+    this.tag = Objects.requireNonNull(tag, "tag must not be null");
+    this.directory = Objects.requireNonNull(directory, "directory must not be null");
+    this.segmentSize = segmentSizeBytes;
+    this.cacheLimit = cacheSizeBytes;
+  }
+
+  @Override
+  public Mono<Void> saveFrames(Flux<ByteBuf> frames) {
+    MonoProcessor<Void> completed = MonoProcessor.create();
+    frames
+        .doFinally(s -> completed.onComplete())
+        .subscribe(new SaveFramesSubscriber(this::saveFrame));
+    return completed;
+  }
+
+  @Override
+  public synchronized void releaseFrames(long remoteImpliedPos) {
+    long pos = position;
+    logger.debug(
+        "{} Removing frames for local: {}, remote implied: {}", tag, pos, remoteImpliedPos);
+    long removeSize = Math.max(0, remoteImpliedPos - pos);
+    while (removeSize > 0) {
+      Segment tail = segments.peekFirst();
+      if (tail == null) {
+        break;
+      }
+      if (tail.frameBytes <= removeSize) {
+        removeSize -= releaseTailSegment();
+      } else {
+        int frameSize = tail.releaseFrame();
+        cacheSize -= frameSize;
+        position += frameSize;
+        removeSize -= frameSize;
+      }
+    }
+    if (removeSize > 0) {
+      throw new IllegalStateException(
+          String.format(
+              "Local and remote state disagreement: "
+                  + "need to remove additional %d bytes, but cache is empty",
+              removeSize));
+    } else if (removeSize < 0) {
+      throw new IllegalStateException(
+          "Local and remote state disagreement: " + "local and remote frame sizes are not equal");
+    } else {
+      logger.debug("{} Removed frames. Current cache size: {}", tag, cacheSize);
+    }
+  }
+
+  @Override
+  public Flux<ByteBuf> resumeStream() {
+    return Flux.generate(
+        this::snapshot,
+        (state, sink) -> {
+          ByteBuf frame = state.next();
+          if (frame != null) {
+            sink.next(frame);
+          } else {
+            sink.complete();
+            logger.debug("{} Resuming stream completed", tag);
+          }
+          return state;
+        },
+        ResumeStreamState::release);
+  }
+
+  @Override
+  public long framePosition() {
+    return position;
+  }
+
+  @Override
+  public long frameImpliedPosition() {
+    return impliedPosition;
+  }
+
+  @Override
+  public void resumableFrameReceived(ByteBuf frame) {
+    /*called on transport thread so non-atomic on volatile is safe*/
+    impliedPosition += frame.readableBytes();
+  }
+
+  @Override
+  public Mono<Void> onClose() {
+    return disposed;
+  }
+
+  @Override
+  public void dispose() {
+    synchronized (this) {
+      while (!segments.isEmpty()) {
+        segments.pollFirst().buf.release();
+      }
+      cacheSize = 0;
+    }
+    disposed.onComplete();
+  }
+
+  @Override
+  public boolean isDisposed() {
+    return disposed.isTerminated();
+  }
+
+  synchronized void saveFrame(ByteBuf frame) {
+    int frameSize = frame.readableBytes();
+    if (disposed.isTerminated()) {
+      return;
+    }
+
+    while (cacheSize + frameSize > cacheLimit && !segments.isEmpty()) {
+      releaseTailSegment();
+    }
+    if (cacheSize + frameSize > cacheLimit) {
+      position += frameSize;
+      return;
+    }
+
+    int recordSize = FRAME_LENGTH_SIZE + frameSize;
+    Segment head = segments.peekLast();
+    if (head == null || head.remaining() < recordSize) {
+      head = new Segment(map(Math.max(segmentSize, recordSize)));
+      segments.addLast(head);
+    }
+    head.append(frame);
+    cacheSize += frameSize;
+  }
+
+  /* called while holding the lock */
+  private long releaseTailSegment() {
+    Segment tail = segments.pollFirst();
+    long frameBytes = tail.frameBytes;
+    cacheSize -= frameBytes;
+    position += frameBytes;
+    tail.buf.release();
+    return frameBytes;
+  }
+
+  private synchronized ResumeStreamState snapshot() {
+    Segment[] snapshot = segments.toArray(new Segment[0]);
+    int[] readOffsets = new int[snapshot.length];
+    int[] writeOffsets = new int[snapshot.length];
+    for (int i = 0; i < snapshot.length; i++) {
+      Segment segment = snapshot[i];
+      segment.buf.retain();
+      readOffsets[i] = segment.readOffset;
+      writeOffsets[i] = segment.writeOffset;
+    }
+    return new ResumeStreamState(snapshot, readOffsets, writeOffsets);
+  }
+
+  private MappedSegmentBuf map(int size) {
+    try {
+      Path file = Files.createTempFile(directory, tag + "-resume-", ".segment");
+      try (FileChannel channel =
+          FileChannel.open(
+              file,
+              StandardOpenOption.READ,
+              StandardOpenOption.WRITE,
+              StandardOpenOption.DELETE_ON_CLOSE)) {
+        return new MappedSegmentBuf(channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /** Frames of a mapped segment file that have not been released yet. */
+  static final class Segment {
+    final MappedSegmentBuf buf;
+    int readOffset;
+    int writeOffset;
+    long frameBytes;
+
+    Segment(MappedSegmentBuf buf) {
+      this.buf = buf;
+    }
+
+    int remaining() {
+      return buf.capacity() - writeOffset;
+    }
+
+    void append(ByteBuf frame) {
+      int frameSize = frame.readableBytes();
+      buf.setInt(writeOffset, frameSize);
+      buf.setBytes(writeOffset + FRAME_LENGTH_SIZE, frame, frame.readerIndex(), frameSize);
+      writeOffset += FRAME_LENGTH_SIZE + frameSize;
+      frameBytes += frameSize;
+    }
+
+    int releaseFrame() {
+      int frameSize = buf.getInt(readOffset);
+      readOffset += FRAME_LENGTH_SIZE + frameSize;
+      frameBytes -= frameSize;
+      return frameSize;
+    }
+  }
+
+  /**
+   * Replays retained slices of the segments that were present when resumption started. The
+   * segments themselves are retained until the replay terminates.
+   */
+  static final class ResumeStreamState {
+    private final Segment[] segments;
+    private final int[] readOffsets;
+    private final int[] writeOffsets;
+    private int index;
+
+    ResumeStreamState(Segment[] segments, int[] readOffsets, int[] writeOffsets) {
+      this.segments = segments;
+      this.readOffsets = readOffsets;
+      this.writeOffsets = writeOffsets;
+    }
+
+    ByteBuf next() {
+      while (index < segments.length) {
+        int offset = readOffsets[index];
+        if (offset < writeOffsets[index]) {
+          MappedSegmentBuf buf = segments[index].buf;
+          int frameSize = buf.getInt(offset);
+          readOffsets[index] = offset + FRAME_LENGTH_SIZE + frameSize;
+          return buf.retainedSlice(offset + FRAME_LENGTH_SIZE, frameSize);
+        }
+        index++;
+      }
+      return null;
+    }
+
+    void release() {
+      for (Segment segment : segments) {
+        segment.buf.release();
+      }
+    }
+  }
+
+  /** Wraps a segment mapping and unmaps it once the last reference is released. */
+  static final class MappedSegmentBuf extends UnpooledDirectByteBuf {
+    private final MappedByteBuffer mapping;
+
+    MappedSegmentBuf(MappedByteBuffer mapping) {
+      super(UnpooledByteBufAllocator.DEFAULT, mapping, mapping.capacity());
+      this.mapping = mapping;
+    }
+
+    @Override
+    protected void deallocate() {
+      super.deallocate();
+      PlatformDependent.freeDirectBuffer(mapping);
+    }
+  }
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright 2015-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rsocket.resume;
+
+import io.netty.buffer.ByteBuf;
+import io.rsocket.internal.jctools.util.Pow2;
+import javax.annotation.Nullable;
+
+/**
+ * Growable ring of cached frames indexed both by sequence and by byte position, as defined by the
+ * RSocket resumption protocol. Frames are appended at the head and released from the tail. Unlike a
+ * queue, frames can be read at any sequence without being removed, so resumption replays the cache
+ * in place.
+ *
+ * <p>The ring is not thread-safe, callers serialize access to it.
+ */
+final class ResumableFramesRing {
+  private static final int MIN_CAPACITY = 16;
+
+  private ByteBuf[] frames;
+  private long[] positions;
+  private int[] sizes;
+  private int mask;
+
+  /* sequence of the oldest cached frame */
+  private long tail;
+  /* sequence the next frame is written at */
+  private long head;
+  /* byte position of the oldest cached frame, i.e. the local frame position */
+  private long tailPosition;
+  /* byte position the next frame starts at */
+  private long headPosition;
+  private long occupancy;
+
+  ResumableFramesRing(int initialCapacity) {
+    int capacity = Pow2.roundToPowerOfTwo(Math.max(MIN_CAPACITY, initialCapacity));
+    this.frames = new ByteBuf[capacity];
+    this.positions = new long[capacity];
+    this.sizes = new int[capacity];
+    this.mask = capacity - 1;
+  }
+
+  /** Appends a frame at the head. The ring takes over the caller's reference. */
+  void offer(ByteBuf frame) {
+    long head = this.head;
+    if (head - tail == frames.length) {
+      grow();
+    }
+    int size = frame.readableBytes();
+    int index = (int) head & mask;
+    frames[index] = frame;
+    positions[index] = headPosition;
+    sizes[index] = size;
+    headPosition += size;
+    occupancy += size;
+    this.head = head + 1;
+  }
+
+  /**
+   * Accounts for a frame that is not cached, advancing both ends of the ring. Only valid while the
+   * ring is empty.
+   */
+  void skip(int size) {
+    if (head != tail) {
+      throw new IllegalStateException("Only an empty ring can skip frames");
+    }
+    headPosition += size;
+    tailPosition = headPosition;
+  }
+
+  /**
+   * Removes the frame at the tail and hands its reference over to the caller.
+   *
+   * @return the removed frame or {@code null} if the ring is empty
+   */
+  @Nullable
+  ByteBuf poll() {
+    long tail = this.tail;
+    if (tail == head) {
+      return null;
+    }
+    int index = (int) tail & mask;
+    ByteBuf frame = frames[index];
+    int size = sizes[index];
+    frames[index] = null;
+    occupancy -= size;
+    tailPosition = positions[index] + size;
+    this.tail = tail + 1;
+    return frame;
+  }
+
+  /**
+   * Releases, from the tail, every frame that ends at or before {@code position}.
+   *
+   * @param position the byte position to release up to
+   * @return the number of bytes released
+   */
+  long releaseTo(long position) {
+    long released = 0;
+    long tail = this.tail;
+    long head = this.head;
+    long tailPosition = this.tailPosition;
+    while (tail != head) {
+      int index = (int) tail & mask;
+      int size = sizes[index];
+      if (positions[index] + size > position) {
+        break;
+      }
+      frames[index].release();
+      frames[index] = null;
+      released += size;
+      tailPosition += size;
+      tail++;
+    }
+    if (released > 0) {
+      occupancy -= released;
+      this.tailPosition = tailPosition;
+      this.tail = tail;
+    }
+    return released;
+  }
+
+  /** Releases every cached frame. */
+  void clear() {
+    ByteBuf frame = poll();
+    while (frame != null) {
+      frame.release();
+      frame = poll();
+    }
+  }
+
+  /**
+   * @param sequence a sequence between {@link #tail()} inclusive and {@link #head()} exclusive
+   * @return the frame at the sequence, without changing its reference count
+   */
+  ByteBuf get(long sequence) {
+    return frames[(int) sequence & mask];
+  }
+
+  /**
+   * Looks up the frame starting at the given byte position.
+   *
+   * @param position the byte position of the first byte of a frame
+   * @return the sequence of the frame or {@code -1} if no cached frame starts at the position
+   */
+  long sequenceAt(long position) {
+    long low = tail;
+    long high = head - 1;
+    while (low <= high) {
+      long mid = (low + high) >>> 1;
+      long midPosition = positions[(int) mid & mask];
+      if (midPosition < position) {
+        low = mid + 1;
+      } else if (midPosition > position) {
+        high = mid - 1;
+      } else {
+        return mid;
+      }
+    }
+    return -1;
+  }
+
+  /** @return sequence of the oldest cached frame */
+  long tail() {
+    return tail;
+  }
+
+  /** @return sequence the next frame will be written at */
+  long head() {
+    return head;
+  }
+
+  /** @return byte position of the oldest cached frame */
+  long tailPosition() {
+    return tailPosition;
+  }
+
+  /** @return byte position the next frame will start at */
+  long headPosition() {
+    return headPosition;
+  }
+
+  /** @return number of cached frames */
+  int size() {
+    return (int) (head - tail);
+  }
+
+  /** @return number of cached bytes */
+  long occupancy() {
+    return occupancy;
+  }
+
+  boolean isEmpty() {
+    return head == tail;
+  }
+
+  private void grow() {
+    int capacity = frames.length;
+    int newCapacity = capacity << 1;
+    int newMask = newCapacity - 1;
+    ByteBuf[] newFrames = new ByteBuf[newCapacity];
+    long[] newPositions = new long[newCapacity];
+    int[] newSizes = new int[newCapacity];
+    for (long sequence = tail; sequence != head; sequence++) {
+      int from = (int) sequence & mask;
+      int to = (int) sequence & newMask;
+      newFrames[to] = frames[from];
+      newPositions[to] = positions[from];
+      newSizes[to] = sizes[from];
+    }
+    this.frames = newFrames;
+    this.positions = newPositions;
+    this.sizes = newSizes;
+    this.mask = newMask;
+  }
+}
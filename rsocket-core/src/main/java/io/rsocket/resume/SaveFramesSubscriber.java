@@ -0,0 +1,56 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rsocket.resume;
+
+import io.netty.buffer.ByteBuf;
+import java.util.function.Consumer;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Saves every frame sent on a resumable connection into a {@link ResumableFramesStore}. Frames are
+ * requested without bound, as each one is saved synchronously before the next is delivered.
+ */
+class SaveFramesSubscriber implements Subscriber<ByteBuf> {
+  private static final Logger logger = LoggerFactory.getLogger(SaveFramesSubscriber.class);
+
+  private final Consumer<ByteBuf> saveFrame;
+
+  SaveFramesSubscriber(Consumer<ByteBuf> saveFrame) {
+    this.saveFrame = saveFrame;
+  }
+
+  @Override
+  public void onSubscribe(Subscription s) {
+    s.request(Long.MAX_VALUE);
+  }
+
+  @Override
+  public void onNext(ByteBuf frame) {
+    saveFrame.accept(frame);
+  }
+
+  @Override
+  public void onError(Throwable t) {
+    logger.info("unexpected onError signal: {}, {}", t.getClass(), t.getMessage());
+  }
+
+  @Override
+  public void onComplete() {}
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rsocket.routing;
+
+import io.netty.buffer.ByteBuf;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import javax.annotation.Nullable;
+
+/**
+ * An immutable byte trie of routes, compiled into flat arrays so that a lookup walks the UTF-8
+ * bytes of a route straight from the metadata buffer, without decoding it to a {@link String}.
+ *
+ * <p>Nodes are numbered breadth first, and the edges leaving a node are stored contiguously,
+ * sorted by label: node {@code n} owns the edges from {@code edgeStart[n]} to {@code edgeStart[n +
+ * 1]}, which are binary searched.
+ */
+final class RouteTrie<T> {
+
+  private final int[] edgeStart;
+  private final byte[] labels;
+  private final int[] targets;
+  private final Object[] values;
+
+  RouteTrie(Map<String, T> routes) {
+    Node root = new Node();
+    int nodeCount = 1;
+    for (Map.Entry<String, T> route : routes.entrySet()) {
+      Node node = root;
+      for (byte label : route.getKey().getBytes(StandardCharsets.UTF_8)) {
+        Node child = node.children.get(label);
+        if (child == null) {
+          child = new Node();
+          node.children.put(label, child);
+          nodeCount++;
+        }
+        node = child;
+      }
+      node.value = route.getValue();
+    }
+
+    this.edgeStart = new int[nodeCount + 1];
+    this.labels = new byte[nodeCount - 1];
+    this.targets = new int[nodeCount - 1];
+    this.values = new Object[nodeCount];
+
+    Queue<Node> queue = new ArrayDeque<>();
+    queue.add(root);
+    int nextId = 1;
+    int edge = 0;
+    for (int id = 0; id < nodeCount; id++) {
+      Node node = queue.remove();
+      values[id] = node.value;
+      edgeStart[id] = edge;
+      for (Map.Entry<Byte, Node> child : node.children.entrySet()) {
+        labels[edge] = child.getKey();
+        targets[edge] = nextId++;
+        edge++;
+        queue.add(child.getValue());
+      }
+    }
+    edgeStart[nodeCount] = edge;
+  }
+
+  /**
+   * Returns the value of the route made of some bytes of a buffer.
+   *
+   * @param buffer the buffer containing the route
+   * @param index the index of the route in the buffer
+   * @param length the length of the route
+   * @return the value of the route, or {@code null} if there is none
+   */
+  @Nullable
+  @SuppressWarnings("unchecked")
+  T find(ByteBuf buffer, int index, int length) {
+    int[] edgeStart = this.edgeStart;
+    byte[] labels = this.labels;
+    int node = 0;
+    for (int i = index, end = index + length; i < end; i++) {
+      byte label = buffer.getByte(i);
+      int low = edgeStart[node];
+      int high = edgeStart[node + 1] - 1;
+      node = -1;
+      while (low <= high) {
+        int middle = (low + high) >>> 1;
+        byte candidate = labels[middle];
+        if (candidate < label) {
+          low = middle + 1;
+        } else if (candidate > label) {
+          high = middle - 1;
+        } else {
+          node = targets[middle];
+          break;
+        }
+      }
+      if (node < 0) {
+        return null;
+      }
+    }
+    return (T) values[node];
+  }
+
+  /**
+   * Returns the number of nodes of the trie, the root included.
+   *
+   * @return the number of nodes
+   */
+  int size() {
+    return values.length;
+  }
+
+  private static final class Node {
+    final TreeMap<Byte, Node> children = new TreeMap<>();
+    @Nullable Object value;
+  }
+}
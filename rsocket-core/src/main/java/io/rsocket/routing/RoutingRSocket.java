@@ -0,0 +1,327 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rsocket.routing;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.util.concurrent.FastThreadLocal;
+import io.rsocket.AbstractRSocket;
+import io.rsocket.Payload;
+import io.rsocket.RSocket;
+import io.rsocket.ResponderRSocket;
+import io.rsocket.exceptions.InvalidException;
+import io.rsocket.metadata.CompositeMetadataCursor;
+import io.rsocket.metadata.WellKnownMimeType;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import javax.annotation.Nullable;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * A responder that dispatches requests to handlers registered per route and interaction type. The
+ * route is the first tag of the {@link WellKnownMimeType#MESSAGE_RSOCKET_ROUTING} entry of the
+ * composite metadata of the request, and is matched against a {@link RouteTrie} over its raw bytes,
+ * so that dispatching decodes no {@link String} and allocates nothing per request.
+ *
+ * <pre>{@code
+ * RSocket responder =
+ *     RoutingRSocket.builder()
+ *         .requestResponse("orders.get", orders::get)
+ *         .requestStream("orders.watch", orders::watch)
+ *         .build();
+ * }</pre>
+ *
+ * <p>Requests without a route, or with a route that has no handler for their interaction type, go
+ * to the {@link Builder#fallback(RSocket) fallback}, which rejects them with an {@link
+ * InvalidException} by default. Channels are routed by their first payload.
+ */
+public final class RoutingRSocket extends AbstractRSocket implements ResponderRSocket {
+
+  private static final FastThreadLocal<CompositeMetadataCursor> CURSOR =
+      new FastThreadLocal<CompositeMetadataCursor>() {
+        @Override
+        protected CompositeMetadataCursor initialValue() {
+          return new CompositeMetadataCursor();
+        }
+      };
+
+  private final RouteTrie<Route> routes;
+  private final RSocket fallback;
+
+  private RoutingRSocket(Builder builder) {
+    this.routes = new RouteTrie<>(builder.routes);
+    this.fallback = builder.fallback;
+  }
+
+  /**
+   * Returns a new builder, without routes.
+   *
+   * @return a new builder
+   */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  @Override
+  public Mono<Void> fireAndForget(Payload payload) {
+    Route route;
+    try {
+      route = route(payload);
+    } catch (Throwable t) {
+      payload.release();
+      return Mono.error(t);
+    }
+    return route != null && route.fireAndForget != null
+        ? route.fireAndForget.apply(payload)
+        : fallback.fireAndForget(payload);
+  }
+
+  @Override
+  public Mono<Payload> requestResponse(Payload payload) {
+    Route route;
+    try {
+      route = route(payload);
+    } catch (Throwable t) {
+      payload.release();
+      return Mono.error(t);
+    }
+    return route != null && route.requestResponse != null
+        ? route.requestResponse.apply(payload)
+        : fallback.requestResponse(payload);
+  }
+
+  @Override
+  public Flux<Payload> requestStream(Payload payload) {
+    Route route;
+    try {
+      route = route(payload);
+    } catch (Throwable t) {
+      payload.release();
+      return Flux.error(t);
+    }
+    return route != null && route.requestStream != null
+        ? route.requestStream.apply(payload)
+        : fallback.requestStream(payload);
+  }
+
+  @Override
+  public Flux<Payload> requestChannel(Publisher<Payload> payloads) {
+    return Flux.from(payloads)
+        .switchOnFirst(
+            (first, flux) -> first.hasValue() ? requestChannel(first.get(), flux) : flux);
+  }
+
+  @Override
+  public Flux<Payload> requestChannel(Payload payload, Publisher<Payload> payloads) {
+    Route route;
+    try {
+      route = route(payload);
+    } catch (Throwable t) {
+      payload.release();
+      return Flux.error(t);
+    }
+    if (route != null && route.requestChannel != null) {
+      return route.requestChannel.apply(Flux.from(payloads));
+    }
+    return fallback instanceof ResponderRSocket
+        ? ((ResponderRSocket) fallback).requestChannel(payload, payloads)
+        : fallback.requestChannel(payloads);
+  }
+
+  @Override
+  public Mono<Void> metadataPush(Payload payload) {
+    return fallback.metadataPush(payload);
+  }
+
+  @Nullable
+  private Route route(Payload payload) {
+    if (!payload.hasMetadata()) {
+      return null;
+    }
+    // read in place, the cursor does not move the reader index
+    ByteBuf metadata = payload.metadata();
+    CompositeMetadataCursor cursor = CURSOR.get().reset(metadata);
+    if (!cursor.seek(WellKnownMimeType.MESSAGE_RSOCKET_ROUTING) || cursor.contentLength() < 1) {
+      return null;
+    }
+    // the first tag, prefixed by its length on one byte
+    int index = cursor.contentIndex();
+    int length = metadata.getUnsignedByte(index);
+    if (length >= cursor.contentLength()) {
+      throw new InvalidException("routing metadata is malformed");
+    }
+    return routes.find(metadata, index + 1, length);
+  }
+
+  /** The handlers of one route. */
+  static final class Route {
+    @Nullable Function<Payload, Mono<Void>> fireAndForget;
+    @Nullable Function<Payload, Mono<Payload>> requestResponse;
+    @Nullable Function<Payload, Flux<Payload>> requestStream;
+    @Nullable Function<Flux<Payload>, Flux<Payload>> requestChannel;
+  }
+
+  /** Builder of {@link RoutingRSocket}. */
+  public static final class Builder {
+    private final Map<String, Route> routes = new HashMap<>();
+    private RSocket fallback = new NoRouteRSocket();
+
+    private Builder() {}
+
+    /**
+     * Registers the fire-and-forget handler of a route.
+     *
+     * @param route the route
+     * @param handler the handler, which owns the payload
+     * @return this builder
+     * @throws IllegalArgumentException if the route already has a fire-and-forget handler
+     */
+    public Builder fireAndForget(String route, Function<Payload, Mono<Void>> handler) {
+      Route r = route(route);
+      if (r.fireAndForget != null) {
+        throw duplicate(route, "fire-and-forget");
+      }
+      r.fireAndForget = Objects.requireNonNull(handler);
+      return this;
+    }
+
+    /**
+     * Registers the request-response handler of a route.
+     *
+     * @param route the route
+     * @param handler the handler, which owns the payload
+     * @return this builder
+     * @throws IllegalArgumentException if the route already has a request-response handler
+     */
+    public Builder requestResponse(String route, Function<Payload, Mono<Payload>> handler) {
+      Route r = route(route);
+      if (r.requestResponse != null) {
+        throw duplicate(route, "request-response");
+      }
+      r.requestResponse = Objects.requireNonNull(handler);
+      return this;
+    }
+
+    /**
+     * Registers the request-stream handler of a route.
+     *
+     * @param route the route
+     * @param handler the handler, which owns the payload
+     * @return this builder
+     * @throws IllegalArgumentException if the route already has a request-stream handler
+     */
+    public Builder requestStream(String route, Function<Payload, Flux<Payload>> handler) {
+      Route r = route(route);
+      if (r.requestStream != null) {
+        throw duplicate(route, "request-stream");
+      }
+      r.requestStream = Objects.requireNonNull(handler);
+      return this;
+    }
+
+    /**
+     * Registers the request-channel handler of a route. The handler receives every payload of the
+     * channel, the first one included.
+     *
+     * @param route the route
+     * @param handler the handler
+     * @return this builder
+     * @throws IllegalArgumentException if the route already has a request-channel handler
+     */
+    public Builder requestChannel(String route, Function<Flux<Payload>, Flux<Payload>> handler) {
+      Route r = route(route);
+      if (r.requestChannel != null) {
+        throw duplicate(route, "request-channel");
+      }
+      r.requestChannel = Objects.requireNonNull(handler);
+      return this;
+    }
+
+    /**
+     * Sets the responder of the requests that match no handler, and of metadata pushes. Defaults to
+     * rejecting them with an {@link InvalidException}.
+     *
+     * @param fallback the fallback responder
+     * @return this builder
+     */
+    public Builder fallback(RSocket fallback) {
+      this.fallback = Objects.requireNonNull(fallback);
+      return this;
+    }
+
+    /**
+     * Returns the responder, compiling the routes registered so far.
+     *
+     * @return the responder
+     */
+    public RoutingRSocket build() {
+      return new RoutingRSocket(this);
+    }
+
+    private Route route(String route) {
+      int length = route.getBytes(StandardCharsets.UTF_8).length;
+      if (length < 1 || length > 255) {
+        throw new IllegalArgumentException("route must be 1 to 255 bytes long: " + route);
+      }
+      return routes.computeIfAbsent(route, r -> new Route());
+    }
+
+    private static IllegalArgumentException duplicate(String route, String interaction) {
+      return new IllegalArgumentException(
+          "route already has a " + interaction + " handler: " + route);
+    }
+  }
+
+  private static final class NoRouteRSocket extends AbstractRSocket implements ResponderRSocket {
+
+    @Override
+    public Mono<Void> fireAndForget(Payload payload) {
+      payload.release();
+      return Mono.error(new InvalidException("no fire-and-forget handler for the route"));
+    }
+
+    @Override
+    public Mono<Payload> requestResponse(Payload payload) {
+      payload.release();
+      return Mono.error(new InvalidException("no request-response handler for the route"));
+    }
+
+    @Override
+    public Flux<Payload> requestStream(Payload payload) {
+      payload.release();
+      return Flux.error(new InvalidException("no request-stream handler for the route"));
+    }
+
+    @Override
+    public Flux<Payload> requestChannel(Publisher<Payload> payloads) {
+      return Flux.from(payloads)
+          .take(1)
+          .doOnNext(Payload::release)
+          .thenMany(Flux.error(new InvalidException("no request-channel handler for the route")));
+    }
+
+    @Override
+    public Flux<Payload> requestChannel(Payload payload, Publisher<Payload> payloads) {
+      payload.release();
+      return Flux.error(new InvalidException("no request-channel handler for the route"));
+    }
+  }
+}
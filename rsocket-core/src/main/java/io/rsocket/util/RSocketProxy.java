@@ -18,12 +18,15 @@
 
 import io.rsocket.Payload;
 import io.rsocket.RSocket;
+import io.rsocket.lease.Lease;
+import io.rsocket.lease.LeaseHolder;
+import javax.annotation.Nullable;
 import org.reactivestreams.Publisher;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 /** Wrapper/Proxy for a RSocket. This is useful when we want to override a specific method. */
-public class RSocketProxy implements RSocket {
+public class RSocketProxy implements RSocket, LeaseHolder {
   protected final RSocket source;
 
   public RSocketProxy(RSocket source) {
@@ -60,6 +63,12 @@ public double availability() {
     return source.availability();
   }
 
+  @Override
+  @Nullable
+  public Lease currentLease() {
+    return source instanceof LeaseHolder ? ((LeaseHolder) source).currentLease() : null;
+  }
+
   @Override
   public void dispose() {
     source.dispose();
@@ -3,6 +3,9 @@
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
 import io.netty.buffer.Unpooled;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
 import java.util.concurrent.ThreadLocalRandom;
 import org.junit.jupiter.api.Test;
 
@@ -34,4 +37,27 @@ void testTupleBufferGet() {
 
     int medium = tuple.getMedium(8);
   }
+
+  @Test
+  void testRecycledTupleIsReset() {
+    ByteBuf first =
+        TupleByteBuf.of(
+            Unpooled.copiedBuffer("one", StandardCharsets.UTF_8),
+            Unpooled.copiedBuffer("two", StandardCharsets.UTF_8),
+            Unpooled.copiedBuffer("three", StandardCharsets.UTF_8));
+    first.readByte();
+    first.release();
+
+    ByteBuf second =
+        TupleByteBuf.of(
+            Unpooled.copiedBuffer("a", StandardCharsets.UTF_8),
+            Unpooled.copiedBuffer("b", StandardCharsets.UTF_8),
+            Unpooled.copiedBuffer("c", StandardCharsets.UTF_8));
+
+    assertThat(second.refCnt()).isEqualTo(1);
+    assertThat(second.readerIndex()).isZero();
+    assertThat(second.readableBytes()).isEqualTo(3);
+    assertThat(second.toString(StandardCharsets.UTF_8)).isEqualTo("abc");
+    second.release();
+  }
 }
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rsocket.compression;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+final class Lz4CodecTest {
+
+  private final ByteBufAllocator allocator = ByteBufAllocator.DEFAULT;
+
+  @DisplayName("round trips compressible data")
+  @ParameterizedTest(name = "length={0}")
+  @ValueSource(ints = {0, 1, 11, 12, 13, 100, 4096, 70_000, 1 << 20})
+  void roundTripCompressible(int length) {
+    byte[] bytes = compressible(length);
+
+    ByteBuf compressed = compress(bytes);
+    if (length > 1024) {
+      assertThat(compressed.readableBytes()).isLessThan(length / 4);
+    }
+
+    assertThat(decompress(compressed, length)).isEqualTo(bytes);
+  }
+
+  @DisplayName("round trips incompressible data within the maximum compressed length")
+  @ParameterizedTest(name = "length={0}")
+  @ValueSource(ints = {13, 4096, 1 << 20})
+  void roundTripRandom(int length) {
+    byte[] bytes = new byte[length];
+    new SplittableRandom(length).nextBytes(bytes);
+
+    ByteBuf compressed = compress(bytes);
+    assertThat(compressed.readableBytes())
+        .isLessThanOrEqualTo(Lz4Codec.maxCompressedLength(length));
+
+    assertThat(decompress(compressed, length)).isEqualTo(bytes);
+  }
+
+  @DisplayName("round trips runs that overlap their match")
+  @ParameterizedTest(name = "length={0}")
+  @ValueSource(ints = {16, 300, 100_000})
+  void roundTripRuns(int length) {
+    byte[] bytes = new byte[length];
+    for (int i = 0; i < length; i++) {
+      bytes[i] = (byte) (i % 3);
+    }
+
+    assertThat(decompress(compress(bytes), length)).isEqualTo(bytes);
+  }
+
+  @DisplayName("rejects truncated and mismatched blocks")
+  @ParameterizedTest(name = "truncatedBy={0}")
+  @ValueSource(ints = {1, 2, 5})
+  void rejectsMalformed(int truncatedBy) {
+    byte[] bytes = compressible(4096);
+    ByteBuf compressed = compress(bytes);
+    ByteBuf truncated = compressed.slice(0, compressed.readableBytes() - truncatedBy);
+
+    try {
+      assertThatIllegalArgumentException()
+          .isThrownBy(() -> Lz4Codec.INSTANCE.decompress(allocator, truncated, bytes.length));
+      assertThatIllegalArgumentException()
+          .isThrownBy(() -> Lz4Codec.INSTANCE.decompress(allocator, compressed, bytes.length + 1));
+    } finally {
+      compressed.release();
+    }
+  }
+
+  private ByteBuf compress(byte[] bytes) {
+    return Lz4Codec.INSTANCE.compress(allocator, Unpooled.wrappedBuffer(bytes));
+  }
+
+  /* releases the compressed buffer */
+  private byte[] decompress(ByteBuf compressed, int length) {
+    ByteBuf decompressed = Lz4Codec.INSTANCE.decompress(allocator, compressed, length);
+    try {
+      assertThat(compressed.readerIndex()).isZero();
+      return ByteBufUtil.getBytes(decompressed);
+    } finally {
+      decompressed.release();
+      compressed.release();
+    }
+  }
+
+  static byte[] compressible(int length) {
+    StringBuilder text = new StringBuilder(length + 64);
+    for (int i = 0; text.length() < length; i++) {
+      text.append("{\"id\":").append(i).append(",\"status\":\"active\"},");
+    }
+    text.setLength(length);
+    return text.toString().getBytes(StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,247 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rsocket.compression;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.rsocket.AbstractRSocket;
+import io.rsocket.Closeable;
+import io.rsocket.Payload;
+import io.rsocket.RSocket;
+import io.rsocket.RSocketFactory;
+import io.rsocket.exceptions.RejectedSetupException;
+import io.rsocket.transport.local.LocalClientTransport;
+import io.rsocket.transport.local.LocalServerTransport;
+import io.rsocket.util.ByteBufPayload;
+import io.rsocket.util.DefaultPayload;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+final class PayloadCompressionTest {
+
+  private final PayloadCompression compression = PayloadCompression.builder().minSize(64).build();
+
+  private final AtomicReference<Throwable> clientError = new AtomicReference<>();
+
+  private Closeable server;
+  private RSocket client;
+
+  @AfterEach
+  void tearDown() {
+    if (client != null) {
+      client.dispose();
+    }
+    if (server != null) {
+      server.dispose();
+    }
+  }
+
+  @DisplayName("proposes the codec in the data mime type")
+  @Test
+  void dataMimeType() {
+    String mimeType = compression.dataMimeType("application/json");
+
+    assertThat(mimeType).isEqualTo("application/json; compression=lz4");
+    assertThat(PayloadCompression.codecName(mimeType)).isEqualTo("lz4");
+    assertThat(PayloadCompression.codecName("application/json")).isNull();
+    assertThat(PayloadCompression.codecName("text/plain; compression=x; charset=utf-8"))
+        .isEqualTo("x");
+  }
+
+  @DisplayName("compresses data above the minimum size and leaves metadata alone")
+  @Test
+  void compressesLargeData() {
+    byte[] data = Lz4CodecTest.compressible(4096);
+    Payload payload = ByteBufPayload.create(data, "route".getBytes(StandardCharsets.UTF_8));
+
+    Payload compressed = compression.compress(payload, Lz4Codec.INSTANCE);
+    assertThat(payload.refCnt()).isZero();
+    assertThat(compressed.data().readableBytes()).isLessThan(data.length / 4);
+    assertThat(compressed.getMetadataUtf8()).isEqualTo("route");
+
+    Payload decompressed = compression.decompress(compressed, Lz4Codec.INSTANCE);
+    assertThat(compressed.refCnt()).isZero();
+    assertThat(decompressed.getDataUtf8()).isEqualTo(new String(data, StandardCharsets.UTF_8));
+    assertThat(decompressed.getMetadataUtf8()).isEqualTo("route");
+    decompressed.release();
+  }
+
+  @DisplayName("stores data below the minimum size")
+  @Test
+  void storesSmallData() {
+    Payload payload = ByteBufPayload.create("small");
+
+    Payload stored = compression.compress(payload, Lz4Codec.INSTANCE);
+    assertThat(stored.data().readableBytes()).isEqualTo("small".length() + 1);
+    assertThat(stored.hasMetadata()).isFalse();
+
+    Payload decompressed = compression.decompress(stored, Lz4Codec.INSTANCE);
+    assertThat(decompressed.getDataUtf8()).isEqualTo("small");
+    decompressed.release();
+  }
+
+  @DisplayName("rejects data that decompresses beyond the maximum size")
+  @Test
+  void rejectsOversizedData() {
+    PayloadCompression small = PayloadCompression.builder().maxDecompressedSize(1024).build();
+    Payload compressed =
+        compression.compress(
+            ByteBufPayload.create(Lz4CodecTest.compressible(4096)), Lz4Codec.INSTANCE);
+
+    assertThatThrownBy(() -> small.decompress(compressed, Lz4Codec.INSTANCE))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThat(compressed.refCnt()).isZero();
+  }
+
+  @DisplayName("compresses the payloads of a negotiated connection in both directions")
+  @Test
+  void endToEnd() {
+    AtomicReference<String> received = new AtomicReference<>();
+    String json = new String(Lz4CodecTest.compressible(8192), StandardCharsets.UTF_8);
+    start(
+        compression,
+        new AbstractRSocket() {
+          @Override
+          public Mono<Payload> requestResponse(Payload payload) {
+            received.set(payload.getDataUtf8());
+            payload.release();
+            return Mono.just(DefaultPayload.create(json));
+          }
+
+          @Override
+          public Flux<Payload> requestStream(Payload payload) {
+            payload.release();
+            return Flux.range(0, 10).map(i -> DefaultPayload.create(json));
+          }
+        });
+
+    Payload response =
+        client.requestResponse(DefaultPayload.create(json)).block(Duration.ofSeconds(5));
+    assertThat(received.get()).isEqualTo(json);
+    assertThat(response.getDataUtf8()).isEqualTo(json);
+    response.release();
+
+    assertThat(
+            client
+                .requestStream(DefaultPayload.create("stream"))
+                .doOnNext(p -> assertThat(p.getDataUtf8()).isEqualTo(json))
+                .doOnNext(Payload::release)
+                .count()
+                .block(Duration.ofSeconds(5)))
+        .isEqualTo(10);
+  }
+
+  @DisplayName("rejects the setup of connections proposing an unknown codec")
+  @Test
+  void rejectsUnknownCodec() {
+    PayloadCompression unknown = PayloadCompression.builder().codec(new UnknownCodec()).build();
+    start(unknown, new AbstractRSocket() {}, compression);
+
+    client.onClose().block(Duration.ofSeconds(5));
+
+    assertThat(clientError.get())
+        .isInstanceOf(RejectedSetupException.class)
+        .hasMessageContaining("unknown");
+  }
+
+  @DisplayName("rejects a known codec the server was not configured with")
+  @Test
+  void rejectsCodecNotConfigured() {
+    PayloadCompression other = PayloadCompression.builder().codec(new UnknownCodec()).build();
+    AtomicBoolean accepted = new AtomicBoolean();
+    server =
+        RSocketFactory.receive()
+            .acceptor(
+                other.acceptor(
+                    (setup, sendingSocket) -> {
+                      accepted.set(true);
+                      return Mono.just(new AbstractRSocket() {});
+                    }))
+            .transport(LocalServerTransport.create("compression"))
+            .start()
+            .block();
+    client =
+        RSocketFactory.connect()
+            .errorConsumer(e -> clientError.compareAndSet(null, e))
+            .dataMimeType(compression.dataMimeType("application/json"))
+            .addRequesterPlugin(compression.requesterInterceptor())
+            .addResponderPlugin(compression.responderInterceptor())
+            .transport(LocalClientTransport.create("compression"))
+            .start()
+            .block();
+
+    client.onClose().block(Duration.ofSeconds(5));
+
+    assertThat(accepted.get()).isFalse();
+    assertThat(clientError.get())
+        .isInstanceOf(RejectedSetupException.class)
+        .hasMessageContaining(Lz4Codec.INSTANCE.name());
+  }
+
+  private void start(PayloadCompression compression, RSocket handler) {
+    start(compression, handler, compression);
+  }
+
+  private void start(
+      PayloadCompression clientCompression,
+      RSocket handler,
+      PayloadCompression serverCompression) {
+    server =
+        RSocketFactory.receive()
+            .acceptor(serverCompression.acceptor((setup, sendingSocket) -> Mono.just(handler)))
+            .transport(LocalServerTransport.create("compression"))
+            .start()
+            .block();
+
+    client =
+        RSocketFactory.connect()
+            .errorConsumer(e -> clientError.compareAndSet(null, e))
+            .dataMimeType(clientCompression.dataMimeType("application/json"))
+            .addRequesterPlugin(clientCompression.requesterInterceptor())
+            .addResponderPlugin(clientCompression.responderInterceptor())
+            .transport(LocalClientTransport.create("compression"))
+            .start()
+            .block();
+  }
+
+  static final class UnknownCodec implements CompressionCodec {
+    @Override
+    public String name() {
+      return "unknown";
+    }
+
+    @Override
+    public ByteBuf compress(ByteBufAllocator allocator, ByteBuf source) {
+      return source.retainedSlice();
+    }
+
+    @Override
+    public ByteBuf decompress(ByteBufAllocator allocator, ByteBuf source, int length) {
+      return source.retainedSlice();
+    }
+  }
+}
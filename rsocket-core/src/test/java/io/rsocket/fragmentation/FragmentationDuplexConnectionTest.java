@@ -130,6 +130,46 @@ void reassembleData() {
         .verifyComplete();
   }
 
+  @DisplayName("does not cap reassembly on resumable connections")
+  @Test
+  void reassembleUncappedWhenResumable() {
+    ByteBuf setup =
+        SetupFrameFlyweight.encode(
+            allocator,
+            false,
+            1000,
+            30_000,
+            Unpooled.wrappedBuffer(new byte[] {1}),
+            "application/octet-stream",
+            "application/octet-stream",
+            Unpooled.EMPTY_BUFFER,
+            Unpooled.EMPTY_BUFFER);
+    List<ByteBuf> byteBufs =
+        Arrays.asList(
+            setup,
+            RequestResponseFrameFlyweight.encode(allocator, 1, true, DefaultPayload.create(data)),
+            PayloadFrameFlyweight.encode(
+                allocator, 1, true, false, true, DefaultPayload.create(data)),
+            PayloadFrameFlyweight.encode(
+                allocator, 1, false, false, true, DefaultPayload.create(data)));
+
+    when(delegate.receive()).thenReturn(Flux.fromIterable(byteBufs));
+    when(delegate.onClose()).thenReturn(Mono.never());
+
+    new FragmentationDuplexConnection(delegate, allocator, 1030, false, "", 1500)
+        .receive()
+        .as(StepVerifier::create)
+        .assertNext(
+            byteBuf ->
+                Assert.assertEquals(FrameType.SETUP, FrameHeaderFlyweight.frameType(byteBuf)))
+        .assertNext(
+            byteBuf ->
+                Assert.assertEquals(
+                    3 * data.length, RequestResponseFrameFlyweight.data(byteBuf).readableBytes()))
+        .verifyComplete();
+    verify(delegate, never()).sendOne(any());
+  }
+
   @DisplayName("reassembles metadata")
   @Test
   void reassembleMetadata() {
@@ -349,4 +349,22 @@ void fragmentDataAndMetadata() {
             })
         .verifyComplete();
   }
+
+  @DisplayName("releases fragments that were not emitted when cancelled")
+  @Test
+  void fragmentCancelReleases() {
+    ByteBuf payloadData = Unpooled.wrappedBuffer(data);
+    ByteBuf rr = RequestResponseFrameFlyweight.encode(allocator, 1, false, null, payloadData);
+
+    Publisher<ByteBuf> fragments =
+        FrameFragmenter.fragmentFrame(allocator, 1024, rr, FrameType.REQUEST_RESPONSE, false);
+
+    StepVerifier.create(fragments, 2)
+        .consumeNextWith(ByteBuf::release)
+        .consumeNextWith(ByteBuf::release)
+        .thenCancel()
+        .verify();
+
+    Assert.assertEquals(0, payloadData.refCnt());
+  }
 }
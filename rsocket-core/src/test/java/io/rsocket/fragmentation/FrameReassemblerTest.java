@@ -23,6 +23,7 @@
 import io.netty.util.ReferenceCountUtil;
 import io.rsocket.frame.*;
 import io.rsocket.util.DefaultPayload;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.ThreadLocalRandom;
@@ -417,17 +418,18 @@ public void cancelBeforeAssembling() {
     FrameReassembler reassembler = new FrameReassembler(allocator);
     Flux.fromIterable(byteBufs).handle(reassembler::reassembleFrame).blockLast();
 
-    Assert.assertTrue(reassembler.headers.containsKey(1));
-    Assert.assertTrue(reassembler.metadata.containsKey(1));
-    Assert.assertTrue(reassembler.data.containsKey(1));
+    FrameReassembler.StreamContext context = reassembler.contexts.get(1);
+    Assert.assertNotNull(context);
+    Assert.assertNotNull(context.header);
+    Assert.assertNotNull(context.metadata);
+    Assert.assertNotNull(context.data);
 
     Flux.just(CancelFrameFlyweight.encode(allocator, 1))
         .handle(reassembler::reassembleFrame)
         .blockLast();
 
-    Assert.assertFalse(reassembler.headers.containsKey(1));
-    Assert.assertFalse(reassembler.metadata.containsKey(1));
-    Assert.assertFalse(reassembler.data.containsKey(1));
+    Assert.assertFalse(reassembler.contexts.containsKey(1));
+    Assert.assertNull(context.header);
   }
 
   @DisplayName("dispose should clean up maps")
@@ -466,14 +468,73 @@ public void dispose() {
     FrameReassembler reassembler = new FrameReassembler(allocator);
     Flux.fromIterable(byteBufs).handle(reassembler::reassembleFrame).blockLast();
 
-    Assert.assertTrue(reassembler.headers.containsKey(1));
-    Assert.assertTrue(reassembler.metadata.containsKey(1));
-    Assert.assertTrue(reassembler.data.containsKey(1));
+    FrameReassembler.StreamContext context = reassembler.contexts.get(1);
+    Assert.assertNotNull(context);
+    Assert.assertNotNull(context.header);
+    Assert.assertNotNull(context.metadata);
+    Assert.assertNotNull(context.data);
 
     reassembler.dispose();
 
-    Assert.assertFalse(reassembler.headers.containsKey(1));
-    Assert.assertFalse(reassembler.metadata.containsKey(1));
-    Assert.assertFalse(reassembler.data.containsKey(1));
+    Assert.assertFalse(reassembler.contexts.containsKey(1));
+    Assert.assertNull(context.header);
+  }
+
+  @DisplayName("rejects requests exceeding the reassembly cap")
+  @Test
+  void rejectRequestExceedingCap() {
+    List<ByteBuf> byteBufs =
+        Arrays.asList(
+            RequestResponseFrameFlyweight.encode(allocator, 1, true, DefaultPayload.create(data)),
+            PayloadFrameFlyweight.encode(
+                allocator, 1, true, false, true, DefaultPayload.create(data)),
+            PayloadFrameFlyweight.encode(
+                allocator, 1, false, false, true, DefaultPayload.create(data)));
+
+    List<ByteBuf> outbound = new ArrayList<>();
+    FrameReassembler reassembler = new FrameReassembler(allocator, 1500, outbound::add);
+
+    Flux<ByteBuf> assembled = Flux.fromIterable(byteBufs).handle(reassembler::reassembleFrame);
+
+    StepVerifier.create(assembled).verifyComplete();
+    Assert.assertEquals(1, outbound.size());
+    Assert.assertEquals(FrameType.ERROR, FrameHeaderFlyweight.frameType(outbound.get(0)));
+    Assert.assertEquals(ErrorType.REJECTED, ErrorFrameFlyweight.errorCode(outbound.get(0)));
+    outbound.forEach(ReferenceCountUtil::safeRelease);
+  }
+
+  @DisplayName("cancels payloads exceeding the reassembly cap")
+  @Test
+  void cancelPayloadExceedingCap() {
+    List<ByteBuf> byteBufs =
+        Arrays.asList(
+            PayloadFrameFlyweight.encode(
+                allocator, 2, true, false, true, DefaultPayload.create(data)),
+            PayloadFrameFlyweight.encode(
+                allocator, 2, false, false, true, DefaultPayload.create(data)),
+            RequestResponseFrameFlyweight.encode(
+                allocator, 3, false, DefaultPayload.create(data)));
+
+    List<ByteBuf> outbound = new ArrayList<>();
+    FrameReassembler reassembler = new FrameReassembler(allocator, 512, outbound::add);
+
+    Flux<ByteBuf> assembled = Flux.fromIterable(byteBufs).handle(reassembler::reassembleFrame);
+
+    StepVerifier.create(assembled)
+        .assertNext(
+            byteBuf -> {
+              Assert.assertEquals(FrameType.ERROR, FrameHeaderFlyweight.frameType(byteBuf));
+              Assert.assertEquals(2, FrameHeaderFlyweight.streamId(byteBuf));
+              ReferenceCountUtil.safeRelease(byteBuf);
+            })
+        .assertNext(
+            byteBuf -> {
+              Assert.assertEquals(3, FrameHeaderFlyweight.streamId(byteBuf));
+              ReferenceCountUtil.safeRelease(byteBuf);
+            })
+        .verifyComplete();
+    Assert.assertEquals(1, outbound.size());
+    Assert.assertEquals(FrameType.CANCEL, FrameHeaderFlyweight.frameType(outbound.get(0)));
+    outbound.forEach(ReferenceCountUtil::safeRelease);
   }
 }
@@ -1,9 +1,52 @@
 package io.rsocket.frame;
 
+import static org.assertj.core.api.Assertions.assertThat;
+
 import io.netty.buffer.*;
+import java.nio.charset.StandardCharsets;
 import org.junit.jupiter.api.Test;
 
 class DataAndMetadataFlyweightTest {
+  private static final RequestFlyweight REQUEST_RESPONSE =
+      new RequestFlyweight(FrameType.REQUEST_RESPONSE);
+
+  @Test
+  void testCopyBelowThreshold() {
+    ByteBuf metadata = ByteBufUtil.writeUtf8(ByteBufAllocator.DEFAULT, "_I'm metadata_");
+    ByteBuf data = ByteBufUtil.writeUtf8(ByteBufAllocator.DEFAULT, "_I'm data_");
+    ByteBuf frame =
+        REQUEST_RESPONSE.encode(
+            ByteBufAllocator.DEFAULT, 1, false, false, false, 0, metadata, data, 64);
+
+    assertThat(frame.nioBufferCount()).isEqualTo(1);
+    assertThat(frame.capacity()).isEqualTo(frame.readableBytes());
+    assertThat(metadata.refCnt()).isZero();
+    assertThat(data.refCnt()).isZero();
+    assertThat(RequestResponseFrameFlyweight.metadata(frame).toString(StandardCharsets.UTF_8))
+        .isEqualTo("_I'm metadata_");
+    assertThat(RequestResponseFrameFlyweight.data(frame).toString(StandardCharsets.UTF_8))
+        .isEqualTo("_I'm data_");
+    frame.release();
+  }
+
+  @Test
+  void testComposeAboveThreshold() {
+    ByteBuf metadata = ByteBufUtil.writeUtf8(ByteBufAllocator.DEFAULT, "_I'm metadata_");
+    ByteBuf data = ByteBufUtil.writeUtf8(ByteBufAllocator.DEFAULT, "_I'm data_");
+    ByteBuf frame =
+        REQUEST_RESPONSE.encode(
+            ByteBufAllocator.DEFAULT, 1, false, false, false, 0, metadata, data, 16);
+
+    assertThat(frame.nioBufferCount()).isEqualTo(3);
+    assertThat(RequestResponseFrameFlyweight.metadata(frame).toString(StandardCharsets.UTF_8))
+        .isEqualTo("_I'm metadata_");
+    assertThat(RequestResponseFrameFlyweight.data(frame).toString(StandardCharsets.UTF_8))
+        .isEqualTo("_I'm data_");
+    frame.release();
+    assertThat(metadata.refCnt()).isZero();
+    assertThat(data.refCnt()).isZero();
+  }
+
   @Test
   void testEncodeData() {
     ByteBuf header = FrameHeaderFlyweight.encode(ByteBufAllocator.DEFAULT, 1, FrameType.PAYLOAD, 0);
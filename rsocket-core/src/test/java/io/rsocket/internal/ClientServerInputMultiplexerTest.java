@@ -24,9 +24,16 @@
 import io.rsocket.frame.*;
 import io.rsocket.plugins.PluginRegistry;
 import io.rsocket.test.util.TestDuplexConnection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import org.junit.Before;
 import org.junit.Test;
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.BaseSubscriber;
 
 public class ClientServerInputMultiplexerTest {
   private TestDuplexConnection source;
@@ -187,6 +194,56 @@ public void serverSplits() {
     assertEquals(3, setupFrames.get());
   }
 
+  @Test
+  public void framesReceivedBeforeSubscriptionAreDeliveredInOrder() {
+    List<Integer> clientStreams = new ArrayList<>();
+
+    source.addToReceivedBuffer(errorFrame(1));
+    source.addToReceivedBuffer(errorFrame(3));
+
+    serverMultiplexer
+        .asClientConnection()
+        .receive()
+        .subscribe(f -> clientStreams.add(FrameHeaderFlyweight.streamId(f)));
+    assertEquals(Arrays.asList(1, 3), clientStreams);
+
+    source.addToReceivedBuffer(errorFrame(5));
+    assertEquals(Arrays.asList(1, 3, 5), clientStreams);
+  }
+
+  @Test
+  public void framesAreDeliveredAccordingToDemand() {
+    List<Integer> clientStreams = new ArrayList<>();
+    AtomicReference<Subscription> subscription = new AtomicReference<>();
+
+    clientMultiplexer
+        .asClientConnection()
+        .receive()
+        .subscribe(
+            new BaseSubscriber<ByteBuf>() {
+              @Override
+              protected void hookOnSubscribe(Subscription s) {
+                subscription.set(s);
+              }
+
+              @Override
+              protected void hookOnNext(ByteBuf f) {
+                clientStreams.add(FrameHeaderFlyweight.streamId(f));
+              }
+            });
+
+    source.addToReceivedBuffer(errorFrame(1));
+    source.addToReceivedBuffer(errorFrame(3));
+    assertEquals(Collections.emptyList(), clientStreams);
+
+    subscription.get().request(1);
+    assertEquals(Collections.singletonList(1), clientStreams);
+
+    subscription.get().request(2);
+    source.addToReceivedBuffer(errorFrame(5));
+    assertEquals(Arrays.asList(1, 3, 5), clientStreams);
+  }
+
   private ByteBuf resumeFrame() {
     return ResumeFrameFlyweight.encode(allocator, Unpooled.EMPTY_BUFFER, 0, 0);
   }
@@ -0,0 +1,91 @@
+package io.rsocket.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+import reactor.test.util.RaceTestUtils;
+
+class ConcurrentIntObjectHashMapTest {
+
+  @Test
+  public void putGetRemove() {
+    ConcurrentIntObjectHashMap<String> map = new ConcurrentIntObjectHashMap<>(2, 2);
+
+    for (int i = 1; i < 10_000; i += 2) {
+      Assertions.assertThat(map.put(i, "v" + i)).isNull();
+    }
+    Assertions.assertThat(map.size()).isEqualTo(5_000);
+
+    for (int i = 1; i < 10_000; i += 2) {
+      Assertions.assertThat(map.get(i)).isEqualTo("v" + i);
+      Assertions.assertThat(map.containsKey(i + 1)).isFalse();
+    }
+
+    Assertions.assertThat(map.put(1, "replaced")).isEqualTo("v1");
+    Assertions.assertThat(map.get(1)).isEqualTo("replaced");
+    Assertions.assertThat(map.size()).isEqualTo(5_000);
+
+    for (int i = 1; i < 10_000; i += 4) {
+      Assertions.assertThat(map.remove(i)).isNotNull();
+    }
+    Assertions.assertThat(map.remove(1)).isNull();
+    Assertions.assertThat(map.size()).isEqualTo(2_500);
+
+    map.clear();
+    Assertions.assertThat(map.isEmpty()).isTrue();
+    Assertions.assertThat(map.get(3)).isNull();
+  }
+
+  @Test
+  public void shouldRejectNullValues() {
+    ConcurrentIntObjectHashMap<String> map = new ConcurrentIntObjectHashMap<>();
+
+    Assertions.assertThatThrownBy(() -> map.put(1, null))
+        .isInstanceOf(NullPointerException.class);
+  }
+
+  @Test
+  public void forEachShouldVisitEveryValueWhileRemovingFromCallback() {
+    ConcurrentIntObjectHashMap<Integer> map = new ConcurrentIntObjectHashMap<>(4, 1);
+    for (int i = 0; i < 1_000; i++) {
+      map.put(i, i);
+    }
+
+    List<Integer> visited = new ArrayList<>();
+    map.forEach(
+        value -> {
+          visited.add(value);
+          map.remove(value);
+        });
+
+    Assertions.assertThat(visited).hasSize(1_000).doesNotHaveDuplicates();
+    Assertions.assertThat(map.isEmpty()).isTrue();
+  }
+
+  @RepeatedTest(2)
+  public void racingPutsAndRemovesOnDistinctKeys() {
+    ConcurrentIntObjectHashMap<Integer> map = new ConcurrentIntObjectHashMap<>(2, 4);
+    int[] odd = {1};
+    int[] even = {2};
+
+    for (int i = 0; i < 10_000; i++) {
+      RaceTestUtils.race(
+          () -> {
+            int key = odd[0] += 2;
+            map.put(key, key);
+            Assertions.assertThat(map.get(key)).isEqualTo(key);
+            map.remove(key - 20);
+          },
+          () -> {
+            int key = even[0] += 2;
+            map.put(key, key);
+            Assertions.assertThat(map.get(key)).isEqualTo(key);
+            map.remove(key - 20);
+          });
+    }
+
+    Assertions.assertThat(map.size()).isEqualTo(20);
+  }
+}
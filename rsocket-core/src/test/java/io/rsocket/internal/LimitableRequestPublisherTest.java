@@ -2,9 +2,14 @@
 
 import java.util.ArrayDeque;
 import java.util.Queue;
+import java.util.concurrent.atomic.AtomicReference;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.RepeatedTest;
 import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.BaseSubscriber;
 import reactor.core.publisher.DirectProcessor;
 import reactor.test.util.RaceTestUtils;
 
@@ -30,4 +35,52 @@ public void requestLimitRacingTest() throws InterruptedException {
 
     Assertions.assertThat(requests.stream().mapToLong(l -> l).sum()).isEqualTo(10000);
   }
+
+  @Test
+  public void requestsMinimumOfBothDemands() {
+    Queue<Long> requests = new ArrayDeque<>();
+    LimitableRequestPublisher<Object> limitableRequestPublisher =
+        LimitableRequestPublisher.wrap(DirectProcessor.create().doOnRequest(requests::add), 0);
+
+    limitableRequestPublisher.subscribe(new NoRequestSubscriber());
+    limitableRequestPublisher.request(5);
+    limitableRequestPublisher.increaseInternalLimit(3);
+    limitableRequestPublisher.increaseInternalLimit(4);
+
+    Assertions.assertThat(requests).containsExactly(3L, 2L);
+  }
+
+  @Test
+  public void unboundedInternalLimitForwardsExternalDemand() {
+    Queue<Long> requests = new ArrayDeque<>();
+    LimitableRequestPublisher<Object> limitableRequestPublisher =
+        LimitableRequestPublisher.wrap(DirectProcessor.create().doOnRequest(requests::add));
+
+    limitableRequestPublisher.subscribe(new NoRequestSubscriber());
+    limitableRequestPublisher.request(2);
+    limitableRequestPublisher.request(7);
+
+    Assertions.assertThat(requests).containsExactly(2L, 7L);
+  }
+
+  @Test
+  public void cancelBeforeSourceSubscriptionCancelsSource() {
+    AtomicReference<Subscriber<? super Object>> source = new AtomicReference<>();
+    Subscription subscription = Mockito.mock(Subscription.class);
+    LimitableRequestPublisher<Object> limitableRequestPublisher =
+        LimitableRequestPublisher.wrap(source::set, 1);
+
+    limitableRequestPublisher.subscribe(new NoRequestSubscriber());
+    limitableRequestPublisher.request(1);
+    limitableRequestPublisher.cancel();
+    source.get().onSubscribe(subscription);
+
+    Mockito.verify(subscription).cancel();
+    Mockito.verifyNoMoreInteractions(subscription);
+  }
+
+  static final class NoRequestSubscriber extends BaseSubscriber<Object> {
+    @Override
+    protected void hookOnSubscribe(Subscription subscription) {}
+  }
 }
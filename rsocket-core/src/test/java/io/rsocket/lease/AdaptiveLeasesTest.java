@@ -0,0 +1,191 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rsocket.lease;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.rsocket.AbstractRSocket;
+import io.rsocket.Payload;
+import io.rsocket.RSocket;
+import io.rsocket.util.DefaultPayload;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+import reactor.test.scheduler.VirtualTimeScheduler;
+
+final class AdaptiveLeasesTest {
+  private VirtualTimeScheduler scheduler;
+
+  @BeforeEach
+  void setUp() {
+    scheduler = VirtualTimeScheduler.getOrSet();
+  }
+
+  @AfterEach
+  void tearDown() {
+    VirtualTimeScheduler.reset();
+  }
+
+  @DisplayName("redistributes capacity to the connections that use their leases")
+  @Test
+  void redistributesCapacity() {
+    AdaptiveLeases adaptiveLeases =
+        AdaptiveLeases.builder().capacity(10).targetUtilization(1.0).build();
+    Leases<?> first = adaptiveLeases.leases();
+    Leases<?> second = adaptiveLeases.leases();
+    List<Lease> firstLeases = new ArrayList<>();
+    List<Lease> secondLeases = new ArrayList<>();
+
+    Disposable firstSender = first.sender().apply(first.stats()).subscribe(firstLeases::add);
+    assertThat(firstLeases).extracting(Lease::getAllowedRequests).containsExactly(10);
+
+    Disposable secondSender = second.sender().apply(second.stats()).subscribe(secondLeases::add);
+    assertThat(secondLeases).extracting(Lease::getAllowedRequests).containsExactly(5);
+
+    LeaseStats firstStats = first.stats().get();
+    for (int i = 0; i < 8; i++) {
+      firstStats.onEvent(LeaseStats.EventType.ACCEPT);
+    }
+    scheduler.advanceTimeBy(Duration.ofSeconds(1));
+    assertThat(firstLeases).extracting(Lease::getAllowedRequests).containsExactly(10, 9);
+    assertThat(secondLeases).extracting(Lease::getAllowedRequests).containsExactly(5, 1);
+
+    secondSender.dispose();
+    scheduler.advanceTimeBy(Duration.ofSeconds(1));
+    assertThat(firstLeases).extracting(Lease::getAllowedRequests).containsExactly(10, 9, 10);
+    firstSender.dispose();
+  }
+
+  @DisplayName("sizes leases from the median latency and the target utilization")
+  @Test
+  void sizesLeasesFromLatency() throws InterruptedException {
+    MonoProcessor<Payload> response = MonoProcessor.create();
+    AdaptiveLeases adaptiveLeases =
+        AdaptiveLeases.builder().capacity(10).targetUtilization(0.5).build();
+    RSocket rSocket =
+        adaptiveLeases
+            .responderInterceptor()
+            .apply(
+                new AbstractRSocket() {
+                  @Override
+                  public Mono<Payload> requestResponse(Payload payload) {
+                    return response;
+                  }
+                });
+    for (int i = 0; i < 5; i++) {
+      rSocket.requestResponse(DefaultPayload.create("request")).subscribe();
+    }
+    Thread.sleep(100);
+    response.onNext(DefaultPayload.create("response"));
+    Leases<ResponderLoadStats> leases = adaptiveLeases.leases();
+    List<Lease> sent = new ArrayList<>();
+
+    leases.sender().apply(leases.stats()).subscribe(sent::add).dispose();
+
+    // 5 requests in flight at the target, each taking at least 100 ms, complete at most 50 a second
+    assertThat(sent).hasSize(1);
+    assertThat(sent.get(0).getAllowedRequests()).isBetween(1, 50);
+    assertThat(sent.get(0).getTimeToLiveMillis()).isGreaterThanOrEqualTo(1100);
+  }
+
+  @DisplayName("tracks the requests in flight over all connections")
+  @Test
+  void tracksInFlight() {
+    MonoProcessor<Payload> response = MonoProcessor.create();
+    AdaptiveLeases adaptiveLeases = AdaptiveLeases.builder().capacity(4).build();
+    RSocket rSocket =
+        adaptiveLeases
+            .responderInterceptor()
+            .apply(
+                new AbstractRSocket() {
+                  @Override
+                  public Mono<Payload> requestResponse(Payload payload) {
+                    return response;
+                  }
+
+                  @Override
+                  public Flux<Payload> requestStream(Payload payload) {
+                    return Flux.never();
+                  }
+                });
+    ResponderLoadStats stats = new ResponderLoadStats(adaptiveLeases);
+
+    rSocket.requestResponse(DefaultPayload.create("request")).subscribe();
+    Disposable stream = rSocket.requestStream(DefaultPayload.create("stream")).subscribe();
+    assertThat(stats.inFlight()).isEqualTo(2);
+    assertThat(stats.utilization()).isEqualTo(0.5);
+
+    response.onNext(DefaultPayload.create("response"));
+    stream.dispose();
+    assertThat(stats.inFlight()).isZero();
+    assertThat(adaptiveLeases.latencySnapshot()).as("streams are not sampled").hasSize(1);
+  }
+
+  @DisplayName("releases a request once when it is cancelled as it completes")
+  @Test
+  void releasesOnceOnCancelAtCompletion() {
+    AdaptiveLeases adaptiveLeases = AdaptiveLeases.builder().build();
+    RSocket rSocket =
+        adaptiveLeases
+            .responderInterceptor()
+            .apply(
+                new AbstractRSocket() {
+                  @Override
+                  public Mono<Payload> requestResponse(Payload payload) {
+                    return Mono.just(DefaultPayload.create("response"));
+                  }
+                });
+
+    rSocket
+        .requestResponse(DefaultPayload.create("request"))
+        .subscribe(
+            new BaseSubscriber<Payload>() {
+              @Override
+              protected void hookOnNext(Payload response) {
+                cancel();
+              }
+            });
+
+    assertThat(adaptiveLeases.inFlight()).isZero();
+  }
+
+  @DisplayName("estimates the queueing delay from the median and lowest latency")
+  @Test
+  void estimatesQueueingDelay() {
+    LatencyWindow window = new LatencyWindow(4);
+    assertThat(AdaptiveLeases.queueingDelayNanos(window.snapshot())).isZero();
+
+    for (long latency : new long[] {50, 10, 20, 30, 40}) {
+      window.record(latency);
+    }
+
+    long[] snapshot = window.snapshot();
+    assertThat(snapshot).as("the oldest sample is dropped").containsExactly(10, 20, 30, 40);
+    assertThat(LatencyWindow.percentile(snapshot, 0.5)).isEqualTo(20);
+    assertThat(LatencyWindow.percentile(snapshot, 0.99)).isEqualTo(40);
+    assertThat(AdaptiveLeases.queueingDelayNanos(snapshot)).isEqualTo(10);
+  }
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rsocket.limit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.rsocket.AbstractRSocket;
+import io.rsocket.Payload;
+import io.rsocket.RSocket;
+import io.rsocket.exceptions.RejectedException;
+import io.rsocket.util.DefaultPayload;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+import reactor.test.StepVerifier;
+
+final class ConcurrencyLimiterTest {
+
+  @DisplayName("rejects requests above the limit until one completes")
+  @Test
+  void rejectsAboveLimit() {
+    MonoProcessor<Payload> response = MonoProcessor.create();
+    ConcurrencyLimiter limiter = ConcurrencyLimiter.create(new FixedLimit(2));
+    RSocket rSocket =
+        limiter.apply(
+            new AbstractRSocket() {
+              @Override
+              public Mono<Payload> requestResponse(Payload payload) {
+                return response;
+              }
+
+              @Override
+              public Flux<Payload> requestStream(Payload payload) {
+                return Flux.never();
+              }
+            });
+
+    Mono<Payload> first = rSocket.requestResponse(DefaultPayload.create("first"));
+    assertThat(limiter.inFlight()).as("requests are admitted when subscribed").isZero();
+    first.subscribe();
+    rSocket.requestStream(DefaultPayload.create("second")).subscribe().dispose();
+    rSocket.requestStream(DefaultPayload.create("third")).subscribe();
+    assertThat(limiter.inFlight()).isEqualTo(2);
+
+    StepVerifier.create(rSocket.requestResponse(DefaultPayload.create("fourth")))
+        .expectErrorSatisfies(
+            e ->
+                assertThat(e)
+                    .isInstanceOf(RejectedException.class)
+                    .hasMessage("concurrency limit of 2 reached"))
+        .verify(Duration.ofSeconds(5));
+
+    response.onNext(DefaultPayload.create("response"));
+    assertThat(limiter.inFlight()).isEqualTo(1);
+    assertThat(limiter.limit()).isEqualTo(2);
+  }
+
+  @DisplayName("vegas grows while latency is flat and shrinks when requests queue")
+  @Test
+  void vegasFollowsQueueing() {
+    VegasLimit limit = new VegasLimit(20, 1000);
+    long rtt = TimeUnit.MILLISECONDS.toNanos(10);
+    limit.onSample(rtt, 20, false);
+    for (int i = 0; i < 100; i++) {
+      limit.onSample(rtt, limit.limit(), false);
+    }
+    int grown = limit.limit();
+    assertThat(grown).isGreaterThan(20);
+
+    for (int i = 0; i < 100; i++) {
+      limit.onSample(rtt * 4, limit.limit(), false);
+    }
+    assertThat(limit.limit()).isLessThan(grown);
+  }
+
+  @DisplayName("samples request-response but not fire-and-forget requests")
+  @Test
+  void doesNotSampleFireAndForget() {
+    MonoProcessor<Payload> response = MonoProcessor.create();
+    FixedLimit limit = new FixedLimit(10);
+    ConcurrencyLimiter limiter = ConcurrencyLimiter.create(limit);
+    RSocket rSocket =
+        limiter.apply(
+            new AbstractRSocket() {
+              @Override
+              public Mono<Void> fireAndForget(Payload payload) {
+                return Mono.empty();
+              }
+
+              @Override
+              public Mono<Payload> requestResponse(Payload payload) {
+                return response;
+              }
+            });
+
+    rSocket.requestResponse(DefaultPayload.create("request")).subscribe();
+    for (int i = 0; i < 5; i++) {
+      rSocket.fireAndForget(DefaultPayload.create("fire")).block(Duration.ofSeconds(5));
+    }
+    assertThat(limiter.inFlight()).isEqualTo(1);
+    assertThat(limit.samples).as("fire-and-forget requests are not sampled").isZero();
+
+    response.onNext(DefaultPayload.create("response"));
+    assertThat(limiter.inFlight()).isZero();
+    assertThat(limit.samples).isEqualTo(1);
+  }
+
+  @DisplayName("vegas lowers the limit on drops without taking their latency as the baseline")
+  @Test
+  void vegasIgnoresLatencyOfDrops() {
+    VegasLimit limit = new VegasLimit(20, 1000);
+    long rtt = TimeUnit.MILLISECONDS.toNanos(10);
+    limit.onSample(rtt, 20, false);
+
+    limit.onSample(TimeUnit.MICROSECONDS.toNanos(50), 20, true);
+    int dropped = limit.limit();
+    assertThat(dropped).isLessThan(20);
+
+    limit.onSample(rtt, dropped, false);
+    assertThat(limit.limit()).as("requests still do not queue").isGreaterThan(dropped);
+  }
+
+  @DisplayName("vegas does not grow when few requests are in flight")
+  @Test
+  void vegasIgnoresIdleSamples() {
+    VegasLimit limit = new VegasLimit(20, 1000);
+    for (int i = 0; i < 100; i++) {
+      limit.onSample(TimeUnit.MILLISECONDS.toNanos(10), 1, false);
+    }
+    assertThat(limit.limit()).isEqualTo(20);
+  }
+
+  @DisplayName("gradient grows while latency is flat and shrinks when it rises")
+  @Test
+  void gradientFollowsLatency() {
+    GradientLimit limit = new GradientLimit(20, 1000);
+    long rtt = TimeUnit.MILLISECONDS.toNanos(10);
+    for (int i = 0; i < 100; i++) {
+      limit.onSample(rtt, limit.limit(), false);
+    }
+    int grown = limit.limit();
+    assertThat(grown).isGreaterThan(20);
+
+    for (int i = 0; i < 20; i++) {
+      limit.onSample(rtt * 10, limit.limit(), false);
+    }
+    assertThat(limit.limit()).isLessThan(grown);
+  }
+
+  @DisplayName("leases share the requests the limit allows between connections")
+  @Test
+  void leaseSenderSharesLimit() {
+    ConcurrencyLimiter limiter = ConcurrencyLimiter.create(new FixedLimit(30));
+
+    StepVerifier.withVirtualTime(
+            () -> limiter.leaseSender(Duration.ofSeconds(1)).apply(Optional.empty()))
+        .assertNext(
+            lease -> {
+              assertThat(lease.getTimeToLiveMillis()).isEqualTo(1000);
+              assertThat(lease.getAllowedRequests()).isEqualTo(30);
+            })
+        .then(
+            () ->
+                limiter
+                    .leaseSender(Duration.ofSeconds(1))
+                    .apply(Optional.empty())
+                    .subscribe())
+        .thenAwait(Duration.ofMillis(500))
+        .assertNext(lease -> assertThat(lease.getAllowedRequests()).isEqualTo(15))
+        .thenCancel()
+        .verify(Duration.ofSeconds(5));
+  }
+
+  private static final class FixedLimit implements AdaptiveLimit {
+    private final int limit;
+    private int samples;
+
+    FixedLimit(int limit) {
+      this.limit = limit;
+    }
+
+    @Override
+    public int limit() {
+      return limit;
+    }
+
+    @Override
+    public void onSample(long rttNanos, int inFlight, boolean dropped) {
+      samples++;
+    }
+  }
+}
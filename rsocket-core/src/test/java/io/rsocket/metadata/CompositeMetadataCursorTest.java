@@ -0,0 +1,138 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rsocket.metadata;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.util.CharsetUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+final class CompositeMetadataCursorTest {
+
+  private final CompositeMetadataCursor cursor = new CompositeMetadataCursor();
+  private CompositeByteBuf metadata;
+
+  @BeforeEach
+  void setUp() {
+    metadata = ByteBufAllocator.DEFAULT.compositeBuffer();
+    add(WellKnownMimeType.MESSAGE_RSOCKET_ROUTING.getString(), "orders.create");
+    add("application/x.tracing", "trace-id");
+    CompositeMetadataFlyweight.encodeAndAddMetadata(
+        metadata,
+        ByteBufAllocator.DEFAULT,
+        (byte) 0x42,
+        ByteBufUtil.writeAscii(ByteBufAllocator.DEFAULT, "r"));
+    // a well known mime type that was not compressed by the encoder
+    CompositeMetadataFlyweight.encodeAndAddMetadata(
+        metadata,
+        ByteBufAllocator.DEFAULT,
+        WellKnownMimeType.TEXT_PLAIN.getString(),
+        ByteBufUtil.writeAscii(ByteBufAllocator.DEFAULT, "hello"));
+  }
+
+  @AfterEach
+  void tearDown() {
+    metadata.release();
+  }
+
+  @DisplayName("walks the entries the same way as CompositeMetadata")
+  @Test
+  void walksEntries() {
+    cursor.reset(metadata);
+
+    assertThat(cursor.next()).isTrue();
+    assertThat(cursor.isWellKnownMimeType()).isTrue();
+    assertThat(cursor.mimeId())
+        .isEqualTo(WellKnownMimeType.MESSAGE_RSOCKET_ROUTING.getIdentifier());
+    assertThat(cursor.mimeType()).isEqualTo("message/x.rsocket.routing.v0");
+    assertThat(content()).isEqualTo("orders.create");
+
+    assertThat(cursor.next()).isTrue();
+    assertThat(cursor.isWellKnownMimeType()).isFalse();
+    assertThat(cursor.mimeId()).isEqualTo((byte) -1);
+    assertThat(cursor.mimeType().toString()).isEqualTo("application/x.tracing");
+    assertThat(content()).isEqualTo("trace-id");
+
+    assertThat(cursor.next()).isTrue();
+    assertThat(cursor.mimeId()).isEqualTo((byte) 0x42);
+    assertThat(cursor.mimeType()).isNull();
+    assertThat(cursor.content().toString(CharsetUtil.US_ASCII)).isEqualTo("r");
+
+    assertThat(cursor.next()).isTrue();
+    assertThat(cursor.mimeType().toString()).isEqualTo("text/plain");
+
+    assertThat(cursor.next()).isFalse();
+    assertThat(metadata.readerIndex()).isZero();
+  }
+
+  @DisplayName("seeks the first entry of a mime type")
+  @Test
+  void seeksEntries() {
+    assertThat(cursor.reset(metadata).seek("application/x.tracing")).isTrue();
+    assertThat(content()).isEqualTo("trace-id");
+
+    assertThat(cursor.reset(metadata).seek(WellKnownMimeType.MESSAGE_RSOCKET_ROUTING)).isTrue();
+    assertThat(content()).isEqualTo("orders.create");
+
+    // matches an explicit mime type string as well as its id
+    assertThat(cursor.reset(metadata).seek(WellKnownMimeType.TEXT_PLAIN)).isTrue();
+    assertThat(content()).isEqualTo("hello");
+
+    assertThat(cursor.reset(metadata).seek("application/x.unknown")).isFalse();
+    assertThat(cursor.next()).isFalse();
+  }
+
+  @DisplayName("rejects truncated entries")
+  @Test
+  void rejectsMalformedMetadata() {
+    ByteBuf truncated = metadata.copy(0, metadata.readableBytes() - 1);
+    cursor.reset(truncated);
+
+    assertThat(cursor.next()).isTrue();
+    assertThat(cursor.next()).isTrue();
+    assertThat(cursor.next()).isTrue();
+    assertThatIllegalStateException().isThrownBy(cursor::next).withMessage("metadata is malformed");
+    truncated.release();
+  }
+
+  @DisplayName("does not move past the end of empty metadata")
+  @Test
+  void emptyMetadata() {
+    assertThat(cursor.reset(Unpooled.EMPTY_BUFFER).next()).isFalse();
+  }
+
+  private void add(String mimeType, String content) {
+    CompositeMetadataFlyweight.encodeAndAddMetadataWithCompression(
+        metadata,
+        ByteBufAllocator.DEFAULT,
+        mimeType,
+        ByteBufUtil.writeAscii(ByteBufAllocator.DEFAULT, content));
+  }
+
+  private String content() {
+    return metadata.toString(cursor.contentIndex(), cursor.contentLength(), CharsetUtil.US_ASCII);
+  }
+}
@@ -0,0 +1,319 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rsocket.metadata;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.util.CharsetUtil;
+import io.rsocket.AbstractRSocket;
+import io.rsocket.Closeable;
+import io.rsocket.DuplexConnection;
+import io.rsocket.Payload;
+import io.rsocket.RSocket;
+import io.rsocket.RSocketFactory;
+import io.rsocket.frame.FrameHeaderFlyweight;
+import io.rsocket.frame.FrameType;
+import io.rsocket.plugins.DuplexConnectionInterceptor;
+import io.rsocket.transport.local.LocalClientTransport;
+import io.rsocket.transport.local.LocalServerTransport;
+import io.rsocket.util.ByteBufPayload;
+import io.rsocket.util.DefaultPayload;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+final class CompositeMetadataDictionaryTest {
+
+  private static final String TRACING_MIME_TYPE = "application/x.tracing";
+
+  private Closeable server;
+  private RSocket client;
+
+  @AfterEach
+  void tearDown() {
+    if (client != null) {
+      client.dispose();
+    }
+    if (server != null) {
+      server.dispose();
+    }
+  }
+
+  @DisplayName("proposes the capacity in the metadata mime type")
+  @Test
+  void metadataMimeType() {
+    String mimeType = CompositeMetadataDictionary.metadataMimeType(64);
+
+    assertThat(mimeType).startsWith("message/x.rsocket.composite-metadata.v0;");
+    assertThat(CompositeMetadataDictionary.capacity(mimeType)).isEqualTo(64);
+    assertThat(CompositeMetadataDictionary.capacity("message/x.rsocket.composite-metadata.v0"))
+        .isZero();
+    assertThatIllegalArgumentException()
+        .isThrownBy(() -> CompositeMetadataDictionary.metadataMimeType(129));
+    assertThatIllegalArgumentException()
+        .isThrownBy(() -> CompositeMetadataDictionary.capacity("text/plain; dictionary=many"));
+  }
+
+  @DisplayName("sends repeated entries as one byte references")
+  @Test
+  void referencesRepeatedEntries() {
+    MetadataDictionaryEncoder encoder = new MetadataDictionaryEncoder(16);
+    MetadataDictionaryDecoder decoder = new MetadataDictionaryDecoder(16);
+    ByteBuf metadata = metadata("orders.create", "trace-id-0123456789abcdef");
+
+    ByteBuf first = encoder.encode(ByteBufAllocator.DEFAULT, metadata);
+    ByteBuf second = encoder.encode(ByteBufAllocator.DEFAULT, metadata);
+
+    assertThat(first.readableBytes()).isEqualTo(metadata.readableBytes() + 2);
+    assertThat(second.readableBytes()).isEqualTo(2);
+    assertDecodesTo(decoder, first, metadata);
+    assertDecodesTo(decoder, second, metadata);
+    metadata.release();
+  }
+
+  @DisplayName("keeps both dictionaries in sync when evicting entries")
+  @Test
+  void evictsInRoundRobinOrder() {
+    MetadataDictionaryEncoder encoder = new MetadataDictionaryEncoder(2);
+    MetadataDictionaryDecoder decoder = new MetadataDictionaryDecoder(2);
+    String[] routes = {"a", "b", "c", "a", "c", "b", "b"};
+    int[] encodedSizes = new int[routes.length];
+
+    for (int i = 0; i < routes.length; i++) {
+      ByteBuf metadata = metadata(routes[i]);
+      ByteBuf encoded = encoder.encode(ByteBufAllocator.DEFAULT, metadata);
+      encodedSizes[i] = encoded.readableBytes();
+      assertDecodesTo(decoder, encoded, metadata);
+      metadata.release();
+    }
+
+    // "a" is evicted by "c", "b" by the second "a"
+    assertThat(encodedSizes).containsExactly(6, 6, 6, 6, 1, 6, 1);
+  }
+
+  @DisplayName("sends large entries without adding them to the dictionary")
+  @Test
+  void doesNotIndexLargeEntries() {
+    MetadataDictionaryEncoder encoder = new MetadataDictionaryEncoder(16);
+    ByteBuf metadata = metadata(new String(new char[2048]).replace('\0', 'r'));
+
+    ByteBuf first = encoder.encode(ByteBufAllocator.DEFAULT, metadata);
+    ByteBuf second = encoder.encode(ByteBufAllocator.DEFAULT, metadata);
+
+    assertThat(first.getByte(0)).isEqualTo((byte) MetadataDictionaryEncoder.LITERAL);
+    assertThat(second.readableBytes()).isEqualTo(first.readableBytes());
+    first.release();
+    second.release();
+    metadata.release();
+  }
+
+  @DisplayName("rejects references to slots that were never filled")
+  @Test
+  void rejectsUnknownSlots() {
+    MetadataDictionaryDecoder decoder = new MetadataDictionaryDecoder(16);
+    ByteBuf encoded = Unpooled.wrappedBuffer(new byte[] {(byte) 0x83});
+
+    assertThatIllegalStateException()
+        .isThrownBy(() -> decoder.decode(ByteBufAllocator.DEFAULT, encoded))
+        .withMessage("unknown metadata dictionary slot: 3");
+  }
+
+  @DisplayName("expands the metadata of requests sent over a connection")
+  @Test
+  void endToEnd() {
+    List<Integer> requestSizes = new CopyOnWriteArrayList<>();
+    server = startServer(requestSizes, false);
+    client = connect(CompositeMetadataDictionary.metadataMimeType(16), false);
+
+    requestRoutes(3);
+
+    assertThat(requestSizes).hasSize(3);
+    // the route entry and its instruction byte become a one byte reference once it has been sent
+    assertThat(requestSizes.get(1)).isEqualTo(requestSizes.get(0) - 17);
+    assertThat(requestSizes.get(2)).isEqualTo(requestSizes.get(1));
+  }
+
+  @DisplayName("leaves metadata alone when the client does not propose a dictionary")
+  @Test
+  void notProposed() {
+    List<Integer> requestSizes = new CopyOnWriteArrayList<>();
+    server = startServer(requestSizes, false);
+    client = connect(WellKnownMimeType.MESSAGE_RSOCKET_COMPOSITE_METADATA.getString(), false);
+
+    requestRoutes(2);
+
+    assertThat(requestSizes).hasSize(2);
+    assertThat(requestSizes.get(1)).isEqualTo(requestSizes.get(0));
+  }
+
+  @DisplayName("leaves metadata alone when resumption is enabled")
+  @Test
+  void resumeEnabled() {
+    List<Integer> requestSizes = new CopyOnWriteArrayList<>();
+    server = startServer(requestSizes, true);
+    client = connect(CompositeMetadataDictionary.metadataMimeType(16), true);
+
+    requestRoutes(2);
+
+    assertThat(requestSizes).hasSize(2);
+    assertThat(requestSizes.get(1)).isEqualTo(requestSizes.get(0));
+  }
+
+  private static Closeable startServer(List<Integer> requestSizes, boolean resume) {
+    RSocketFactory.ServerRSocketFactory factory =
+        RSocketFactory.receive()
+            .addConnectionPlugin(requestSizes(requestSizes))
+            .addConnectionPlugin(CompositeMetadataDictionary.interceptor());
+    if (resume) {
+      factory = factory.resume();
+    }
+    return factory
+        .acceptor(
+            (setup, sendingSocket) ->
+                Mono.just(
+                    new AbstractRSocket() {
+                      @Override
+                      public Mono<Payload> requestResponse(Payload payload) {
+                        String entries =
+                            new CompositeMetadata(payload.sliceMetadata(), false)
+                                .stream()
+                                .map(
+                                    e ->
+                                        e.getMimeType()
+                                            + "="
+                                            + e.getContent().toString(CharsetUtil.UTF_8))
+                                .collect(Collectors.joining(","));
+                        payload.release();
+                        return Mono.just(DefaultPayload.create(entries));
+                      }
+                    }))
+        .transport(LocalServerTransport.create("metadata-dictionary"))
+        .start()
+        .block();
+  }
+
+  private static RSocket connect(String metadataMimeType, boolean resume) {
+    RSocketFactory.ClientRSocketFactory factory =
+        RSocketFactory.connect()
+            .metadataMimeType(metadataMimeType)
+            .addConnectionPlugin(CompositeMetadataDictionary.interceptor());
+    if (resume) {
+      factory = factory.resume();
+    }
+    return factory.transport(LocalClientTransport.create("metadata-dictionary")).start().block();
+  }
+
+  private void requestRoutes(int count) {
+    for (int i = 0; i < count; i++) {
+      Payload response =
+          client
+              .requestResponse(
+                  ByteBufPayload.create(
+                      Unpooled.EMPTY_BUFFER, metadata("orders.create", "trace-" + i)))
+              .block(Duration.ofSeconds(5));
+      assertThat(response.getDataUtf8())
+          .isEqualTo(
+              "message/x.rsocket.routing.v0=orders.create," + TRACING_MIME_TYPE + "=trace-" + i);
+      response.release();
+    }
+  }
+
+  private static ByteBuf metadata(String route, String... traces) {
+    CompositeByteBuf metadata = ByteBufAllocator.DEFAULT.compositeBuffer();
+    CompositeMetadataFlyweight.encodeAndAddMetadata(
+        metadata,
+        ByteBufAllocator.DEFAULT,
+        WellKnownMimeType.MESSAGE_RSOCKET_ROUTING,
+        ByteBufUtil.writeUtf8(ByteBufAllocator.DEFAULT, route));
+    for (String trace : traces) {
+      CompositeMetadataFlyweight.encodeAndAddMetadata(
+          metadata,
+          ByteBufAllocator.DEFAULT,
+          TRACING_MIME_TYPE,
+          ByteBufUtil.writeUtf8(ByteBufAllocator.DEFAULT, trace));
+    }
+    return metadata;
+  }
+
+  private static void assertDecodesTo(
+      MetadataDictionaryDecoder decoder, ByteBuf encoded, ByteBuf expected) {
+    ByteBuf decoded = decoder.decode(ByteBufAllocator.DEFAULT, encoded);
+    assertThat(ByteBufUtil.equals(decoded, expected)).isTrue();
+    decoded.release();
+    encoded.release();
+  }
+
+  private static DuplexConnectionInterceptor requestSizes(List<Integer> sizes) {
+    return (type, connection) -> {
+      if (type != DuplexConnectionInterceptor.Type.SOURCE) {
+        return connection;
+      }
+      return new DuplexConnection() {
+        @Override
+        public Mono<Void> send(Publisher<ByteBuf> frames) {
+          return connection.send(frames);
+        }
+
+        @Override
+        public Flux<ByteBuf> receive() {
+          return connection
+              .receive()
+              .doOnNext(
+                  frame -> {
+                    if (FrameHeaderFlyweight.frameType(frame) == FrameType.REQUEST_RESPONSE) {
+                      sizes.add(frame.readableBytes());
+                    }
+                  });
+        }
+
+        @Override
+        public double availability() {
+          return connection.availability();
+        }
+
+        @Override
+        public Mono<Void> onClose() {
+          return connection.onClose();
+        }
+
+        @Override
+        public void dispose() {
+          connection.dispose();
+        }
+
+        @Override
+        public boolean isDisposed() {
+          return connection.isDisposed();
+        }
+      };
+    };
+  }
+}
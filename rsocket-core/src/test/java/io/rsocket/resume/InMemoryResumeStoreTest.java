@@ -6,6 +6,7 @@
 import org.junit.Assert;
 import org.junit.jupiter.api.Test;
 import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
 
 public class InMemoryResumeStoreTest {
 
@@ -15,7 +16,7 @@ void saveWithoutTailRemoval() {
     ByteBuf frame = frameMock(10);
     store.saveFrames(Flux.just(frame)).block();
     Assert.assertEquals(1, store.cachedFrames.size());
-    Assert.assertEquals(frame.readableBytes(), store.cacheSize);
+    Assert.assertEquals(frame.readableBytes(), store.cachedBytes());
     Assert.assertEquals(0, store.position);
   }
 
@@ -26,7 +27,7 @@ void saveRemoveOneFromTail() {
     ByteBuf frame2 = frameMock(10);
     store.saveFrames(Flux.just(frame1, frame2)).block();
     Assert.assertEquals(1, store.cachedFrames.size());
-    Assert.assertEquals(frame2.readableBytes(), store.cacheSize);
+    Assert.assertEquals(frame2.readableBytes(), store.cachedBytes());
     Assert.assertEquals(frame1.readableBytes(), store.position);
   }
 
@@ -38,7 +39,7 @@ void saveRemoveTwoFromTail() {
     ByteBuf frame3 = frameMock(20);
     store.saveFrames(Flux.just(frame1, frame2, frame3)).block();
     Assert.assertEquals(1, store.cachedFrames.size());
-    Assert.assertEquals(frame3.readableBytes(), store.cacheSize);
+    Assert.assertEquals(frame3.readableBytes(), store.cachedBytes());
     Assert.assertEquals(size(frame1, frame2), store.position);
   }
 
@@ -50,7 +51,7 @@ void saveBiggerThanStore() {
     ByteBuf frame3 = frameMock(30);
     store.saveFrames(Flux.just(frame1, frame2, frame3)).block();
     Assert.assertEquals(0, store.cachedFrames.size());
-    Assert.assertEquals(0, store.cacheSize);
+    Assert.assertEquals(0, store.cachedBytes());
     Assert.assertEquals(size(frame1, frame2, frame3), store.position);
   }
 
@@ -63,10 +64,26 @@ void releaseFrames() {
     store.saveFrames(Flux.just(frame1, frame2, frame3)).block();
     store.releaseFrames(20);
     Assert.assertEquals(1, store.cachedFrames.size());
-    Assert.assertEquals(frame3.readableBytes(), store.cacheSize);
+    Assert.assertEquals(frame3.readableBytes(), store.cachedBytes());
     Assert.assertEquals(size(frame1, frame2), store.position);
   }
 
+  @Test
+  void resumeStreamFromPosition() {
+    InMemoryResumableFramesStore store = inMemoryStore(100);
+    ByteBuf frame1 = frameMock(10);
+    ByteBuf frame2 = frameMock(20);
+    ByteBuf frame3 = frameMock(30);
+    store.saveFrames(Flux.just(frame1, frame2, frame3)).block();
+
+    Assert.assertEquals(
+        Arrays.asList(frame2, frame3), store.resumeStream(10).collectList().block());
+    Assert.assertEquals(0, store.resumeStream(60).count().block().longValue());
+    Assert.assertEquals(3, store.cachedFrames.size());
+    Assert.assertEquals(0, store.position);
+    StepVerifier.create(store.resumeStream(20)).expectError(IllegalStateException.class).verify();
+  }
+
   @Test
   void receiveImpliedPosition() {
     InMemoryResumableFramesStore store = inMemoryStore(100);
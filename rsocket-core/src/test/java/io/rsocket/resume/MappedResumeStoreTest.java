@@ -0,0 +1,134 @@
+package io.rsocket.resume;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+public class MappedResumeStoreTest {
+
+  private Path directory;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    directory = Files.createTempDirectory("mapped-resume-store");
+  }
+
+  @AfterEach
+  void tearDown() throws IOException {
+    Files.deleteIfExists(directory);
+  }
+
+  @Test
+  void saveWithoutTailRemoval() {
+    MappedResumableFramesStore store = mappedStore(64, 25);
+    ByteBuf frame = frameMock(10);
+    store.saveFrames(Flux.just(frame)).block();
+    Assert.assertEquals(frame.readableBytes(), store.cacheSize);
+    Assert.assertEquals(0, store.position);
+    Assert.assertEquals(1, frame.refCnt());
+    store.dispose();
+  }
+
+  @Test
+  void saveDropsWholeSegmentsFromTail() {
+    MappedResumableFramesStore store = mappedStore(32, 40);
+    ByteBuf frame1 = frameMock(10);
+    ByteBuf frame2 = frameMock(10);
+    ByteBuf frame3 = frameMock(25);
+    store.saveFrames(Flux.just(frame1, frame2, frame3)).block();
+    Assert.assertEquals(frame3.readableBytes(), store.cacheSize);
+    Assert.assertEquals(size(frame1, frame2), store.position);
+    store.dispose();
+  }
+
+  @Test
+  void saveBiggerThanStore() {
+    MappedResumableFramesStore store = mappedStore(64, 25);
+    ByteBuf frame1 = frameMock(10);
+    ByteBuf frame2 = frameMock(10);
+    ByteBuf frame3 = frameMock(30);
+    store.saveFrames(Flux.just(frame1, frame2, frame3)).block();
+    Assert.assertEquals(0, store.cacheSize);
+    Assert.assertEquals(size(frame1, frame2, frame3), store.position);
+    store.dispose();
+  }
+
+  @Test
+  void releaseFramesWithinAndAcrossSegments() {
+    MappedResumableFramesStore store = mappedStore(32, 1000);
+    ByteBuf frame1 = frameMock(10);
+    ByteBuf frame2 = frameMock(10);
+    ByteBuf frame3 = frameMock(20);
+    store.saveFrames(Flux.just(frame1, frame2, frame3)).block();
+
+    store.releaseFrames(10);
+    Assert.assertEquals(size(frame2, frame3), store.cacheSize);
+    Assert.assertEquals(size(frame1), store.position);
+
+    store.releaseFrames(20);
+    Assert.assertEquals(size(frame3), store.cacheSize);
+    Assert.assertEquals(size(frame1, frame2), store.position);
+    store.dispose();
+  }
+
+  @Test
+  void releaseFramesInsideFrameFails() {
+    MappedResumableFramesStore store = mappedStore(64, 1000);
+    store.saveFrames(Flux.just(frameMock(10), frameMock(10))).block();
+    Assertions.assertThrows(IllegalStateException.class, () -> store.releaseFrames(15));
+    store.dispose();
+  }
+
+  @Test
+  void resumeStreamReplaysUnreleasedFrames() {
+    MappedResumableFramesStore store = mappedStore(32, 1000);
+    ByteBuf frame1 = frameMock(10, (byte) 1);
+    ByteBuf frame2 = frameMock(10, (byte) 2);
+    ByteBuf frame3 = frameMock(20, (byte) 3);
+    store.saveFrames(Flux.just(frame1, frame2, frame3)).block();
+    store.releaseFrames(10);
+
+    List<ByteBuf> resumed = store.resumeStream().collectList().block();
+    Assert.assertEquals(Arrays.asList(frame2, frame3), resumed);
+    resumed.forEach(ByteBuf::release);
+    store.dispose();
+  }
+
+  @Test
+  void receiveImpliedPosition() {
+    MappedResumableFramesStore store = mappedStore(64, 100);
+    ByteBuf frame1 = frameMock(10);
+    ByteBuf frame2 = frameMock(30);
+    store.resumableFrameReceived(frame1);
+    store.resumableFrameReceived(frame2);
+    Assert.assertEquals(size(frame1, frame2), store.frameImpliedPosition());
+  }
+
+  private int size(ByteBuf... byteBufs) {
+    return Arrays.stream(byteBufs).mapToInt(ByteBuf::readableBytes).sum();
+  }
+
+  private MappedResumableFramesStore mappedStore(int segmentSize, int size) {
+    return new MappedResumableFramesStore("test", directory, segmentSize, size);
+  }
+
+  private static ByteBuf frameMock(int size) {
+    return frameMock(size, (byte) 7);
+  }
+
+  private static ByteBuf frameMock(int size, byte value) {
+    byte[] bytes = new byte[size];
+    Arrays.fill(bytes, value);
+    return Unpooled.wrappedBuffer(bytes);
+  }
+}
@@ -0,0 +1,62 @@
+package io.rsocket.resume;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.Assert;
+import org.junit.jupiter.api.Test;
+
+public class ResumableFramesRingTest {
+
+  @Test
+  void growsAndKeepsOrder() {
+    ResumableFramesRing ring = new ResumableFramesRing(16);
+    for (int i = 0; i < 100; i++) {
+      ring.offer(frame(i + 1));
+    }
+    Assert.assertEquals(100, ring.size());
+    Assert.assertEquals(5050, ring.occupancy());
+    for (long sequence = ring.tail(); sequence < ring.head(); sequence++) {
+      Assert.assertEquals(sequence + 1, ring.get(sequence).readableBytes());
+    }
+    ring.clear();
+  }
+
+  @Test
+  void releasesWholeFramesUpToPosition() {
+    ResumableFramesRing ring = new ResumableFramesRing(16);
+    ByteBuf frame1 = frame(10);
+    ByteBuf frame2 = frame(10);
+    ByteBuf frame3 = frame(30);
+    ring.offer(frame1);
+    ring.offer(frame2);
+    ring.offer(frame3);
+
+    Assert.assertEquals(20, ring.releaseTo(25));
+    Assert.assertEquals(0, frame1.refCnt());
+    Assert.assertEquals(0, frame2.refCnt());
+    Assert.assertEquals(1, ring.size());
+    Assert.assertEquals(20, ring.tailPosition());
+    Assert.assertEquals(30, ring.occupancy());
+    ring.clear();
+    Assert.assertEquals(0, frame3.refCnt());
+  }
+
+  @Test
+  void looksUpFramesByPosition() {
+    ResumableFramesRing ring = new ResumableFramesRing(16);
+    ring.skip(5);
+    ring.offer(frame(10));
+    ring.offer(frame(20));
+    ring.offer(frame(30));
+
+    Assert.assertEquals(0, ring.sequenceAt(5));
+    Assert.assertEquals(1, ring.sequenceAt(15));
+    Assert.assertEquals(2, ring.sequenceAt(35));
+    Assert.assertEquals(-1, ring.sequenceAt(20));
+    ring.clear();
+  }
+
+  private static ByteBuf frame(int size) {
+    return Unpooled.wrappedBuffer(new byte[size]);
+  }
+}
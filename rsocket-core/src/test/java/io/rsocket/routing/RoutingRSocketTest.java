@@ -0,0 +1,192 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rsocket.routing;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+import io.rsocket.AbstractRSocket;
+import io.rsocket.Payload;
+import io.rsocket.exceptions.InvalidException;
+import io.rsocket.metadata.CompositeMetadataFlyweight;
+import io.rsocket.metadata.WellKnownMimeType;
+import io.rsocket.util.ByteBufPayload;
+import io.rsocket.util.DefaultPayload;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+final class RoutingRSocketTest {
+
+  private final RoutingRSocket responder =
+      RoutingRSocket.builder()
+          .requestResponse("orders.get", p -> reply(p, "get"))
+          .requestResponse("orders.getAll", p -> reply(p, "getAll"))
+          .requestStream("orders.get", p -> reply(p, "stream").flux())
+          .fireAndForget("orders.touch", p -> Mono.fromRunnable(p::release))
+          .requestChannel("orders.sync", payloads -> payloads.map(p -> reply(p, "sync").block()))
+          .build();
+
+  @DisplayName("matches whole routes over their bytes")
+  @Test
+  void trieMatchesWholeRoutes() {
+    Map<String, Integer> routes = new HashMap<>();
+    routes.put("a.b", 1);
+    routes.put("a.bc", 2);
+    routes.put("b", 3);
+    routes.put("café", 4);
+    RouteTrie<Integer> trie = new RouteTrie<>(routes);
+
+    assertThat(find(trie, "a.b")).isEqualTo(1);
+    assertThat(find(trie, "a.bc")).isEqualTo(2);
+    assertThat(find(trie, "b")).isEqualTo(3);
+    assertThat(find(trie, "café")).isEqualTo(4);
+    assertThat(find(trie, "a.")).isNull();
+    assertThat(find(trie, "a.bcd")).isNull();
+    assertThat(find(trie, "c")).isNull();
+    assertThat(find(trie, "")).isNull();
+    // the root, "a", "a.", "a.b", "a.bc", "b" and the five bytes of "café"
+    assertThat(trie.size()).isEqualTo(11);
+  }
+
+  @DisplayName("dispatches requests by route and interaction type")
+  @Test
+  void dispatchesByRoute() {
+    StepVerifier.create(responder.requestResponse(request("orders.get")).map(this::data))
+        .expectNext("get")
+        .verifyComplete();
+    StepVerifier.create(responder.requestResponse(request("orders.getAll")).map(this::data))
+        .expectNext("getAll")
+        .verifyComplete();
+    StepVerifier.create(responder.requestStream(request("orders.get")).map(this::data))
+        .expectNext("stream")
+        .verifyComplete();
+    StepVerifier.create(responder.fireAndForget(request("orders.touch"))).verifyComplete();
+    StepVerifier.create(
+            responder
+                .requestChannel(Flux.just(request("orders.sync"), DefaultPayload.create("next")))
+                .map(this::data))
+        .expectNext("sync", "sync")
+        .verifyComplete();
+  }
+
+  @DisplayName("rejects requests matching no handler")
+  @Test
+  void rejectsUnknownRoutes() {
+    StepVerifier.create(responder.requestResponse(request("orders.delete")))
+        .verifyError(InvalidException.class);
+    StepVerifier.create(responder.requestResponse(request("orders.touch")))
+        .verifyError(InvalidException.class);
+    StepVerifier.create(responder.requestResponse(DefaultPayload.create("no metadata")))
+        .verifyError(InvalidException.class);
+  }
+
+  @DisplayName("releases the first payload of rejected channels")
+  @Test
+  void releasesRejectedChannels() {
+    Payload unknown = request("orders.delete");
+    StepVerifier.create(responder.requestChannel(unknown, Flux.never()))
+        .verifyError(InvalidException.class);
+    assertThat(unknown.refCnt()).isZero();
+
+    Payload malformed = malformedRequest();
+    StepVerifier.create(responder.requestChannel(malformed, Flux.never()))
+        .verifyError(InvalidException.class);
+    assertThat(malformed.refCnt()).isZero();
+
+    Payload first = request("orders.delete");
+    StepVerifier.create(responder.requestChannel(Flux.just(first)))
+        .verifyError(InvalidException.class);
+    assertThat(first.refCnt()).isZero();
+  }
+
+  @DisplayName("hands requests matching no handler to the fallback")
+  @Test
+  void fallsBack() {
+    RoutingRSocket responder =
+        RoutingRSocket.builder()
+            .fallback(
+                new AbstractRSocket() {
+                  @Override
+                  public Mono<Payload> requestResponse(Payload payload) {
+                    return reply(payload, "fallback");
+                  }
+                })
+            .build();
+
+    StepVerifier.create(responder.requestResponse(request("orders.get")).map(this::data))
+        .expectNext("fallback")
+        .verifyComplete();
+  }
+
+  @DisplayName("rejects duplicate handlers and invalid routes")
+  @Test
+  void rejectsInvalidRegistrations() {
+    assertThatIllegalArgumentException()
+        .isThrownBy(
+            () ->
+                RoutingRSocket.builder()
+                    .requestResponse("orders.get", p -> Mono.empty())
+                    .requestResponse("orders.get", p -> Mono.empty()))
+        .withMessage("route already has a request-response handler: orders.get");
+    assertThatIllegalArgumentException()
+        .isThrownBy(() -> RoutingRSocket.builder().requestStream("", p -> Flux.empty()));
+  }
+
+  private static Integer find(RouteTrie<Integer> trie, String route) {
+    ByteBuf buffer = Unpooled.wrappedBuffer(("xx" + route).getBytes(StandardCharsets.UTF_8));
+    return trie.find(buffer, 2, buffer.readableBytes() - 2);
+  }
+
+  static Payload request(String route) {
+    byte[] bytes = route.getBytes(StandardCharsets.UTF_8);
+    ByteBuf tags = ByteBufAllocator.DEFAULT.buffer().writeByte(bytes.length).writeBytes(bytes);
+    CompositeByteBuf metadata = ByteBufAllocator.DEFAULT.compositeBuffer();
+    CompositeMetadataFlyweight.encodeAndAddMetadata(
+        metadata, ByteBufAllocator.DEFAULT, WellKnownMimeType.MESSAGE_RSOCKET_ROUTING, tags);
+    return ByteBufPayload.create(Unpooled.EMPTY_BUFFER, metadata);
+  }
+
+  /* the length of the first tag exceeds the routing metadata */
+  private static Payload malformedRequest() {
+    ByteBuf tags = ByteBufAllocator.DEFAULT.buffer().writeByte(5);
+    CompositeByteBuf metadata = ByteBufAllocator.DEFAULT.compositeBuffer();
+    CompositeMetadataFlyweight.encodeAndAddMetadata(
+        metadata, ByteBufAllocator.DEFAULT, WellKnownMimeType.MESSAGE_RSOCKET_ROUTING, tags);
+    return ByteBufPayload.create(Unpooled.EMPTY_BUFFER, metadata);
+  }
+
+  private static Mono<Payload> reply(Payload request, String data) {
+    request.release();
+    return Mono.just(DefaultPayload.create(data));
+  }
+
+  private String data(Payload payload) {
+    String data = payload.getDataUtf8();
+    payload.release();
+    return data;
+  }
+}
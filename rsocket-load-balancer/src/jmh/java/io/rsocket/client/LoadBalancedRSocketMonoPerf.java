@@ -0,0 +1,75 @@
+package io.rsocket.client;
+
+import io.rsocket.AbstractRSocket;
+import io.rsocket.RSocket;
+import io.rsocket.client.filter.RSocketSupplier;
+import java.util.ArrayList;
+import java.util.List;
+import org.openjdk.jmh.annotations.*;
+import reactor.core.publisher.Mono;
+
+/**
+ * Selects RSockets from a balancer whose aperture covers all of its backends, which are connected
+ * up front, from a growing number of threads.
+ */
+@BenchmarkMode(Mode.Throughput)
+@Fork(value = 1)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@State(Scope.Benchmark)
+public class LoadBalancedRSocketMonoPerf {
+
+  @Param({"10", "100", "1000"})
+  int backends;
+
+  LoadBalancedRSocketMono balancer;
+
+  @Setup
+  public void setup() {
+    List<RSocketSupplier> suppliers = new ArrayList<>(backends);
+    for (int i = 0; i < backends; i++) {
+      RSocket rSocket = new AbstractRSocket() {};
+      suppliers.add(new RSocketSupplier(() -> Mono.just(rSocket)));
+    }
+    balancer =
+        LoadBalancedRSocketMono.create(
+            Mono.just(suppliers),
+            LoadBalancedRSocketMono.DEFAULT_EXP_FACTOR,
+            LoadBalancedRSocketMono.DEFAULT_LOWER_QUANTILE,
+            LoadBalancedRSocketMono.DEFAULT_HIGHER_QUANTILE,
+            LoadBalancedRSocketMono.DEFAULT_MIN_PENDING,
+            LoadBalancedRSocketMono.DEFAULT_MAX_PENDING,
+            backends,
+            backends,
+            LoadBalancedRSocketMono.DEFAULT_MAX_REFRESH_PERIOD_MS);
+  }
+
+  @TearDown
+  public void tearDown() {
+    balancer.dispose();
+  }
+
+  @Benchmark
+  @Threads(1)
+  public RSocket select1Thread() {
+    return balancer.select();
+  }
+
+  @Benchmark
+  @Threads(4)
+  public RSocket select4Threads() {
+    return balancer.select();
+  }
+
+  @Benchmark
+  @Threads(16)
+  public RSocket select16Threads() {
+    return balancer.select();
+  }
+
+  @Benchmark
+  @Threads(32)
+  public RSocket select32Threads() {
+    return balancer.select();
+  }
+}
@@ -0,0 +1,151 @@
+package io.rsocket.client;
+
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+import io.rsocket.AbstractRSocket;
+import io.rsocket.Payload;
+import io.rsocket.client.filter.RSocketSupplier;
+import io.rsocket.client.strategy.LeastOutstandingStrategy;
+import io.rsocket.client.strategy.PeakEwmaStrategy;
+import io.rsocket.client.strategy.RendezvousHashingStrategy;
+import io.rsocket.client.strategy.WeightedRoundRobinStrategy;
+import io.rsocket.metadata.CompositeMetadataFlyweight;
+import io.rsocket.util.DefaultPayload;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import reactor.core.publisher.Mono;
+
+/**
+ * Replays synthetic latency distributions of simulated backends through each load balancing
+ * strategy. JMH reports the percentiles of the sampled request-response times, p0.99 and p0.999
+ * being the tail latency of each strategy.
+ *
+ * <ul>
+ *   <li>exponential: every backend answers in 1ms on average, exponentially distributed
+ *   <li>bimodal: every backend answers in 1ms, but 5% of the requests take 20ms
+ *   <li>slowBackend: like exponential, but one backend is 10 times slower than the others
+ * </ul>
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Threads(16)
+@State(Scope.Benchmark)
+public class LoadBalancerStrategyPerf {
+
+  static final int BACKENDS = 10;
+  static final int KEYS = 1000;
+  static final String KEY_MIME_TYPE = "application/x.cache-key";
+
+  @Param({"weighting", "leastOutstanding", "peakEwma", "weightedRoundRobin", "rendezvousHashing"})
+  String strategy;
+
+  @Param({"exponential", "bimodal", "slowBackend"})
+  String latency;
+
+  LoadBalancedRSocketMono balancer;
+  Payload[] payloads;
+
+  @Setup
+  public void setup() throws InterruptedException {
+    List<RSocketSupplier> suppliers = new ArrayList<>(BACKENDS);
+    for (int i = 0; i < BACKENDS; i++) {
+      double meanMicros = latency.equals("slowBackend") && i == 0 ? 10_000 : 1_000;
+      SimulatedBackend backend = new SimulatedBackend(latency, meanMicros);
+      suppliers.add(new RSocketSupplier(() -> Mono.just(backend), "backend-" + i, 1));
+    }
+    Mono<List<RSocketSupplier>> factories = Mono.just(suppliers);
+
+    LoadBalancerStrategy loadBalancerStrategy = createStrategy(strategy);
+    if (loadBalancerStrategy == null) {
+      balancer =
+          LoadBalancedRSocketMono.create(
+              factories,
+              LoadBalancedRSocketMono.DEFAULT_EXP_FACTOR,
+              LoadBalancedRSocketMono.DEFAULT_LOWER_QUANTILE,
+              LoadBalancedRSocketMono.DEFAULT_HIGHER_QUANTILE,
+              LoadBalancedRSocketMono.DEFAULT_MIN_PENDING,
+              LoadBalancedRSocketMono.DEFAULT_MAX_PENDING,
+              BACKENDS,
+              BACKENDS,
+              LoadBalancedRSocketMono.DEFAULT_MAX_REFRESH_PERIOD_MS);
+    } else {
+      balancer =
+          LoadBalancedRSocketMono.create(factories, loadBalancerStrategy, BACKENDS, BACKENDS);
+    }
+    while (balancer.availability() == 0.0) {
+      Thread.sleep(1);
+    }
+
+    ByteBufAllocator allocator = ByteBufAllocator.DEFAULT;
+    payloads = new Payload[KEYS];
+    for (int i = 0; i < KEYS; i++) {
+      CompositeByteBuf metadata = allocator.compositeBuffer();
+      CompositeMetadataFlyweight.encodeAndAddMetadata(
+          metadata, allocator, KEY_MIME_TYPE, ByteBufUtil.writeUtf8(allocator, "key-" + i));
+      payloads[i] = DefaultPayload.create(Unpooled.EMPTY_BUFFER, metadata);
+      metadata.release();
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    balancer.dispose();
+  }
+
+  @Benchmark
+  public Payload requestResponse() {
+    Payload payload = payloads[ThreadLocalRandom.current().nextInt(KEYS)];
+    return balancer.select(payload).requestResponse(payload).block();
+  }
+
+  private static LoadBalancerStrategy createStrategy(String name) {
+    switch (name) {
+      case "weighting":
+        return null;
+      case "leastOutstanding":
+        return new LeastOutstandingStrategy();
+      case "peakEwma":
+        return new PeakEwmaStrategy();
+      case "weightedRoundRobin":
+        return new WeightedRoundRobinStrategy();
+      case "rendezvousHashing":
+        return new RendezvousHashingStrategy(KEY_MIME_TYPE);
+      default:
+        throw new IllegalArgumentException("unknown strategy: " + name);
+    }
+  }
+
+  /** A backend answering after a latency drawn from a distribution. */
+  static class SimulatedBackend extends AbstractRSocket {
+    final String distribution;
+    final double meanMicros;
+
+    SimulatedBackend(String distribution, double meanMicros) {
+      this.distribution = distribution;
+      this.meanMicros = meanMicros;
+    }
+
+    @Override
+    public Mono<Payload> requestResponse(Payload payload) {
+      return Mono.delay(Duration.ofNanos((long) (nextLatencyMicros() * 1_000)))
+          .map(tick -> payload);
+    }
+
+    double nextLatencyMicros() {
+      ThreadLocalRandom random = ThreadLocalRandom.current();
+      if (distribution.equals("bimodal")) {
+        return random.nextDouble() < 0.05 ? 20 * meanMicros : meanMicros;
+      }
+      return -Math.log(1.0 - random.nextDouble()) * meanMicros;
+    }
+  }
+}
@@ -18,14 +18,17 @@
 
 import io.rsocket.*;
 import io.rsocket.client.filter.RSocketSupplier;
+import io.rsocket.lease.Lease;
+import io.rsocket.lease.LeaseHolder;
 import io.rsocket.stat.Ewma;
 import io.rsocket.stat.FrugalQuantile;
 import io.rsocket.stat.Median;
+import io.rsocket.stat.PeakEwma;
 import io.rsocket.stat.Quantile;
 import io.rsocket.util.Clock;
 import java.nio.channels.ClosedChannelException;
 import java.time.Duration;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Optional;
 import java.util.Random;
@@ -39,15 +42,37 @@
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import reactor.core.CoreSubscriber;
+import reactor.core.Disposable;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.core.publisher.MonoProcessor;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.annotation.Nullable;
 
 /**
  * An implementation of {@link Mono} that load balances across a pool of RSockets and emits one when
  * it is subscribed to
  *
- * <p>It estimates the load of each RSocket based on statistics collected.
+ * <p>It estimates the load of each RSocket based on statistics collected. By default the RSocket is
+ * selected by weighting these statistics, which a {@link LoadBalancerStrategy} may replace. As the
+ * RSocket emitted when subscribing is selected before any request is known, strategies routing by
+ * payload only see the requests made through {@link #asRSocket()}, which selects an RSocket per
+ * request:
+ *
+ * <pre>{@code
+ * LoadBalancerStrategy strategy = new RendezvousHashingStrategy(mimeType);
+ * RSocket rSocket = LoadBalancedRSocketMono.create(factories, strategy).asRSocket();
+ * }</pre>
+ *
+ * <p>When the RSockets are bounded by leases, the availability of each of them is scaled by the
+ * share of its lease that is left, and drops to 0 when the lease is used up or about to expire, so
+ * that requests go to the backends with spare budget instead of failing with a {@link
+ * io.rsocket.exceptions.MissingLeaseException}.
+ *
+ * <p>Selecting an RSocket takes no lock: it picks the best of two random RSockets from an immutable
+ * snapshot of the active ones, which is replaced whenever an RSocket is added or removed. Adjusting
+ * the aperture, adding RSockets and closing the slowest one is left to a maintenance task that runs
+ * every {@link #MAINTENANCE_PERIOD}, serialized with the other changes to the snapshot.
  */
 public abstract class LoadBalancedRSocketMono extends Mono<RSocket>
     implements Availability, Closeable {
@@ -61,6 +86,7 @@ public abstract class LoadBalancedRSocketMono extends Mono<RSocket>
   public static final int DEFAULT_MAX_APERTURE = 100;
   public static final long DEFAULT_MAX_REFRESH_PERIOD_MS =
       TimeUnit.MILLISECONDS.convert(5, TimeUnit.MINUTES);
+  public static final Duration MAINTENANCE_PERIOD = Duration.ofMillis(100);
   private static final Logger logger = LoggerFactory.getLogger(LoadBalancedRSocketMono.class);
   private static final long APERTURE_REFRESH_PERIOD = Clock.unit().convert(15, TimeUnit.SECONDS);
   private static final int EFFORT = 5;
@@ -69,6 +95,7 @@ public abstract class LoadBalancedRSocketMono extends Mono<RSocket>
   private static final int DEFAULT_INTER_ARRIVAL_FACTOR = 500;
 
   private static final FailingRSocket FAILING_REACTIVE_SOCKET = new FailingRSocket();
+  private static final WeightedSocket[] NO_SOCKETS = new WeightedSocket[0];
   protected final Mono<RSocket> rSocketMono;
   private final double minPendings;
   private final double maxPendings;
@@ -78,13 +105,17 @@ public abstract class LoadBalancedRSocketMono extends Mono<RSocket>
   private final double expFactor;
   private final Quantile lowerQuantile;
   private final Quantile higherQuantile;
-  private final ArrayList<WeightedSocket> activeSockets;
+  private final LoadBalancerStrategy strategy;
+  // copy-on-write, replaced under the lock of this instance
+  private volatile WeightedSocket[] activeSockets;
   private final Ewma pendings;
   private final MonoProcessor<Void> onClose = MonoProcessor.create();
   private final RSocketSupplierPool pool;
   private final long weightedSocketRetries;
   private final Duration weightedSocketBackOff;
   private final Duration weightedSocketMaxBackOff;
+  private final Disposable maintenance;
+  private volatile boolean socketRequested;
   private volatile int targetAperture;
   private long lastApertureRefresh;
   private long refreshPeriod;
@@ -112,6 +143,7 @@ public abstract class LoadBalancedRSocketMono extends Mono<RSocket>
    * @param weightedSocketBackOff the duration a a weighted socket will add to each retry attempt.
    * @param weightedSocketMaxBackOff the max duration a weighted socket will delay before retrying
    *     to connect. The default is 5 seconds.
+   * @param strategy the strategy selecting RSockets, or {@code null} to weight their statistics
    */
   private LoadBalancedRSocketMono(
       Publisher<? extends Collection<RSocketSupplier>> factories,
@@ -125,15 +157,17 @@ private LoadBalancedRSocketMono(
       long maxRefreshPeriodMs,
       long weightedSocketRetries,
       Duration weightedSocketBackOff,
-      Duration weightedSocketMaxBackOff) {
+      Duration weightedSocketMaxBackOff,
+      @Nullable LoadBalancerStrategy strategy) {
     this.weightedSocketRetries = weightedSocketRetries;
     this.weightedSocketBackOff = weightedSocketBackOff;
     this.weightedSocketMaxBackOff = weightedSocketMaxBackOff;
     this.expFactor = expFactor;
     this.lowerQuantile = new FrugalQuantile(lowQuantile);
     this.higherQuantile = new FrugalQuantile(highQuantile);
+    this.strategy = strategy != null ? strategy : new WeightingStrategy();
 
-    this.activeSockets = new ArrayList<>();
+    this.activeSockets = NO_SOCKETS;
     this.pendingSockets = 0;
 
     this.minPendings = minPendings;
@@ -153,7 +187,17 @@ private LoadBalancedRSocketMono(
 
     rSocketMono = Mono.fromSupplier(this::select);
 
-    onClose.doFinally(signalType -> pool.dispose()).subscribe();
+    this.maintenance =
+        Flux.interval(MAINTENANCE_PERIOD, MAINTENANCE_PERIOD, Schedulers.parallel())
+            .subscribe(tick -> maintain());
+
+    onClose
+        .doFinally(
+            signalType -> {
+              maintenance.dispose();
+              pool.dispose();
+            })
+        .subscribe();
   }
 
   public static LoadBalancedRSocketMono create(
@@ -195,7 +239,8 @@ public static LoadBalancedRSocketMono create(
         maxRefreshPeriodMs,
         weightedSocketRetries,
         weightedSocketBackOff,
-        weightedSocketMaxBackOff) {
+        weightedSocketMaxBackOff,
+        null) {
       @Override
       public void subscribe(CoreSubscriber<? super RSocket> s) {
         rSocketMono.subscribe(s);
@@ -225,7 +270,8 @@ public static LoadBalancedRSocketMono create(
         maxRefreshPeriodMs,
         5,
         Duration.ofMillis(500),
-        Duration.ofSeconds(5)) {
+        Duration.ofSeconds(5),
+        null) {
       @Override
       public void subscribe(CoreSubscriber<? super RSocket> s) {
         rSocketMono.subscribe(s);
@@ -233,13 +279,66 @@ public void subscribe(CoreSubscriber<? super RSocket> s) {
     };
   }
 
+  public static LoadBalancedRSocketMono create(
+      Publisher<? extends Collection<RSocketSupplier>> factories, LoadBalancerStrategy strategy) {
+    return create(factories, strategy, DEFAULT_MIN_APERTURE, DEFAULT_MAX_APERTURE);
+  }
+
+  public static LoadBalancedRSocketMono create(
+      Publisher<? extends Collection<RSocketSupplier>> factories,
+      LoadBalancerStrategy strategy,
+      int minAperture,
+      int maxAperture) {
+    return new LoadBalancedRSocketMono(
+        factories,
+        DEFAULT_EXP_FACTOR,
+        DEFAULT_LOWER_QUANTILE,
+        DEFAULT_HIGHER_QUANTILE,
+        DEFAULT_MIN_PENDING,
+        DEFAULT_MAX_PENDING,
+        minAperture,
+        maxAperture,
+        DEFAULT_MAX_REFRESH_PERIOD_MS,
+        5,
+        Duration.ofMillis(500),
+        Duration.ofSeconds(5),
+        strategy) {
+      @Override
+      public void subscribe(CoreSubscriber<? super RSocket> s) {
+        rSocketMono.subscribe(s);
+      }
+    };
+  }
+
+  /** Runs the periodic maintenance, adding the socket requested by a starved selection if any. */
+  private synchronized void maintain() {
+    if (isDisposed()) {
+      return;
+    }
+    refreshSockets();
+    if (socketRequested) {
+      socketRequested = false;
+      if (!pool.isPoolEmpty()) {
+        addSockets(1);
+      }
+    }
+  }
+
   /**
    * Responsible for: - refreshing the aperture - asynchronously adding/removing reactive sockets to
    * match targetAperture - periodically append a new connection
    */
   private synchronized void refreshSockets() {
+    if (strategy.usesWholePool()) {
+      // every supplier stays connected, so that the strategy sees the same sockets over time
+      if (!pool.isPoolEmpty()) {
+        addSockets(pool.poolSize());
+      }
+      return;
+    }
+
     refreshAperture();
-    int n = activeSockets.size();
+    int n = activeSockets.length;
     if (n < targetAperture && !pool.isPoolEmpty()) {
       logger.debug(
           "aperture {} is below target {}, adding {} sockets",
@@ -247,7 +346,7 @@ private synchronized void refreshSockets() {
           targetAperture,
           targetAperture - n);
       addSockets(targetAperture - n);
-    } else if (targetAperture < activeSockets.size()) {
+    } else if (targetAperture < n) {
       logger.debug("aperture {} is above target {}, quicking 1 socket", n, targetAperture);
       quickSlowestRS();
     }
@@ -286,7 +385,8 @@ private synchronized void addSockets(int numberOfNewSocket) {
   }
 
   private synchronized void refreshAperture() {
-    int n = activeSockets.size();
+    WeightedSocket[] activeSockets = this.activeSockets;
+    int n = activeSockets.length;
     if (n == 0) {
       return;
     }
@@ -318,7 +418,7 @@ private void updateAperture(int newValue, long now) {
     int previous = targetAperture;
     targetAperture = newValue;
     targetAperture = Math.max(minAperture, targetAperture);
-    int maxAperture = Math.min(this.maxAperture, activeSockets.size() + pool.poolSize());
+    int maxAperture = Math.min(this.maxAperture, activeSockets.length + pool.poolSize());
     targetAperture = Math.min(maxAperture, targetAperture);
     lastApertureRefresh = now;
     pendings.reset((minPendings + maxPendings) / 2);
@@ -333,7 +433,8 @@ private void updateAperture(int newValue, long now) {
   }
 
   private synchronized void quickSlowestRS() {
-    if (activeSockets.size() <= 1) {
+    WeightedSocket[] activeSockets = this.activeSockets;
+    if (activeSockets.length <= 1) {
       return;
     }
 
@@ -360,58 +461,78 @@ private synchronized void quickSlowestRS() {
     }
   }
 
+  private synchronized void addActiveSocket(WeightedSocket socket) {
+    WeightedSocket[] activeSockets = this.activeSockets;
+    WeightedSocket[] newActiveSockets = Arrays.copyOf(activeSockets, activeSockets.length + 1);
+    newActiveSockets[activeSockets.length] = socket;
+    this.activeSockets = newActiveSockets;
+  }
+
+  private synchronized void removeActiveSocket(WeightedSocket socket) {
+    WeightedSocket[] activeSockets = this.activeSockets;
+    for (int i = 0; i < activeSockets.length; i++) {
+      if (activeSockets[i] == socket) {
+        WeightedSocket[] newActiveSockets = new WeightedSocket[activeSockets.length - 1];
+        System.arraycopy(activeSockets, 0, newActiveSockets, 0, i);
+        System.arraycopy(activeSockets, i + 1, newActiveSockets, i, activeSockets.length - i - 1);
+        this.activeSockets = newActiveSockets;
+        return;
+      }
+    }
+  }
+
   @Override
-  public synchronized double availability() {
+  public double availability() {
+    WeightedSocket[] activeSockets = this.activeSockets;
     double currentAvailability = 0.0;
-    if (!activeSockets.isEmpty()) {
+    if (activeSockets.length > 0) {
       for (WeightedSocket rs : activeSockets) {
         currentAvailability += rs.availability();
       }
-      currentAvailability /= activeSockets.size();
+      currentAvailability /= activeSockets.length;
     }
 
     return currentAvailability;
   }
 
-  private synchronized RSocket select() {
-    refreshSockets();
-
-    if (activeSockets.isEmpty()) {
-      return FAILING_REACTIVE_SOCKET;
-    }
-
-    int size = activeSockets.size();
-    if (size == 1) {
-      return activeSockets.get(0);
-    }
+  RSocket select() {
+    return select(null);
+  }
 
-    WeightedSocket rsc1 = null;
-    WeightedSocket rsc2 = null;
+  /**
+   * Returns an RSocket sending each request to the RSocket selected for its payload, so that the
+   * {@link LoadBalancerStrategy} can route it. Channels are routed by their first payload.
+   * Disposing it disposes this load balancer.
+   *
+   * @return an RSocket load balancing every request
+   */
+  public RSocket asRSocket() {
+    return new LoadBalancedRSocket(this);
+  }
 
-    Random rng = ThreadLocalRandom.current();
-    for (int i = 0; i < EFFORT; i++) {
-      int i1 = rng.nextInt(size);
-      int i2 = rng.nextInt(size - 1);
-      if (i2 >= i1) {
-        i2++;
-      }
-      rsc1 = activeSockets.get(i1);
-      rsc2 = activeSockets.get(i2);
-      if (rsc1.availability() > 0.0 && rsc2.availability() > 0.0) {
-        break;
-      }
-      if (i + 1 == EFFORT && !pool.isPoolEmpty()) {
-        addSockets(1);
+  /**
+   * Selects an RSocket for a request, giving the {@link LoadBalancerStrategy} a chance to route it
+   * by its payload. The payload is not consumed.
+   *
+   * @param payload the payload of the request
+   * @return the selected RSocket, which fails all requests if none is available
+   */
+  public RSocket select(@Nullable Payload payload) {
+    WeightedSocket[] activeSockets = this.activeSockets;
+    if (activeSockets.length == 0) {
+      // nothing to choose from yet, so refresh right away rather than failing the request
+      refreshSockets();
+      activeSockets = this.activeSockets;
+      if (activeSockets.length == 0) {
+        return FAILING_REACTIVE_SOCKET;
       }
     }
 
-    double w1 = algorithmicWeight(rsc1);
-    double w2 = algorithmicWeight(rsc2);
-    if (w1 < w2) {
-      return rsc2;
-    } else {
-      return rsc1;
+    if (activeSockets.length == 1) {
+      return activeSockets[0];
     }
+
+    return activeSockets[strategy.select(activeSockets, payload)];
   }
 
   private double algorithmicWeight(WeightedSocket socket) {
@@ -443,9 +564,9 @@ private double algorithmicWeight(WeightedSocket socket) {
   }
 
   @Override
-  public synchronized String toString() {
+  public String toString() {
     return "LoadBalancer(a:"
-        + activeSockets.size()
+        + activeSockets.length
         + ", f: "
         + pool.poolSize()
         + ", avgPendings="
@@ -462,8 +583,11 @@ public synchronized String toString() {
   @Override
   public void dispose() {
     synchronized (this) {
-      activeSockets.forEach(WeightedSocket::dispose);
-      activeSockets.clear();
+      WeightedSocket[] activeSockets = this.activeSockets;
+      this.activeSockets = NO_SOCKETS;
+      for (WeightedSocket socket : activeSockets) {
+        socket.dispose();
+      }
       onClose.onComplete();
     }
   }
@@ -478,6 +602,101 @@ public Mono<Void> onClose() {
     return onClose;
   }
 
+  /**
+   * Picks the better of two random RSockets, weighting their predicted latency, relative to the
+   * latency band of all RSockets, by their pending requests.
+   */
+  private class WeightingStrategy implements LoadBalancerStrategy {
+
+    @Override
+    public int select(LoadBalancerSocketMetrics[] sockets, @Nullable Payload payload) {
+      int size = sockets.length;
+      int i1 = 0;
+      int i2 = 1;
+
+      Random rng = ThreadLocalRandom.current();
+      for (int i = 0; i < EFFORT; i++) {
+        i1 = rng.nextInt(size);
+        i2 = rng.nextInt(size - 1);
+        if (i2 >= i1) {
+          i2++;
+        }
+        if (sockets[i1].availability() > 0.0 && sockets[i2].availability() > 0.0) {
+          break;
+        }
+        if (i + 1 == EFFORT) {
+          // left to the maintenance, which also checks whether there is a supplier to add
+          socketRequested = true;
+        }
+      }
+
+      double w1 = algorithmicWeight((WeightedSocket) sockets[i1]);
+      double w2 = algorithmicWeight((WeightedSocket) sockets[i2]);
+      if (w1 < w2) {
+        return i2;
+      } else {
+        return i1;
+      }
+    }
+  }
+
+  /** Selects an RSocket for every request, when it is subscribed. */
+  private static class LoadBalancedRSocket implements RSocket {
+    private final LoadBalancedRSocketMono balancer;
+
+    LoadBalancedRSocket(LoadBalancedRSocketMono balancer) {
+      this.balancer = balancer;
+    }
+
+    @Override
+    public Mono<Void> fireAndForget(Payload payload) {
+      return Mono.defer(() -> balancer.select(payload).fireAndForget(payload));
+    }
+
+    @Override
+    public Mono<Payload> requestResponse(Payload payload) {
+      return Mono.defer(() -> balancer.select(payload).requestResponse(payload));
+    }
+
+    @Override
+    public Flux<Payload> requestStream(Payload payload) {
+      return Flux.defer(() -> balancer.select(payload).requestStream(payload));
+    }
+
+    @Override
+    public Flux<Payload> requestChannel(Publisher<Payload> payloads) {
+      return Flux.from(payloads)
+          .switchOnFirst(
+              (first, flux) ->
+                  balancer.select(first.hasValue() ? first.get() : null).requestChannel(flux));
+    }
+
+    @Override
+    public Mono<Void> metadataPush(Payload payload) {
+      return Mono.defer(() -> balancer.select(payload).metadataPush(payload));
+    }
+
+    @Override
+    public double availability() {
+      return balancer.availability();
+    }
+
+    @Override
+    public void dispose() {
+      balancer.dispose();
+    }
+
+    @Override
+    public boolean isDisposed() {
+      return balancer.isDisposed();
+    }
+
+    @Override
+    public Mono<Void> onClose() {
+      return balancer.onClose();
+    }
+  }
+
   /**
    * (Null Object Pattern) This failing RSocket never succeed, it is useful for simplifying the code
    * when dealing with edge cases.
@@ -539,16 +758,19 @@ public Mono<Void> onClose() {
   private class WeightedSocket extends AbstractRSocket implements LoadBalancerSocketMetrics {
 
     private static final double STARTUP_PENALTY = Long.MAX_VALUE >> 12;
+    private final RSocketSupplier factory;
     private final Quantile lowerQuantile;
     private final Quantile higherQuantile;
     private final long inactivityFactor;
     private final MonoProcessor<RSocket> rSocketMono;
+    @Nullable private volatile LeaseHolder leaseHolder;
     private volatile int pending; // instantaneous rate
     private long stamp; // last timestamp we sent a request
     private long stamp0; // last timestamp we sent a request or receive a response
     private long duration; // instantaneous cumulative duration
 
     private Median median;
+    private PeakEwma peakLatency;
     private Ewma interArrivalTime;
 
     private AtomicLong pendingStreams; // number of active streams
@@ -560,6 +782,7 @@ private class WeightedSocket extends AbstractRSocket implements LoadBalancerSock
         Quantile lowerQuantile,
         Quantile higherQuantile,
         int inactivityFactor) {
+      this.factory = factory;
       this.rSocketMono = MonoProcessor.create();
       this.lowerQuantile = lowerQuantile;
       this.higherQuantile = higherQuantile;
@@ -570,6 +793,7 @@ private class WeightedSocket extends AbstractRSocket implements LoadBalancerSock
       this.duration = 0L;
       this.pending = 0;
       this.median = new Median();
+      this.peakLatency = new PeakEwma(10, TimeUnit.SECONDS, 0.0);
       this.interArrivalTime = new Ewma(1, TimeUnit.MINUTES, DEFAULT_INITIAL_INTER_ARRIVAL_TIME);
       this.pendingStreams = new AtomicLong();
 
@@ -580,7 +804,7 @@ private class WeightedSocket extends AbstractRSocket implements LoadBalancerSock
           .doFinally(
               s -> {
                 pool.accept(factory);
-                activeSockets.remove(WeightedSocket.this);
+                removeActiveSocket(WeightedSocket.this);
                 logger.debug(
                     "Removed {} from factory {} from activeSockets", WeightedSocket.this, factory);
                 refreshSockets();
@@ -641,11 +865,14 @@ private class WeightedSocket extends AbstractRSocket implements LoadBalancerSock
                     pendingSockets -= 1;
                   }
                 }*/
+                if (rSocket instanceof LeaseHolder) {
+                  leaseHolder = (LeaseHolder) rSocket;
+                }
                 rSocketMono.onNext(rSocket);
                 availability = 1.0;
                 if (!WeightedSocket.this
                     .isDisposed()) { // May be already disposed because of retryBackoff delay
-                  activeSockets.add(WeightedSocket.this);
+                  addActiveSocket(WeightedSocket.this);
                   logger.debug(
                       "Added WeightedSocket {} from factory {} to activeSockets",
                       WeightedSocket.this,
@@ -783,13 +1010,46 @@ private synchronized long decr(long timestamp) {
 
     private synchronized void observe(double rtt) {
       median.insert(rtt);
+      peakLatency.insert(rtt);
       lowerQuantile.insert(rtt);
       higherQuantile.insert(rtt);
     }
 
     @Override
     public double availability() {
-      return availability;
+      double availability = this.availability;
+      return availability == 0.0 ? 0.0 : availability * leaseAvailability();
+    }
+
+    /**
+     * The share of the lease that is left, which is 0 when the lease is used up, or expires before
+     * a request would reach the responder, and 1 when requests are not bounded by leases.
+     */
+    private double leaseAvailability() {
+      Lease lease = currentLease();
+      if (lease == null) {
+        return 1.0;
+      }
+      int permits = lease.getAllowedRequests();
+      if (permits == 0) {
+        return 0.0;
+      }
+      long timeToLive =
+          Clock.unit()
+              .convert(
+                  lease.getRemainingTimeToLiveMillis(System.currentTimeMillis()),
+                  TimeUnit.MILLISECONDS);
+      // the median round trip is a conservative estimation of the time to reach the responder
+      if (timeToLive <= median.estimation()) {
+        return 0.0;
+      }
+      return permits / (double) lease.getStartingAllowedRequests();
+    }
+
+    @Nullable
+    private Lease currentLease() {
+      LeaseHolder leaseHolder = this.leaseHolder;
+      return leaseHolder == null ? null : leaseHolder.currentLease();
     }
 
     @Override
@@ -827,6 +1087,11 @@ public double higherQuantileLatency() {
       return higherQuantile.estimation();
     }
 
+    @Override
+    public double peakLatency() {
+      return peakLatency.value();
+    }
+
     @Override
     public double interArrivalTime() {
       return interArrivalTime.value();
@@ -842,6 +1107,34 @@ public long lastTimeUsedMillis() {
       return stamp0;
     }
 
+    @Override
+    public int leasePermits() {
+      Lease lease = currentLease();
+      if (lease == null) {
+        return Integer.MAX_VALUE;
+      }
+      return lease.isExpired() ? 0 : lease.getAllowedRequests();
+    }
+
+    @Override
+    public long leaseTimeToLiveMillis() {
+      Lease lease = currentLease();
+      if (lease == null) {
+        return Long.MAX_VALUE;
+      }
+      return lease.getRemainingTimeToLiveMillis(System.currentTimeMillis());
+    }
+
+    @Override
+    public int weight() {
+      return factory.weight();
+    }
+
+    @Override
+    public String key() {
+      return factory.key();
+    }
+
     /**
      * Subscriber wrapper used for request/response interaction model, measure and collect latency
      * information.
@@ -43,6 +43,16 @@ public interface LoadBalancerSocketMetrics extends Availability {
    */
   double higherQuantileLatency();
 
+  /**
+   * Peak exponentially weighted moving average of latency, which jumps to any latency above it and
+   * decays otherwise.
+   *
+   * @return Peak EWMA latency.
+   */
+  default double peakLatency() {
+    return medianLatency();
+  }
+
   /**
    * An exponentially weighted moving average value of the time between two requests.
    *
@@ -63,4 +73,43 @@ public interface LoadBalancerSocketMetrics extends Availability {
    * @return Last time used in millis since epoch.
    */
   long lastTimeUsedMillis();
+
+  /**
+   * Number of requests the lease of this socket still allows.
+   *
+   * @return Remaining lease permits, or {@link Integer#MAX_VALUE} if requests are not bounded by
+   *     leases.
+   */
+  default int leasePermits() {
+    return Integer.MAX_VALUE;
+  }
+
+  /**
+   * Time before the lease of this socket expires.
+   *
+   * @return Remaining lease time to live in millis, or {@link Long#MAX_VALUE} if requests are not
+   *     bounded by leases.
+   */
+  default long leaseTimeToLiveMillis() {
+    return Long.MAX_VALUE;
+  }
+
+  /**
+   * Weight of the backend this socket is connected to, relative to the other backends.
+   *
+   * @return Weight of the backend, at least 1.
+   */
+  default int weight() {
+    return 1;
+  }
+
+  /**
+   * Key identifying the backend this socket is connected to, which stays the same when it is
+   * reconnected. By default it only identifies this socket.
+   *
+   * @return Key of the backend.
+   */
+  default String key() {
+    return Integer.toHexString(System.identityHashCode(this));
+  }
 }
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rsocket.client;
+
+import io.rsocket.Payload;
+import reactor.util.annotation.Nullable;
+
+/**
+ * Picks the socket a request is sent to among the active sockets of a {@link
+ * LoadBalancedRSocketMono}. Implementations are called concurrently, without any lock held, and
+ * should not block.
+ *
+ * @see io.rsocket.client.strategy
+ */
+@FunctionalInterface
+public interface LoadBalancerStrategy {
+
+  /**
+   * Selects a socket.
+   *
+   * @param sockets the active sockets, at least two, which must not be modified
+   * @param payload the payload of the request, or {@code null} if the socket is selected before the
+   *     request is known
+   * @return the index of the selected socket
+   */
+  int select(LoadBalancerSocketMetrics[] sockets, @Nullable Payload payload);
+
+  /**
+   * Returns whether the strategy needs a socket to every supplier of the pool. If so, the load
+   * balancer connects to all of them instead of adjusting its aperture to the load, and does not
+   * close the slowest socket from time to time, so that the strategy keeps seeing the same sockets.
+   *
+   * @return {@code true} to connect to the whole pool, {@code false} by default
+   */
+  default boolean usesWholePool() {
+    return false;
+  }
+}
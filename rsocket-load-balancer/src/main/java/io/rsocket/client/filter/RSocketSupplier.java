@@ -29,6 +29,7 @@
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.core.publisher.MonoProcessor;
+import reactor.util.annotation.Nullable;
 
 /** */
 public class RSocketSupplier implements Availability, Supplier<Mono<RSocket>>, Closeable {
@@ -39,22 +40,59 @@ public class RSocketSupplier implements Availability, Supplier<Mono<RSocket>>, C
 
   private final MonoProcessor<Void> onClose;
 
+  private final String key;
+  private final int weight;
   private final long tau;
   private long stamp;
   private final Ewma errorPercentage;
 
-  public RSocketSupplier(Supplier<Mono<RSocket>> rSocketSupplier, long halfLife, TimeUnit unit) {
+  /**
+   * @param rSocketSupplier the supplier connecting to the backend
+   * @param key the key identifying the backend, or {@code null} to identify it by this supplier
+   * @param weight the weight of the backend, relative to the other backends
+   * @param halfLife the half-life of the error percentage
+   * @param unit the unit of the half-life
+   */
+  public RSocketSupplier(
+      Supplier<Mono<RSocket>> rSocketSupplier,
+      @Nullable String key,
+      int weight,
+      long halfLife,
+      TimeUnit unit) {
+    if (weight < 1) {
+      throw new IllegalArgumentException("weight must be at least 1: " + weight);
+    }
     this.rSocketSupplier = rSocketSupplier;
+    this.key = key != null ? key : Integer.toHexString(System.identityHashCode(this));
+    this.weight = weight;
     this.tau = Clock.unit().convert((long) (halfLife / Math.log(2)), unit);
     this.stamp = Clock.now();
     this.errorPercentage = new Ewma(halfLife, unit, 1.0);
     this.onClose = MonoProcessor.create();
   }
 
+  public RSocketSupplier(Supplier<Mono<RSocket>> rSocketSupplier, long halfLife, TimeUnit unit) {
+    this(rSocketSupplier, null, 1, halfLife, unit);
+  }
+
+  public RSocketSupplier(Supplier<Mono<RSocket>> rSocketSupplier, String key, int weight) {
+    this(rSocketSupplier, key, weight, 5, TimeUnit.SECONDS);
+  }
+
   public RSocketSupplier(Supplier<Mono<RSocket>> rSocketSupplier) {
     this(rSocketSupplier, 5, TimeUnit.SECONDS);
   }
 
+  /** @return the key identifying the backend, which load balancing strategies may hash */
+  public String key() {
+    return key;
+  }
+
+  /** @return the weight of the backend, relative to the other backends */
+  public int weight() {
+    return weight;
+  }
+
   @Override
   public double availability() {
     double e = errorPercentage.value();
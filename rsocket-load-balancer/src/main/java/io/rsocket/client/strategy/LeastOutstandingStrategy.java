@@ -0,0 +1,50 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rsocket.client.strategy;
+
+import io.rsocket.Payload;
+import io.rsocket.client.LoadBalancerSocketMetrics;
+import io.rsocket.client.LoadBalancerStrategy;
+import java.util.concurrent.ThreadLocalRandom;
+import reactor.util.annotation.Nullable;
+
+/**
+ * Selects the available socket with the fewest pending requests, scanning all of them from a random
+ * one so that ties are spread.
+ */
+public class LeastOutstandingStrategy implements LoadBalancerStrategy {
+
+  @Override
+  public int select(LoadBalancerSocketMetrics[] sockets, @Nullable Payload payload) {
+    int size = sockets.length;
+    int start = ThreadLocalRandom.current().nextInt(size);
+    int selected = start;
+    int fewestPending = Integer.MAX_VALUE;
+    for (int i = 0; i < size; i++) {
+      int index = start + i < size ? start + i : start + i - size;
+      LoadBalancerSocketMetrics socket = sockets[index];
+      if (socket.availability() > 0.0) {
+        int pending = socket.pending();
+        if (pending < fewestPending) {
+          fewestPending = pending;
+          selected = index;
+        }
+      }
+    }
+    return selected;
+  }
+}
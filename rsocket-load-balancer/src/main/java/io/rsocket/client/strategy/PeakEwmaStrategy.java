@@ -0,0 +1,62 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rsocket.client.strategy;
+
+import io.rsocket.Payload;
+import io.rsocket.client.LoadBalancerSocketMetrics;
+import io.rsocket.client.LoadBalancerStrategy;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import reactor.util.annotation.Nullable;
+
+/**
+ * Picks the cheaper of two random sockets, the cost of a socket being its {@link
+ * LoadBalancerSocketMetrics#peakLatency() peak EWMA latency} multiplied by its pending requests
+ * plus the new one. Sockets without latency yet cost nothing, so that they are tried.
+ */
+public class PeakEwmaStrategy implements LoadBalancerStrategy {
+
+  private static final int EFFORT = 5;
+
+  @Override
+  public int select(LoadBalancerSocketMetrics[] sockets, @Nullable Payload payload) {
+    int size = sockets.length;
+    int i1 = 0;
+    int i2 = 1;
+
+    Random rng = ThreadLocalRandom.current();
+    for (int i = 0; i < EFFORT; i++) {
+      i1 = rng.nextInt(size);
+      i2 = rng.nextInt(size - 1);
+      if (i2 >= i1) {
+        i2++;
+      }
+      if (sockets[i1].availability() > 0.0 && sockets[i2].availability() > 0.0) {
+        break;
+      }
+    }
+
+    return cost(sockets[i2]) < cost(sockets[i1]) ? i2 : i1;
+  }
+
+  private static double cost(LoadBalancerSocketMetrics socket) {
+    if (socket.availability() <= 0.0) {
+      return Double.POSITIVE_INFINITY;
+    }
+    return socket.peakLatency() * (socket.pending() + 1);
+  }
+}
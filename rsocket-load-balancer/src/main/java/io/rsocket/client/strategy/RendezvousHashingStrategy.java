@@ -0,0 +1,134 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rsocket.client.strategy;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.util.concurrent.FastThreadLocal;
+import io.rsocket.Payload;
+import io.rsocket.client.LoadBalancerSocketMetrics;
+import io.rsocket.client.LoadBalancerStrategy;
+import io.rsocket.metadata.CompositeMetadataCursor;
+import io.rsocket.metadata.WellKnownMimeType;
+import reactor.util.annotation.Nullable;
+
+/**
+ * Routes the requests that carry the same key to the same backend, so that it can cache what is
+ * related to the key. The key is the content of a composite metadata entry of a given mime type.
+ *
+ * <p>Backends are chosen by weighted rendezvous hashing: each available socket is scored by a hash
+ * of the key and of its {@link LoadBalancerSocketMetrics#key() backend key}, scaled by its {@link
+ * LoadBalancerSocketMetrics#weight() weight}, and the best score wins. When a backend goes away,
+ * only the keys that it had are moved, and they are spread over the others. Requests without a key
+ * are left to a fallback strategy.
+ *
+ * <p>Keys are only seen by the requests made through {@link
+ * io.rsocket.client.LoadBalancedRSocketMono#asRSocket()}. The load balancer connects to every
+ * backend of its pool for this strategy, so that keys do not move when the aperture changes.
+ */
+public class RendezvousHashingStrategy implements LoadBalancerStrategy {
+
+  private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+  private static final long FNV_PRIME = 0x100000001b3L;
+  private static final FastThreadLocal<CompositeMetadataCursor> CURSOR =
+      new FastThreadLocal<CompositeMetadataCursor>() {
+        @Override
+        protected CompositeMetadataCursor initialValue() {
+          return new CompositeMetadataCursor();
+        }
+      };
+
+  private final String mimeType;
+  @Nullable private final WellKnownMimeType wellKnownMimeType;
+  private final LoadBalancerStrategy fallback;
+
+  /** @param mimeType the mime type of the composite metadata entry holding the key */
+  public RendezvousHashingStrategy(String mimeType) {
+    this(mimeType, new LeastOutstandingStrategy());
+  }
+
+  /**
+   * @param mimeType the mime type of the composite metadata entry holding the key
+   * @param fallback the strategy for the requests without a key
+   */
+  public RendezvousHashingStrategy(String mimeType, LoadBalancerStrategy fallback) {
+    WellKnownMimeType wellKnownMimeType = WellKnownMimeType.fromString(mimeType);
+    this.mimeType = mimeType;
+    this.wellKnownMimeType =
+        wellKnownMimeType != WellKnownMimeType.UNPARSEABLE_MIME_TYPE ? wellKnownMimeType : null;
+    this.fallback = fallback;
+  }
+
+  @Override
+  public int select(LoadBalancerSocketMetrics[] sockets, @Nullable Payload payload) {
+    if (payload == null || !payload.hasMetadata()) {
+      return fallback.select(sockets, payload);
+    }
+
+    // read in place, the cursor does not move the reader index
+    ByteBuf metadata = payload.metadata();
+    CompositeMetadataCursor cursor = CURSOR.get().reset(metadata);
+    boolean found =
+        wellKnownMimeType != null ? cursor.seek(wellKnownMimeType) : cursor.seek(mimeType);
+    if (!found) {
+      return fallback.select(sockets, payload);
+    }
+
+    long keyHash = hash(metadata, cursor.contentIndex(), cursor.contentLength());
+    int selected = -1;
+    double bestScore = 0.0;
+    for (int i = 0; i < sockets.length; i++) {
+      LoadBalancerSocketMetrics socket = sockets[i];
+      if (socket.availability() > 0.0) {
+        double score = score(keyHash, socket);
+        if (score > bestScore) {
+          bestScore = score;
+          selected = i;
+        }
+      }
+    }
+    return selected >= 0 ? selected : fallback.select(sockets, payload);
+  }
+
+  @Override
+  public boolean usesWholePool() {
+    return true;
+  }
+
+  private static double score(long keyHash, LoadBalancerSocketMetrics socket) {
+    long hash = mix(keyHash ^ mix(socket.key().hashCode()));
+    // uniform in (0, 1), so that the logarithm is negative and finite
+    double uniform = ((hash >>> 11) + 0.5) * 0x1.0p-53;
+    return -Math.max(1, socket.weight()) / Math.log(uniform);
+  }
+
+  // FNV-1a, read in place
+  private static long hash(ByteBuf buffer, int index, int length) {
+    long hash = FNV_OFFSET_BASIS;
+    for (int i = index; i < index + length; i++) {
+      hash ^= buffer.getByte(i) & 0xFF;
+      hash *= FNV_PRIME;
+    }
+    return hash;
+  }
+
+  // the finalizer of SplitMix64, so that close inputs give unrelated outputs
+  private static long mix(long value) {
+    value = (value ^ (value >>> 30)) * 0xbf58476d1ce4e5b9L;
+    value = (value ^ (value >>> 27)) * 0x94d049bb133111ebL;
+    return value ^ (value >>> 31);
+  }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rsocket.client.strategy;
+
+import io.rsocket.Payload;
+import io.rsocket.client.LoadBalancerSocketMetrics;
+import io.rsocket.client.LoadBalancerStrategy;
+import java.util.concurrent.atomic.AtomicLong;
+import reactor.util.annotation.Nullable;
+
+/**
+ * Selects the sockets in turn, each of them as many times in a row as its {@link
+ * LoadBalancerSocketMetrics#weight() weight}, skipping the unavailable ones.
+ */
+public class WeightedRoundRobinStrategy implements LoadBalancerStrategy {
+
+  private final AtomicLong position = new AtomicLong();
+
+  // computed again when the sockets change, which is rare compared to selections
+  @Nullable private volatile Weights weights;
+
+  @Override
+  public int select(LoadBalancerSocketMetrics[] sockets, @Nullable Payload payload) {
+    Weights weights = this.weights;
+    if (weights == null || weights.sockets != sockets) {
+      weights = new Weights(sockets);
+      this.weights = weights;
+    }
+
+    int index = 0;
+    for (int i = 0; i < sockets.length; i++) {
+      index = weights.indexOf(Math.floorMod(position.getAndIncrement(), weights.total));
+      if (sockets[index].availability() > 0.0) {
+        break;
+      }
+    }
+    return index;
+  }
+
+  private static final class Weights {
+    final LoadBalancerSocketMetrics[] sockets;
+    // the sum of the weights of the sockets up to each of them, included
+    final long[] cumulative;
+    final long total;
+
+    Weights(LoadBalancerSocketMetrics[] sockets) {
+      this.sockets = sockets;
+      this.cumulative = new long[sockets.length];
+      long total = 0;
+      for (int i = 0; i < sockets.length; i++) {
+        total += Math.max(1, sockets[i].weight());
+        cumulative[i] = total;
+      }
+      this.total = total;
+    }
+
+    int indexOf(long position) {
+      int low = 0;
+      int high = cumulative.length - 1;
+      while (low < high) {
+        int middle = (low + high) >>> 1;
+        if (cumulative[middle] > position) {
+          high = middle;
+        } else {
+          low = middle + 1;
+        }
+      }
+      return low;
+    }
+  }
+}
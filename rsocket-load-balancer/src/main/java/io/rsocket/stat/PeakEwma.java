@@ -0,0 +1,81 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rsocket.stat;
+
+import io.rsocket.util.Clock;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Like {@link Ewma}, but sensitive to peaks: a value above the current average replaces it right
+ * away, while lower values only pull it down at the pace given by the half-life.
+ *
+ * <p>Used as a latency estimation, it reacts immediately to a backend slowing down and slowly
+ * trusts it again once it recovers.
+ *
+ * <p>Like Finagle's peak EWMA, the value also decays towards 0 with the time elapsed since the last
+ * insert. A backend that is avoided after a peak gets no new values, so without the decay it would
+ * keep its peak, and be avoided, forever.
+ */
+public class PeakEwma {
+  private final long tau;
+  private volatile long stamp;
+  private volatile double ewma;
+
+  public PeakEwma(long halfLife, TimeUnit unit, double initialValue) {
+    this.tau = Clock.unit().convert((long) (halfLife / Math.log(2)), unit);
+    stamp = 0L;
+    ewma = initialValue;
+  }
+
+  public synchronized void insert(double x) {
+    long now = Clock.now();
+    double elapsed = Math.max(0, now - stamp);
+    stamp = now;
+
+    if (x > ewma) {
+      ewma = x;
+    } else {
+      double w = Math.exp(-elapsed / tau);
+      ewma = w * ewma + (1.0 - w) * x;
+    }
+  }
+
+  public synchronized void reset(double value) {
+    stamp = 0L;
+    ewma = value;
+  }
+
+  /**
+   * Returns the average, decayed for the time elapsed since the last insert.
+   *
+   * @return the current value
+   */
+  public double value() {
+    long stamp = this.stamp;
+    double ewma = this.ewma;
+    if (stamp == 0L) {
+      return ewma;
+    }
+    double elapsed = Math.max(0, Clock.now() - stamp);
+    return ewma * Math.exp(-elapsed / tau);
+  }
+
+  @Override
+  public String toString() {
+    return "PeakEwma(value=" + value() + ", age=" + (Clock.now() - stamp) + ")";
+  }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rsocket.client;
+
+import io.rsocket.AbstractRSocket;
+import io.rsocket.Closeable;
+import io.rsocket.Payload;
+import io.rsocket.RSocketFactory;
+import io.rsocket.client.filter.RSocketSupplier;
+import io.rsocket.lease.Lease;
+import io.rsocket.lease.Leases;
+import io.rsocket.transport.local.LocalClientTransport;
+import io.rsocket.transport.local.LocalServerTransport;
+import io.rsocket.util.DefaultPayload;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/** Runs local servers issuing leases of different sizes at different rates behind a balancer. */
+public class LeaseAwareLoadBalancingTest {
+
+  private static final int[] PERMITS = {100, 50, 3};
+  private static final Duration[] PERIODS = {
+    Duration.ofMillis(100), Duration.ofSeconds(1), Duration.ofSeconds(10)
+  };
+
+  private final List<Closeable> servers = new ArrayList<>();
+  private final AtomicInteger[] requests = new AtomicInteger[PERMITS.length];
+  private final CountDownLatch connected = new CountDownLatch(PERMITS.length);
+  private LoadBalancedRSocketMono balancer;
+
+  @Before
+  public void setUp() {
+    List<RSocketSupplier> suppliers = new ArrayList<>();
+    for (int i = 0; i < PERMITS.length; i++) {
+      String name = "lease-aware-" + i + "-" + System.nanoTime();
+      AtomicInteger received = new AtomicInteger();
+      requests[i] = received;
+      servers.add(startServer(name, PERMITS[i], PERIODS[i], received));
+      suppliers.add(
+          new RSocketSupplier(
+              () ->
+                  RSocketFactory.connect()
+                      .lease()
+                      .transport(LocalClientTransport.create(name))
+                      .start()));
+    }
+    balancer = LoadBalancedRSocketMono.create(Mono.just(suppliers));
+  }
+
+  @After
+  public void tearDown() {
+    balancer.dispose();
+    servers.forEach(Closeable::dispose);
+  }
+
+  @Test(timeout = 10_000L)
+  public void routesRequestsByRemainingLeaseBudget() throws InterruptedException {
+    connected.await();
+    // every socket has received its first lease, none of which is used
+    while (balancer.availability() < 1.0) {
+      Thread.sleep(1);
+    }
+
+    for (int i = 0; i < 30; i++) {
+      Payload response =
+          balancer
+              .flatMap(rSocket -> rSocket.requestResponse(DefaultPayload.create("ping")))
+              .block();
+      Assert.assertEquals("pong", response.getDataUtf8());
+    }
+
+    int total = 0;
+    for (AtomicInteger received : requests) {
+      total += received.get();
+    }
+    Assert.assertEquals(30, total);
+    Assert.assertTrue(
+        "the smallest lease was exceeded: " + requests[2].get(), requests[2].get() <= PERMITS[2]);
+  }
+
+  private Closeable startServer(String name, int permits, Duration period, AtomicInteger received) {
+    int timeToLiveMillis = (int) period.toMillis() * 2;
+    return RSocketFactory.receive()
+        .lease(
+            () ->
+                Leases.create()
+                    .sender(
+                        stats ->
+                            Flux.interval(Duration.ZERO, period)
+                                .onBackpressureLatest()
+                                .map(tick -> Lease.create(timeToLiveMillis, permits))))
+        .acceptor(
+            (setup, sendingSocket) -> {
+              connected.countDown();
+              return Mono.just(
+                  new AbstractRSocket() {
+                    @Override
+                    public Mono<Payload> requestResponse(Payload payload) {
+                      payload.release();
+                      received.incrementAndGet();
+                      return Mono.just(DefaultPayload.create("pong"));
+                    }
+                  });
+            })
+        .transport(LocalServerTransport.create(name))
+        .start()
+        .block(Duration.ofSeconds(5));
+  }
+}
@@ -16,9 +16,17 @@
 
 package io.rsocket.client;
 
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
 import io.rsocket.Payload;
 import io.rsocket.RSocket;
 import io.rsocket.client.filter.RSocketSupplier;
+import io.rsocket.client.strategy.RendezvousHashingStrategy;
+import io.rsocket.metadata.CompositeMetadataFlyweight;
+import io.rsocket.util.ByteBufPayload;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -93,6 +101,46 @@ public void testRefreshesSocketsOnSelectBeforeReturningFailedAfterNewFactoriesDe
     Assert.assertEquals(1.0, balancer.availability(), 0);
   }
 
+  @Test(timeout = 10_000L)
+  public void testRoutesRequestsByPayloadThroughRSocket() {
+    List<TestingRSocket> sockets = new ArrayList<>();
+    List<RSocketSupplier> factories = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      TestingRSocket socket = new TestingRSocket(Function.identity());
+      RSocketSupplier factory = succeedingFactory(socket);
+      Mockito.when(factory.key()).thenReturn("backend-" + i);
+      sockets.add(socket);
+      factories.add(factory);
+    }
+
+    LoadBalancedRSocketMono balancer =
+        LoadBalancedRSocketMono.create(
+            Flux.just(factories), new RendezvousHashingStrategy("application/x.user-id"));
+    // a hashing strategy connects the whole pool rather than a random aperture
+    for (RSocketSupplier factory : factories) {
+      Mockito.verify(factory, Mockito.timeout(5_000L)).get();
+    }
+    RSocket rSocket = balancer.asRSocket();
+
+    for (int i = 0; i < 20; i++) {
+      rSocket.requestResponse(userPayload("user-42")).block().release();
+    }
+
+    Assert.assertEquals(
+        1, sockets.stream().filter(socket -> socket.countMessageReceived() == 20).count());
+    rSocket.dispose();
+  }
+
+  private static Payload userPayload(String userId) {
+    CompositeByteBuf metadata = ByteBufAllocator.DEFAULT.compositeBuffer();
+    CompositeMetadataFlyweight.encodeAndAddMetadata(
+        metadata,
+        ByteBufAllocator.DEFAULT,
+        "application/x.user-id",
+        ByteBufUtil.writeUtf8(ByteBufAllocator.DEFAULT, userId));
+    return ByteBufPayload.create(Unpooled.EMPTY_BUFFER, metadata);
+  }
+
   private void testBalancer(List<RSocketSupplier> factories) throws InterruptedException {
     Publisher<List<RSocketSupplier>> src =
         s -> {
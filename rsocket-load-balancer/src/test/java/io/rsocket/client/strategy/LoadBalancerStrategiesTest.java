@@ -0,0 +1,232 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rsocket.client.strategy;
+
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+import io.rsocket.Payload;
+import io.rsocket.client.LoadBalancerSocketMetrics;
+import io.rsocket.metadata.CompositeMetadataFlyweight;
+import io.rsocket.stat.PeakEwma;
+import io.rsocket.util.DefaultPayload;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LoadBalancerStrategiesTest {
+
+  private static final String KEY_MIME_TYPE = "application/x.cache-key";
+
+  @Test
+  public void leastOutstandingSelectsFewestPendingAvailableSocket() {
+    LoadBalancerSocketMetrics[] sockets = {
+      new TestSocket("a", 1, 3, 1.0),
+      new TestSocket("b", 1, 0, 0.0),
+      new TestSocket("c", 1, 1, 1.0),
+      new TestSocket("d", 1, 2, 1.0)
+    };
+
+    LeastOutstandingStrategy strategy = new LeastOutstandingStrategy();
+    for (int i = 0; i < 100; i++) {
+      Assert.assertEquals(2, strategy.select(sockets, null));
+    }
+  }
+
+  @Test
+  public void peakEwmaSelectsCheaperSocket() {
+    TestSocket fast = new TestSocket("fast", 1, 2, 1.0);
+    fast.peakLatency = 10;
+    TestSocket slow = new TestSocket("slow", 1, 0, 1.0);
+    slow.peakLatency = 100;
+    LoadBalancerSocketMetrics[] sockets = {slow, fast};
+
+    PeakEwmaStrategy strategy = new PeakEwmaStrategy();
+    for (int i = 0; i < 100; i++) {
+      Assert.assertEquals(1, strategy.select(sockets, null));
+    }
+  }
+
+  @Test
+  public void peakEwmaTriesSocketAgainAfterLatencySpike() throws InterruptedException {
+    PeakEwma spikedLatency = new PeakEwma(10, TimeUnit.MILLISECONDS, 0.0);
+    PeakEwma steadyLatency = new PeakEwma(10, TimeUnit.MILLISECONDS, 0.0);
+    spikedLatency.insert(1000);
+    TestSocket spiked = new TestSocket("spiked", 1, 0, 1.0);
+    TestSocket steady = new TestSocket("steady", 1, 0, 1.0);
+    LoadBalancerSocketMetrics[] sockets = {spiked, steady};
+    PeakEwmaStrategy strategy = new PeakEwmaStrategy();
+
+    steadyLatency.insert(10);
+    spiked.peakLatency = spikedLatency.value();
+    steady.peakLatency = steadyLatency.value();
+    Assert.assertEquals(1, strategy.select(sockets, null));
+
+    // the spiked socket gets no traffic, hence no samples, but its peak fades away
+    Thread.sleep(200);
+    steadyLatency.insert(10);
+    spiked.peakLatency = spikedLatency.value();
+    steady.peakLatency = steadyLatency.value();
+    Assert.assertEquals(0, strategy.select(sockets, null));
+  }
+
+  @Test
+  public void weightedRoundRobinSelectsInProportionToWeights() {
+    LoadBalancerSocketMetrics[] sockets = {
+      new TestSocket("a", 1, 0, 1.0), new TestSocket("b", 3, 0, 1.0), new TestSocket("c", 2, 0, 1.0)
+    };
+
+    WeightedRoundRobinStrategy strategy = new WeightedRoundRobinStrategy();
+    int[] selections = new int[sockets.length];
+    for (int i = 0; i < 600; i++) {
+      selections[strategy.select(sockets, null)]++;
+    }
+
+    Assert.assertArrayEquals(new int[] {100, 300, 200}, selections);
+  }
+
+  @Test
+  public void weightedRoundRobinSkipsUnavailableSockets() {
+    LoadBalancerSocketMetrics[] sockets = {
+      new TestSocket("a", 1, 0, 1.0), new TestSocket("b", 5, 0, 0.0)
+    };
+
+    WeightedRoundRobinStrategy strategy = new WeightedRoundRobinStrategy();
+    for (int i = 0; i < 100; i++) {
+      Assert.assertEquals(0, strategy.select(sockets, null));
+    }
+  }
+
+  @Test
+  public void rendezvousHashingKeepsKeysOnTheirBackend() {
+    LoadBalancerSocketMetrics[] sockets = new LoadBalancerSocketMetrics[10];
+    for (int i = 0; i < sockets.length; i++) {
+      sockets[i] = new TestSocket("backend-" + i, 1, 0, 1.0);
+    }
+    RendezvousHashingStrategy strategy = new RendezvousHashingStrategy(KEY_MIME_TYPE);
+
+    int[] selections = new int[sockets.length];
+    for (int key = 0; key < 1000; key++) {
+      Payload payload = keyedPayload("key-" + key);
+      int selected = strategy.select(sockets, payload);
+      Assert.assertEquals(selected, strategy.select(sockets, payload));
+      selections[selected]++;
+
+      // removing another backend does not move the key
+      int removed = selected == 0 ? 1 : 0;
+      LoadBalancerSocketMetrics[] remaining = Arrays.copyOf(sockets, sockets.length);
+      remaining[removed] = new TestSocket("gone", 1, 0, 0.0);
+      Assert.assertEquals(selected, strategy.select(remaining, payload));
+      payload.release();
+    }
+
+    for (int count : selections) {
+      Assert.assertTrue("unbalanced selections " + Arrays.toString(selections), count > 50);
+    }
+  }
+
+  @Test
+  public void rendezvousHashingFallsBackWithoutKey() {
+    LoadBalancerSocketMetrics[] sockets = {
+      new TestSocket("a", 1, 0, 1.0), new TestSocket("b", 1, 0, 1.0)
+    };
+    RendezvousHashingStrategy strategy =
+        new RendezvousHashingStrategy(KEY_MIME_TYPE, (s, payload) -> 1);
+
+    Assert.assertEquals(1, strategy.select(sockets, null));
+    Assert.assertEquals(1, strategy.select(sockets, DefaultPayload.create("data")));
+  }
+
+  private static Payload keyedPayload(String key) {
+    ByteBufAllocator allocator = ByteBufAllocator.DEFAULT;
+    CompositeByteBuf metadata = allocator.compositeBuffer();
+    CompositeMetadataFlyweight.encodeAndAddMetadata(
+        metadata, allocator, KEY_MIME_TYPE, ByteBufUtil.writeUtf8(allocator, key));
+    try {
+      return DefaultPayload.create(Unpooled.EMPTY_BUFFER, metadata);
+    } finally {
+      metadata.release();
+    }
+  }
+
+  private static class TestSocket implements LoadBalancerSocketMetrics {
+    final String key;
+    final int weight;
+    final int pending;
+    final double availability;
+    double peakLatency;
+
+    TestSocket(String key, int weight, int pending, double availability) {
+      this.key = key;
+      this.weight = weight;
+      this.pending = pending;
+      this.availability = availability;
+    }
+
+    @Override
+    public double medianLatency() {
+      return peakLatency;
+    }
+
+    @Override
+    public double lowerQuantileLatency() {
+      return peakLatency;
+    }
+
+    @Override
+    public double higherQuantileLatency() {
+      return peakLatency;
+    }
+
+    @Override
+    public double peakLatency() {
+      return peakLatency;
+    }
+
+    @Override
+    public double interArrivalTime() {
+      return 0;
+    }
+
+    @Override
+    public int pending() {
+      return pending;
+    }
+
+    @Override
+    public long lastTimeUsedMillis() {
+      return 0;
+    }
+
+    @Override
+    public int weight() {
+      return weight;
+    }
+
+    @Override
+    public String key() {
+      return key;
+    }
+
+    @Override
+    public double availability() {
+      return availability;
+    }
+  }
+}
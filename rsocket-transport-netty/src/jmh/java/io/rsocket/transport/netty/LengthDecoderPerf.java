@@ -0,0 +1,135 @@
+package io.rsocket.transport.netty;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.rsocket.frame.FrameLengthFlyweight;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Decodes a recording of TCP reads carrying frames of mixed sizes, with frames split across reads,
+ * and hands every frame to a consumer the way {@link TcpDuplexConnection} does on top of the
+ * reactor-netty inbound. Throughput is reported per read.
+ */
+@BenchmarkMode(Mode.Throughput)
+@Fork(value = 1)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@State(Scope.Thread)
+public class LengthDecoderPerf {
+
+  static final int STREAM_SIZE = 4 * 1024 * 1024;
+  static final int MAX_READ_SIZE = 64 * 1024;
+
+  @Param({"codec", "batch"})
+  String decoder;
+
+  byte[][] reads;
+  int nextRead;
+  ChannelPipeline pipeline;
+  EmbeddedChannel channel;
+
+  @Setup
+  public void setup(Blackhole bh) {
+    reads = record(new SplittableRandom(42));
+    ChannelHandler sink;
+    switch (decoder) {
+      case "codec":
+        sink =
+            new ChannelInboundHandlerAdapter() {
+              @Override
+              public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                ByteBuf frame = (ByteBuf) msg;
+                ByteBuf decoded = FrameLengthFlyweight.frame(frame).retain();
+                frame.release();
+                bh.consume(decoded);
+                decoded.release();
+              }
+            };
+        channel = new EmbeddedChannel(new RSocketLengthCodec(), sink);
+        break;
+      case "batch":
+        sink =
+            new ChannelInboundHandlerAdapter() {
+              @Override
+              public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                ByteBuf frame = (ByteBuf) msg;
+                frame.release();
+                bh.consume(frame);
+                frame.release();
+              }
+            };
+        channel = new EmbeddedChannel(new RSocketBatchLengthDecoder(), sink);
+        break;
+      default:
+        throw new IllegalStateException("unknown decoder " + decoder);
+    }
+    pipeline = channel.pipeline();
+  }
+
+  @TearDown
+  public void tearDown() {
+    channel.finishAndReleaseAll();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(1024)
+  public void decode() {
+    ChannelPipeline pipeline = this.pipeline;
+    byte[][] reads = this.reads;
+    int next = nextRead;
+    for (int i = 0; i < 1024; i++) {
+      pipeline.fireChannelRead(Unpooled.wrappedBuffer(reads[next]));
+      pipeline.fireChannelReadComplete();
+      if (++next == reads.length) {
+        next = 0;
+      }
+    }
+    nextRead = next;
+  }
+
+  /*
+   * Mostly small request and payload frames, some medium ones and the occasional large one, cut
+   * into reads of random size the way a socket delivers them.
+   */
+  static byte[][] record(SplittableRandom random) {
+    ByteArrayOutputStream stream = new ByteArrayOutputStream(STREAM_SIZE);
+    while (stream.size() < STREAM_SIZE) {
+      int percentile = random.nextInt(100);
+      int frameLength;
+      if (percentile < 70) {
+        frameLength = random.nextInt(16, 64);
+      } else if (percentile < 95) {
+        frameLength = random.nextInt(128, 1024);
+      } else {
+        frameLength = random.nextInt(4 * 1024, 16 * 1024);
+      }
+      stream.write(frameLength >> 16);
+      stream.write(frameLength >> 8);
+      stream.write(frameLength);
+      stream.write(new byte[frameLength], 0, frameLength);
+    }
+    // the recording ends at a frame boundary, so replaying it in a loop stays aligned
+    byte[] bytes = stream.toByteArray();
+
+    List<byte[]> reads = new ArrayList<>();
+    int offset = 0;
+    while (offset < bytes.length) {
+      int readSize = Math.min(bytes.length - offset, random.nextInt(1024, MAX_READ_SIZE));
+      byte[] read = new byte[readSize];
+      System.arraycopy(bytes, offset, read, 0, readSize);
+      reads.add(read);
+      offset += readSize;
+    }
+    return reads.toArray(new byte[0][]);
+  }
+}
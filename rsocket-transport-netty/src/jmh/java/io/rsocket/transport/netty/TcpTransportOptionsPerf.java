@@ -0,0 +1,102 @@
+package io.rsocket.transport.netty;
+
+import io.rsocket.AbstractRSocket;
+import io.rsocket.Payload;
+import io.rsocket.RSocket;
+import io.rsocket.RSocketFactory;
+import io.rsocket.frame.decoder.PayloadDecoder;
+import io.rsocket.transport.netty.client.TcpClientTransport;
+import io.rsocket.transport.netty.server.CloseableChannel;
+import io.rsocket.transport.netty.server.TcpServerTransport;
+import io.rsocket.util.ByteBufPayload;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.tcp.TcpClient;
+import reactor.netty.tcp.TcpServer;
+
+/**
+ * Request-response over TCP on the loopback interface, with the native transport when available and
+ * with NIO. The throughput is measured with many requests in flight, the latency one round trip at
+ * a time.
+ */
+@Fork(value = 1)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@State(Scope.Benchmark)
+public class TcpTransportOptionsPerf {
+  static final int CONCURRENCY = 256;
+
+  @Param({"true", "false"})
+  boolean preferNative;
+
+  byte[] data;
+  TcpTransportOptions options;
+  CloseableChannel server;
+  RSocket client;
+
+  @Setup
+  public void setup() {
+    data = new byte[64];
+    Mono<Payload> response = Mono.fromCallable(() -> ByteBufPayload.create(data));
+    options =
+        TcpTransportOptions.builder()
+            .preferNative(preferNative)
+            .busyPollMicros(50)
+            .quickAck(true)
+            .eventLoopThreads(2)
+            .build();
+    server =
+        RSocketFactory.receive()
+            .frameDecoder(PayloadDecoder.ZERO_COPY)
+            .acceptor(
+                (setup, sendingSocket) ->
+                    Mono.just(
+                        new AbstractRSocket() {
+                          @Override
+                          public Mono<Payload> requestResponse(Payload payload) {
+                            payload.release();
+                            return response;
+                          }
+                        }))
+            .transport(TcpServerTransport.create(TcpServer.create().port(0)).options(options))
+            .start()
+            .block();
+
+    TcpClient tcpClient = TcpClient.create().addressSupplier(server::address);
+    client =
+        RSocketFactory.connect()
+            .frameDecoder(PayloadDecoder.ZERO_COPY)
+            .transport(TcpClientTransport.create(tcpClient).options(options))
+            .start()
+            .block();
+  }
+
+  @TearDown
+  public void tearDown() {
+    client.dispose();
+    server.dispose();
+    server.onClose().block();
+    options.dispose();
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.Throughput)
+  @OutputTimeUnit(TimeUnit.SECONDS)
+  @OperationsPerInvocation(CONCURRENCY)
+  public long throughput() {
+    return Flux.range(0, CONCURRENCY)
+        .flatMap(i -> client.requestResponse(ByteBufPayload.create(data)), CONCURRENCY)
+        .doOnNext(Payload::release)
+        .count()
+        .block();
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SampleTime)
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  public void latency() {
+    client.requestResponse(ByteBufPayload.create(data)).block().release();
+  }
+}
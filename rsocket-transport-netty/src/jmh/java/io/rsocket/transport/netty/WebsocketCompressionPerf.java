@@ -0,0 +1,159 @@
+package io.rsocket.transport.netty;
+
+import io.rsocket.AbstractRSocket;
+import io.rsocket.Payload;
+import io.rsocket.RSocket;
+import io.rsocket.RSocketFactory;
+import io.rsocket.frame.decoder.PayloadDecoder;
+import io.rsocket.transport.netty.client.WebsocketClientTransport;
+import io.rsocket.transport.netty.server.CloseableChannel;
+import io.rsocket.transport.netty.server.WebsocketServerTransport;
+import io.rsocket.util.ByteBufPayload;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import reactor.core.publisher.Mono;
+
+/**
+ * Request-response round trips of JSON payloads over a websocket on the loopback interface, with
+ * and without permessage-deflate. The latency is measured by JMH; when compression is enabled, the
+ * bytes sent on the wire per round trip and the time spent compressing them are reported as
+ * auxiliary counters.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@State(Scope.Benchmark)
+public class WebsocketCompressionPerf {
+
+  @Param({"none", "deflate", "deflate-no-context"})
+  String compression;
+
+  @Param({"128", "4096", "65536"})
+  int payloadSize;
+
+  final List<WebsocketCompression.Stats> stats = new CopyOnWriteArrayList<>();
+
+  byte[] json;
+  CloseableChannel server;
+  RSocket client;
+
+  @Setup
+  public void setup() {
+    json = json(payloadSize);
+    Mono<Payload> response = Mono.fromCallable(() -> ByteBufPayload.create(json));
+
+    WebsocketServerTransport serverTransport = WebsocketServerTransport.create("localhost", 0);
+    WebsocketCompression settings = settings();
+    if (settings != null) {
+      serverTransport = serverTransport.compression(settings);
+    }
+    server =
+        RSocketFactory.receive()
+            .frameDecoder(PayloadDecoder.ZERO_COPY)
+            .acceptor(
+                (setup, sendingSocket) ->
+                    Mono.just(
+                        new AbstractRSocket() {
+                          @Override
+                          public Mono<Payload> requestResponse(Payload payload) {
+                            payload.release();
+                            return response;
+                          }
+                        }))
+            .transport(serverTransport)
+            .start()
+            .block();
+
+    WebsocketClientTransport clientTransport = WebsocketClientTransport.create(server.address());
+    if (settings != null) {
+      clientTransport = clientTransport.compression(settings);
+    }
+    client =
+        RSocketFactory.connect()
+            .frameDecoder(PayloadDecoder.ZERO_COPY)
+            .transport(clientTransport)
+            .start()
+            .block();
+  }
+
+  @TearDown
+  public void tearDown() {
+    client.dispose();
+    server.dispose();
+    server.onClose().block();
+  }
+
+  @Benchmark
+  public void requestResponse(WireCounters counters) {
+    client.requestResponse(ByteBufPayload.create(json)).block().release();
+    counters.record(stats);
+  }
+
+  /** Bytes written by both sides per round trip, and the time spent compressing them. */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class WireCounters {
+    public long wireBytes;
+    public long compressionNanos;
+
+    private long lastWireBytes;
+    private long lastCompressionNanos;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      wireBytes = 0;
+      compressionNanos = 0;
+    }
+
+    void record(List<WebsocketCompression.Stats> stats) {
+      long totalWireBytes = 0;
+      long totalCompressionNanos = 0;
+      for (WebsocketCompression.Stats s : stats) {
+        totalWireBytes += s.compressedBytes() + s.skippedBytes();
+        totalCompressionNanos += s.compressionNanos();
+      }
+      wireBytes += totalWireBytes - lastWireBytes;
+      compressionNanos += totalCompressionNanos - lastCompressionNanos;
+      lastWireBytes = totalWireBytes;
+      lastCompressionNanos = totalCompressionNanos;
+    }
+  }
+
+  private WebsocketCompression settings() {
+    switch (compression) {
+      case "none":
+        return null;
+      case "deflate":
+        return WebsocketCompression.builder().doOnConnection(stats::add).build();
+      case "deflate-no-context":
+        return WebsocketCompression.builder()
+            .noContextTakeover(true)
+            .doOnConnection(stats::add)
+            .build();
+      default:
+        throw new IllegalStateException("unknown compression " + compression);
+    }
+  }
+
+  /* an array of similar records, like the responses of a typical JSON API */
+  static byte[] json(int size) {
+    StringBuilder json = new StringBuilder("[");
+    for (int i = 0; json.length() < size; i++) {
+      json.append("{\"id\":")
+          .append(i)
+          .append(",\"name\":\"item-")
+          .append(i % 97)
+          .append("\",\"price\":")
+          .append(i * 31 % 1000)
+          .append(",\"tags\":[\"a\",\"b\"]},");
+    }
+    json.setLength(size - 1);
+    json.append(']');
+    return json.toString().getBytes(StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rsocket.transport.netty;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.CodecException;
+import io.netty.handler.codec.compression.ZlibCodecFactory;
+import io.netty.handler.codec.compression.ZlibWrapper;
+import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketFrame;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketExtension;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketExtensionEncoder;
+import java.util.List;
+
+/**
+ * The permessage-deflate encoder of {@link WebsocketCompression}. Unlike the Netty one, it leaves
+ * messages smaller than a minimum size uncompressed, which the extension allows message by message,
+ * and records what compression costs and saves in {@link WebsocketCompression.Stats}.
+ *
+ * <p>Fragmented websocket messages are never compressed. The transports do not send any.
+ */
+final class DeflateFrameEncoder extends WebSocketExtensionEncoder {
+
+  private static final int MEM_LEVEL = 8;
+  /* the empty stored block ending a sync flush, removed from every message */
+  private static final int FRAME_TAIL_LENGTH = 4;
+
+  private final int compressionLevel;
+  private final int windowBits;
+  private final boolean noContextTakeover;
+  private final int minCompressSize;
+  private final WebsocketCompression.Stats stats;
+
+  private EmbeddedChannel deflater;
+
+  DeflateFrameEncoder(
+      int compressionLevel,
+      int windowBits,
+      boolean noContextTakeover,
+      int minCompressSize,
+      WebsocketCompression.Stats stats) {
+    this.compressionLevel = compressionLevel;
+    this.windowBits = windowBits;
+    this.noContextTakeover = noContextTakeover;
+    this.minCompressSize = minCompressSize;
+    this.stats = stats;
+  }
+
+  @Override
+  public boolean acceptOutboundMessage(Object msg) throws Exception {
+    return (msg instanceof BinaryWebSocketFrame || msg instanceof TextWebSocketFrame)
+        && (((WebSocketFrame) msg).rsv() & WebSocketExtension.RSV1) == 0;
+  }
+
+  @Override
+  protected void encode(ChannelHandlerContext ctx, WebSocketFrame msg, List<Object> out) {
+    ByteBuf content = msg.content();
+    int length = content.readableBytes();
+    if (length < minCompressSize || !msg.isFinalFragment()) {
+      stats.recordSkipped(length);
+      out.add(msg.retain());
+      return;
+    }
+
+    long start = System.nanoTime();
+    if (deflater == null) {
+      deflater =
+          new EmbeddedChannel(
+              ZlibCodecFactory.newZlibEncoder(
+                  ZlibWrapper.NONE, compressionLevel, windowBits, MEM_LEVEL));
+    }
+
+    deflater.writeOutbound(content.retain());
+    CompositeByteBuf compressed = ctx.alloc().compositeBuffer();
+    for (; ; ) {
+      ByteBuf part = deflater.readOutbound();
+      if (part == null) {
+        break;
+      }
+      if (!part.isReadable()) {
+        part.release();
+        continue;
+      }
+      compressed.addComponent(true, part);
+    }
+    if (compressed.readableBytes() < FRAME_TAIL_LENGTH) {
+      compressed.release();
+      throw new CodecException("cannot read compressed buffer");
+    }
+    compressed.writerIndex(compressed.writerIndex() - FRAME_TAIL_LENGTH);
+
+    if (noContextTakeover) {
+      deflater.finishAndReleaseAll();
+      deflater = null;
+    }
+    stats.recordCompressed(length, compressed.readableBytes(), System.nanoTime() - start);
+
+    WebSocketFrame frame =
+        msg instanceof TextWebSocketFrame
+            ? new TextWebSocketFrame(true, msg.rsv() | WebSocketExtension.RSV1, compressed)
+            : new BinaryWebSocketFrame(true, msg.rsv() | WebSocketExtension.RSV1, compressed);
+    out.add(frame);
+  }
+
+  @Override
+  public void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
+    if (deflater != null) {
+      deflater.finishAndReleaseAll();
+      deflater = null;
+    }
+    super.handlerRemoved(ctx);
+  }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rsocket.transport.netty;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufHolder;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.util.concurrent.ScheduledFuture;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Outbound handler that holds back flushes according to a {@link FlushPolicy}, so that frames
+ * written by the send loop accumulate in the channel outbound buffer and leave the socket in one
+ * gathering write. All state is confined to the channel event loop.
+ */
+public final class FlushCoalescingHandler extends ChannelDuplexHandler {
+
+  private final FlushPolicy flushPolicy;
+  private final long maxDelayNanos;
+  private final Runnable flushTask = this::flushPending;
+
+  private ChannelHandlerContext ctx;
+  private int pendingFrames;
+  private long pendingBytes;
+  private boolean flushScheduled;
+  private ScheduledFuture<?> delayedFlush;
+
+  public FlushCoalescingHandler(FlushPolicy flushPolicy) {
+    this.flushPolicy = Objects.requireNonNull(flushPolicy, "flushPolicy must not be null");
+    this.maxDelayNanos = flushPolicy.maxDelayNanos();
+  }
+
+  @Override
+  public void handlerAdded(ChannelHandlerContext ctx) {
+    this.ctx = ctx;
+  }
+
+  @Override
+  public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+    pendingFrames++;
+    if (msg instanceof ByteBuf) {
+      pendingBytes += ((ByteBuf) msg).readableBytes();
+    } else if (msg instanceof ByteBufHolder) {
+      pendingBytes += ((ByteBufHolder) msg).content().readableBytes();
+    }
+    ctx.write(msg, promise);
+  }
+
+  @Override
+  public void flush(ChannelHandlerContext ctx) {
+    if (pendingFrames == 0) {
+      ctx.flush();
+      return;
+    }
+
+    if (flushPolicy.shouldFlush(pendingFrames, pendingBytes) || !ctx.channel().isWritable()) {
+      flushNow(ctx);
+    } else if (maxDelayNanos > 0) {
+      if (delayedFlush == null) {
+        delayedFlush = ctx.executor().schedule(flushTask, maxDelayNanos, TimeUnit.NANOSECONDS);
+      }
+    } else if (!flushScheduled) {
+      flushScheduled = true;
+      ctx.executor().execute(flushTask);
+    }
+  }
+
+  @Override
+  public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+    if (!ctx.channel().isWritable()) {
+      // let the outbound buffer drain instead of waiting for the policy
+      flushPending();
+    }
+    ctx.fireChannelWritabilityChanged();
+  }
+
+  @Override
+  public void close(ChannelHandlerContext ctx, ChannelPromise promise) throws Exception {
+    flushPending();
+    ctx.close(promise);
+  }
+
+  @Override
+  public void disconnect(ChannelHandlerContext ctx, ChannelPromise promise) throws Exception {
+    flushPending();
+    ctx.disconnect(promise);
+  }
+
+  @Override
+  public void handlerRemoved(ChannelHandlerContext ctx) {
+    flushPending();
+  }
+
+  private void flushPending() {
+    flushScheduled = false;
+    if (pendingFrames > 0) {
+      flushNow(ctx);
+    }
+  }
+
+  private void flushNow(ChannelHandlerContext ctx) {
+    int frames = pendingFrames;
+    long bytes = pendingBytes;
+    pendingFrames = 0;
+    pendingBytes = 0;
+    if (delayedFlush != null) {
+      delayedFlush.cancel(false);
+      delayedFlush = null;
+    }
+
+    ctx.flush();
+    flushPolicy.onFlush(frames, bytes);
+  }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rsocket.transport.netty;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.function.IntConsumer;
+
+/**
+ * Decides when frames written to a connection are flushed to the socket. Frames that are not
+ * flushed right away are coalesced with the following ones, so that many small frames leave in a
+ * single gathering write.
+ *
+ * <p>A policy is consulted every time the outbound side asks for a flush. When {@link
+ * #shouldFlush(int, long)} returns {@code false} the flush is postponed: if {@link
+ * #maxDelayNanos()} is positive, pending frames are flushed at the latest after that delay,
+ * otherwise they are flushed once the event loop finishes its current task, i.e. at the end of the
+ * drain of the send queue. Pending frames are never held back indefinitely.
+ *
+ * @see FlushCoalescingHandler
+ */
+public interface FlushPolicy {
+
+  /**
+   * @param pendingFrames number of frames written since the last flush, including the current one
+   * @param pendingBytes number of bytes written since the last flush, including the current frame
+   * @return {@code true} if the pending frames must be flushed now
+   */
+  boolean shouldFlush(int pendingFrames, long pendingBytes);
+
+  /**
+   * @return the maximum time in nanoseconds pending frames may wait for a flush, or {@code 0} to
+   *     flush them at the end of the current event loop task
+   */
+  default long maxDelayNanos() {
+    return 0;
+  }
+
+  /**
+   * Called after every flush performed under this policy.
+   *
+   * @param frames the number of frames carried by the flush
+   * @param bytes the number of bytes carried by the flush
+   */
+  default void onFlush(int frames, long bytes) {}
+
+  /**
+   * Returns a policy that flushes as soon as either this or the other policy would, and waits at
+   * most the shorter of both maximum delays.
+   *
+   * @param other the other policy
+   * @return the combined policy
+   */
+  default FlushPolicy or(FlushPolicy other) {
+    Objects.requireNonNull(other, "other must not be null");
+    FlushPolicy self = this;
+    long selfDelay = self.maxDelayNanos();
+    long otherDelay = other.maxDelayNanos();
+    long delay =
+        selfDelay > 0 && otherDelay > 0
+            ? Math.min(selfDelay, otherDelay)
+            : Math.max(selfDelay, otherDelay);
+    return new FlushPolicy() {
+      @Override
+      public boolean shouldFlush(int pendingFrames, long pendingBytes) {
+        return self.shouldFlush(pendingFrames, pendingBytes)
+            || other.shouldFlush(pendingFrames, pendingBytes);
+      }
+
+      @Override
+      public long maxDelayNanos() {
+        return delay;
+      }
+
+      @Override
+      public void onFlush(int frames, long bytes) {
+        self.onFlush(frames, bytes);
+        other.onFlush(frames, bytes);
+      }
+    };
+  }
+
+  /**
+   * Returns a policy that behaves like this one and reports the number of frames carried by each
+   * flush to the given consumer.
+   *
+   * @param framesPerFlush receives the number of frames of each flush
+   * @return the reporting policy
+   */
+  default FlushPolicy doOnFlush(IntConsumer framesPerFlush) {
+    Objects.requireNonNull(framesPerFlush, "framesPerFlush must not be null");
+    FlushPolicy self = this;
+    return new FlushPolicy() {
+      @Override
+      public boolean shouldFlush(int pendingFrames, long pendingBytes) {
+        return self.shouldFlush(pendingFrames, pendingBytes);
+      }
+
+      @Override
+      public long maxDelayNanos() {
+        return self.maxDelayNanos();
+      }
+
+      @Override
+      public void onFlush(int frames, long bytes) {
+        self.onFlush(frames, bytes);
+        framesPerFlush.accept(frames);
+      }
+    };
+  }
+
+  /**
+   * Flushes every frame as soon as it is written. This is the default and does not coalesce.
+   *
+   * @return the policy
+   */
+  static FlushPolicy immediate() {
+    return (pendingFrames, pendingBytes) -> true;
+  }
+
+  /**
+   * Flushes once the event loop has drained everything that is ready to be sent.
+   *
+   * @return the policy
+   */
+  static FlushPolicy onDrain() {
+    return (pendingFrames, pendingBytes) -> false;
+  }
+
+  /**
+   * Flushes after {@code frames} frames, or at the end of the drain if fewer are pending.
+   *
+   * @param frames the number of frames that triggers a flush
+   * @return the policy
+   */
+  static FlushPolicy onFrames(int frames) {
+    if (frames <= 0) {
+      throw new IllegalArgumentException("frames must be > 0");
+    }
+    return (pendingFrames, pendingBytes) -> pendingFrames >= frames;
+  }
+
+  /**
+   * Flushes after {@code bytes} bytes, or at the end of the drain if fewer are pending.
+   *
+   * @param bytes the number of bytes that triggers a flush
+   * @return the policy
+   */
+  static FlushPolicy onBytes(int bytes) {
+    if (bytes <= 0) {
+      throw new IllegalArgumentException("bytes must be > 0");
+    }
+    return (pendingFrames, pendingBytes) -> pendingBytes >= bytes;
+  }
+
+  /**
+   * Coalesces frames across event loop tasks and flushes them once the oldest pending frame has
+   * waited for {@code maxDelay}. Usually combined with {@link #onFrames(int)} or {@link
+   * #onBytes(int)} through {@link #or(FlushPolicy)}.
+   *
+   * @param maxDelay the maximum time a frame waits for a flush, with microsecond precision
+   * @return the policy
+   */
+  static FlushPolicy maxDelay(Duration maxDelay) {
+    Objects.requireNonNull(maxDelay, "maxDelay must not be null");
+    long delayNanos = maxDelay.toNanos();
+    if (delayNanos < 1_000) {
+      throw new IllegalArgumentException("maxDelay must be at least 1 microsecond");
+    }
+    return new FlushPolicy() {
+      @Override
+      public boolean shouldFlush(int pendingFrames, long pendingBytes) {
+        return false;
+      }
+
+      @Override
+      public long maxDelayNanos() {
+        return delayNanos;
+      }
+    };
+  }
+}
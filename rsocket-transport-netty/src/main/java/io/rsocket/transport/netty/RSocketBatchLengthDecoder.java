@@ -0,0 +1,59 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rsocket.transport.netty;
+
+import static io.rsocket.frame.FrameLengthFlyweight.FRAME_LENGTH_SIZE;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.ByteToMessageDecoder;
+import java.util.List;
+
+/**
+ * Splits the RSocket length-prefixed frames of a read in a single pass. Unlike {@link
+ * RSocketLengthCodec}, the emitted frames do not include the length header, and they are plain
+ * slices of the cumulation buffer that is retained once for the whole batch instead of once per
+ * frame.
+ *
+ * <p>Each frame carries two references: one for the reactor-netty inbound, which releases every
+ * message after delivering it, and one for the RSocket consumer. Read these frames with a {@link
+ * TcpDuplexConnection} created with {@code lengthDecoded} set.
+ */
+public final class RSocketBatchLengthDecoder extends ByteToMessageDecoder {
+
+  @Override
+  protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) {
+    int readerIndex = in.readerIndex();
+    int writerIndex = in.writerIndex();
+    int frames = 0;
+    while (writerIndex - readerIndex >= FRAME_LENGTH_SIZE) {
+      int frameLength = in.getUnsignedMedium(readerIndex);
+      int frameStart = readerIndex + FRAME_LENGTH_SIZE;
+      if (writerIndex - frameStart < frameLength) {
+        break;
+      }
+      out.add(in.slice(frameStart, frameLength));
+      readerIndex = frameStart + frameLength;
+      frames++;
+    }
+
+    if (frames > 0) {
+      in.retain(frames << 1);
+      in.readerIndex(readerIndex);
+    }
+  }
+}
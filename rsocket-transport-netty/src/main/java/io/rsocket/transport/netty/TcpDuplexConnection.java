@@ -33,6 +33,7 @@ public final class TcpDuplexConnection extends BaseDuplexConnection {
   private final Connection connection;
   private final ByteBufAllocator allocator = ByteBufAllocator.DEFAULT;
   private final boolean encodeLength;
+  private final boolean lengthDecoded;
 
   /**
    * Creates a new instance
@@ -50,7 +51,20 @@ public TcpDuplexConnection(Connection connection) {
    * @param connection the {@link Connection} to for managing the server
    */
   public TcpDuplexConnection(Connection connection, boolean encodeLength) {
+    this(connection, encodeLength, false);
+  }
+
+  /**
+   * Creates a new instance
+   *
+   * @param connection the {@link Connection} to for managing the server
+   * @param encodeLength indicates if this connection should encode the length or not.
+   * @param lengthDecoded indicates if inbound frames were already stripped of their length and
+   *     retained by {@link RSocketBatchLengthDecoder}
+   */
+  public TcpDuplexConnection(Connection connection, boolean encodeLength, boolean lengthDecoded) {
     this.encodeLength = encodeLength;
+    this.lengthDecoded = lengthDecoded;
     this.connection = Objects.requireNonNull(connection, "connection must not be null");
 
     connection
@@ -91,7 +105,7 @@ private ByteBuf encode(ByteBuf frame) {
   }
 
   private ByteBuf decode(ByteBuf frame) {
-    if (encodeLength) {
+    if (encodeLength && !lengthDecoded) {
       return FrameLengthFlyweight.frame(frame).retain();
     } else {
       return frame;
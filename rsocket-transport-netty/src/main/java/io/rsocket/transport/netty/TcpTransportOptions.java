@@ -0,0 +1,255 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rsocket.transport.netty;
+
+import io.netty.channel.ChannelOption;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollChannelOption;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.Disposable;
+import reactor.netty.resources.LoopResources;
+import reactor.netty.tcp.TcpClient;
+import reactor.netty.tcp.TcpResources;
+import reactor.netty.tcp.TcpServer;
+
+/**
+ * Event loop and socket settings of the TCP transports, tuned for RSocket connections: many small
+ * frames, multiplexed on a single long-lived connection.
+ *
+ * <p>By default the native epoll transport is used when it is available and NIO otherwise. Options
+ * that only exist for epoll, such as {@link Builder#busyPollMicros(int)} and {@link
+ * Builder#quickAck(boolean)}, are ignored when falling back to NIO.
+ *
+ * <p>When {@link Builder#eventLoopThreads(int)} is set, the options own a dedicated set of event
+ * loops that is shared by every transport configured with them, and released by {@link
+ * #dispose()}. Otherwise the reactor-netty {@link TcpResources} are used.
+ *
+ * @see io.rsocket.transport.netty.client.TcpClientTransport#options(TcpTransportOptions)
+ * @see io.rsocket.transport.netty.server.TcpServerTransport#options(TcpTransportOptions)
+ */
+public final class TcpTransportOptions implements Disposable {
+  private static final Logger logger = LoggerFactory.getLogger(TcpTransportOptions.class);
+
+  private final boolean preferNative;
+  private final boolean tcpNoDelay;
+  private final int busyPollMicros;
+  private final boolean quickAck;
+  @Nullable private final LoopResources loopResources;
+
+  private TcpTransportOptions(Builder builder) {
+    this.preferNative = builder.preferNative;
+    this.tcpNoDelay = builder.tcpNoDelay;
+    this.busyPollMicros = builder.busyPollMicros;
+    this.quickAck = builder.quickAck;
+    this.loopResources =
+        builder.eventLoopThreads > 0
+            ? LoopResources.create("rsocket-tcp", builder.eventLoopThreads, true)
+            : null;
+
+    if (preferNative && !isNativeAvailable()) {
+      logger.debug(
+          "Native transport is not available, falling back to NIO: {}",
+          String.valueOf(Epoll.unavailabilityCause()));
+    }
+  }
+
+  /**
+   * Returns a new builder, preferring the native transport and disabling Nagle's algorithm.
+   *
+   * @return a new builder
+   */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * Returns whether the native epoll transport can be loaded on this platform.
+   *
+   * @return {@code true} if the native transport is available
+   */
+  public static boolean isNativeAvailable() {
+    return Epoll.isAvailable();
+  }
+
+  /**
+   * Returns whether connections configured with these options use the native transport.
+   *
+   * @return {@code true} if the native transport is preferred and available
+   */
+  public boolean isNative() {
+    return preferNative && isNativeAvailable();
+  }
+
+  /**
+   * Applies these options to a {@link TcpClient}.
+   *
+   * @param client the client to configure
+   * @return the configured client
+   */
+  public TcpClient apply(TcpClient client) {
+    client =
+        client.runOn(loopResources(), preferNative).option(ChannelOption.TCP_NODELAY, tcpNoDelay);
+    if (isNative()) {
+      if (busyPollMicros > 0) {
+        client = client.option(EpollChannelOption.SO_BUSY_POLL, busyPollMicros);
+      }
+      if (quickAck) {
+        client = client.option(EpollChannelOption.TCP_QUICKACK, true);
+      }
+    }
+    return client;
+  }
+
+  /**
+   * Applies these options to the connections accepted by a {@link TcpServer}.
+   *
+   * @param server the server to configure
+   * @return the configured server
+   */
+  public TcpServer apply(TcpServer server) {
+    server =
+        server.runOn(loopResources(), preferNative).option(ChannelOption.TCP_NODELAY, tcpNoDelay);
+    if (isNative()) {
+      if (busyPollMicros > 0) {
+        server = server.option(EpollChannelOption.SO_BUSY_POLL, busyPollMicros);
+      }
+      if (quickAck) {
+        server = server.option(EpollChannelOption.TCP_QUICKACK, true);
+      }
+    }
+    return server;
+  }
+
+  @Override
+  public void dispose() {
+    if (loopResources != null) {
+      loopResources.dispose();
+    }
+  }
+
+  @Override
+  public boolean isDisposed() {
+    return loopResources != null && loopResources.isDisposed();
+  }
+
+  private LoopResources loopResources() {
+    return loopResources != null ? loopResources : TcpResources.get();
+  }
+
+  @Override
+  public String toString() {
+    return "TcpTransportOptions{"
+        + "native="
+        + isNative()
+        + ", tcpNoDelay="
+        + tcpNoDelay
+        + ", busyPollMicros="
+        + busyPollMicros
+        + ", quickAck="
+        + quickAck
+        + '}';
+  }
+
+  /** Builder of {@link TcpTransportOptions}. */
+  public static final class Builder {
+    private boolean preferNative = true;
+    private boolean tcpNoDelay = true;
+    private int busyPollMicros;
+    private boolean quickAck;
+    private int eventLoopThreads;
+
+    private Builder() {}
+
+    /**
+     * Sets whether the native transport is used when available. Defaults to {@code true}.
+     *
+     * @param preferNative {@code false} to always use NIO
+     * @return this builder
+     */
+    public Builder preferNative(boolean preferNative) {
+      this.preferNative = preferNative;
+      return this;
+    }
+
+    /**
+     * Sets {@code TCP_NODELAY}. Defaults to {@code true}, as RSocket frames are small and latency
+     * sensitive, and batching is better left to the {@link FlushPolicy}.
+     *
+     * @param tcpNoDelay {@code false} to enable Nagle's algorithm
+     * @return this builder
+     */
+    public Builder tcpNoDelay(boolean tcpNoDelay) {
+      this.tcpNoDelay = tcpNoDelay;
+      return this;
+    }
+
+    /**
+     * Sets {@code SO_BUSY_POLL}, the time the kernel busy polls the device queue on blocking reads.
+     * Native transport only. Defaults to {@code 0}, which disables busy polling.
+     *
+     * @param busyPollMicros the busy poll time in microseconds
+     * @return this builder
+     * @throws IllegalArgumentException if {@code busyPollMicros} is negative
+     */
+    public Builder busyPollMicros(int busyPollMicros) {
+      if (busyPollMicros < 0) {
+        throw new IllegalArgumentException("busyPollMicros must be >= 0");
+      }
+      this.busyPollMicros = busyPollMicros;
+      return this;
+    }
+
+    /**
+     * Sets {@code TCP_QUICKACK}, so that acknowledgements are not delayed. Native transport only.
+     * Defaults to {@code false}.
+     *
+     * @param quickAck {@code true} to send acknowledgements immediately
+     * @return this builder
+     */
+    public Builder quickAck(boolean quickAck) {
+      this.quickAck = quickAck;
+      return this;
+    }
+
+    /**
+     * Sets the number of event loop threads dedicated to the transports configured with the
+     * options. Defaults to {@code 0}, which shares the reactor-netty {@link TcpResources}.
+     *
+     * @param eventLoopThreads the number of event loop threads
+     * @return this builder
+     * @throws IllegalArgumentException if {@code eventLoopThreads} is negative
+     */
+    public Builder eventLoopThreads(int eventLoopThreads) {
+      if (eventLoopThreads < 0) {
+        throw new IllegalArgumentException("eventLoopThreads must be >= 0");
+      }
+      this.eventLoopThreads = eventLoopThreads;
+      return this;
+    }
+
+    /**
+     * Returns the options, creating dedicated event loops if {@link #eventLoopThreads(int)} is set.
+     *
+     * @return the options
+     */
+    public TcpTransportOptions build() {
+      return new TcpTransportOptions(this);
+    }
+  }
+}
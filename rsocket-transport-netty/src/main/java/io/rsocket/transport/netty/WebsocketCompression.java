@@ -0,0 +1,404 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rsocket.transport.netty;
+
+import io.netty.channel.ChannelHandler;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketClientExtension;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketClientExtensionHandler;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketClientExtensionHandshaker;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketExtensionData;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketExtensionDecoder;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketExtensionEncoder;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketServerExtension;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketServerExtensionHandler;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketServerExtensionHandshaker;
+import io.netty.handler.codec.http.websocketx.extensions.compression.PerMessageDeflateClientExtensionHandshaker;
+import io.netty.handler.codec.http.websocketx.extensions.compression.PerMessageDeflateServerExtensionHandshaker;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * Settings of the permessage-deflate extension (RFC 7692) of the websocket transports. Compression
+ * is only used when both the client and the server enable it.
+ *
+ * <p>Messages smaller than {@link Builder#minCompressSize(int)} are sent uncompressed, as the
+ * deflate overhead outweighs the savings on small frames. The window sizes bound the memory used
+ * per connection by the compressor of each side; sizes below {@code 15} bits require {@code
+ * com.jcraft:jzlib} on the classpath, as they do for the Netty extension.
+ *
+ * <p>For every connection that negotiated compression, the {@link Stats} of its outbound messages
+ * are handed to {@link Builder#doOnConnection(Consumer)}.
+ *
+ * @see io.rsocket.transport.netty.client.WebsocketClientTransport#compression(WebsocketCompression)
+ * @see io.rsocket.transport.netty.server.WebsocketServerTransport#compression(WebsocketCompression)
+ */
+public final class WebsocketCompression {
+
+  private static final int MAX_WINDOW_BITS = 15;
+  private static final String CLIENT_MAX_WINDOW = "client_max_window_bits";
+  private static final String SERVER_MAX_WINDOW = "server_max_window_bits";
+  private static final String CLIENT_NO_CONTEXT = "client_no_context_takeover";
+  private static final String SERVER_NO_CONTEXT = "server_no_context_takeover";
+
+  private final int compressionLevel;
+  private final int clientWindowBits;
+  private final int serverWindowBits;
+  private final boolean noContextTakeover;
+  private final int minCompressSize;
+  private final Consumer<Stats> statsConsumer;
+
+  private WebsocketCompression(Builder builder) {
+    this.compressionLevel = builder.compressionLevel;
+    this.clientWindowBits = builder.clientWindowBits;
+    this.serverWindowBits = builder.serverWindowBits;
+    this.noContextTakeover = builder.noContextTakeover;
+    this.minCompressSize = builder.minCompressSize;
+    this.statsConsumer = builder.statsConsumer;
+  }
+
+  /**
+   * Returns a new builder with compression level 6, 15 bit windows, context takeover, and a minimum
+   * compressed message size of 256 bytes.
+   *
+   * @return a new builder
+   */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * Returns a handler negotiating the extension from the client side. It must be in the pipeline
+   * before the websocket handshake starts, and removes itself once it is done.
+   *
+   * @return a new handler
+   */
+  public ChannelHandler newClientHandler() {
+    return new WebSocketClientExtensionHandler(new ClientHandshaker());
+  }
+
+  /**
+   * Returns a handler negotiating the extension from the server side. It must be in the pipeline
+   * before the websocket handshake request is read, and removes itself once it is done.
+   *
+   * @return a new handler
+   */
+  public ChannelHandler newServerHandler() {
+    return new WebSocketServerExtensionHandler(new ServerHandshaker());
+  }
+
+  @Override
+  public String toString() {
+    return "WebsocketCompression{"
+        + "compressionLevel="
+        + compressionLevel
+        + ", clientWindowBits="
+        + clientWindowBits
+        + ", serverWindowBits="
+        + serverWindowBits
+        + ", noContextTakeover="
+        + noContextTakeover
+        + ", minCompressSize="
+        + minCompressSize
+        + '}';
+  }
+
+  private DeflateFrameEncoder newEncoder(int windowBits, boolean noContextTakeover) {
+    Stats stats = new Stats();
+    statsConsumer.accept(stats);
+    return new DeflateFrameEncoder(
+        compressionLevel, windowBits, noContextTakeover, minCompressSize, stats);
+  }
+
+  /* the window of a compressor, bounded by what the peer accepted */
+  private static int windowBits(WebSocketExtensionData data, String parameter, int windowBits) {
+    String value = data.parameters().get(parameter);
+    if (value == null) {
+      return windowBits;
+    }
+    try {
+      return Math.min(windowBits, Integer.parseInt(value));
+    } catch (NumberFormatException e) {
+      return windowBits;
+    }
+  }
+
+  private final class ClientHandshaker implements WebSocketClientExtensionHandshaker {
+    private final PerMessageDeflateClientExtensionHandshaker delegate =
+        new PerMessageDeflateClientExtensionHandshaker(
+            compressionLevel, true, serverWindowBits, noContextTakeover, noContextTakeover);
+
+    @Override
+    public WebSocketExtensionData newRequestData() {
+      return delegate.newRequestData();
+    }
+
+    @Override
+    public WebSocketClientExtension handshakeExtension(WebSocketExtensionData extensionData) {
+      WebSocketClientExtension extension = delegate.handshakeExtension(extensionData);
+      if (extension == null) {
+        return null;
+      }
+
+      int windowBits = windowBits(extensionData, CLIENT_MAX_WINDOW, clientWindowBits);
+      boolean noContext =
+          noContextTakeover || extensionData.parameters().containsKey(CLIENT_NO_CONTEXT);
+      return new WebSocketClientExtension() {
+        @Override
+        public int rsv() {
+          return extension.rsv();
+        }
+
+        @Override
+        public WebSocketExtensionEncoder newExtensionEncoder() {
+          return newEncoder(windowBits, noContext);
+        }
+
+        @Override
+        public WebSocketExtensionDecoder newExtensionDecoder() {
+          return extension.newExtensionDecoder();
+        }
+      };
+    }
+  }
+
+  private final class ServerHandshaker implements WebSocketServerExtensionHandshaker {
+    private final PerMessageDeflateServerExtensionHandshaker delegate =
+        new PerMessageDeflateServerExtensionHandshaker(
+            compressionLevel, true, clientWindowBits, true, noContextTakeover);
+
+    @Override
+    public WebSocketServerExtension handshakeExtension(WebSocketExtensionData extensionData) {
+      WebSocketServerExtension extension = delegate.handshakeExtension(extensionData);
+      if (extension == null) {
+        return null;
+      }
+
+      WebSocketExtensionData responseData = extension.newReponseData();
+      int windowBits = windowBits(responseData, SERVER_MAX_WINDOW, serverWindowBits);
+      boolean noContext =
+          noContextTakeover || responseData.parameters().containsKey(SERVER_NO_CONTEXT);
+      return new WebSocketServerExtension() {
+        @Override
+        public int rsv() {
+          return extension.rsv();
+        }
+
+        @Override
+        public WebSocketExtensionEncoder newExtensionEncoder() {
+          return newEncoder(windowBits, noContext);
+        }
+
+        @Override
+        public WebSocketExtensionDecoder newExtensionDecoder() {
+          return extension.newExtensionDecoder();
+        }
+
+        @Override
+        public WebSocketExtensionData newReponseData() {
+          return responseData;
+        }
+      };
+    }
+  }
+
+  /**
+   * Outbound compression statistics of a connection. Updated by the event loop of the connection,
+   * readable from any thread.
+   */
+  public static final class Stats {
+    private volatile long uncompressedBytes;
+    private volatile long compressedBytes;
+    private volatile long compressedMessages;
+    private volatile long skippedBytes;
+    private volatile long skippedMessages;
+    private volatile long compressionNanos;
+
+    Stats() {}
+
+    /** @return the size before compression of the messages that were compressed */
+    public long uncompressedBytes() {
+      return uncompressedBytes;
+    }
+
+    /** @return the size after compression of the messages that were compressed */
+    public long compressedBytes() {
+      return compressedBytes;
+    }
+
+    /** @return the number of messages that were compressed */
+    public long compressedMessages() {
+      return compressedMessages;
+    }
+
+    /** @return the size of the messages sent uncompressed as they were too small */
+    public long skippedBytes() {
+      return skippedBytes;
+    }
+
+    /** @return the number of messages sent uncompressed as they were too small */
+    public long skippedMessages() {
+      return skippedMessages;
+    }
+
+    /** @return the time in nanoseconds the event loop spent compressing messages */
+    public long compressionNanos() {
+      return compressionNanos;
+    }
+
+    /**
+     * @return the size after compression over the size before compression of the messages that
+     *     were compressed, or {@code 1} if none was
+     */
+    public double compressionRatio() {
+      long uncompressed = uncompressedBytes;
+      return uncompressed == 0 ? 1 : (double) compressedBytes / uncompressed;
+    }
+
+    void recordCompressed(int uncompressed, int compressed, long nanos) {
+      uncompressedBytes += uncompressed;
+      compressedBytes += compressed;
+      compressedMessages++;
+      compressionNanos += nanos;
+    }
+
+    void recordSkipped(int bytes) {
+      skippedBytes += bytes;
+      skippedMessages++;
+    }
+
+    @Override
+    public String toString() {
+      return "Stats{"
+          + "compressionRatio="
+          + compressionRatio()
+          + ", compressedMessages="
+          + compressedMessages
+          + ", skippedMessages="
+          + skippedMessages
+          + ", compressionNanos="
+          + compressionNanos
+          + '}';
+    }
+  }
+
+  /** Builder of {@link WebsocketCompression}. */
+  public static final class Builder {
+    private int compressionLevel = 6;
+    private int clientWindowBits = MAX_WINDOW_BITS;
+    private int serverWindowBits = MAX_WINDOW_BITS;
+    private boolean noContextTakeover;
+    private int minCompressSize = 256;
+    private Consumer<Stats> statsConsumer = stats -> {};
+
+    private Builder() {}
+
+    /**
+     * Sets the deflate compression level. Defaults to {@code 6}.
+     *
+     * @param compressionLevel the level, from {@code 0} (no compression) to {@code 9} (best)
+     * @return this builder
+     * @throws IllegalArgumentException if {@code compressionLevel} is not between 0 and 9
+     */
+    public Builder compressionLevel(int compressionLevel) {
+      if (compressionLevel < 0 || compressionLevel > 9) {
+        throw new IllegalArgumentException("compressionLevel must be between 0 and 9");
+      }
+      this.compressionLevel = compressionLevel;
+      return this;
+    }
+
+    /**
+     * Sets the window size, in bits, of the compressor of the client. Defaults to {@code 15}.
+     *
+     * @param clientWindowBits the window size, from {@code 9} to {@code 15}
+     * @return this builder
+     * @throws IllegalArgumentException if {@code clientWindowBits} is not between 9 and 15
+     */
+    public Builder clientWindowBits(int clientWindowBits) {
+      this.clientWindowBits = checkWindowBits(clientWindowBits, "clientWindowBits");
+      return this;
+    }
+
+    /**
+     * Sets the window size, in bits, of the compressor of the server. Defaults to {@code 15}.
+     *
+     * @param serverWindowBits the window size, from {@code 9} to {@code 15}
+     * @return this builder
+     * @throws IllegalArgumentException if {@code serverWindowBits} is not between 9 and 15
+     */
+    public Builder serverWindowBits(int serverWindowBits) {
+      this.serverWindowBits = checkWindowBits(serverWindowBits, "serverWindowBits");
+      return this;
+    }
+
+    /**
+     * Sets whether compressors start from an empty window for every message. This costs
+     * compression ratio but frees the window memory between messages. Defaults to {@code false}.
+     *
+     * @param noContextTakeover {@code true} to compress every message on its own
+     * @return this builder
+     */
+    public Builder noContextTakeover(boolean noContextTakeover) {
+      this.noContextTakeover = noContextTakeover;
+      return this;
+    }
+
+    /**
+     * Sets the size in bytes below which messages are sent uncompressed. Defaults to {@code 256}.
+     *
+     * @param minCompressSize the minimum size of a compressed message
+     * @return this builder
+     * @throws IllegalArgumentException if {@code minCompressSize} is negative
+     */
+    public Builder minCompressSize(int minCompressSize) {
+      if (minCompressSize < 0) {
+        throw new IllegalArgumentException("minCompressSize must be >= 0");
+      }
+      this.minCompressSize = minCompressSize;
+      return this;
+    }
+
+    /**
+     * Sets the consumer of the {@link Stats} of every connection that negotiated compression,
+     * called once the handshake is done.
+     *
+     * @param statsConsumer the consumer of the statistics
+     * @return this builder
+     * @throws NullPointerException if {@code statsConsumer} is {@code null}
+     */
+    public Builder doOnConnection(Consumer<Stats> statsConsumer) {
+      this.statsConsumer = Objects.requireNonNull(statsConsumer, "statsConsumer must not be null");
+      return this;
+    }
+
+    /**
+     * Returns the settings.
+     *
+     * @return the settings
+     */
+    public WebsocketCompression build() {
+      return new WebsocketCompression(this);
+    }
+
+    private static int checkWindowBits(int windowBits, String name) {
+      if (windowBits < 9 || windowBits > MAX_WINDOW_BITS) {
+        throw new IllegalArgumentException(name + " must be between 9 and 15");
+      }
+      return windowBits;
+    }
+  }
+}
@@ -15,10 +15,16 @@
  */
 package io.rsocket.transport.netty;
 
+import static io.rsocket.frame.FrameLengthFlyweight.FRAME_LENGTH_SIZE;
+
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
 import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
 import io.rsocket.DuplexConnection;
+import io.rsocket.frame.FrameLengthFlyweight;
 import io.rsocket.internal.BaseDuplexConnection;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 import org.reactivestreams.Publisher;
 import reactor.core.publisher.Flux;
@@ -31,10 +37,16 @@
  * <p>rsocket-java strongly assumes that each ByteBuf is encoded with the length. This is not true
  * for message oriented transports so this must be specifically dropped from Frames sent and
  * stitched back on for frames received.
+ *
+ * <p>When created with {@code lengthPrefixed} set, every frame keeps its length prefix instead, and
+ * every websocket message received is split into the frames it carries. This lets a {@link
+ * WebsocketFrameCoalescer} pack several frames into one message. Both peers must agree on it.
  */
 public final class WebsocketDuplexConnection extends BaseDuplexConnection {
 
   private final Connection connection;
+  private final ByteBufAllocator allocator = ByteBufAllocator.DEFAULT;
+  private final boolean lengthPrefixed;
 
   /**
    * Creates a new instance
@@ -42,7 +54,18 @@ public final class WebsocketDuplexConnection extends BaseDuplexConnection {
    * @param connection the {@link Connection} to for managing the server
    */
   public WebsocketDuplexConnection(Connection connection) {
+    this(connection, false);
+  }
+
+  /**
+   * Creates a new instance
+   *
+   * @param connection the {@link Connection} to for managing the server
+   * @param lengthPrefixed indicates if websocket messages carry one or more length-prefixed frames
+   */
+  public WebsocketDuplexConnection(Connection connection, boolean lengthPrefixed) {
     this.connection = Objects.requireNonNull(connection, "connection must not be null");
+    this.lengthPrefixed = lengthPrefixed;
 
     connection
         .channel()
@@ -62,20 +85,42 @@ protected void doOnClose() {
 
   @Override
   public Flux<ByteBuf> receive() {
+    if (lengthPrefixed) {
+      return connection.inbound().receive().flatMapIterable(WebsocketDuplexConnection::split);
+    }
     return connection.inbound().receive().map(ByteBuf::retain);
   }
 
   @Override
   public Mono<Void> send(Publisher<ByteBuf> frames) {
     if (frames instanceof Mono) {
-      return connection
-          .outbound()
-          .sendObject(((Mono<ByteBuf>) frames).map(BinaryWebSocketFrame::new))
-          .then();
+      return connection.outbound().sendObject(((Mono<ByteBuf>) frames).map(this::encode)).then();
+    }
+    return connection.outbound().sendObject(Flux.from(frames).map(this::encode)).then();
+  }
+
+  private BinaryWebSocketFrame encode(ByteBuf frame) {
+    if (lengthPrefixed) {
+      frame = FrameLengthFlyweight.encode(allocator, frame.readableBytes(), frame);
+    }
+    return new BinaryWebSocketFrame(frame);
+  }
+
+  /* the frames of a message, as retained slices without their length prefix */
+  static List<ByteBuf> split(ByteBuf message) {
+    int readerIndex = message.readerIndex();
+    int writerIndex = message.writerIndex();
+    List<ByteBuf> frames = new ArrayList<>(1);
+    while (readerIndex < writerIndex) {
+      int frameStart = readerIndex + FRAME_LENGTH_SIZE;
+      int frameLength = frameStart <= writerIndex ? message.getUnsignedMedium(readerIndex) : -1;
+      if (frameLength < 0 || frameStart + frameLength > writerIndex) {
+        frames.forEach(ByteBuf::release);
+        throw new IllegalStateException("websocket message ends with a partial frame");
+      }
+      frames.add(message.retainedSlice(frameStart, frameLength));
+      readerIndex = frameStart + frameLength;
     }
-    return connection
-        .outbound()
-        .sendObject(Flux.from(frames).map(BinaryWebSocketFrame::new))
-        .then();
+    return frames;
   }
 }
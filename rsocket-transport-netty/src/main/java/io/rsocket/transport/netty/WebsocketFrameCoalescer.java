@@ -0,0 +1,125 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rsocket.transport.netty;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPromise;
+import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
+import io.netty.util.concurrent.PromiseNotifier;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outbound handler that coalesces the binary websocket frames written between two flushes into a
+ * single websocket message, so that a burst of small RSocket frames costs one websocket frame
+ * header and one write. Frames must already carry the RSocket length prefix, see {@link
+ * WebsocketDuplexConnection#WebsocketDuplexConnection(reactor.netty.Connection, boolean)}, so that
+ * the peer can split the message again.
+ *
+ * <p>A message never grows beyond {@code maxMessageSize} bytes unless it holds a single frame that
+ * is larger on its own. Other websocket frames, such as ping or close, are written after the
+ * pending message. All state is confined to the channel event loop.
+ */
+public final class WebsocketFrameCoalescer extends ChannelOutboundHandlerAdapter {
+
+  private static final int MAX_COMPONENTS = 1024;
+
+  private final int maxMessageSize;
+  private final List<ChannelPromise> promises = new ArrayList<>();
+
+  private CompositeByteBuf pending;
+
+  /**
+   * @param maxMessageSize the size in bytes above which frames are no longer added to a message
+   * @throws IllegalArgumentException if {@code maxMessageSize} is not positive
+   */
+  public WebsocketFrameCoalescer(int maxMessageSize) {
+    if (maxMessageSize <= 0) {
+      throw new IllegalArgumentException("maxMessageSize must be > 0");
+    }
+    this.maxMessageSize = maxMessageSize;
+  }
+
+  @Override
+  public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+    if (!(msg instanceof BinaryWebSocketFrame)) {
+      writePending(ctx);
+      ctx.write(msg, promise);
+      return;
+    }
+
+    ByteBuf content = ((BinaryWebSocketFrame) msg).content();
+    if (pending != null && pending.readableBytes() + content.readableBytes() > maxMessageSize) {
+      writePending(ctx);
+    }
+    if (pending == null) {
+      pending = ctx.alloc().compositeBuffer(MAX_COMPONENTS);
+    }
+    pending.addComponent(true, content);
+    if (!promise.isVoid()) {
+      promises.add(promise);
+    }
+  }
+
+  @Override
+  public void flush(ChannelHandlerContext ctx) {
+    writePending(ctx);
+    ctx.flush();
+  }
+
+  @Override
+  public void close(ChannelHandlerContext ctx, ChannelPromise promise) {
+    writePending(ctx);
+    ctx.close(promise);
+  }
+
+  @Override
+  public void handlerRemoved(ChannelHandlerContext ctx) {
+    if (pending != null) {
+      pending.release();
+      pending = null;
+    }
+    if (!promises.isEmpty()) {
+      IllegalStateException cause = new IllegalStateException("handler removed");
+      for (ChannelPromise promise : promises) {
+        promise.tryFailure(cause);
+      }
+      promises.clear();
+    }
+  }
+
+  private void writePending(ChannelHandlerContext ctx) {
+    if (pending == null) {
+      return;
+    }
+
+    BinaryWebSocketFrame message = new BinaryWebSocketFrame(pending);
+    pending = null;
+    if (promises.isEmpty()) {
+      ctx.write(message, ctx.voidPromise());
+    } else {
+      ChannelPromise[] notified = promises.toArray(new ChannelPromise[0]);
+      promises.clear();
+      ChannelFuture future = ctx.write(message);
+      future.addListener(new PromiseNotifier<Void, ChannelFuture>(false, notified));
+    }
+  }
+}
@@ -21,10 +21,15 @@
 import io.rsocket.fragmentation.FragmentationDuplexConnection;
 import io.rsocket.transport.ClientTransport;
 import io.rsocket.transport.ServerTransport;
+import io.rsocket.transport.netty.FlushCoalescingHandler;
+import io.rsocket.transport.netty.FlushPolicy;
+import io.rsocket.transport.netty.RSocketBatchLengthDecoder;
 import io.rsocket.transport.netty.RSocketLengthCodec;
 import io.rsocket.transport.netty.TcpDuplexConnection;
+import io.rsocket.transport.netty.TcpTransportOptions;
 import java.net.InetSocketAddress;
 import java.util.Objects;
+import javax.annotation.Nullable;
 import reactor.core.publisher.Mono;
 import reactor.netty.tcp.TcpClient;
 
@@ -34,9 +39,11 @@
 public final class TcpClientTransport implements ClientTransport {
 
   private final TcpClient client;
+  @Nullable private final FlushPolicy flushPolicy;
 
-  private TcpClientTransport(TcpClient client) {
+  private TcpClientTransport(TcpClient client, @Nullable FlushPolicy flushPolicy) {
     this.client = client;
+    this.flushPolicy = flushPolicy;
   }
 
   /**
@@ -89,7 +96,35 @@ public static TcpClientTransport create(InetSocketAddress address) {
   public static TcpClientTransport create(TcpClient client) {
     Objects.requireNonNull(client, "client must not be null");
 
-    return new TcpClientTransport(client);
+    return new TcpClientTransport(client, null);
+  }
+
+  /**
+   * Returns a copy of this transport that coalesces outbound frames according to the given {@link
+   * FlushPolicy} instead of flushing every frame.
+   *
+   * @param flushPolicy the {@link FlushPolicy} to use
+   * @return a new instance
+   * @throws NullPointerException if {@code flushPolicy} is {@code null}
+   */
+  public TcpClientTransport flushPolicy(FlushPolicy flushPolicy) {
+    Objects.requireNonNull(flushPolicy, "flushPolicy must not be null");
+
+    return new TcpClientTransport(client, flushPolicy);
+  }
+
+  /**
+   * Returns a copy of this transport with the event loop and socket settings of the given {@link
+   * TcpTransportOptions} applied.
+   *
+   * @param options the {@link TcpTransportOptions} to use
+   * @return a new instance
+   * @throws NullPointerException if {@code options} is {@code null}
+   */
+  public TcpClientTransport options(TcpTransportOptions options) {
+    Objects.requireNonNull(options, "options must not be null");
+
+    return new TcpClientTransport(options.apply(client), flushPolicy);
   }
 
   @Override
@@ -98,7 +133,14 @@ public Mono<DuplexConnection> connect(int mtu) {
     return isError != null
         ? isError
         : client
-            .doOnConnected(c -> c.addHandlerLast(new RSocketLengthCodec()))
+            .doOnConnected(
+                c -> {
+                  c.addHandlerLast(
+                      mtu > 0 ? new RSocketLengthCodec() : new RSocketBatchLengthDecoder());
+                  if (flushPolicy != null) {
+                    c.addHandlerLast(new FlushCoalescingHandler(flushPolicy));
+                  }
+                })
             .connect()
             .map(
                 c -> {
@@ -110,7 +152,7 @@ public Mono<DuplexConnection> connect(int mtu) {
                         true,
                         "client");
                   } else {
-                    return new TcpDuplexConnection(c);
+                    return new TcpDuplexConnection(c, true, true);
                   }
                 });
   }
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rsocket.transport.netty.client;
+
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollDomainSocketChannel;
+import io.netty.channel.unix.DomainSocketAddress;
+import io.rsocket.DuplexConnection;
+import io.rsocket.fragmentation.FragmentationDuplexConnection;
+import io.rsocket.transport.ClientTransport;
+import io.rsocket.transport.netty.RSocketBatchLengthDecoder;
+import io.rsocket.transport.netty.RSocketLengthCodec;
+import io.rsocket.transport.netty.TcpDuplexConnection;
+import io.rsocket.transport.netty.server.UnixDomainSocketServerTransport;
+import java.util.Objects;
+import reactor.core.publisher.Mono;
+import reactor.netty.tcp.TcpClient;
+import reactor.netty.tcp.TcpResources;
+
+/**
+ * An implementation of {@link ClientTransport} that connects to a {@link
+ * UnixDomainSocketServerTransport} via a Unix domain socket. Frames are length prefixed as with
+ * {@link TcpClientTransport}.
+ *
+ * <p>Unix domain sockets require the native epoll transport, connecting fails with an {@link
+ * UnsupportedOperationException} when it is not available.
+ */
+public final class UnixDomainSocketClientTransport implements ClientTransport {
+
+  private final TcpClient client;
+
+  private UnixDomainSocketClientTransport(TcpClient client) {
+    this.client = client;
+  }
+
+  /**
+   * Creates a new instance
+   *
+   * @param path the path of the socket file to connect to
+   * @return a new instance
+   * @throws NullPointerException if {@code path} is {@code null}
+   */
+  public static UnixDomainSocketClientTransport create(String path) {
+    Objects.requireNonNull(path, "path must not be null");
+
+    return create(new DomainSocketAddress(path));
+  }
+
+  /**
+   * Creates a new instance
+   *
+   * @param address the address to connect to
+   * @return a new instance
+   * @throws NullPointerException if {@code address} is {@code null}
+   */
+  public static UnixDomainSocketClientTransport create(DomainSocketAddress address) {
+    Objects.requireNonNull(address, "address must not be null");
+
+    return create(TcpClient.create().addressSupplier(() -> address));
+  }
+
+  /**
+   * Creates a new instance
+   *
+   * @param client the {@link TcpClient} to use, connecting to a {@link DomainSocketAddress}
+   * @return a new instance
+   * @throws NullPointerException if {@code client} is {@code null}
+   */
+  public static UnixDomainSocketClientTransport create(TcpClient client) {
+    Objects.requireNonNull(client, "client must not be null");
+
+    return new UnixDomainSocketClientTransport(
+        client
+            .runOn(TcpResources.get(), true)
+            .bootstrap(b -> b.channel(EpollDomainSocketChannel.class)));
+  }
+
+  @Override
+  public Mono<DuplexConnection> connect(int mtu) {
+    if (!Epoll.isAvailable()) {
+      return Mono.error(
+          new UnsupportedOperationException(
+              "Unix domain sockets require the native epoll transport",
+              Epoll.unavailabilityCause()));
+    }
+
+    Mono<DuplexConnection> isError = FragmentationDuplexConnection.checkMtu(mtu);
+    return isError != null
+        ? isError
+        : client
+            .doOnConnected(
+                c ->
+                    c.addHandlerLast(
+                        mtu > 0 ? new RSocketLengthCodec() : new RSocketBatchLengthDecoder()))
+            .connect()
+            .map(
+                c -> {
+                  if (mtu > 0) {
+                    return new FragmentationDuplexConnection(
+                        new TcpDuplexConnection(c, false),
+                        ByteBufAllocator.DEFAULT,
+                        mtu,
+                        true,
+                        "client");
+                  } else {
+                    return new TcpDuplexConnection(c, true, true);
+                  }
+                });
+  }
+}
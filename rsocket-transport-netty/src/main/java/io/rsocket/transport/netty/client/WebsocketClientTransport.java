@@ -26,13 +26,18 @@
 import io.rsocket.transport.ClientTransport;
 import io.rsocket.transport.ServerTransport;
 import io.rsocket.transport.TransportHeaderAware;
+import io.rsocket.transport.netty.FlushCoalescingHandler;
+import io.rsocket.transport.netty.FlushPolicy;
+import io.rsocket.transport.netty.WebsocketCompression;
 import io.rsocket.transport.netty.WebsocketDuplexConnection;
+import io.rsocket.transport.netty.WebsocketFrameCoalescer;
 import java.net.InetSocketAddress;
 import java.net.URI;
 import java.util.Collections;
 import java.util.Map;
 import java.util.Objects;
 import java.util.function.Supplier;
+import javax.annotation.Nullable;
 import reactor.core.publisher.Mono;
 import reactor.netty.http.client.HttpClient;
 import reactor.netty.tcp.TcpClient;
@@ -48,13 +53,31 @@ public final class WebsocketClientTransport implements ClientTransport, Transpor
 
   private final HttpClient client;
 
+  @Nullable private final FlushPolicy flushPolicy;
+
+  private final int maxCoalescedMessageSize;
+
+  @Nullable private final WebsocketCompression compression;
+
   private String path;
 
   private Supplier<Map<String, String>> transportHeaders = Collections::emptyMap;
 
   private WebsocketClientTransport(HttpClient client, String path) {
+    this(client, path, null, 0, null);
+  }
+
+  private WebsocketClientTransport(
+      HttpClient client,
+      String path,
+      @Nullable FlushPolicy flushPolicy,
+      int maxCoalescedMessageSize,
+      @Nullable WebsocketCompression compression) {
     this.client = client;
     this.path = path;
+    this.flushPolicy = flushPolicy;
+    this.maxCoalescedMessageSize = maxCoalescedMessageSize;
+    this.compression = compression;
   }
 
   /**
@@ -141,6 +164,64 @@ public static WebsocketClientTransport create(HttpClient client, String path) {
     return new WebsocketClientTransport(client, path);
   }
 
+  /**
+   * Returns a copy of this transport that coalesces outbound frames according to the given {@link
+   * FlushPolicy} instead of flushing every frame.
+   *
+   * @param flushPolicy the {@link FlushPolicy} to use
+   * @return a new instance
+   * @throws NullPointerException if {@code flushPolicy} is {@code null}
+   */
+  public WebsocketClientTransport flushPolicy(FlushPolicy flushPolicy) {
+    Objects.requireNonNull(flushPolicy, "flushPolicy must not be null");
+
+    return copy(flushPolicy, maxCoalescedMessageSize, compression);
+  }
+
+  /**
+   * Returns a copy of this transport that packs the frames written between two flushes into
+   * websocket messages of up to {@code maxMessageSize} bytes, each frame prefixed with its length.
+   * The server must be configured with {@link
+   * io.rsocket.transport.netty.server.WebsocketServerTransport#coalesceFrames(int)} as well. Best
+   * combined with a {@link #flushPolicy(FlushPolicy)} that holds back flushes.
+   *
+   * @param maxMessageSize the size in bytes above which frames are no longer added to a message
+   * @return a new instance
+   * @throws IllegalArgumentException if {@code maxMessageSize} is not positive
+   */
+  public WebsocketClientTransport coalesceFrames(int maxMessageSize) {
+    if (maxMessageSize <= 0) {
+      throw new IllegalArgumentException("maxMessageSize must be > 0");
+    }
+
+    return copy(flushPolicy, maxMessageSize, compression);
+  }
+
+  /**
+   * Returns a copy of this transport that offers the permessage-deflate extension with the given
+   * settings. Messages are compressed if the server accepts it.
+   *
+   * @param compression the {@link WebsocketCompression} settings to use
+   * @return a new instance
+   * @throws NullPointerException if {@code compression} is {@code null}
+   */
+  public WebsocketClientTransport compression(WebsocketCompression compression) {
+    Objects.requireNonNull(compression, "compression must not be null");
+
+    return copy(flushPolicy, maxCoalescedMessageSize, compression);
+  }
+
+  private WebsocketClientTransport copy(
+      @Nullable FlushPolicy flushPolicy,
+      int maxCoalescedMessageSize,
+      @Nullable WebsocketCompression compression) {
+    WebsocketClientTransport transport =
+        new WebsocketClientTransport(
+            client, path, flushPolicy, maxCoalescedMessageSize, compression);
+    transport.transportHeaders = transportHeaders;
+    return transport;
+  }
+
   private static TcpClient createClient(URI uri) {
     if (isSecure(uri)) {
       return TcpClient.create().secure().host(uri.getHost()).port(getPort(uri, 443));
@@ -152,23 +233,39 @@ private static TcpClient createClient(URI uri) {
   @Override
   public Mono<DuplexConnection> connect(int mtu) {
     Mono<DuplexConnection> isError = FragmentationDuplexConnection.checkMtu(mtu);
-    return isError != null
-        ? isError
-        : client
-            .headers(headers -> transportHeaders.get().forEach(headers::set))
-            .websocket(FRAME_LENGTH_MASK)
-            .uri(path)
-            .connect()
-            .map(
-                c -> {
-                  DuplexConnection connection = new WebsocketDuplexConnection(c);
-                  if (mtu > 0) {
-                    connection =
-                        new FragmentationDuplexConnection(
-                            connection, ByteBufAllocator.DEFAULT, mtu, false, "client");
-                  }
-                  return connection;
-                });
+    if (isError != null) {
+      return isError;
+    }
+
+    HttpClient client = this.client;
+    if (compression != null) {
+      client =
+          client.tcpConfiguration(
+              tcpClient ->
+                  tcpClient.doOnConnected(c -> c.addHandlerLast(compression.newClientHandler())));
+    }
+    return client
+        .headers(headers -> transportHeaders.get().forEach(headers::set))
+        .websocket(FRAME_LENGTH_MASK)
+        .uri(path)
+        .connect()
+        .map(
+            c -> {
+              boolean coalesce = maxCoalescedMessageSize > 0;
+              if (coalesce) {
+                c.addHandlerLast(new WebsocketFrameCoalescer(maxCoalescedMessageSize));
+              }
+              if (flushPolicy != null) {
+                c.addHandlerLast(new FlushCoalescingHandler(flushPolicy));
+              }
+              DuplexConnection connection = new WebsocketDuplexConnection(c, coalesce);
+              if (mtu > 0) {
+                connection =
+                    new FragmentationDuplexConnection(
+                        connection, ByteBufAllocator.DEFAULT, mtu, false, "client");
+              }
+              return connection;
+            });
   }
 
   @Override
@@ -21,10 +21,15 @@
 import io.rsocket.fragmentation.FragmentationDuplexConnection;
 import io.rsocket.transport.ClientTransport;
 import io.rsocket.transport.ServerTransport;
+import io.rsocket.transport.netty.FlushCoalescingHandler;
+import io.rsocket.transport.netty.FlushPolicy;
+import io.rsocket.transport.netty.RSocketBatchLengthDecoder;
 import io.rsocket.transport.netty.RSocketLengthCodec;
 import io.rsocket.transport.netty.TcpDuplexConnection;
+import io.rsocket.transport.netty.TcpTransportOptions;
 import java.net.InetSocketAddress;
 import java.util.Objects;
+import javax.annotation.Nullable;
 import reactor.core.publisher.Mono;
 import reactor.netty.tcp.TcpServer;
 
@@ -34,9 +39,11 @@
 public final class TcpServerTransport implements ServerTransport<CloseableChannel> {
 
   private final TcpServer server;
+  @Nullable private final FlushPolicy flushPolicy;
 
-  private TcpServerTransport(TcpServer server) {
+  private TcpServerTransport(TcpServer server, @Nullable FlushPolicy flushPolicy) {
     this.server = server;
+    this.flushPolicy = flushPolicy;
   }
 
   /**
@@ -88,7 +95,35 @@ public static TcpServerTransport create(InetSocketAddress address) {
   public static TcpServerTransport create(TcpServer server) {
     Objects.requireNonNull(server, "server must not be null");
 
-    return new TcpServerTransport(server);
+    return new TcpServerTransport(server, null);
+  }
+
+  /**
+   * Returns a copy of this transport that coalesces outbound frames according to the given {@link
+   * FlushPolicy} instead of flushing every frame.
+   *
+   * @param flushPolicy the {@link FlushPolicy} to use
+   * @return a new instance
+   * @throws NullPointerException if {@code flushPolicy} is {@code null}
+   */
+  public TcpServerTransport flushPolicy(FlushPolicy flushPolicy) {
+    Objects.requireNonNull(flushPolicy, "flushPolicy must not be null");
+
+    return new TcpServerTransport(server, flushPolicy);
+  }
+
+  /**
+   * Returns a copy of this transport with the event loop and socket settings of the given {@link
+   * TcpTransportOptions} applied.
+   *
+   * @param options the {@link TcpTransportOptions} to use
+   * @return a new instance
+   * @throws NullPointerException if {@code options} is {@code null}
+   */
+  public TcpServerTransport options(TcpTransportOptions options) {
+    Objects.requireNonNull(options, "options must not be null");
+
+    return new TcpServerTransport(options.apply(server), flushPolicy);
   }
 
   @Override
@@ -100,7 +135,11 @@ public Mono<CloseableChannel> start(ConnectionAcceptor acceptor, int mtu) {
         : server
             .doOnConnection(
                 c -> {
-                  c.addHandlerLast(new RSocketLengthCodec());
+                  c.addHandlerLast(
+                      mtu > 0 ? new RSocketLengthCodec() : new RSocketBatchLengthDecoder());
+                  if (flushPolicy != null) {
+                    c.addHandlerLast(new FlushCoalescingHandler(flushPolicy));
+                  }
                   DuplexConnection connection;
                   if (mtu > 0) {
                     connection =
@@ -111,7 +150,7 @@ public Mono<CloseableChannel> start(ConnectionAcceptor acceptor, int mtu) {
                             true,
                             "server");
                   } else {
-                    connection = new TcpDuplexConnection(c);
+                    connection = new TcpDuplexConnection(c, true, true);
                   }
                   acceptor
                       .apply(connection)
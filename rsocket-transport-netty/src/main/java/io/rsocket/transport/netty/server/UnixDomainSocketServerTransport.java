@@ -0,0 +1,134 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rsocket.transport.netty.server;
+
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollServerDomainSocketChannel;
+import io.netty.channel.unix.DomainSocketAddress;
+import io.rsocket.DuplexConnection;
+import io.rsocket.fragmentation.FragmentationDuplexConnection;
+import io.rsocket.transport.ServerTransport;
+import io.rsocket.transport.netty.RSocketBatchLengthDecoder;
+import io.rsocket.transport.netty.RSocketLengthCodec;
+import io.rsocket.transport.netty.TcpDuplexConnection;
+import io.rsocket.transport.netty.client.UnixDomainSocketClientTransport;
+import java.util.Objects;
+import reactor.core.publisher.Mono;
+import reactor.netty.tcp.TcpResources;
+import reactor.netty.tcp.TcpServer;
+
+/**
+ * An implementation of {@link ServerTransport} that accepts {@link
+ * UnixDomainSocketClientTransport}s on a Unix domain socket. Frames are length prefixed as with
+ * {@link TcpServerTransport}.
+ *
+ * <p>The socket file must not exist when the server starts, and it is deleted once the server is
+ * closed. {@link CloseableChannel#address()} is not available for Unix domain sockets.
+ *
+ * <p>Unix domain sockets require the native epoll transport, starting fails with an {@link
+ * UnsupportedOperationException} when it is not available.
+ */
+public final class UnixDomainSocketServerTransport implements ServerTransport<CloseableChannel> {
+
+  private final TcpServer server;
+
+  private UnixDomainSocketServerTransport(TcpServer server) {
+    this.server = server;
+  }
+
+  /**
+   * Creates a new instance
+   *
+   * @param path the path of the socket file to bind to
+   * @return a new instance
+   * @throws NullPointerException if {@code path} is {@code null}
+   */
+  public static UnixDomainSocketServerTransport create(String path) {
+    Objects.requireNonNull(path, "path must not be null");
+
+    return create(new DomainSocketAddress(path));
+  }
+
+  /**
+   * Creates a new instance
+   *
+   * @param address the address to bind to
+   * @return a new instance
+   * @throws NullPointerException if {@code address} is {@code null}
+   */
+  public static UnixDomainSocketServerTransport create(DomainSocketAddress address) {
+    Objects.requireNonNull(address, "address must not be null");
+
+    return create(TcpServer.create().bindAddress(() -> address));
+  }
+
+  /**
+   * Creates a new instance
+   *
+   * @param server the {@link TcpServer} to use, binding to a {@link DomainSocketAddress}
+   * @return a new instance
+   * @throws NullPointerException if {@code server} is {@code null}
+   */
+  public static UnixDomainSocketServerTransport create(TcpServer server) {
+    Objects.requireNonNull(server, "server must not be null");
+
+    return new UnixDomainSocketServerTransport(
+        server
+            .runOn(TcpResources.get(), true)
+            .bootstrap(b -> b.channel(EpollServerDomainSocketChannel.class)));
+  }
+
+  @Override
+  public Mono<CloseableChannel> start(ConnectionAcceptor acceptor, int mtu) {
+    Objects.requireNonNull(acceptor, "acceptor must not be null");
+    if (!Epoll.isAvailable()) {
+      return Mono.error(
+          new UnsupportedOperationException(
+              "Unix domain sockets require the native epoll transport",
+              Epoll.unavailabilityCause()));
+    }
+
+    Mono<CloseableChannel> isError = FragmentationDuplexConnection.checkMtu(mtu);
+    return isError != null
+        ? isError
+        : server
+            .doOnConnection(
+                c -> {
+                  c.addHandlerLast(
+                      mtu > 0 ? new RSocketLengthCodec() : new RSocketBatchLengthDecoder());
+                  DuplexConnection connection;
+                  if (mtu > 0) {
+                    connection =
+                        new FragmentationDuplexConnection(
+                            new TcpDuplexConnection(c, false),
+                            ByteBufAllocator.DEFAULT,
+                            mtu,
+                            true,
+                            "server");
+                  } else {
+                    connection = new TcpDuplexConnection(c, true, true);
+                  }
+                  acceptor
+                      .apply(connection)
+                      .then(Mono.<Void>never())
+                      .subscribe(c.disposeSubscriber());
+                })
+            .bind()
+            .map(CloseableChannel::new);
+  }
+}
@@ -30,12 +30,17 @@
 import io.rsocket.transport.ClientTransport;
 import io.rsocket.transport.ServerTransport;
 import io.rsocket.transport.TransportHeaderAware;
+import io.rsocket.transport.netty.FlushCoalescingHandler;
+import io.rsocket.transport.netty.FlushPolicy;
+import io.rsocket.transport.netty.WebsocketCompression;
 import io.rsocket.transport.netty.WebsocketDuplexConnection;
+import io.rsocket.transport.netty.WebsocketFrameCoalescer;
 import java.net.InetSocketAddress;
 import java.util.Collections;
 import java.util.Map;
 import java.util.Objects;
 import java.util.function.Supplier;
+import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import reactor.core.publisher.Mono;
@@ -52,10 +57,27 @@
 
   private final HttpServer server;
 
+  @Nullable private final FlushPolicy flushPolicy;
+
+  private final int maxCoalescedMessageSize;
+
+  @Nullable private final WebsocketCompression compression;
+
   private Supplier<Map<String, String>> transportHeaders = Collections::emptyMap;
 
   private WebsocketServerTransport(HttpServer server) {
+    this(server, null, 0, null);
+  }
+
+  private WebsocketServerTransport(
+      HttpServer server,
+      @Nullable FlushPolicy flushPolicy,
+      int maxCoalescedMessageSize,
+      @Nullable WebsocketCompression compression) {
     this.server = server;
+    this.flushPolicy = flushPolicy;
+    this.maxCoalescedMessageSize = maxCoalescedMessageSize;
+    this.compression = compression;
   }
 
   /**
@@ -136,6 +158,63 @@ public void channelRead(ChannelHandlerContext ctx, Object msg)
                             }))));
   }
 
+  /**
+   * Returns a copy of this transport that coalesces outbound frames according to the given {@link
+   * FlushPolicy} instead of flushing every frame.
+   *
+   * @param flushPolicy the {@link FlushPolicy} to use
+   * @return a new instance
+   * @throws NullPointerException if {@code flushPolicy} is {@code null}
+   */
+  public WebsocketServerTransport flushPolicy(FlushPolicy flushPolicy) {
+    Objects.requireNonNull(flushPolicy, "flushPolicy must not be null");
+
+    return copy(flushPolicy, maxCoalescedMessageSize, compression);
+  }
+
+  /**
+   * Returns a copy of this transport that packs the frames written between two flushes into
+   * websocket messages of up to {@code maxMessageSize} bytes, each frame prefixed with its length.
+   * Clients must be configured with {@link
+   * io.rsocket.transport.netty.client.WebsocketClientTransport#coalesceFrames(int)} as well. Best
+   * combined with a {@link #flushPolicy(FlushPolicy)} that holds back flushes.
+   *
+   * @param maxMessageSize the size in bytes above which frames are no longer added to a message
+   * @return a new instance
+   * @throws IllegalArgumentException if {@code maxMessageSize} is not positive
+   */
+  public WebsocketServerTransport coalesceFrames(int maxMessageSize) {
+    if (maxMessageSize <= 0) {
+      throw new IllegalArgumentException("maxMessageSize must be > 0");
+    }
+
+    return copy(flushPolicy, maxMessageSize, compression);
+  }
+
+  /**
+   * Returns a copy of this transport that accepts the permessage-deflate extension with the given
+   * settings. Messages are compressed for the clients that offer it.
+   *
+   * @param compression the {@link WebsocketCompression} settings to use
+   * @return a new instance
+   * @throws NullPointerException if {@code compression} is {@code null}
+   */
+  public WebsocketServerTransport compression(WebsocketCompression compression) {
+    Objects.requireNonNull(compression, "compression must not be null");
+
+    return copy(flushPolicy, maxCoalescedMessageSize, compression);
+  }
+
+  private WebsocketServerTransport copy(
+      @Nullable FlushPolicy flushPolicy,
+      int maxCoalescedMessageSize,
+      @Nullable WebsocketCompression compression) {
+    WebsocketServerTransport transport =
+        new WebsocketServerTransport(server, flushPolicy, maxCoalescedMessageSize, compression);
+    transport.transportHeaders = transportHeaders;
+    return transport;
+  }
+
   @Override
   public void setTransportHeaders(Supplier<Map<String, String>> transportHeaders) {
     this.transportHeaders =
@@ -147,27 +226,43 @@ public Mono<CloseableChannel> start(ConnectionAcceptor acceptor, int mtu) {
     Objects.requireNonNull(acceptor, "acceptor must not be null");
 
     Mono<CloseableChannel> isError = FragmentationDuplexConnection.checkMtu(mtu);
-    return isError != null
-        ? isError
-        : server
-            .handle(
-                (request, response) -> {
-                  transportHeaders.get().forEach(response::addHeader);
-                  return response.sendWebsocket(
-                      null,
-                      FRAME_LENGTH_MASK,
-                      (in, out) -> {
-                        DuplexConnection connection =
-                            new WebsocketDuplexConnection((Connection) in);
-                        if (mtu > 0) {
-                          connection =
-                              new FragmentationDuplexConnection(
-                                  connection, ByteBufAllocator.DEFAULT, mtu, false, "server");
-                        }
-                        return acceptor.apply(connection).then(out.neverComplete());
-                      });
-                })
-            .bind()
-            .map(CloseableChannel::new);
+    if (isError != null) {
+      return isError;
+    }
+
+    HttpServer server = this.server;
+    if (compression != null) {
+      server =
+          server.tcpConfiguration(
+              tcpServer ->
+                  tcpServer.doOnConnection(c -> c.addHandlerLast(compression.newServerHandler())));
+    }
+    return server
+        .handle(
+            (request, response) -> {
+              transportHeaders.get().forEach(response::addHeader);
+              return response.sendWebsocket(
+                  null,
+                  FRAME_LENGTH_MASK,
+                  (in, out) -> {
+                    Connection c = (Connection) in;
+                    boolean coalesce = maxCoalescedMessageSize > 0;
+                    if (coalesce) {
+                      c.addHandlerLast(new WebsocketFrameCoalescer(maxCoalescedMessageSize));
+                    }
+                    if (flushPolicy != null) {
+                      c.addHandlerLast(new FlushCoalescingHandler(flushPolicy));
+                    }
+                    DuplexConnection connection = new WebsocketDuplexConnection(c, coalesce);
+                    if (mtu > 0) {
+                      connection =
+                          new FragmentationDuplexConnection(
+                              connection, ByteBufAllocator.DEFAULT, mtu, false, "server");
+                    }
+                    return acceptor.apply(connection).then(out.neverComplete());
+                  });
+            })
+        .bind()
+        .map(CloseableChannel::new);
   }
 }
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rsocket.transport.netty;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketExtension;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+final class DeflateFrameEncoderTest {
+
+  private static final byte[] FRAME_TAIL = {0x00, 0x00, (byte) 0xff, (byte) 0xff};
+
+  private final WebsocketCompression.Stats stats = new WebsocketCompression.Stats();
+
+  private EmbeddedChannel channel;
+
+  @AfterEach
+  void tearDown() {
+    channel.finishAndReleaseAll();
+  }
+
+  @DisplayName("compresses messages of the minimum size and more")
+  @Test
+  void compressesLargeMessages() throws DataFormatException {
+    channel = new EmbeddedChannel(new DeflateFrameEncoder(6, 15, false, 64, stats));
+    byte[] json = json(100);
+
+    channel.writeOutbound(new BinaryWebSocketFrame(Unpooled.wrappedBuffer(json)));
+
+    BinaryWebSocketFrame frame = channel.readOutbound();
+    assertThat(frame.rsv() & WebSocketExtension.RSV1).isEqualTo(WebSocketExtension.RSV1);
+    assertThat(frame.content().readableBytes()).isLessThan(json.length);
+    assertThat(inflate(frame.content(), json.length)).isEqualTo(json);
+    assertThat(stats.compressedMessages()).isEqualTo(1);
+    assertThat(stats.uncompressedBytes()).isEqualTo(json.length);
+    assertThat(stats.compressedBytes()).isEqualTo(frame.content().readableBytes());
+    assertThat(stats.compressionRatio()).isLessThan(1);
+    frame.release();
+  }
+
+  @DisplayName("sends messages below the minimum size uncompressed")
+  @Test
+  void skipsSmallMessages() {
+    channel = new EmbeddedChannel(new DeflateFrameEncoder(6, 15, false, 64, stats));
+    byte[] small = new byte[63];
+
+    channel.writeOutbound(new BinaryWebSocketFrame(Unpooled.wrappedBuffer(small)));
+
+    BinaryWebSocketFrame frame = channel.readOutbound();
+    assertThat(frame.rsv()).isZero();
+    assertThat(ByteBufUtil.getBytes(frame.content())).isEqualTo(small);
+    assertThat(stats.compressedMessages()).isZero();
+    assertThat(stats.skippedMessages()).isEqualTo(1);
+    assertThat(stats.skippedBytes()).isEqualTo(small.length);
+    frame.release();
+  }
+
+  @DisplayName("compresses every message on its own without context takeover")
+  @Test
+  void noContextTakeover() throws DataFormatException {
+    channel = new EmbeddedChannel(new DeflateFrameEncoder(6, 15, true, 0, stats));
+    byte[] json = json(10);
+
+    for (int i = 0; i < 2; i++) {
+      channel.writeOutbound(new BinaryWebSocketFrame(Unpooled.wrappedBuffer(json)));
+
+      BinaryWebSocketFrame frame = channel.readOutbound();
+      assertThat(inflate(frame.content(), json.length)).isEqualTo(json);
+      frame.release();
+    }
+    assertThat(stats.compressedMessages()).isEqualTo(2);
+  }
+
+  private static byte[] json(int entries) {
+    StringBuilder json = new StringBuilder("[");
+    for (int i = 0; i < entries; i++) {
+      json.append("{\"id\":").append(i).append(",\"name\":\"item\",\"active\":true},");
+    }
+    json.setCharAt(json.length() - 1, ']');
+    return json.toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  /* inflates a message on its own, which only works for the first message of a context */
+  private static byte[] inflate(ByteBuf compressed, int length) throws DataFormatException {
+    Inflater inflater = new Inflater(true);
+    try {
+      byte[] input = new byte[compressed.readableBytes() + FRAME_TAIL.length];
+      compressed.getBytes(compressed.readerIndex(), input, 0, compressed.readableBytes());
+      System.arraycopy(FRAME_TAIL, 0, input, compressed.readableBytes(), FRAME_TAIL.length);
+      inflater.setInput(input);
+      byte[] output = new byte[length];
+      int inflated = inflater.inflate(output);
+      assertThat(inflated).isEqualTo(length);
+      return output;
+    } finally {
+      inflater.end();
+    }
+  }
+}
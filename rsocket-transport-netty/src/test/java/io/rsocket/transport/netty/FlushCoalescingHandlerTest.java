@@ -0,0 +1,113 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rsocket.transport.netty;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+final class FlushCoalescingHandlerTest {
+
+  private final List<Integer> framesPerFlush = new ArrayList<>();
+
+  private EmbeddedChannel channel;
+
+  @AfterEach
+  void tearDown() {
+    channel.finishAndReleaseAll();
+  }
+
+  @DisplayName("flushes once the frame threshold is reached")
+  @Test
+  void flushOnFrames() {
+    channel = channel(FlushPolicy.onFrames(3));
+
+    writeAndFlush(2);
+    assertThat(channel.outboundMessages()).isEmpty();
+
+    writeAndFlush(1);
+    assertThat(channel.outboundMessages()).hasSize(3);
+    assertThat(framesPerFlush).containsExactly(3);
+  }
+
+  @DisplayName("flushes once the byte threshold is reached")
+  @Test
+  void flushOnBytes() {
+    channel = channel(FlushPolicy.onBytes(20));
+
+    writeAndFlush(1);
+    assertThat(channel.outboundMessages()).isEmpty();
+
+    writeAndFlush(1);
+    assertThat(channel.outboundMessages()).hasSize(2);
+    assertThat(framesPerFlush).containsExactly(2);
+  }
+
+  @DisplayName("flushes pending frames at the end of the event loop drain")
+  @Test
+  void flushOnDrain() {
+    channel = channel(FlushPolicy.onFrames(100));
+
+    writeAndFlush(5);
+    assertThat(channel.outboundMessages()).isEmpty();
+
+    channel.runPendingTasks();
+    assertThat(channel.outboundMessages()).hasSize(5);
+    assertThat(framesPerFlush).containsExactly(5);
+  }
+
+  @DisplayName("flushes pending frames on close")
+  @Test
+  void flushOnClose() {
+    channel = channel(FlushPolicy.onDrain());
+
+    writeAndFlush(4);
+    channel.close();
+
+    assertThat(channel.outboundMessages()).hasSize(4);
+    assertThat(framesPerFlush).containsExactly(4);
+  }
+
+  @DisplayName("flushes every frame with the immediate policy")
+  @Test
+  void flushImmediately() {
+    channel = channel(FlushPolicy.immediate());
+
+    writeAndFlush(3);
+
+    assertThat(channel.outboundMessages()).hasSize(3);
+    assertThat(framesPerFlush).containsExactly(1, 1, 1);
+  }
+
+  private EmbeddedChannel channel(FlushPolicy policy) {
+    return new EmbeddedChannel(new FlushCoalescingHandler(policy.doOnFlush(framesPerFlush::add)));
+  }
+
+  private void writeAndFlush(int frames) {
+    for (int i = 0; i < frames; i++) {
+      ByteBuf frame = Unpooled.wrappedBuffer(new byte[10]);
+      channel.writeAndFlush(frame);
+    }
+  }
+}
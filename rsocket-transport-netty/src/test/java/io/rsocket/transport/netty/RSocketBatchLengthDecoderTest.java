@@ -0,0 +1,109 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rsocket.transport.netty;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+final class RSocketBatchLengthDecoderTest {
+
+  private final EmbeddedChannel channel = new EmbeddedChannel(new RSocketBatchLengthDecoder());
+
+  @AfterEach
+  void tearDown() {
+    channel.finishAndReleaseAll();
+  }
+
+  @DisplayName("splits every complete frame of a read without the length header")
+  @Test
+  void splitsFrames() {
+    ByteBuf read = Unpooled.buffer();
+    writeFrame(read, "a");
+    writeFrame(read, "bc");
+    writeFrame(read, "");
+    writeFrame(read, "def");
+
+    channel.writeInbound(read);
+
+    assertThat(readFrames()).containsExactly("a", "bc", "", "def");
+  }
+
+  @DisplayName("keeps partial frames until the rest of them is read")
+  @Test
+  void partialFrames() {
+    ByteBuf frames = Unpooled.buffer();
+    writeFrame(frames, "abc");
+    writeFrame(frames, "defgh");
+
+    channel.writeInbound(frames.readRetainedSlice(2));
+    assertThat(readFrames()).isEmpty();
+
+    channel.writeInbound(frames.readRetainedSlice(5));
+    assertThat(readFrames()).containsExactly("abc");
+
+    channel.writeInbound(frames.readRetainedSlice(frames.readableBytes()));
+    assertThat(readFrames()).containsExactly("defgh");
+    frames.release();
+  }
+
+  @DisplayName("hands two references per frame downstream")
+  @Test
+  void retainsForInboundAndConsumer() {
+    ByteBuf read = Unpooled.buffer();
+    writeFrame(read, "a");
+    writeFrame(read, "b");
+
+    channel.writeInbound(read);
+    ByteBuf first = channel.readInbound();
+    ByteBuf second = channel.readInbound();
+
+    // released by the inbound after delivery
+    first.release();
+    second.release();
+    assertThat(read.refCnt()).isEqualTo(2);
+
+    // released by the consumer
+    first.release();
+    second.release();
+    assertThat(read.refCnt()).isZero();
+  }
+
+  private List<String> readFrames() {
+    List<String> frames = new ArrayList<>();
+    ByteBuf frame;
+    while ((frame = channel.readInbound()) != null) {
+      frames.add(frame.toString(StandardCharsets.UTF_8));
+      frame.release(2);
+    }
+    return frames;
+  }
+
+  private static void writeFrame(ByteBuf buf, String data) {
+    byte[] bytes = data.getBytes(StandardCharsets.UTF_8);
+    buf.writeMedium(bytes.length);
+    buf.writeBytes(bytes);
+  }
+}
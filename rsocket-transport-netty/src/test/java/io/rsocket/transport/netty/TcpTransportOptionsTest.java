@@ -0,0 +1,121 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rsocket.transport.netty;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+import io.netty.channel.Channel;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.rsocket.RSocket;
+import io.rsocket.RSocketFactory;
+import io.rsocket.frame.decoder.PayloadDecoder;
+import io.rsocket.test.PingHandler;
+import io.rsocket.transport.netty.client.TcpClientTransport;
+import io.rsocket.transport.netty.server.CloseableChannel;
+import io.rsocket.transport.netty.server.TcpServerTransport;
+import io.rsocket.util.DefaultPayload;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import reactor.netty.tcp.TcpClient;
+import reactor.netty.tcp.TcpServer;
+
+final class TcpTransportOptionsTest {
+
+  private final AtomicReference<Channel> clientChannel = new AtomicReference<>();
+
+  private TcpTransportOptions options;
+  private CloseableChannel server;
+  private RSocket client;
+
+  @AfterEach
+  void tearDown() {
+    if (client != null) {
+      client.dispose();
+    }
+    if (server != null) {
+      server.dispose();
+      server.onClose().block(Duration.ofSeconds(5));
+    }
+    if (options != null) {
+      options.dispose();
+    }
+  }
+
+  @DisplayName("rejects negative busy poll time and event loop count")
+  @Test
+  void rejectsNegativeValues() {
+    assertThatIllegalArgumentException()
+        .isThrownBy(() -> TcpTransportOptions.builder().busyPollMicros(-1))
+        .withMessage("busyPollMicros must be >= 0");
+    assertThatIllegalArgumentException()
+        .isThrownBy(() -> TcpTransportOptions.builder().eventLoopThreads(-1))
+        .withMessage("eventLoopThreads must be >= 0");
+  }
+
+  @DisplayName("uses NIO when the native transport is not preferred")
+  @Test
+  void nioWhenNotPreferred() {
+    options = TcpTransportOptions.builder().preferNative(false).build();
+
+    assertThat(options.isNative()).isFalse();
+  }
+
+  @DisplayName("uses the native transport when available and falls back to NIO otherwise")
+  @EnabledOnOs(OS.LINUX)
+  @Test
+  void nativeOrFallback() {
+    options = TcpTransportOptions.builder().eventLoopThreads(2).quickAck(true).build();
+    start();
+
+    client.requestResponse(DefaultPayload.create("ping")).block(Duration.ofSeconds(5)).release();
+
+    assertThat(options.isNative()).isEqualTo(TcpTransportOptions.isNativeAvailable());
+    if (options.isNative()) {
+      assertThat(clientChannel.get()).isInstanceOf(EpollSocketChannel.class);
+    } else {
+      assertThat(clientChannel.get()).isInstanceOf(NioSocketChannel.class);
+    }
+  }
+
+  private void start() {
+    server =
+        RSocketFactory.receive()
+            .frameDecoder(PayloadDecoder.ZERO_COPY)
+            .acceptor(new PingHandler(new byte[64]))
+            .transport(TcpServerTransport.create(TcpServer.create().port(0)).options(options))
+            .start()
+            .block(Duration.ofSeconds(5));
+
+    TcpClient tcpClient =
+        TcpClient.create()
+            .addressSupplier(server::address)
+            .doOnConnected(c -> clientChannel.set(c.channel()));
+    client =
+        RSocketFactory.connect()
+            .frameDecoder(PayloadDecoder.ZERO_COPY)
+            .transport(TcpClientTransport.create(tcpClient).options(options))
+            .start()
+            .block(Duration.ofSeconds(5));
+  }
+}
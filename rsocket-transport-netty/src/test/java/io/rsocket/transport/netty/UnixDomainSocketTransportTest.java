@@ -0,0 +1,59 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rsocket.transport.netty;
+
+import io.netty.channel.unix.DomainSocketAddress;
+import io.rsocket.test.TransportTest;
+import io.rsocket.transport.netty.client.UnixDomainSocketClientTransport;
+import io.rsocket.transport.netty.server.UnixDomainSocketServerTransport;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import org.junit.jupiter.api.condition.EnabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+
+@EnabledOnOs(OS.LINUX)
+final class UnixDomainSocketTransportTest implements TransportTest {
+
+  private final TransportPair transportPair =
+      new TransportPair<>(
+          UnixDomainSocketTransportTest::socketAddress,
+          (address, server) -> UnixDomainSocketClientTransport.create(address),
+          UnixDomainSocketServerTransport::create);
+
+  @Override
+  public Duration getTimeout() {
+    return Duration.ofMinutes(2);
+  }
+
+  @Override
+  public TransportPair getTransportPair() {
+    return transportPair;
+  }
+
+  private static DomainSocketAddress socketAddress() {
+    try {
+      File socket = File.createTempFile("rsocket-", ".sock");
+      socket.delete();
+      socket.deleteOnExit();
+      return new DomainSocketAddress(socket);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rsocket.transport.netty;
+
+import io.rsocket.test.UriHandlerTest;
+import io.rsocket.uri.UriHandler;
+
+final class UnixUriHandlerTest implements UriHandlerTest {
+
+  @Override
+  public String getInvalidUri() {
+    return "tcp://test:9898";
+  }
+
+  @Override
+  public UriHandler getUriHandler() {
+    return new UnixUriHandler();
+  }
+
+  @Override
+  public String getValidUri() {
+    return "unix:///tmp/rsocket.sock";
+  }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rsocket.transport.netty;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.rsocket.transport.netty.client.UnixDomainSocketClientTransport;
+import io.rsocket.transport.netty.server.UnixDomainSocketServerTransport;
+import io.rsocket.uri.UriTransportRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+final class UnixUriTransportRegistryTest {
+
+  @DisplayName("unix URI returns UnixDomainSocketClientTransport")
+  @Test
+  void clientForUriUnix() {
+    assertThat(UriTransportRegistry.clientForUri("unix:///tmp/rsocket.sock"))
+        .isInstanceOf(UnixDomainSocketClientTransport.class);
+  }
+
+  @DisplayName("unix URI returns UnixDomainSocketServerTransport")
+  @Test
+  void serverForUriUnix() {
+    assertThat(UriTransportRegistry.serverForUri("unix:///tmp/rsocket.sock"))
+        .isInstanceOf(UnixDomainSocketServerTransport.class);
+  }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rsocket.transport.netty;
+
+import io.rsocket.test.TransportTest;
+import io.rsocket.transport.netty.client.WebsocketClientTransport;
+import io.rsocket.transport.netty.server.WebsocketServerTransport;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+
+final class WebsocketCoalescingTransportTest implements TransportTest {
+
+  private final TransportPair transportPair =
+      new TransportPair<>(
+          () -> InetSocketAddress.createUnresolved("localhost", 0),
+          (address, server) ->
+              WebsocketClientTransport.create(server.address())
+                  .coalesceFrames(16 * 1024)
+                  .flushPolicy(FlushPolicy.onFrames(16)),
+          address ->
+              WebsocketServerTransport.create(address.getHostName(), address.getPort())
+                  .coalesceFrames(16 * 1024)
+                  .flushPolicy(FlushPolicy.onFrames(16)));
+
+  @Override
+  public Duration getTimeout() {
+    return Duration.ofMinutes(3);
+  }
+
+  @Override
+  public TransportPair getTransportPair() {
+    return transportPair;
+  }
+}
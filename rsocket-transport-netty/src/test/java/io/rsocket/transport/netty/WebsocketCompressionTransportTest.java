@@ -0,0 +1,91 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rsocket.transport.netty;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.rsocket.Payload;
+import io.rsocket.test.TransportTest;
+import io.rsocket.transport.netty.client.WebsocketClientTransport;
+import io.rsocket.transport.netty.server.WebsocketServerTransport;
+import io.rsocket.util.DefaultPayload;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+final class WebsocketCompressionTransportTest implements TransportTest {
+
+  private final AtomicReference<WebsocketCompression.Stats> clientStats = new AtomicReference<>();
+  private final AtomicReference<WebsocketCompression.Stats> serverStats = new AtomicReference<>();
+
+  private final TransportPair transportPair =
+      new TransportPair<>(
+          () -> InetSocketAddress.createUnresolved("localhost", 0),
+          (address, server) ->
+              WebsocketClientTransport.create(server.address())
+                  .compression(
+                      WebsocketCompression.builder()
+                          .minCompressSize(64)
+                          .doOnConnection(clientStats::set)
+                          .build()),
+          address ->
+              WebsocketServerTransport.create(address.getHostName(), address.getPort())
+                  .compression(
+                      WebsocketCompression.builder()
+                          .minCompressSize(64)
+                          .doOnConnection(serverStats::set)
+                          .build()));
+
+  @DisplayName("compresses large payloads in both directions")
+  @Test
+  void requestChannelLargePayloads() {
+    char[] chars = new char[8192];
+    Arrays.fill(chars, 'a');
+    String data = new String(chars);
+
+    getClient()
+        .requestChannel(Flux.range(0, 100).map(i -> DefaultPayload.create(data, "metadata")))
+        .doOnNext(p -> assertThat(p.getDataUtf8()).isEqualTo(data))
+        .doOnNext(Payload::release)
+        .as(StepVerifier::create)
+        .expectNextCount(100)
+        .expectComplete()
+        .verify(getTimeout());
+
+    assertThat(clientStats.get()).isNotNull();
+    assertThat(serverStats.get()).isNotNull();
+    assertThat(clientStats.get().compressedMessages()).isGreaterThan(0);
+    assertThat(serverStats.get().compressedMessages()).isGreaterThan(0);
+    assertThat(clientStats.get().compressionRatio()).isLessThan(1);
+    assertThat(serverStats.get().compressionRatio()).isLessThan(1);
+  }
+
+  @Override
+  public Duration getTimeout() {
+    return Duration.ofMinutes(3);
+  }
+
+  @Override
+  public TransportPair getTransportPair() {
+    return transportPair;
+  }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rsocket.transport.netty;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.PingWebSocketFrame;
+import io.rsocket.frame.FrameLengthFlyweight;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+final class WebsocketFrameCoalescerTest {
+
+  private final EmbeddedChannel channel = new EmbeddedChannel(new WebsocketFrameCoalescer(16));
+
+  @AfterEach
+  void tearDown() {
+    channel.finishAndReleaseAll();
+  }
+
+  @DisplayName("packs the frames written between two flushes into one message")
+  @Test
+  void coalescesUntilFlush() {
+    channel.write(frame("a"));
+    channel.write(frame("bc"));
+    assertThat(channel.outboundMessages()).isEmpty();
+
+    channel.flush();
+
+    assertThat(channel.outboundMessages()).hasSize(1);
+    assertThat(readMessage()).containsExactly("a", "bc");
+  }
+
+  @DisplayName("starts a new message once the maximum message size is reached")
+  @Test
+  void splitsAtMaxMessageSize() {
+    channel.write(frame("abcde"));
+    channel.write(frame("fghij"));
+    channel.write(frame("klmnopqrstuvwxyz"));
+    channel.flush();
+
+    assertThat(channel.outboundMessages()).hasSize(3);
+    assertThat(readMessage()).containsExactly("abcde", "fghij");
+    assertThat(readMessage()).containsExactly("klmnopqrstuvwxyz");
+  }
+
+  @DisplayName("writes the pending message before other websocket frames")
+  @Test
+  void keepsOrderWithControlFrames() {
+    channel.write(frame("a"));
+    channel.writeAndFlush(new PingWebSocketFrame());
+
+    assertThat(readMessage()).containsExactly("a");
+    Object ping = channel.readOutbound();
+    assertThat(ping).isInstanceOf(PingWebSocketFrame.class);
+    ((PingWebSocketFrame) ping).release();
+  }
+
+  @DisplayName("completes the promise of every coalesced frame")
+  @Test
+  void completesPromises() {
+    ChannelFuture first = channel.write(frame("a"));
+    ChannelFuture second = channel.write(frame("b"));
+    assertThat(first.isDone()).isFalse();
+
+    channel.flush();
+
+    assertThat(first.isSuccess()).isTrue();
+    assertThat(second.isSuccess()).isTrue();
+    assertThat(readMessage()).containsExactly("a", "b");
+  }
+
+  @DisplayName("rejects messages ending with a partial frame")
+  @Test
+  void rejectsPartialFrame() {
+    ByteBuf message = FrameLengthFlyweight.encode(ByteBufAllocator.DEFAULT, 3, text("abc"));
+    ByteBuf partial = message.slice(0, message.readableBytes() - 1);
+
+    assertThatIllegalStateException().isThrownBy(() -> WebsocketDuplexConnection.split(partial));
+    assertThat(message.refCnt()).isEqualTo(1);
+    message.release();
+  }
+
+  private static BinaryWebSocketFrame frame(String frame) {
+    ByteBuf content = text(frame);
+    return new BinaryWebSocketFrame(
+        FrameLengthFlyweight.encode(ByteBufAllocator.DEFAULT, content.readableBytes(), content));
+  }
+
+  private static ByteBuf text(String text) {
+    return Unpooled.copiedBuffer(text, StandardCharsets.UTF_8);
+  }
+
+  private List<String> readMessage() {
+    BinaryWebSocketFrame message = channel.readOutbound();
+    List<String> frames =
+        WebsocketDuplexConnection.split(message.content())
+            .stream()
+            .map(
+                frame -> {
+                  String s = frame.toString(StandardCharsets.UTF_8);
+                  frame.release();
+                  return s;
+                })
+            .collect(Collectors.toList());
+    message.release();
+    return frames;
+  }
+}
@@ -89,6 +89,14 @@ void createNullTcpClient() {
         .withMessage("client must not be null");
   }
 
+  @DisplayName("flushPolicy throws NullPointerException with null policy")
+  @Test
+  void flushPolicyNull() {
+    assertThatNullPointerException()
+        .isThrownBy(() -> TcpClientTransport.create(8000).flushPolicy(null))
+        .withMessage("flushPolicy must not be null");
+  }
+
   @DisplayName("creates client with port")
   @Test
   void createPort() {
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rsocket.transport.shm;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Decides what the thread polling a shared memory connection does when a pass over its rings found
+ * no work. Busy spinning gives the lowest latency without any system call, at the price of a fully
+ * used core per connection, backing off trades latency for CPU once the connection goes idle.
+ *
+ * <p>Instances are used by a single polling thread and may keep state.
+ */
+public interface IdleStrategy {
+
+  /**
+   * Called after every pass over the rings.
+   *
+   * @param workCount the number of frames moved by the pass, {@code 0} if it found no work
+   */
+  void idle(int workCount);
+
+  /**
+   * Returns a strategy that spins without ever yielding the core.
+   *
+   * @return the strategy
+   */
+  static IdleStrategy busySpin() {
+    return workCount -> {};
+  }
+
+  /**
+   * Returns a strategy that spins for a while, then yields, then parks for exponentially longer
+   * periods up to 1 millisecond.
+   *
+   * @return the strategy
+   */
+  static IdleStrategy backoff() {
+    return backoff(1_000, 100, TimeUnit.MICROSECONDS.toNanos(1), TimeUnit.MILLISECONDS.toNanos(1));
+  }
+
+  /**
+   * Returns a strategy that spins {@code maxSpins} times, then yields {@code maxYields} times, then
+   * parks from {@code minParkNanos} up to {@code maxParkNanos}, doubling the period each time.
+   *
+   * @param maxSpins number of idle passes spent spinning
+   * @param maxYields number of idle passes spent yielding
+   * @param minParkNanos first park period
+   * @param maxParkNanos longest park period
+   * @return the strategy
+   */
+  static IdleStrategy backoff(long maxSpins, long maxYields, long minParkNanos, long maxParkNanos) {
+    if (maxSpins < 0 || maxYields < 0) {
+      throw new IllegalArgumentException("maxSpins and maxYields must be >= 0");
+    }
+    if (minParkNanos < 1 || maxParkNanos < minParkNanos) {
+      throw new IllegalArgumentException("minParkNanos must be > 0 and <= maxParkNanos");
+    }
+    return new BackoffIdleStrategy(maxSpins, maxYields, minParkNanos, maxParkNanos);
+  }
+
+  /** Spins, then yields, then parks with an exponential backoff. */
+  final class BackoffIdleStrategy implements IdleStrategy {
+    private final long maxSpins;
+    private final long maxYields;
+    private final long minParkNanos;
+    private final long maxParkNanos;
+
+    private long spins;
+    private long yields;
+    private long parkNanos;
+
+    private BackoffIdleStrategy(
+        long maxSpins, long maxYields, long minParkNanos, long maxParkNanos) {
+      this.maxSpins = maxSpins;
+      this.maxYields = maxYields;
+      this.minParkNanos = minParkNanos;
+      this.maxParkNanos = maxParkNanos;
+      this.parkNanos = minParkNanos;
+    }
+
+    @Override
+    public void idle(int workCount) {
+      if (workCount > 0) {
+        spins = 0;
+        yields = 0;
+        parkNanos = minParkNanos;
+      } else if (spins < maxSpins) {
+        spins++;
+      } else if (yields < maxYields) {
+        yields++;
+        Thread.yield();
+      } else {
+        LockSupport.parkNanos(parkNanos);
+        parkNanos = Math.min(parkNanos << 1, maxParkNanos);
+      }
+    }
+  }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rsocket.transport.shm;
+
+import io.netty.buffer.ByteBufAllocator;
+import io.rsocket.DuplexConnection;
+import io.rsocket.fragmentation.FragmentationDuplexConnection;
+import io.rsocket.transport.ClientTransport;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * An implementation of {@link ClientTransport} that connects to a {@link
+ * SharedMemoryServerTransport} of another process on the same host.
+ *
+ * <p>Connecting creates a file in the directory of the server, holding one ring per direction, and
+ * waits for the server to accept it. The file is deleted when the connection closes.
+ */
+public final class SharedMemoryClientTransport implements ClientTransport {
+  private static final Duration DEFAULT_CONNECT_TIMEOUT = Duration.ofSeconds(10);
+  private static final int DEFAULT_RING_CAPACITY = 1024 * 1024;
+
+  private final Path directory;
+  private final Supplier<IdleStrategy> idleStrategy;
+  private final int ringCapacity;
+  private final Duration connectTimeout;
+
+  private SharedMemoryClientTransport(
+      Path directory,
+      Supplier<IdleStrategy> idleStrategy,
+      int ringCapacity,
+      Duration connectTimeout) {
+    this.directory = directory;
+    this.idleStrategy = idleStrategy;
+    this.ringCapacity = ringCapacity;
+    this.connectTimeout = connectTimeout;
+  }
+
+  /**
+   * Creates a new instance whose connections back off when idle, with rings of 1 MiB.
+   *
+   * @param directory the directory of the {@link SharedMemoryServerTransport} to connect to
+   * @return a new instance
+   * @throws NullPointerException if {@code directory} is {@code null}
+   */
+  public static SharedMemoryClientTransport create(Path directory) {
+    Objects.requireNonNull(directory, "directory must not be null");
+
+    return new SharedMemoryClientTransport(
+        directory, IdleStrategy::backoff, DEFAULT_RING_CAPACITY, DEFAULT_CONNECT_TIMEOUT);
+  }
+
+  /**
+   * Returns a copy of this transport whose connections wait for frames according to the given
+   * {@link IdleStrategy}. Each connection gets its own instance from the supplier, since an
+   * instance belongs to the thread polling the connection.
+   *
+   * @param idleStrategy supplies the {@link IdleStrategy} of each connection
+   * @return a new instance
+   * @throws NullPointerException if {@code idleStrategy} is {@code null}
+   */
+  public SharedMemoryClientTransport idleStrategy(Supplier<IdleStrategy> idleStrategy) {
+    Objects.requireNonNull(idleStrategy, "idleStrategy must not be null");
+
+    return new SharedMemoryClientTransport(directory, idleStrategy, ringCapacity, connectTimeout);
+  }
+
+  /**
+   * Returns a copy of this transport with rings of the given capacity. Frames larger than the ring
+   * close the connection, so this caps the frame size unless fragmentation is enabled.
+   *
+   * @param ringCapacity the capacity of each ring in bytes, rounded up to a power of 2
+   * @return a new instance
+   * @throws IllegalArgumentException if {@code ringCapacity} is not positive
+   */
+  public SharedMemoryClientTransport ringCapacity(int ringCapacity) {
+    if (ringCapacity <= 0) {
+      throw new IllegalArgumentException("ringCapacity must be > 0");
+    }
+
+    return new SharedMemoryClientTransport(directory, idleStrategy, ringCapacity, connectTimeout);
+  }
+
+  /**
+   * Returns a copy of this transport that waits at most {@code connectTimeout} for the server to
+   * accept a connection.
+   *
+   * @param connectTimeout the connect timeout
+   * @return a new instance
+   * @throws NullPointerException if {@code connectTimeout} is {@code null}
+   */
+  public SharedMemoryClientTransport connectTimeout(Duration connectTimeout) {
+    Objects.requireNonNull(connectTimeout, "connectTimeout must not be null");
+
+    return new SharedMemoryClientTransport(directory, idleStrategy, ringCapacity, connectTimeout);
+  }
+
+  @Override
+  public Mono<DuplexConnection> connect(int mtu) {
+    Mono<DuplexConnection> isError = FragmentationDuplexConnection.checkMtu(mtu);
+    Mono<DuplexConnection> connect =
+        isError != null
+            ? isError
+            : Mono.fromCallable(this::connect).subscribeOn(Schedulers.elastic());
+    if (mtu > 0) {
+      return connect.map(
+          duplexConnection ->
+              new FragmentationDuplexConnection(
+                  duplexConnection, ByteBufAllocator.DEFAULT, mtu, false, "client"));
+    } else {
+      return connect;
+    }
+  }
+
+  private DuplexConnection connect() throws IOException, TimeoutException {
+    if (!SharedMemoryServerTransport.isListening(directory)) {
+      throw new IllegalArgumentException("Could not find server: " + directory);
+    }
+
+    String name = UUID.randomUUID().toString();
+    Path created = directory.resolve(name + ".tmp");
+    Path path = directory.resolve(name + SharedMemoryServerTransport.CONNECTION_FILE_SUFFIX);
+    SharedMemoryFile file = SharedMemoryFile.create(created, ringCapacity);
+    file.status(true, SharedMemoryFile.STATUS_CONNECTED);
+    Files.move(created, path, StandardCopyOption.ATOMIC_MOVE);
+
+    long deadline = System.nanoTime() + connectTimeout.toNanos();
+    while (file.status(false) == SharedMemoryFile.STATUS_PENDING) {
+      if (System.nanoTime() - deadline > 0) {
+        file.status(true, SharedMemoryFile.STATUS_CLOSED);
+        file.unmap();
+        Files.deleteIfExists(path);
+        throw new TimeoutException("Server did not accept connection within " + connectTimeout);
+      }
+      LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(50));
+    }
+
+    return new SharedMemoryDuplexConnection(path, file, true, idleStrategy.get());
+  }
+}
@@ -0,0 +1,321 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rsocket.transport.shm;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.util.ReferenceCountUtil;
+import io.rsocket.DuplexConnection;
+import io.rsocket.internal.jctools.queues.MpscUnboundedArrayQueue;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.CoreSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+import reactor.core.publisher.Operators;
+import reactor.util.annotation.Nullable;
+
+/**
+ * An implementation of {@link DuplexConnection} over a {@link SharedMemoryFile}.
+ *
+ * <p>A dedicated thread owns both rings: it copies frames queued by {@link #send(Publisher)} into
+ * the outbound ring, and delivers frames of the inbound ring to the subscriber of {@link
+ * #receive()} as long as it has demand, so a slow subscriber backs up into the ring and eventually
+ * into the peer. Between passes that find no work, the thread waits according to the {@link
+ * IdleStrategy}.
+ *
+ * <p>The thread also bumps a heartbeat counter in the file every 100 milliseconds. A peer that
+ * closes writes its status, but one that crashed or was killed cannot, so the connection closes
+ * with an error once the heartbeat of the peer has not moved for 5 seconds, and the file is
+ * released.
+ */
+final class SharedMemoryDuplexConnection implements DuplexConnection {
+  private static final Logger logger = LoggerFactory.getLogger(SharedMemoryDuplexConnection.class);
+  private static final int MAX_FRAMES_PER_PASS = 64;
+  private static final long HEARTBEAT_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+  private static final long PEER_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+  private final Path path;
+  private final SharedMemoryFile file;
+  private final boolean client;
+  private final SharedMemoryRing outbound;
+  private final SharedMemoryRing inbound;
+  private final IdleStrategy idleStrategy;
+  private final ByteBufAllocator allocator = ByteBufAllocator.DEFAULT;
+  private final MpscUnboundedArrayQueue<ByteBuf> sendQueue = new MpscUnboundedArrayQueue<>(256);
+  private final FrameReceiver receiver;
+  private final MonoProcessor<Void> onClose = MonoProcessor.create();
+  private final Thread poller;
+
+  private volatile boolean running = true;
+
+  /**
+   * Creates a new instance and starts polling.
+   *
+   * @param path the path of the mapped file, deleted on close
+   * @param file the mapped file
+   * @param client {@code true} for the connecting side
+   * @param idleStrategy the {@link IdleStrategy} of the polling thread
+   */
+  SharedMemoryDuplexConnection(
+      Path path, SharedMemoryFile file, boolean client, IdleStrategy idleStrategy) {
+    this.path = path;
+    this.file = file;
+    this.client = client;
+    this.outbound = file.outbound(client);
+    this.inbound = file.inbound(client);
+    this.idleStrategy = Objects.requireNonNull(idleStrategy, "idleStrategy must not be null");
+    this.receiver = new FrameReceiver(inbound, allocator);
+    this.poller = new Thread(this::poll, "rsocket-shm-" + path.getFileName());
+    this.poller.setDaemon(true);
+    this.poller.start();
+  }
+
+  @Override
+  public Mono<Void> send(Publisher<ByteBuf> frames) {
+    Objects.requireNonNull(frames, "frames must not be null");
+
+    return Flux.from(frames).doOnNext(this::enqueue).then();
+  }
+
+  @Override
+  public Mono<Void> sendOne(ByteBuf frame) {
+    Objects.requireNonNull(frame, "frame must not be null");
+    enqueue(frame);
+    return Mono.empty();
+  }
+
+  @Override
+  public Flux<ByteBuf> receive() {
+    return receiver;
+  }
+
+  @Override
+  public void dispose() {
+    running = false;
+  }
+
+  @Override
+  public boolean isDisposed() {
+    return !running;
+  }
+
+  @Override
+  public Mono<Void> onClose() {
+    return onClose;
+  }
+
+  private void enqueue(ByteBuf frame) {
+    if (running) {
+      sendQueue.offer(frame);
+    } else {
+      ReferenceCountUtil.safeRelease(frame);
+    }
+  }
+
+  private void poll() {
+    Throwable error = null;
+    ByteBuf pending = null;
+    long heartbeat = 0;
+    long lastHeartbeat = System.nanoTime();
+    long peerHeartbeat = file.heartbeat(!client);
+    long lastPeerHeartbeat = lastHeartbeat;
+    try {
+      while (running && file.status(!client) != SharedMemoryFile.STATUS_CLOSED) {
+        int workCount = 0;
+
+        ByteBuf frame = pending != null ? pending : sendQueue.poll();
+        while (frame != null) {
+          if (!outbound.offer(frame)) {
+            break;
+          }
+          frame.release();
+          workCount++;
+          frame = workCount < MAX_FRAMES_PER_PASS ? sendQueue.poll() : null;
+        }
+        pending = frame;
+
+        workCount += receiver.drain();
+
+        long now = System.nanoTime();
+        if (now - lastHeartbeat >= HEARTBEAT_INTERVAL_NANOS) {
+          lastHeartbeat = now;
+          file.heartbeat(client, ++heartbeat);
+          long peer = file.heartbeat(!client);
+          if (peer != peerHeartbeat) {
+            peerHeartbeat = peer;
+            lastPeerHeartbeat = now;
+          } else if (now - lastPeerHeartbeat > PEER_TIMEOUT_NANOS) {
+            error = new IOException("Peer of " + path + " stopped responding");
+            break;
+          }
+        }
+
+        idleStrategy.idle(workCount);
+      }
+    } catch (Throwable t) {
+      error = t;
+    } finally {
+      running = false;
+      close(pending, error);
+    }
+  }
+
+  private void close(@Nullable ByteBuf pending, @Nullable Throwable error) {
+    file.status(client, SharedMemoryFile.STATUS_CLOSED);
+    if (pending != null) {
+      ReferenceCountUtil.safeRelease(pending);
+    }
+    ByteBuf frame;
+    while ((frame = sendQueue.poll()) != null) {
+      ReferenceCountUtil.safeRelease(frame);
+    }
+
+    if (error != null) {
+      logger.debug("Shared memory connection {} failed", path, error);
+    }
+    receiver.terminate(error);
+
+    file.unmap();
+    try {
+      Files.deleteIfExists(path);
+    } catch (IOException e) {
+      logger.debug("Could not delete {}", path, e);
+    }
+    onClose.onComplete();
+  }
+
+  /**
+   * Delivers inbound frames to a single subscriber. Frames are read from the ring on the polling
+   * thread only while the subscriber has outstanding demand.
+   */
+  static final class FrameReceiver extends Flux<ByteBuf> implements Subscription {
+    static final AtomicReferenceFieldUpdater<FrameReceiver, CoreSubscriber> ACTUAL =
+        AtomicReferenceFieldUpdater.newUpdater(FrameReceiver.class, CoreSubscriber.class, "actual");
+    static final AtomicLongFieldUpdater<FrameReceiver> REQUESTED =
+        AtomicLongFieldUpdater.newUpdater(FrameReceiver.class, "requested");
+    static final AtomicIntegerFieldUpdater<FrameReceiver> ONCE =
+        AtomicIntegerFieldUpdater.newUpdater(FrameReceiver.class, "once");
+
+    final SharedMemoryRing inbound;
+    final ByteBufAllocator allocator;
+
+    volatile CoreSubscriber<? super ByteBuf> actual;
+    volatile long requested;
+    volatile int once;
+    volatile boolean cancelled;
+    volatile boolean done;
+    Throwable error;
+
+    FrameReceiver(SharedMemoryRing inbound, ByteBufAllocator allocator) {
+      this.inbound = inbound;
+      this.allocator = allocator;
+    }
+
+    @Override
+    public void subscribe(CoreSubscriber<? super ByteBuf> actual) {
+      if (once == 0 && ONCE.compareAndSet(this, 0, 1)) {
+        actual.onSubscribe(this);
+        this.actual = actual;
+        if (done) {
+          signalTerminal();
+        }
+      } else {
+        Operators.error(
+            actual,
+            new IllegalStateException(
+                "SharedMemoryDuplexConnection allows only a single Subscriber"));
+      }
+    }
+
+    @Override
+    public void request(long n) {
+      if (Operators.validate(n)) {
+        Operators.addCap(REQUESTED, this, n);
+      }
+    }
+
+    @Override
+    public void cancel() {
+      cancelled = true;
+    }
+
+    /* called by the polling thread */
+    int drain() {
+      CoreSubscriber<? super ByteBuf> a = actual;
+      if (a == null) {
+        return 0;
+      }
+      if (cancelled) {
+        // nobody is listening anymore, keep the peer from blocking on a full ring
+        ByteBuf frame = inbound.poll(allocator);
+        if (frame != null) {
+          frame.release();
+          return 1;
+        }
+        return 0;
+      }
+
+      long r = requested;
+      long e = 0;
+      while (e != r && e != MAX_FRAMES_PER_PASS) {
+        ByteBuf frame = inbound.poll(allocator);
+        if (frame == null) {
+          break;
+        }
+        a.onNext(frame);
+        e++;
+      }
+      if (e != 0 && r != Long.MAX_VALUE) {
+        REQUESTED.addAndGet(this, -e);
+      }
+      return (int) e;
+    }
+
+    /* called by the polling thread once it stops */
+    void terminate(@Nullable Throwable error) {
+      this.error = error;
+      this.done = true;
+      signalTerminal();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void signalTerminal() {
+      CoreSubscriber<? super ByteBuf> a = ACTUAL.getAndSet(this, null);
+      if (a == null || cancelled) {
+        return;
+      }
+      Throwable e = error;
+      if (e != null) {
+        a.onError(e);
+      } else {
+        a.onComplete();
+      }
+    }
+  }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rsocket.transport.shm;
+
+import static io.rsocket.internal.jctools.util.UnsafeAccess.UNSAFE;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.util.internal.PlatformDependent;
+import io.rsocket.internal.jctools.util.Pow2;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Memory-mapped file shared by both ends of a connection. It holds a status word and a heartbeat
+ * counter per side and one {@link SharedMemoryRing} per direction:
+ *
+ * <pre>
+ * 0     magic, ring capacity
+ * 128   client status
+ * 256   server status
+ * 384   client heartbeat
+ * 512   server heartbeat
+ * 640   client to server ring tail, 768 head
+ * 896   server to client ring tail, 1024 head
+ * 1152  client to server ring data, followed by server to client ring data
+ * </pre>
+ *
+ * <p>Every word written concurrently lives on a cache line of its own, padded against adjacent
+ * line prefetching.
+ */
+final class SharedMemoryFile {
+  static final int MAGIC = 0x52536f63;
+
+  static final int STATUS_PENDING = 0;
+  static final int STATUS_CONNECTED = 1;
+  static final int STATUS_CLOSED = 2;
+
+  static final int MIN_RING_CAPACITY = 4096;
+
+  private static final int LINE = 128;
+  private static final int MAGIC_OFFSET = 0;
+  private static final int CAPACITY_OFFSET = 4;
+  private static final int CLIENT_STATUS_OFFSET = LINE;
+  private static final int SERVER_STATUS_OFFSET = 2 * LINE;
+  private static final int CLIENT_HEARTBEAT_OFFSET = 3 * LINE;
+  private static final int SERVER_HEARTBEAT_OFFSET = 4 * LINE;
+  private static final int CLIENT_RING_TAIL_OFFSET = 5 * LINE;
+  private static final int CLIENT_RING_HEAD_OFFSET = 6 * LINE;
+  private static final int SERVER_RING_TAIL_OFFSET = 7 * LINE;
+  private static final int SERVER_RING_HEAD_OFFSET = 8 * LINE;
+  private static final int DATA_OFFSET = 9 * LINE;
+
+  private final MappedByteBuffer mapping;
+  private final long address;
+  private final SharedMemoryRing clientToServer;
+  private final SharedMemoryRing serverToClient;
+
+  private SharedMemoryFile(MappedByteBuffer mapping, int ringCapacity) {
+    this.mapping = mapping;
+    this.address = PlatformDependent.directBufferAddress(mapping);
+    ByteBuf memory = Unpooled.wrappedBuffer(mapping);
+    this.clientToServer =
+        new SharedMemoryRing(
+            memory,
+            address,
+            CLIENT_RING_TAIL_OFFSET,
+            CLIENT_RING_HEAD_OFFSET,
+            DATA_OFFSET,
+            ringCapacity);
+    this.serverToClient =
+        new SharedMemoryRing(
+            memory,
+            address,
+            SERVER_RING_TAIL_OFFSET,
+            SERVER_RING_HEAD_OFFSET,
+            DATA_OFFSET + ringCapacity,
+            ringCapacity);
+  }
+
+  /**
+   * Creates and maps a new file, with both sides pending.
+   *
+   * @param file the file to create, it must not exist
+   * @param ringCapacity the capacity of each ring, rounded up to a power of 2
+   * @return the mapped file
+   * @throws IOException if the file cannot be created or mapped
+   */
+  static SharedMemoryFile create(Path file, int ringCapacity) throws IOException {
+    int capacity = Pow2.roundToPowerOfTwo(Math.max(MIN_RING_CAPACITY, ringCapacity));
+    MappedByteBuffer mapping =
+        map(file, DATA_OFFSET + 2L * capacity, StandardOpenOption.CREATE_NEW);
+    mapping.putInt(CAPACITY_OFFSET, capacity);
+    mapping.putInt(MAGIC_OFFSET, MAGIC);
+    return new SharedMemoryFile(mapping, capacity);
+  }
+
+  /**
+   * Maps a file created by {@link #create(Path, int)}.
+   *
+   * @param file the file to map
+   * @return the mapped file
+   * @throws IOException if the file cannot be mapped or was not created by this transport
+   */
+  static SharedMemoryFile open(Path file) throws IOException {
+    MappedByteBuffer header = map(file, DATA_OFFSET);
+    int magic = header.getInt(MAGIC_OFFSET);
+    int capacity = header.getInt(CAPACITY_OFFSET);
+    PlatformDependent.freeDirectBuffer(header);
+    if (magic != MAGIC || capacity < MIN_RING_CAPACITY || !Pow2.isPowerOfTwo(capacity)) {
+      throw new IOException("Not a shared memory connection file: " + file);
+    }
+    return new SharedMemoryFile(map(file, DATA_OFFSET + 2L * capacity), capacity);
+  }
+
+  private static MappedByteBuffer map(Path file, long size, StandardOpenOption... options)
+      throws IOException {
+    StandardOpenOption[] openOptions = new StandardOpenOption[options.length + 2];
+    openOptions[0] = StandardOpenOption.READ;
+    openOptions[1] = StandardOpenOption.WRITE;
+    System.arraycopy(options, 0, openOptions, 2, options.length);
+    try (FileChannel channel = FileChannel.open(file, openOptions)) {
+      return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+  }
+
+  SharedMemoryRing outbound(boolean client) {
+    return client ? clientToServer : serverToClient;
+  }
+
+  SharedMemoryRing inbound(boolean client) {
+    return client ? serverToClient : clientToServer;
+  }
+
+  long status(boolean client) {
+    return UNSAFE.getLongVolatile(
+        null, address + (client ? CLIENT_STATUS_OFFSET : SERVER_STATUS_OFFSET));
+  }
+
+  void status(boolean client, long status) {
+    UNSAFE.putLongVolatile(
+        null, address + (client ? CLIENT_STATUS_OFFSET : SERVER_STATUS_OFFSET), status);
+  }
+
+  long heartbeat(boolean client) {
+    return UNSAFE.getLongVolatile(
+        null, address + (client ? CLIENT_HEARTBEAT_OFFSET : SERVER_HEARTBEAT_OFFSET));
+  }
+
+  void heartbeat(boolean client, long heartbeat) {
+    UNSAFE.putOrderedLong(
+        null, address + (client ? CLIENT_HEARTBEAT_OFFSET : SERVER_HEARTBEAT_OFFSET), heartbeat);
+  }
+
+  /** Unmaps the file. Neither the file nor its rings may be used afterwards. */
+  void unmap() {
+    PlatformDependent.freeDirectBuffer(mapping);
+  }
+}
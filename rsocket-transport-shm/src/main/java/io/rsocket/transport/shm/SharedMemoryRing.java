@@ -0,0 +1,170 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rsocket.transport.shm;
+
+import static io.rsocket.internal.jctools.util.UnsafeAccess.UNSAFE;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import reactor.util.annotation.Nullable;
+
+/**
+ * Single producer single consumer ring of frames in shared memory. The producer and the consumer
+ * are usually in different processes, each with its own instance over the same memory.
+ *
+ * <p>Frames are stored as records made of an {@code int} length followed by the frame bytes,
+ * aligned to 8 bytes. A record never wraps: when it does not fit before the end of the ring, a
+ * padding record fills the remainder and the frame is written at the start. The producer publishes
+ * records by advancing the tail with an ordered store, the consumer frees them by advancing the
+ * head the same way, so neither side ever blocks or calls into the kernel.
+ */
+final class SharedMemoryRing {
+  static final int RECORD_ALIGNMENT = 8;
+  static final int LENGTH_SIZE = Integer.BYTES;
+  static final int PADDING = -1;
+
+  private final ByteBuf memory;
+  private final int dataOffset;
+  private final int capacity;
+  private final int mask;
+  private final long tailAddress;
+  private final long headAddress;
+
+  /* producer side: last head read from memory */
+  private long headCache;
+  /* consumer side: current head */
+  private long head;
+
+  /**
+   * @param memory the whole shared memory, used to copy frames in and out
+   * @param baseAddress the address of the first byte of {@code memory}
+   * @param tailOffset offset of the {@code long} holding the tail
+   * @param headOffset offset of the {@code long} holding the head, on another cache line
+   * @param dataOffset offset of the first byte of the ring
+   * @param capacity size of the ring in bytes, a power of 2
+   */
+  SharedMemoryRing(
+      ByteBuf memory,
+      long baseAddress,
+      int tailOffset,
+      int headOffset,
+      int dataOffset,
+      int capacity) {
+    this.memory = memory;
+    this.dataOffset = dataOffset;
+    this.capacity = capacity;
+    this.mask = capacity - 1;
+    this.tailAddress = baseAddress + tailOffset;
+    this.headAddress = baseAddress + headOffset;
+    this.headCache = UNSAFE.getLongVolatile(null, headAddress);
+    this.head = headCache;
+  }
+
+  /** @return the largest frame that fits in the ring */
+  int maxFrameLength() {
+    return capacity - LENGTH_SIZE;
+  }
+
+  /**
+   * Copies a frame into the ring. Called by the producer only.
+   *
+   * @param frame the frame to copy, its reference count is left unchanged
+   * @return {@code false} if the ring does not have room for the frame right now
+   * @throws IllegalArgumentException if the frame is larger than {@link #maxFrameLength()}
+   */
+  boolean offer(ByteBuf frame) {
+    int length = frame.readableBytes();
+    if (length > maxFrameLength()) {
+      throw new IllegalArgumentException(
+          "frame of " + length + " bytes exceeds the ring capacity of " + capacity + " bytes");
+    }
+    int recordLength = align(LENGTH_SIZE + length);
+
+    long tail = UNSAFE.getLong(null, tailAddress);
+    int index = (int) tail & mask;
+    int toEnd = capacity - index;
+    if (recordLength > toEnd) {
+      if (!hasRoom(tail, toEnd)) {
+        return false;
+      }
+      memory.setInt(dataOffset + index, PADDING);
+      tail += toEnd;
+      index = 0;
+      UNSAFE.putOrderedLong(null, tailAddress, tail);
+    }
+    if (!hasRoom(tail, recordLength)) {
+      return false;
+    }
+
+    memory.setInt(dataOffset + index, length);
+    memory.setBytes(dataOffset + index + LENGTH_SIZE, frame, frame.readerIndex(), length);
+    UNSAFE.putOrderedLong(null, tailAddress, tail + recordLength);
+    return true;
+  }
+
+  private boolean hasRoom(long tail, int length) {
+    if (tail + length - headCache <= capacity) {
+      return true;
+    }
+    headCache = UNSAFE.getLongVolatile(null, headAddress);
+    return tail + length - headCache <= capacity;
+  }
+
+  /**
+   * Copies the next frame out of the ring and frees its record. Called by the consumer only.
+   *
+   * @param allocator the allocator of the returned frame
+   * @return the frame or {@code null} if the ring is empty
+   */
+  @Nullable
+  ByteBuf poll(ByteBufAllocator allocator) {
+    long head = this.head;
+    if (head == UNSAFE.getLongVolatile(null, tailAddress)) {
+      return null;
+    }
+
+    int index = (int) head & mask;
+    int length = memory.getInt(dataOffset + index);
+    if (length == PADDING) {
+      head += capacity - index;
+      this.head = head;
+      UNSAFE.putOrderedLong(null, headAddress, head);
+      if (head == UNSAFE.getLongVolatile(null, tailAddress)) {
+        return null;
+      }
+      index = 0;
+      length = memory.getInt(dataOffset);
+    }
+
+    ByteBuf frame = allocator.buffer(length);
+    frame.writeBytes(memory, dataOffset + index + LENGTH_SIZE, length);
+
+    head += align(LENGTH_SIZE + length);
+    this.head = head;
+    UNSAFE.putOrderedLong(null, headAddress, head);
+    return frame;
+  }
+
+  /** @return {@code true} if the consumer has nothing to read */
+  boolean isEmpty() {
+    return UNSAFE.getLongVolatile(null, headAddress) == UNSAFE.getLongVolatile(null, tailAddress);
+  }
+
+  private static int align(int length) {
+    return (length + RECORD_ALIGNMENT - 1) & -RECORD_ALIGNMENT;
+  }
+}
@@ -0,0 +1,248 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rsocket.transport.shm;
+
+import io.netty.buffer.ByteBufAllocator;
+import io.rsocket.Closeable;
+import io.rsocket.DuplexConnection;
+import io.rsocket.fragmentation.FragmentationDuplexConnection;
+import io.rsocket.transport.ServerTransport;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+
+/**
+ * An implementation of {@link ServerTransport} that accepts connections from a {@link
+ * SharedMemoryClientTransport} of another process on the same host.
+ *
+ * <p>The server owns a directory, marked by a locked {@code server.lock} file while it is running.
+ * Clients create one file per connection in that directory, which the server discovers by scanning
+ * the directory.
+ */
+public final class SharedMemoryServerTransport implements ServerTransport<Closeable> {
+  static final String CONNECTION_FILE_SUFFIX = ".rsocket";
+
+  private static final Logger logger = LoggerFactory.getLogger(SharedMemoryServerTransport.class);
+  private static final String LOCK_FILE = "server.lock";
+  private static final long SCAN_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+  private final Path directory;
+  private final Supplier<IdleStrategy> idleStrategy;
+
+  private SharedMemoryServerTransport(Path directory, Supplier<IdleStrategy> idleStrategy) {
+    this.directory = directory;
+    this.idleStrategy = idleStrategy;
+  }
+
+  /**
+   * Creates an instance whose connections back off when idle.
+   *
+   * @param directory the directory that clients will connect to, created if it does not exist
+   * @return a new instance
+   * @throws NullPointerException if {@code directory} is {@code null}
+   */
+  public static SharedMemoryServerTransport create(Path directory) {
+    Objects.requireNonNull(directory, "directory must not be null");
+
+    return new SharedMemoryServerTransport(directory, IdleStrategy::backoff);
+  }
+
+  /**
+   * Returns whether a server is running in the given directory.
+   *
+   * @param directory the directory of the server
+   * @return {@code true} if a server holds the lock of the directory
+   * @throws IOException if the lock file cannot be opened
+   */
+  static boolean isListening(Path directory) throws IOException {
+    try (FileChannel channel =
+        FileChannel.open(directory.resolve(LOCK_FILE), StandardOpenOption.WRITE)) {
+      FileLock lock = channel.tryLock();
+      if (lock == null) {
+        return true;
+      }
+      lock.release();
+      return false;
+    } catch (OverlappingFileLockException e) {
+      // held by a server of this JVM
+      return true;
+    } catch (NoSuchFileException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Returns a copy of this transport whose connections wait for frames according to the given
+   * {@link IdleStrategy}. Each connection gets its own instance from the supplier, since an
+   * instance belongs to the thread polling the connection.
+   *
+   * @param idleStrategy supplies the {@link IdleStrategy} of each connection
+   * @return a new instance
+   * @throws NullPointerException if {@code idleStrategy} is {@code null}
+   */
+  public SharedMemoryServerTransport idleStrategy(Supplier<IdleStrategy> idleStrategy) {
+    Objects.requireNonNull(idleStrategy, "idleStrategy must not be null");
+
+    return new SharedMemoryServerTransport(directory, idleStrategy);
+  }
+
+  /**
+   * Returns a new {@link SharedMemoryClientTransport} that is connected to this {@code
+   * SharedMemoryServerTransport}.
+   *
+   * @return a new {@link SharedMemoryClientTransport} that is connected to this {@code
+   *     SharedMemoryServerTransport}
+   */
+  public SharedMemoryClientTransport clientTransport() {
+    return SharedMemoryClientTransport.create(directory);
+  }
+
+  @Override
+  public Mono<Closeable> start(ConnectionAcceptor acceptor, int mtu) {
+    Objects.requireNonNull(acceptor, "acceptor must not be null");
+
+    Mono<Closeable> isError = FragmentationDuplexConnection.checkMtu(mtu);
+    return isError != null ? isError : Mono.fromCallable(() -> new Acceptor(acceptor, mtu));
+  }
+
+  /** Scans the directory for connection files and hands them to the {@link ConnectionAcceptor}. */
+  final class Acceptor implements Closeable {
+    private final ConnectionAcceptor acceptor;
+    private final int mtu;
+    private final FileChannel lockChannel;
+    private final FileLock lock;
+    private final Set<Path> accepted = new HashSet<>();
+    private final MonoProcessor<Void> onClose = MonoProcessor.create();
+    private final Thread scanner;
+
+    private volatile boolean running = true;
+
+    Acceptor(ConnectionAcceptor acceptor, int mtu) throws IOException {
+      this.acceptor = acceptor;
+      this.mtu = mtu;
+
+      Files.createDirectories(directory);
+      this.lockChannel =
+          FileChannel.open(
+              directory.resolve(LOCK_FILE), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+      FileLock lock;
+      try {
+        lock = lockChannel.tryLock();
+      } catch (OverlappingFileLockException e) {
+        lock = null;
+      }
+      if (lock == null) {
+        lockChannel.close();
+        throw new IllegalStateException("directory already in use: " + directory);
+      }
+      this.lock = lock;
+
+      this.scanner = new Thread(this::scan, "rsocket-shm-acceptor-" + directory.getFileName());
+      this.scanner.setDaemon(true);
+      this.scanner.start();
+    }
+
+    private void scan() {
+      Set<Path> present = new HashSet<>();
+      while (running) {
+        present.clear();
+        try (DirectoryStream<Path> files =
+            Files.newDirectoryStream(directory, "*" + CONNECTION_FILE_SUFFIX)) {
+          for (Path file : files) {
+            present.add(file);
+            if (accepted.add(file)) {
+              accept(file);
+            }
+          }
+        } catch (IOException e) {
+          logger.debug("Could not scan {}", directory, e);
+        }
+        // forget connections whose files have been deleted on close
+        accepted.retainAll(present);
+        LockSupport.parkNanos(SCAN_INTERVAL_NANOS);
+      }
+    }
+
+    private void accept(Path path) {
+      SharedMemoryFile file;
+      try {
+        file = SharedMemoryFile.open(path);
+      } catch (IOException e) {
+        logger.debug("Could not open connection {}", path, e);
+        return;
+      }
+      if (file.status(true) != SharedMemoryFile.STATUS_CONNECTED
+          || file.status(false) != SharedMemoryFile.STATUS_PENDING) {
+        // the client gave up or the file is stale
+        file.unmap();
+        return;
+      }
+      file.status(false, SharedMemoryFile.STATUS_CONNECTED);
+
+      DuplexConnection duplexConnection =
+          new SharedMemoryDuplexConnection(path, file, false, idleStrategy.get());
+      if (mtu > 0) {
+        duplexConnection =
+            new FragmentationDuplexConnection(
+                duplexConnection, ByteBufAllocator.DEFAULT, mtu, false, "server");
+      }
+
+      acceptor.apply(duplexConnection).subscribe();
+    }
+
+    @Override
+    public void dispose() {
+      if (!running) {
+        return;
+      }
+      running = false;
+      try {
+        lock.release();
+        lockChannel.close();
+      } catch (IOException e) {
+        logger.debug("Could not release {}", directory, e);
+      }
+      onClose.onComplete();
+    }
+
+    @Override
+    public boolean isDisposed() {
+      return onClose.isDisposed();
+    }
+
+    @Override
+    public Mono<Void> onClose() {
+      return onClose;
+    }
+  }
+}
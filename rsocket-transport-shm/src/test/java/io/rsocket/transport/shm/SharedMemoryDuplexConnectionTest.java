@@ -0,0 +1,50 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rsocket.transport.shm;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.test.StepVerifier;
+
+final class SharedMemoryDuplexConnectionTest {
+
+  @DisplayName("closes and releases the file when the peer stops responding")
+  @Test
+  void closesWhenPeerStopsResponding() throws IOException {
+    Path path = Files.createTempFile("rsocket-shm-", ".rsocket");
+    Files.delete(path);
+    SharedMemoryFile file = SharedMemoryFile.create(path, SharedMemoryFile.MIN_RING_CAPACITY);
+    file.status(true, SharedMemoryFile.STATUS_CONNECTED);
+    file.status(false, SharedMemoryFile.STATUS_CONNECTED);
+
+    SharedMemoryDuplexConnection connection =
+        new SharedMemoryDuplexConnection(path, file, true, IdleStrategy.backoff());
+
+    StepVerifier.create(connection.receive())
+        .expectErrorSatisfies(
+            e -> assertThat(e).isInstanceOf(IOException.class).hasMessageEndingWith("responding"))
+        .verify(Duration.ofSeconds(30));
+    connection.onClose().block(Duration.ofSeconds(5));
+    assertThat(path).doesNotExist();
+  }
+}
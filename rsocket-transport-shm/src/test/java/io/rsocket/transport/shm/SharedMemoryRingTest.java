@@ -0,0 +1,146 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rsocket.transport.shm;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+final class SharedMemoryRingTest {
+
+  private Path path;
+  private SharedMemoryFile producerFile;
+  private SharedMemoryFile consumerFile;
+  private SharedMemoryRing producer;
+  private SharedMemoryRing consumer;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    path = Files.createTempFile("rsocket-shm-", ".rsocket");
+    Files.delete(path);
+    producerFile = SharedMemoryFile.create(path, SharedMemoryFile.MIN_RING_CAPACITY);
+    consumerFile = SharedMemoryFile.open(path);
+    producer = producerFile.outbound(true);
+    consumer = consumerFile.inbound(false);
+  }
+
+  @AfterEach
+  void tearDown() throws IOException {
+    producerFile.unmap();
+    consumerFile.unmap();
+    Files.deleteIfExists(path);
+  }
+
+  @DisplayName("polls frames in the order they were offered")
+  @Test
+  void offerAndPoll() {
+    assertThat(consumer.poll(ByteBufAllocator.DEFAULT)).isNull();
+
+    assertThat(offer(frame(10, (byte) 1))).isTrue();
+    assertThat(offer(frame(0, (byte) 2))).isTrue();
+    assertThat(offer(frame(100, (byte) 3))).isTrue();
+
+    assertFrame(consumer.poll(ByteBufAllocator.DEFAULT), 10, (byte) 1);
+    assertFrame(consumer.poll(ByteBufAllocator.DEFAULT), 0, (byte) 2);
+    assertFrame(consumer.poll(ByteBufAllocator.DEFAULT), 100, (byte) 3);
+    assertThat(consumer.poll(ByteBufAllocator.DEFAULT)).isNull();
+    assertThat(consumer.isEmpty()).isTrue();
+  }
+
+  @DisplayName("pads the end of the ring instead of wrapping a frame")
+  @Test
+  void wrap() {
+    int length = 1000;
+    for (int i = 0; i < 100; i++) {
+      assertThat(offer(frame(length, (byte) i))).isTrue();
+      assertFrame(consumer.poll(ByteBufAllocator.DEFAULT), length, (byte) i);
+    }
+    assertThat(consumer.isEmpty()).isTrue();
+  }
+
+  @DisplayName("rejects frames while the ring is full")
+  @Test
+  void full() {
+    int offered = 0;
+    while (offer(frame(500, (byte) offered))) {
+      offered++;
+    }
+    assertThat(offered).isEqualTo(SharedMemoryFile.MIN_RING_CAPACITY / 512);
+
+    assertFrame(consumer.poll(ByteBufAllocator.DEFAULT), 500, (byte) 0);
+    assertThat(offer(frame(500, (byte) offered))).isTrue();
+    for (int i = 1; i <= offered; i++) {
+      assertFrame(consumer.poll(ByteBufAllocator.DEFAULT), 500, (byte) i);
+    }
+    assertThat(consumer.poll(ByteBufAllocator.DEFAULT)).isNull();
+  }
+
+  @DisplayName("accepts a frame filling the whole ring")
+  @Test
+  void maxFrameLength() {
+    int length = producer.maxFrameLength();
+    assertThat(offer(frame(length, (byte) 7))).isTrue();
+    assertFrame(consumer.poll(ByteBufAllocator.DEFAULT), length, (byte) 7);
+  }
+
+  @DisplayName("throws IllegalArgumentException with frames larger than the ring")
+  @Test
+  void oversizeFrame() {
+    ByteBuf frame = frame(producer.maxFrameLength() + 1, (byte) 0);
+    try {
+      assertThatIllegalArgumentException().isThrownBy(() -> producer.offer(frame));
+    } finally {
+      frame.release();
+    }
+  }
+
+  private boolean offer(ByteBuf frame) {
+    try {
+      return producer.offer(frame);
+    } finally {
+      frame.release();
+    }
+  }
+
+  private static ByteBuf frame(int length, byte value) {
+    byte[] bytes = new byte[length];
+    for (int i = 0; i < length; i++) {
+      bytes[i] = (byte) (value + i);
+    }
+    return Unpooled.wrappedBuffer(bytes);
+  }
+
+  private static void assertFrame(ByteBuf frame, int length, byte value) {
+    assertThat(frame).isNotNull();
+    try {
+      assertThat(ByteBufUtil.getBytes(frame)).isEqualTo(ByteBufUtil.getBytes(frame(length, value)));
+    } finally {
+      frame.release();
+    }
+  }
+}